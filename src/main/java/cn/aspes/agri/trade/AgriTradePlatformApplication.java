@@ -3,12 +3,14 @@ package cn.aspes.agri.trade;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 农副产品交易对接平台 - 主启动类
  */
 @SpringBootApplication
 @MapperScan("cn.aspes.agri.trade.mapper")
+@EnableScheduling
 public class AgriTradePlatformApplication {
     public static void main(String[] args) {
         SpringApplication.run(AgriTradePlatformApplication.class, args);
@@ -0,0 +1,42 @@
+package cn.aspes.agri.trade.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 不查询总数，通过 next 游标获取下一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    private List<T> records;
+    
+    /**
+     * 下一页游标，作为下次请求的 after 传入；没有更多数据时为 null
+     */
+    private String next;
+    
+    private boolean hasMore;
+    
+    /**
+     * 转换记录类型，游标不变
+     */
+    public <R> CursorPage<R> convert(Function<? super T, ? extends R> mapper) {
+        List<R> converted = records.stream().<R>map(mapper).toList();
+        return new CursorPage<>(converted, next, hasMore);
+    }
+    
+    /**
+     * 整页转换记录类型，游标不变；用于需要批量加载关联数据的转换
+     */
+    public <R> CursorPage<R> convertAll(Function<? super List<T>, ? extends List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(records), next, hasMore);
+    }
+}
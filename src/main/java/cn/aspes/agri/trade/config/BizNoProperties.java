@@ -0,0 +1,29 @@
+package cn.aspes.agri.trade.config;
+
+import cn.aspes.agri.trade.enums.BizNoType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 业务编号生成配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bizno")
+public class BizNoProperties {
+    /**
+     * 各类型每次从Redis申请的号段长度，号段在内存中发放，进程重启时未用完的号段作废；
+     * 步长应远小于流水号位数的容量（合同只有4位流水号，步长需较小）
+     */
+    private Map<BizNoType, Integer> segmentStep = new EnumMap<>(Map.of(BizNoType.ORDER, 1000, BizNoType.CONTRACT, 10));
+    /** 最大节点数，当天计数丢失后从数据库重建时跳过每个节点一个号段，避免与其他节点内存中未用完的号段重复 */
+    private int maxNodes = 16;
+
+    public int stepOf(BizNoType type) {
+        return Math.max(1, segmentStep.getOrDefault(type, 1000));
+    }
+}
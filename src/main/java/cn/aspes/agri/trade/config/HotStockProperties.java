@@ -0,0 +1,26 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 热点库存引擎配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "stock.hot")
+public class HotStockProperties {
+    /** 总开关，关闭时所有产品均走数据库预留 */
+    private boolean enabled = false;
+    /** 每批落库的预留流水条数 */
+    private int flushBatchSize = 200;
+    /** 落库任务执行间隔（毫秒） */
+    private long flushIntervalMs = 500;
+    /** 待提交流水超时时间（秒），超时后订单已存在则补提交 */
+    private long pendingTimeoutSeconds = 60;
+    /** 待提交流水放弃时间（秒），超过后订单仍不存在才归还计数，应远大于事务超时时间 */
+    private long pendingAbandonSeconds = 600;
+    /** 落库分布式锁超时时间（秒），每批落库前续期 */
+    private long flushLockSeconds = 30;
+}
@@ -0,0 +1,20 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 乐观锁冲突重试配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "optimistic-lock")
+public class OptimisticLockProperties {
+    /** 版本冲突时的最大尝试次数（含首次） */
+    private int maxAttempts = 3;
+    /** 首次重试前的退避时间（毫秒），之后每次翻倍并加随机抖动 */
+    private long backoffMillis = 20;
+    /** 单次退避时间上限（毫秒） */
+    private long maxBackoffMillis = 200;
+}
@@ -0,0 +1,28 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 名称搜索与产品筛选索引配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "search")
+public class SearchProperties {
+    /** 总开关，关闭或索引尚未建好时按名称 LIKE 查询数据库 */
+    private boolean enabled = true;
+    /** 从数据库全量重建索引的间隔（毫秒），用于同步其他节点的写入 */
+    private long rebuildIntervalMs = 600000;
+    /** 候选结果至少命中的查询词项比例，越小越能容忍错字 */
+    private double minShouldMatch = 0.5;
+    /** 关键字最大长度，超出部分截断 */
+    private int maxKeywordLength = 50;
+    /** 产品筛选的价格区间分界（元），左闭右开，如 5,10 划分为 0-5、5-10、10+ */
+    private List<BigDecimal> facetPriceBounds = List.of(new BigDecimal("5"), new BigDecimal("10"),
+            new BigDecimal("20"), new BigDecimal("50"), new BigDecimal("100"));
+}
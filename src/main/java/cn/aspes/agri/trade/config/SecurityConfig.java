@@ -1,6 +1,7 @@
 package cn.aspes.agri.trade.config;
 
 import cn.aspes.agri.trade.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,6 +43,8 @@ public class SecurityConfig {
         http.csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // 异步派发（流式导出、SSE 写完后回到容器）沿用首次请求已通过的鉴权
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // 允许无认证访问的路径
                         .requestMatchers(
                                 "/api/common/auth/**",           // 认证接口（登录、注册）
@@ -0,0 +1,158 @@
+package cn.aspes.agri.trade.config;
+
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 雪花ID生成器配置
+ *
+ * 启动时从Redis租用一个空闲节点号（复用分片租约，task = snowflake-node，分片 = 节点号），
+ * 多节点部署时各节点的机器ID互不相同；运行期间定时续约，停机时释放。
+ * 租不到节点号时启动失败；运行期间租约丢失且无法重新占用时暂停发号，重新占用后恢复。
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class SnowflakeConfig {
+
+    static final String NODE_LEASE_TASK = "snowflake-node";
+    private static final int MAX_NODE_ID = (int) ((SnowflakeIdGenerator.MAX_DATACENTER_ID + 1) * (SnowflakeIdGenerator.MAX_WORKER_ID + 1) - 1);
+
+    private final SnowflakeProperties properties;
+    private final ShardLeaseService shardLeaseService;
+
+    private volatile ShardLeaseService.Lease nodeLease;
+    private volatile long leaseRenewedAt;
+    private volatile SnowflakeIdGenerator generator;
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator() {
+        int nodeId = resolveNodeId();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(
+                nodeId & SnowflakeIdGenerator.MAX_WORKER_ID, nodeId >> 5);
+        this.generator = generator;
+        log.info("雪花ID生成器初始化：数据中心ID={}, 机器ID={}", generator.getDatacenterId(), generator.getWorkerId());
+        return generator;
+    }
+
+    /**
+     * 定时续约节点号，续约间隔为租约时间的三分之一
+     */
+    @Scheduled(fixedDelayString = "#{${snowflake.lease-seconds:60} * 1000 / 3}")
+    public void renewNodeLease() {
+        ShardLeaseService.Lease lease = nodeLease;
+        if (lease == null) {
+            return;
+        }
+        try {
+            if (shardLeaseService.renew(lease, leaseTtl())) {
+                leaseHeld();
+                return;
+            }
+            // 租约已过期（如Redis重启或长时间停顿），重新占用同一节点号
+            ShardLeaseService.Lease reacquired = shardLeaseService.tryAcquire(NODE_LEASE_TASK, lease.shard(), leaseTtl());
+            if (reacquired != null) {
+                nodeLease = reacquired;
+                leaseHeld();
+                log.warn("雪花ID节点号租约已重新获取：节点号={}", lease.shard());
+            } else {
+                suspend("雪花ID节点号已被其他节点占用，暂停发号直到重新占用：节点号={}", lease.shard());
+            }
+        } catch (Exception e) {
+            log.warn("雪花ID节点号续约失败：节点号={}", lease.shard(), e);
+            // 无法确认租约期间，超过租约时间后其他节点可能已占用该节点号
+            if (System.currentTimeMillis() - leaseRenewedAt >= leaseTtl().toMillis()) {
+                suspend("雪花ID节点号租约可能已过期，暂停发号直到续约成功：节点号={}", lease.shard());
+            }
+        }
+    }
+
+    private void leaseHeld() {
+        leaseRenewedAt = System.currentTimeMillis();
+        SnowflakeIdGenerator current = generator;
+        if (current != null && current.isSuspended()) {
+            current.resume();
+            log.warn("雪花ID节点号租约已恢复，恢复发号：节点号={}", nodeLease.shard());
+        }
+    }
+
+    private void suspend(String message, int nodeId) {
+        SnowflakeIdGenerator current = generator;
+        if (current != null && !current.isSuspended()) {
+            current.suspend();
+            log.error(message, nodeId);
+        }
+    }
+
+    @PreDestroy
+    public void releaseNodeLease() {
+        ShardLeaseService.Lease lease = nodeLease;
+        if (lease == null) {
+            return;
+        }
+        try {
+            shardLeaseService.release(lease);
+        } catch (Exception e) {
+            log.warn("释放雪花ID节点号失败，等待租约自然过期：节点号={}", lease.shard(), e);
+        }
+    }
+
+    private int resolveNodeId() {
+        if (properties.getNodeId() != null) {
+            return checkNodeId(properties.getNodeId());
+        }
+        // 不使用未租用的备用节点号：其他节点可能租到同一节点号，产生重复主键；租不到时重试，超时则启动失败
+        long deadline = System.currentTimeMillis() + properties.getAcquireTimeoutSeconds() * 1000;
+        while (true) {
+            try {
+                return acquireNodeId();
+            } catch (Exception e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IllegalStateException("无法租用雪花ID节点号，启动失败", e);
+                }
+                log.warn("租用雪花ID节点号失败，稍后重试：{}", e.getMessage());
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("租用雪花ID节点号被中断", e);
+            }
+        }
+    }
+
+    private int acquireNodeId() {
+        // 从随机位置开始尝试，减少多节点同时启动时的竞争
+        int offset = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        for (int i = 0; i <= MAX_NODE_ID; i++) {
+            int candidate = (offset + i) % (MAX_NODE_ID + 1);
+            ShardLeaseService.Lease lease = shardLeaseService.tryAcquire(NODE_LEASE_TASK, candidate, leaseTtl());
+            if (lease != null) {
+                nodeLease = lease;
+                leaseRenewedAt = System.currentTimeMillis();
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("雪花ID节点号已全部被占用");
+    }
+
+    private static int checkNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException(String.format("snowflake node id must be between 0 and %d", MAX_NODE_ID));
+        }
+        return nodeId;
+    }
+
+    private Duration leaseTtl() {
+        return Duration.ofSeconds(properties.getLeaseSeconds());
+    }
+}
@@ -0,0 +1,20 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 雪花ID生成器配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "snowflake")
+public class SnowflakeProperties {
+    /** 固定节点号（0~1023，高5位为数据中心ID，低5位为机器ID），为空时从Redis租用 */
+    private Integer nodeId;
+    /** 启动时租用节点号的最长等待时间（秒），超时仍未租到则启动失败 */
+    private long acquireTimeoutSeconds = 30;
+    /** 节点号租约时间（秒），运行期间定时续约 */
+    private long leaseSeconds = 60;
+}
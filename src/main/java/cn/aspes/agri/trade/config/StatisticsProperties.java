@@ -0,0 +1,54 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 数据统计配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "statistics")
+public class StatisticsProperties {
+    /** 平台统计结果的本地缓存时间（秒），0 表示不缓存 */
+    private int platformStatsTtlSeconds = 30;
+    /** 主体统计汇总表全量重建的执行时间（cron） */
+    private String partyStatsRebuildCron = "0 30 3 * * *";
+    /** 主体统计重建每段处理的主体/产品数，每段在独立的短事务中重算 */
+    private int partyStatsRebuildChunkSize = 500;
+    /** 农户活跃度本地分钟桶写入Redis的间隔（毫秒） */
+    private long activityFlushIntervalMs = 5000;
+    /** 农户所属城市本地缓存时间（分钟），过期后继续使用旧值并在后台刷新 */
+    private int activityCityCacheTtlMinutes = 10;
+    /** 农户活跃度SSE推送间隔（秒） */
+    private int activityPushIntervalSeconds = 5;
+    /** 农户活跃度SSE连接超时时间（分钟） */
+    private int activityStreamTimeoutMinutes = 30;
+    /** 请求活跃事件环形缓冲区容量，向上取整为2的幂，写满后丢弃新事件 */
+    private int activityBufferSize = 8192;
+    /** 活跃事件消费线程每批处理的最大事件数 */
+    private int activityBatchSize = 512;
+    /** 单节点统计的接口路由模板数上限，超出部分归入 other */
+    private int activityMaxEndpoints = 256;
+    /** 交易趋势单次查询的最大时间桶数（日/周/月） */
+    private int tradeTrendMaxBuckets = 400;
+    /** 交易趋势回填每段处理的订单数 */
+    private int tradeBackfillChunkSize = 1000;
+    /** 交易趋势回填租约时间（秒），每段处理前续约 */
+    private int tradeBackfillLeaseSeconds = 60;
+    /** 订单/产品状态分布的本地缓存时间（秒），状态变更提交后立即失效 */
+    private int statusHistogramTtlSeconds = 5;
+    /** 排行榜草图每个时间窗口保留的计数器数，越大排行越准确 */
+    private int leaderboardCapacity = 200;
+    /** 排行榜按天保留的窗口数，即可查询的最大天数 */
+    private int leaderboardWindowDays = 35;
+    /** 单次查询的最大名次数 */
+    private int leaderboardMaxTopK = 50;
+    /** 排行榜草图写入Redis的间隔（毫秒） */
+    private long leaderboardFlushIntervalMs = 60000;
+    /** 排行榜与精确结果对比校验时间 */
+    private String leaderboardValidateCron = "0 0 4 * * *";
+    /** 评分汇总的Redis缓存时间（秒），评价变更提交后立即失效 */
+    private int ratingSummaryCacheTtlSeconds = 3600;
+}
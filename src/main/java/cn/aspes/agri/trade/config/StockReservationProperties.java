@@ -0,0 +1,28 @@
+package cn.aspes.agri.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 库存预留配置属性
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "stock.reservation")
+public class StockReservationProperties {
+    /** 过期释放任务每批处理的预留条数，每批独立提交事务 */
+    private int expireBatchSize = 500;
+    /** 兜底扫描分片数，多节点按 id % N 分片竞争租约，各自处理不相交的分片 */
+    private int sweepShards = 4;
+    /** 分片租约时间（秒），每批提交前续约 */
+    private long sweepLeaseSeconds = 300;
+    /** 是否启用过期延迟队列，关闭时仅由整点兜底任务释放 */
+    private boolean expiryQueueEnabled = true;
+    /** 延迟队列轮询间隔（毫秒） */
+    private long expiryPollIntervalMs = 1000;
+    /** 每次从延迟队列领取的预留条数 */
+    private int expiryPollBatchSize = 200;
+    /** 领取租约时间（秒），处理节点崩溃后到期重新投递 */
+    private long expiryLeaseSeconds = 60;
+}
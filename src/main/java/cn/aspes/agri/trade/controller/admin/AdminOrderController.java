@@ -1,19 +1,33 @@
 package cn.aspes.agri.trade.controller.admin;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
+import cn.aspes.agri.trade.common.CursorPage;
+import cn.aspes.agri.trade.dto.ExportRequest;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
 import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.service.ExportService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import cn.aspes.agri.trade.vo.PurchaseOrderVO;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +45,12 @@ public class AdminOrderController {
     @Resource
     private PurchaseOrderService purchaseOrderService;
     
+    @Resource
+    private StatusHistogramService statusHistogramService;
+    
+    @Resource
+    private ExportService exportService;
+    
     /**
      * 分页查询所有订单
      * 
@@ -48,6 +68,20 @@ public class AdminOrderController {
         return Result.success(purchaseOrderService.pageOrders(current, size, status));
     }
     
+    /**
+     * 游标分页查询所有订单，供无限滚动和同步任务使用，翻页耗时与深度无关
+     * @param page 游标与每页大小
+     * @param status 订单状态
+     * @return 当前页订单及下一页游标
+     */
+    @Operation(summary = "游标分页查询所有订单")
+    @GetMapping("/page/cursor")
+    public Result<CursorPage<PurchaseOrder>> pageOrdersByCursor(
+            @Valid @ModelAttribute CursorPageRequest page,
+            @RequestParam(required = false) String status) {
+        return Result.success(purchaseOrderService.pageOrdersByCursor(page.getAfter(), page.getSize(), status));
+    }
+    
     /**
      * 根据订单ID查询订单详情
      * 
@@ -112,33 +146,13 @@ public class AdminOrderController {
     @Operation(summary = "获取订单统计信息")
     @GetMapping("/statistics")
     public Result<Object> getOrderStatistics() {
-        // 获取总订单数
-        long totalCount = purchaseOrderService.count();
+        // 一次分组查询得到全部状态的订单数（短时本地缓存）
+        EnumMap<OrderStatus, Long> histogram = statusHistogramService.getOrderStatusHistogram();
         
-        // 获取各状态订单数
-        long pendingCount = purchaseOrderService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getStatus, OrderStatus.PENDING));
-                
-        long paidCount = purchaseOrderService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getStatus, OrderStatus.PAID));
-                
-        long completedCount = purchaseOrderService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getStatus, OrderStatus.COMPLETED));
-                
-        long cancelledCount = purchaseOrderService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getStatus, OrderStatus.CANCELLED));
-        
-        // 构建统计结果
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalCount", totalCount);
-        statistics.put("pendingCount", pendingCount);
-        statistics.put("paidCount", paidCount);
-        statistics.put("completedCount", completedCount);
-        statistics.put("cancelledCount", cancelledCount);
+        // 构建统计结果：totalCount 及各状态 xxxCount（如 pendingInspectionCount）
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("totalCount", histogram.values().stream().mapToLong(Long::longValue).sum());
+        histogram.forEach((status, count) -> statistics.put(StrUtil.toCamelCase(status.getCode()) + "Count", count));
         
         return Result.success(statistics);
     }
@@ -186,4 +200,39 @@ public class AdminOrderController {
                 .orderByDesc(PurchaseOrder::getCreateTime));
         return Result.success(result);
     }
-}
\ No newline at end of file
+    
+    /**
+     * 导出订单（CSV），按创建日期区间逐行流式写出
+     * 
+     * @param request 日期区间及可选的订单状态
+     * @return CSV 文件
+     */
+    @Operation(summary = "导出订单（CSV）")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@Valid ExportRequest request) {
+        // 写出开始后无法再返回错误信息，先校验参数
+        exportService.checkOrderExport(request);
+        return csvResponse("orders", request, out -> exportService.exportOrders(request, out));
+    }
+    
+    /**
+     * 导出支付记录（CSV），按创建日期区间逐行流式写出
+     * 
+     * @param request 日期区间及可选的支付状态
+     * @return CSV 文件
+     */
+    @Operation(summary = "导出支付记录（CSV）")
+    @GetMapping("/payments/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@Valid ExportRequest request) {
+        exportService.checkPaymentExport(request);
+        return csvResponse("payments", request, out -> exportService.exportPayments(request, out));
+    }
+    
+    private ResponseEntity<StreamingResponseBody> csvResponse(String name, ExportRequest request, StreamingResponseBody body) {
+        String filename = name + "_" + request.getFrom() + "_" + request.getTo() + ".csv";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
@@ -3,7 +3,10 @@ package cn.aspes.agri.trade.controller.admin;
 import cn.aspes.agri.trade.common.Result;
 import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.scheduled.StockReservationScheduler;
 import cn.aspes.agri.trade.service.FarmerProductService;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +16,7 @@ import jakarta.validation.constraints.NotNull;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,6 +34,15 @@ public class AdminProductController {
     @Resource
     private FarmerProductService farmerProductService;
     
+    @Resource
+    private HotStockService hotStockService;
+    
+    @Resource
+    private StatusHistogramService statusHistogramService;
+    
+    @Resource
+    private StockReservationScheduler stockReservationScheduler;
+    
     /**
      * 分页查询所有产品
      * 
@@ -129,6 +142,55 @@ public class AdminProductController {
         return Result.success(result);
     }
     
+    /**
+     * 开启产品热点库存模式
+     * 
+     * @param productId 产品ID
+     * @return 操作结果
+     */
+    @Operation(summary = "开启产品热点库存模式")
+    @PutMapping("/{productId}/hot-stock/enable")
+    public Result<Void> enableHotStock(@PathVariable Long productId) {
+        hotStockService.enableHotProduct(productId);
+        return Result.success();
+    }
+    
+    /**
+     * 关闭产品热点库存模式
+     * 
+     * @param productId 产品ID
+     * @return 操作结果
+     */
+    @Operation(summary = "关闭产品热点库存模式")
+    @PutMapping("/{productId}/hot-stock/disable")
+    public Result<Void> disableHotStock(@PathVariable Long productId) {
+        hotStockService.disableHotProduct(productId);
+        return Result.success();
+    }
+    
+    /**
+     * 查询产品热点库存状态
+     * 
+     * @param productId 产品ID
+     * @return 热点计数、待提交及待落库流水数量
+     */
+    @Operation(summary = "查询产品热点库存状态")
+    @GetMapping("/{productId}/hot-stock")
+    public Result<Map<String, Object>> getHotStockStatus(@PathVariable Long productId) {
+        return Result.success(hotStockService.getHotStockStatus(productId));
+    }
+    
+    /**
+     * 查询库存预留过期释放任务运行指标
+     * 
+     * @return 累计批次数、释放条数及批次耗时
+     */
+    @Operation(summary = "查询库存预留过期释放指标")
+    @GetMapping("/reservations/expiry-metrics")
+    public Result<Map<String, Object>> getReservationExpiryMetrics() {
+        return Result.success(stockReservationScheduler.getSweepMetrics());
+    }
+    
     /**
      * 获取产品统计信息
      * 
@@ -137,24 +199,15 @@ public class AdminProductController {
     @Operation(summary = "获取产品统计信息")
     @GetMapping("/statistics")
     public Result<Object> getProductStatistics() {
-        // 获取总产品数
-        long totalCount = farmerProductService.count();
-        
-        // 获取各状态产品数
-        long onlineCount = farmerProductService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<cn.aspes.agri.trade.entity.FarmerProduct>()
-                .eq(cn.aspes.agri.trade.entity.FarmerProduct::getStatus, cn.aspes.agri.trade.enums.ProductStatus.ON_SALE));
-                
-        long offlineCount = farmerProductService.count(
-            new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<cn.aspes.agri.trade.entity.FarmerProduct>()
-                .eq(cn.aspes.agri.trade.entity.FarmerProduct::getStatus, cn.aspes.agri.trade.enums.ProductStatus.OFF_SALE));
+        // 一次分组查询得到各状态产品数（短时本地缓存）
+        EnumMap<ProductStatus, Long> histogram = statusHistogramService.getProductStatusHistogram();
         
         // 构建统计结果
         Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalCount", totalCount);
-        statistics.put("onlineCount", onlineCount);
-        statistics.put("offlineCount", offlineCount);
+        statistics.put("totalCount", histogram.values().stream().mapToLong(Long::longValue).sum());
+        statistics.put("onlineCount", histogram.get(ProductStatus.ON_SALE));
+        statistics.put("offlineCount", histogram.get(ProductStatus.OFF_SALE));
         
         return Result.success(statistics);
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,39 @@
 package cn.aspes.agri.trade.controller.admin;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.dto.TradeTrendRequest;
+import cn.aspes.agri.trade.service.ActivityEventService;
+import cn.aspes.agri.trade.service.LeaderboardService;
 import cn.aspes.agri.trade.service.StatisticsService;
+import cn.aspes.agri.trade.service.TradeStatsService;
 import cn.aspes.agri.trade.vo.StatisticsVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
 /**
  * 后台管理 - 数据统计控制器
  */
+@Slf4j
 @Tag(name = "后台管理 - 数据统计")
 @RestController
 @RequestMapping("/api/admin/statistics")
@@ -22,6 +43,21 @@ public class AdminStatisticsController {
     @Resource
     private StatisticsService statisticsService;
     
+    @Resource
+    private ActivityEventService activityEventService;
+    
+    @Resource
+    private TradeStatsService tradeStatsService;
+    
+    @Resource
+    private LeaderboardService leaderboardService;
+    
+    @Resource
+    private StatisticsProperties statisticsProperties;
+    
+    @Resource
+    private TaskScheduler taskScheduler;
+    
     @Operation(summary = "获取平台数据统计")
     @GetMapping("/platform")
     public Result<StatisticsVO.PlatformStats> getPlatformStats() {
@@ -29,10 +65,98 @@ public class AdminStatisticsController {
         return Result.success(stats);
     }
 
+    @Operation(summary = "获取交易趋势（按日/周/月，可按分类或产地省份展开）")
+    @GetMapping("/trade-trend")
+    public Result<List<StatisticsVO.TradeTrendPoint>> getTradeTrend(@Valid TradeTrendRequest request) {
+        return Result.success(tradeStatsService.getTradeTrend(request));
+    }
+
+    @Operation(summary = "回填交易趋势汇总（后台执行）")
+    @PostMapping("/trade-trend/backfill")
+    public Result<Void> backfillTradeTrend() {
+        taskScheduler.schedule(() -> {
+            try {
+                tradeStatsService.backfill();
+            } catch (Exception e) {
+                log.error("交易趋势回填出错", e);
+            }
+        }, Instant.now());
+        return Result.success();
+    }
+
+    @Operation(summary = "获取排行榜（product 产品销量 / farmer 农户成交额 / origin_area 产地成交单数）")
+    @GetMapping("/leaderboard")
+    public Result<List<StatisticsVO.LeaderboardEntry>> getLeaderboard(
+            @RequestParam String dimension,
+            @RequestParam(defaultValue = "7") Integer days,
+            @RequestParam(defaultValue = "10") Integer topK,
+            @RequestParam(defaultValue = "false") Boolean exact) {
+        return Result.success(leaderboardService.getTop(dimension, days, topK, exact));
+    }
+
+    @Operation(summary = "获取排行榜最近一次校验结果")
+    @GetMapping("/leaderboard/validation")
+    public Result<List<StatisticsVO.LeaderboardValidation>> getLeaderboardValidation() {
+        return Result.success(leaderboardService.getLastValidation());
+    }
+
     @Operation(summary = "获取市级农户活跃度")
     @GetMapping("/farmer-activity")
-    public Result<java.util.Map<String, Long>> getFarmerActivity(@org.springframework.web.bind.annotation.RequestParam(name = "windowMinutes", defaultValue = "5") int windowMinutes) {
-        java.util.Map<String, Long> data = statisticsService.getFarmerActivityByCity(windowMinutes);
+    public Result<Map<String, Long>> getFarmerActivity(@RequestParam(name = "windowMinutes", defaultValue = "5") int windowMinutes) {
+        Map<String, Long> data = statisticsService.getFarmerActivityByCity(windowMinutes);
+        return Result.success(data);
+    }
+
+    @Operation(summary = "获取市级去重活跃农户数")
+    @GetMapping("/farmer-activity/farmers")
+    public Result<Map<String, Long>> getActiveFarmers(@RequestParam(name = "windowMinutes", defaultValue = "5") int windowMinutes) {
+        Map<String, Long> data = statisticsService.getActiveFarmersByCity(windowMinutes);
         return Result.success(data);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "获取本节点接口访问量与延迟分位数")
+    @GetMapping("/endpoints")
+    public Result<List<StatisticsVO.EndpointStats>> getEndpointStats() {
+        return Result.success(activityEventService.getEndpointStats());
+    }
+
+    @Operation(summary = "获取本节点活跃事件管道指标")
+    @GetMapping("/activity-pipeline")
+    public Result<Map<String, Object>> getActivityPipelineMetrics() {
+        return Result.success(activityEventService.getPipelineMetrics());
+    }
+
+    @Operation(summary = "SSE实时推送市级农户活跃度")
+    @GetMapping(value = "/farmer-activity/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFarmerActivity(@RequestParam(name = "windowMinutes", defaultValue = "5") int windowMinutes) {
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(statisticsProperties.getActivityStreamTimeoutMinutes()).toMillis());
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        Runnable cancel = () -> {
+            ScheduledFuture<?> future = task.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+        };
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+        
+        // 首次推送在请求线程内发出（响应开始前缓存，随响应头一起写出），之后按固定间隔推送，
+        // 定时推送不与请求线程写响应并发；连接断开或发送失败时停止
+        Duration interval = Duration.ofSeconds(statisticsProperties.getActivityPushIntervalSeconds());
+        Runnable push = () -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("farmer-activity")
+                        .data(statisticsService.getFarmerActivityByCity(windowMinutes), MediaType.APPLICATION_JSON));
+            } catch (Exception e) {
+                log.debug("农户活跃度推送结束：{}", e.getMessage());
+                cancel.run();
+                emitter.completeWithError(e);
+            }
+        };
+        push.run();
+        task.set(taskScheduler.scheduleAtFixedRate(push, Instant.now().plus(interval), interval));
+        return emitter;
+    }
+}
@@ -4,6 +4,8 @@ import cn.aspes.agri.trade.common.Result;
 import cn.aspes.agri.trade.entity.CooperationReview;
 import cn.aspes.agri.trade.security.CustomUserDetails;
 import cn.aspes.agri.trade.service.CooperationReviewService;
+import cn.aspes.agri.trade.service.RatingSummaryService;
+import cn.aspes.agri.trade.vo.StatisticsVO;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +25,9 @@ public class CooperationReviewController {
     
     @Resource
     private CooperationReviewService reviewService;
+    
+    @Resource
+    private RatingSummaryService ratingSummaryService;
 
     @Operation(summary = "分页查询所有评价")
     @GetMapping("/page")
@@ -47,6 +52,13 @@ public class CooperationReviewController {
         return Result.success(page);
     }
     
+    @Operation(summary = "查询评分分布", description = "被评价方的评价数、平均评分及1~5星分布")
+    @GetMapping("/target/{reviewTo}/{targetId}/distribution")
+    public Result<StatisticsVO.RatingDistribution> distribution(@PathVariable String reviewTo,
+                                                                @PathVariable Long targetId) {
+        return Result.success(ratingSummaryService.getDistribution(reviewTo, targetId));
+    }
+    
     @Operation(summary = "提交评价")
     @PostMapping
     @PreAuthorize("hasAnyRole('FARMER', 'PURCHASER')")
@@ -2,6 +2,7 @@ package cn.aspes.agri.trade.controller.common;
 
 import cn.aspes.agri.trade.common.Result;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
 import cn.aspes.agri.trade.entity.FarmerInfo;
 import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.entity.PurchaseDemand;
@@ -12,6 +13,7 @@ import cn.aspes.agri.trade.service.PurchaseDemandService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
 import cn.aspes.agri.trade.vo.FarmerInfoVO;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
+import cn.aspes.agri.trade.vo.ProductFacetVO;
 import cn.aspes.agri.trade.vo.PurchaseDemandVO;
 import cn.aspes.agri.trade.vo.PurchaserInfoVO;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -19,7 +21,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -77,6 +81,12 @@ public class SearchController {
         return Result.success(voPage);
     }
 
+    @Operation(summary = "在售产品分面筛选", description = "按分类、产地省份、价格区间、生产方式多选筛选，并返回各维度的产品数")
+    @GetMapping("/products/facets")
+    public Result<ProductFacetVO> browseProducts(@Valid @ModelAttribute ProductFacetRequest request) {
+        return Result.success(farmerProductService.browseProducts(request));
+    }
+
     @Operation(summary = "根据产品名称关键字搜索需求")
     @GetMapping("/demands")
     public Result<IPage<PurchaseDemandVO>> searchDemandsByProductName(@RequestParam String keyword,
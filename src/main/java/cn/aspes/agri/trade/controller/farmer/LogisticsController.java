@@ -1,7 +1,9 @@
 package cn.aspes.agri.trade.controller.farmer;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
 import cn.aspes.agri.trade.dto.LogisticsRequest;
 import cn.aspes.agri.trade.dto.LogisticsTraceRequest;
 import cn.aspes.agri.trade.entity.LogisticsRecord;
@@ -104,4 +106,14 @@ public class LogisticsController {
         Page<LogisticsTrace> page = logisticsRecordService.pageTraces(logisticsId, current, size, userDetails.getId());
         return Result.success(page);
     }
+    
+    @Operation(summary = "游标分页查询物流轨迹", description = "按节点时间倒序，传入上一页返回的 next 翻页，不返回总数")
+    @GetMapping("/{logisticsId}/traces-cursor")
+    @PreAuthorize("hasAnyRole('FARMER', 'PURCHASER', 'ADMIN')")
+    public Result<CursorPage<LogisticsTrace>> pageTracesByCursor(
+            @PathVariable Long logisticsId,
+            @Valid @ModelAttribute CursorPageRequest page,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return Result.success(logisticsRecordService.pageTracesByCursor(logisticsId, page.getAfter(), page.getSize(), userDetails.getId()));
+    }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package cn.aspes.agri.trade.controller.farmer;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
 import cn.aspes.agri.trade.dto.FarmerProductRequest;
 import cn.aspes.agri.trade.dto.ProductImageRequest;
+import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.security.CustomUserDetails;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.FarmerProductService;
@@ -108,6 +111,16 @@ public class ProductController {
         return Result.success(voPage);
     }
     
+    @Operation(summary = "游标分页查询产品列表", description = "按创建时间倒序，传入上一页返回的 next 翻页，不返回总数")
+    @GetMapping("/cursor")
+    public Result<CursorPage<FarmerProductVO>> listProductsByCursor(@Valid @ModelAttribute CursorPageRequest page,
+                                                                    @RequestParam(required = false) Long categoryId,
+                                                                    @RequestParam(required = false) Integer originAreaId,
+                                                                    @RequestParam(required = false) String status) {
+        CursorPage<FarmerProduct> result = farmerProductService.listProductsByCursor(page.getAfter(), page.getSize(), categoryId, originAreaId, status);
+        return Result.success(result.convertAll(entityVOConverter::toFarmerProductVOList));
+    }
+    
     @Operation(summary = "查询我的产品列表")
     @GetMapping("/my")
     @PreAuthorize("hasAnyRole('FARMER', 'ADMIN')")
@@ -1,7 +1,9 @@
 package cn.aspes.agri.trade.controller.purchaser;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
 import cn.aspes.agri.trade.dto.PaymentRequest;
 import cn.aspes.agri.trade.entity.PaymentRecord;
 import cn.aspes.agri.trade.security.CustomUserDetails;
@@ -10,6 +12,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.Valid;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -50,6 +53,15 @@ public class PaymentController {
         return Result.success(paymentRecordService.pagePayments(current, size, orderId, status));
     }
     
+    @Operation(summary = "游标分页查询支付记录", description = "按创建时间倒序，传入上一页返回的 next 翻页，不返回总数")
+    @GetMapping("/page/cursor")
+    public Result<CursorPage<PaymentRecord>> pageByCursor(
+            @Valid @ModelAttribute CursorPageRequest page,
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) String status) {
+        return Result.success(paymentRecordService.pagePaymentsByCursor(page.getAfter(), page.getSize(), orderId, status));
+    }
+    
 
     
     @Operation(summary = "查询我的支付记录")
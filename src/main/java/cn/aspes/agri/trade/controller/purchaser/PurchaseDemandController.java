@@ -1,7 +1,9 @@
 package cn.aspes.agri.trade.controller.purchaser;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
 import cn.aspes.agri.trade.dto.PurchaseDemandRequest;
 import cn.aspes.agri.trade.entity.PurchaseDemand;
 import cn.aspes.agri.trade.security.CustomUserDetails;
@@ -86,6 +88,15 @@ public class PurchaseDemandController {
         return Result.success(voPage);
     }
     
+    @Operation(summary = "游标分页查询需求列表", description = "按创建时间倒序，传入上一页返回的 next 翻页，不返回总数")
+    @GetMapping("/cursor")
+    public Result<CursorPage<PurchaseDemandVO>> listDemandsByCursor(@Valid @ModelAttribute CursorPageRequest page,
+                                                                    @RequestParam(required = false) Long categoryId,
+                                                                    @RequestParam(required = false) String status) {
+        CursorPage<PurchaseDemand> result = purchaseDemandService.listDemandsByCursor(page.getAfter(), page.getSize(), categoryId, status);
+        return Result.success(result.convertAll(entityVOConverter::toPurchaseDemandVOList));
+    }
+    
     @Operation(summary = "查询我的需求列表")
     @GetMapping("/my")
     @PreAuthorize("hasRole('PURCHASER')")
@@ -1,19 +1,25 @@
 package cn.aspes.agri.trade.controller.purchaser;
 
 import cn.aspes.agri.trade.common.Result;
+import cn.aspes.agri.trade.dto.CursorPageRequest;
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
 import cn.aspes.agri.trade.security.CustomUserDetails;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.vo.ContractOrderResultVO;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.Valid;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * B端 - 采购订单管理控制器
  */
@@ -40,6 +46,14 @@ public class PurchaseOrderController {
         return Result.success(orderService.pageOrders(current, size, status));
     }
     
+    @Operation(summary = "游标分页查询订单", description = "按创建时间倒序，传入上一页返回的 next 翻页，不返回总数")
+    @GetMapping("/page/cursor")
+    public Result<CursorPage<PurchaseOrder>> pageByCursor(
+            @Valid @ModelAttribute CursorPageRequest page,
+            @RequestParam(required = false) String status) {
+        return Result.success(orderService.pageOrdersByCursor(page.getAfter(), page.getSize(), status));
+    }
+    
     @Operation(summary = "查询我的订单")
     @GetMapping("/my")
     @PreAuthorize("hasAnyRole('FARMER', 'PURCHASER')")
@@ -51,6 +65,25 @@ public class PurchaseOrderController {
         return Result.success(orderService.listMyOrders(userDetails.getId(), role, current, size));
     }
     
+    @Operation(summary = "游标分页查询我的订单")
+    @GetMapping("/my/cursor")
+    @PreAuthorize("hasAnyRole('FARMER', 'PURCHASER')")
+    public Result<CursorPage<PurchaseOrder>> listMyOrdersByCursor(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @Valid @ModelAttribute CursorPageRequest page) {
+        String role = userDetails.getRole().name().toLowerCase();
+        return Result.success(orderService.listMyOrdersByCursor(userDetails.getId(), role, page.getAfter(), page.getSize()));
+    }
+    
+    @Operation(summary = "基于多个合同批量创建订单")
+    @PostMapping("/batch-from-contracts")
+    @PreAuthorize("hasRole('PURCHASER')")
+    public Result<List<ContractOrderResultVO>> createOrdersFromContracts(
+            @RequestBody List<Long> contractIds,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return Result.success(orderService.createOrdersFromContracts(contractIds, userDetails.getId()));
+    }
+    
     @Operation(summary = "订单详情")
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('FARMER', 'PURCHASER')")
@@ -11,6 +11,7 @@ import cn.aspes.agri.trade.service.PurchaseDemandService;
 import cn.aspes.agri.trade.vo.*;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.service.IService;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,12 +22,21 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Entity到VO转换器 - 使用ModelMapper
+ *
+ * 需要关联数据的转换先收集整页的外键，每类关联实体只查询一次再组装，
+ * 单个对象的转换复用批量逻辑。
  */
 @Slf4j
 @Component
@@ -91,27 +101,34 @@ public class EntityVOConverter implements ApplicationContextAware {
         if (farmerInfo == null) {
             return null;
         }
-
-        FarmerInfoVO farmerInfoVO = new FarmerInfoVO();
-        BeanUtils.copyProperties(farmerInfo, farmerInfoVO);
-
-        // 查询并设置产地名称
-        if (farmerInfo.getOriginAreaId() != null) {
-            OriginArea originArea = originAreaService.getById(farmerInfo.getOriginAreaId());
-            if (originArea != null) {
-                farmerInfoVO.setOriginAreaName(originArea.getAreaName());
-            }
-        }
-
-        return farmerInfoVO;
+        return toFarmerInfoVOList(Collections.singletonList(farmerInfo)).get(0);
     }
 
+    /**
+     * 批量转换，整页的产地名称一次查询
+     */
     public List<FarmerInfoVO> toFarmerInfoVOList(List<FarmerInfo> farmerInfos) {
         if (farmerInfos == null || farmerInfos.isEmpty()) {
             return Collections.emptyList();
         }
+        Map<Integer, OriginArea> areas = loadByIds(originAreaService,
+                collectIds(farmerInfos, FarmerInfo::getOriginAreaId), OriginArea::getAreaId);
+
         return farmerInfos.stream()
-                .map(this::toFarmerInfoVO)
+                .map(farmerInfo -> {
+                    if (farmerInfo == null) {
+                        return null;
+                    }
+                    FarmerInfoVO farmerInfoVO = new FarmerInfoVO();
+                    BeanUtils.copyProperties(farmerInfo, farmerInfoVO);
+
+                    // 设置产地名称
+                    OriginArea originArea = areas.get(farmerInfo.getOriginAreaId());
+                    if (originArea != null) {
+                        farmerInfoVO.setOriginAreaName(originArea.getAreaName());
+                    }
+                    return farmerInfoVO;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -170,35 +187,39 @@ public class EntityVOConverter implements ApplicationContextAware {
         if (product == null) {
             return null;
         }
-        FarmerProductVO vo = modelMapper.map(product, FarmerProductVO.class);
-
-        // 查询并设置产品图片
-        List<ProductImage> images = productImageService.listByProductId(product.getId());
-        if (images != null && !images.isEmpty()) {
-            List<ProductImageDTO> imageDTOs = images.stream()
-                    .sorted((a, b) -> a.getSort() != null && b.getSort() != null ? a.getSort().compareTo(b.getSort()) : 0)
-                    .map(image -> {
-                        ProductImageDTO dto = new ProductImageDTO();
-                        dto.setUrl(image.getImageUrl());
-                        dto.setImageType(image.getImageType());
-                        dto.setSort(image.getSort());
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
-            vo.setImages(imageDTOs);
-        } else {
-            vo.setImages(Collections.emptyList());
-        }
-
-        return vo;
+        return toFarmerProductVOList(Collections.singletonList(product)).get(0);
     }
 
+    /**
+     * 批量转换，整页产品的图片一次查询
+     */
     public List<FarmerProductVO> toFarmerProductVOList(List<FarmerProduct> products) {
         if (products == null || products.isEmpty()) {
             return Collections.emptyList();
         }
+        Map<Long, List<ProductImage>> imagesByProduct = productImageService.groupByProductIds(
+                collectIds(products, FarmerProduct::getId));
+
         return products.stream()
-                .map(this::toFarmerProductVO)
+                .map(product -> {
+                    if (product == null) {
+                        return null;
+                    }
+                    FarmerProductVO vo = modelMapper.map(product, FarmerProductVO.class);
+
+                    // 设置产品图片（已按排序升序）
+                    List<ProductImage> images = imagesByProduct.getOrDefault(product.getId(), Collections.emptyList());
+                    vo.setImages(images.stream()
+                            .map(image -> {
+                                ProductImageDTO dto = new ProductImageDTO();
+                                dto.setUrl(image.getImageUrl());
+                                dto.setImageType(image.getImageType());
+                                dto.setSort(image.getSort());
+                                return dto;
+                            })
+                            .collect(Collectors.toList()));
+                    return vo;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -217,26 +238,33 @@ public class EntityVOConverter implements ApplicationContextAware {
         if (demand == null) {
             return null;
         }
-
-        PurchaseDemandVO vo = modelMapper.map(demand, PurchaseDemandVO.class);
-
-        // 设置采购商名称
-        if (demand.getPurchaserId() != null) {
-            PurchaserInfo purchaserInfo = purchaserInfoService.getById(demand.getPurchaserId());
-            if (purchaserInfo != null) {
-                vo.setCompanyName(purchaserInfo.getCompanyName());
-            }
-        }
-
-        return vo;
+        return toPurchaseDemandVOList(Collections.singletonList(demand)).get(0);
     }
 
+    /**
+     * 批量转换，整页的采购商一次查询
+     */
     public List<PurchaseDemandVO> toPurchaseDemandVOList(List<PurchaseDemand> demands) {
         if (demands == null || demands.isEmpty()) {
             return Collections.emptyList();
         }
+        Map<Long, PurchaserInfo> purchasers = loadByIds(purchaserInfoService,
+                collectIds(demands, PurchaseDemand::getPurchaserId), PurchaserInfo::getId);
+
         return demands.stream()
-                .map(this::toPurchaseDemandVO)
+                .map(demand -> {
+                    if (demand == null) {
+                        return null;
+                    }
+                    PurchaseDemandVO vo = modelMapper.map(demand, PurchaseDemandVO.class);
+
+                    // 设置采购商名称
+                    PurchaserInfo purchaserInfo = purchasers.get(demand.getPurchaserId());
+                    if (purchaserInfo != null) {
+                        vo.setCompanyName(purchaserInfo.getCompanyName());
+                    }
+                    return vo;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -255,48 +283,55 @@ public class EntityVOConverter implements ApplicationContextAware {
         if (record == null) {
             return null;
         }
-
-        DockingRecordVO vo = modelMapper.map(record, DockingRecordVO.class);
-
-        // 设置农户名称
-        if (record.getFarmerId() != null) {
-            FarmerInfo farmerInfo = farmerInfoService.getById(record.getFarmerId());
-            if (farmerInfo != null) {
-                vo.setFarmName(farmerInfo.getFarmName());
-            }
-        }
-
-        // 设置响应产品名称
-        if (record.getProductId() != null) {
-            FarmerProduct product = getFarmerProductService().getById(record.getProductId());
-            if (product != null) {
-                vo.setProductName(product.getName());
-            }
-        }
-
-        // 设置需求相关信息（需求产品名称、采购商名称）
-        if (record.getDemandId() != null) {
-            PurchaseDemand demand = purchaseDemandService.getById(record.getDemandId());
-            if (demand != null) {
-                vo.setDemandProductName(demand.getProductName());
-                if (demand.getPurchaserId() != null) {
-                    PurchaserInfo purchaserInfo = purchaserInfoService.getById(demand.getPurchaserId());
-                    if (purchaserInfo != null) {
-                        vo.setPurchaserName(purchaserInfo.getCompanyName());
-                    }
-                }
-            }
-        }
-
-        return vo;
+        return toDockingRecordVOList(Collections.singletonList(record)).get(0);
     }
 
+    /**
+     * 批量转换，农户、产品、需求及需求的采购商各一次查询
+     */
     public List<DockingRecordVO> toDockingRecordVOList(List<DockingRecord> records) {
         if (records == null || records.isEmpty()) {
             return Collections.emptyList();
         }
+        Map<Long, FarmerInfo> farmers = loadByIds(farmerInfoService,
+                collectIds(records, DockingRecord::getFarmerId), FarmerInfo::getId);
+        Map<Long, FarmerProduct> products = loadByIds(getFarmerProductService(),
+                collectIds(records, DockingRecord::getProductId), FarmerProduct::getId);
+        Map<Long, PurchaseDemand> demands = loadByIds(purchaseDemandService,
+                collectIds(records, DockingRecord::getDemandId), PurchaseDemand::getId);
+        Map<Long, PurchaserInfo> purchasers = loadByIds(purchaserInfoService,
+                collectIds(new ArrayList<>(demands.values()), PurchaseDemand::getPurchaserId), PurchaserInfo::getId);
+
         return records.stream()
-                .map(this::toDockingRecordVO)
+                .map(record -> {
+                    if (record == null) {
+                        return null;
+                    }
+                    DockingRecordVO vo = modelMapper.map(record, DockingRecordVO.class);
+
+                    // 设置农户名称
+                    FarmerInfo farmerInfo = farmers.get(record.getFarmerId());
+                    if (farmerInfo != null) {
+                        vo.setFarmName(farmerInfo.getFarmName());
+                    }
+
+                    // 设置响应产品名称
+                    FarmerProduct product = products.get(record.getProductId());
+                    if (product != null) {
+                        vo.setProductName(product.getName());
+                    }
+
+                    // 设置需求相关信息（需求产品名称、采购商名称）
+                    PurchaseDemand demand = demands.get(record.getDemandId());
+                    if (demand != null) {
+                        vo.setDemandProductName(demand.getProductName());
+                        PurchaserInfo purchaserInfo = purchasers.get(demand.getPurchaserId());
+                        if (purchaserInfo != null) {
+                            vo.setPurchaserName(purchaserInfo.getCompanyName());
+                        }
+                    }
+                    return vo;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -448,4 +483,28 @@ public class EntityVOConverter implements ApplicationContextAware {
                 .map(this::toLogisticsTraceVO)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    // ============== 关联数据批量加载 ==============
+
+    /**
+     * 收集整页记录的外键，去重并忽略 null
+     */
+    private static <T, K> Set<K> collectIds(List<T> records, Function<T, K> keyGetter) {
+        return records.stream()
+                .filter(Objects::nonNull)
+                .map(keyGetter)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 按主键一次 IN 查询加载关联实体，没有外键时不查询
+     */
+    private static <E, K extends Serializable> Map<K, E> loadByIds(IService<E> service, Set<K> ids, Function<E, K> idGetter) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return service.listByIds(ids).stream()
+                .collect(Collectors.toMap(idGetter, Function.identity(), (a, b) -> a));
+    }
+}
@@ -0,0 +1,22 @@
+package cn.aspes.agri.trade.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * 游标分页请求
+ * 与 PageRequest 的页码分页并列，按（创建时间, ID）倒序翻页，不查询总数，翻页耗时与深度无关
+ */
+@Data
+public class CursorPageRequest {
+    
+    /**
+     * 上一页返回的 next 游标，首页为空
+     */
+    private String after;
+    
+    @Min(value = 1, message = "每页条数不能小于1")
+    @Max(value = 100, message = "每页条数不能超过100")
+    private Integer size = 10;
+}
@@ -0,0 +1,27 @@
+package cn.aspes.agri.trade.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 数据导出请求（按创建日期区间，含首尾两天）
+ */
+@Data
+public class ExportRequest {
+    
+    @NotNull(message = "开始日期不能为空")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    
+    @NotNull(message = "结束日期不能为空")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    
+    /**
+     * 状态编码，为空时导出全部状态
+     */
+    private String status;
+}
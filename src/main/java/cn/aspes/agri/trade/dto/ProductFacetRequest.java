@@ -0,0 +1,42 @@
+package cn.aspes.agri.trade.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 产品分面筛选请求
+ * 同一维度内多个取值为“或”，不同维度之间为“且”，只筛选在售产品
+ */
+@Data
+public class ProductFacetRequest {
+    
+    /**
+     * 产品分类ID
+     */
+    private List<Long> categoryIds;
+    
+    /**
+     * 产地省份
+     */
+    private List<String> provinces;
+    
+    /**
+     * 价格区间，取值同返回的价格区间计数，如 5-10、100+
+     */
+    private List<String> priceBands;
+    
+    /**
+     * 生产方式
+     */
+    private List<String> productionMethods;
+    
+    @Min(value = 1, message = "页码不能小于1")
+    private int pageNum = 1;
+    
+    @Min(value = 1, message = "每页条数不能小于1")
+    @Max(value = 100, message = "每页条数不能超过100")
+    private int pageSize = 10;
+}
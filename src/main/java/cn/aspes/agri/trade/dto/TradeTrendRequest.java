@@ -0,0 +1,45 @@
+package cn.aspes.agri.trade.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 交易趋势查询请求
+ */
+@Data
+public class TradeTrendRequest {
+    
+    /**
+     * 时间粒度：day/week/month
+     */
+    @Pattern(regexp = "day|week|month", message = "时间粒度只能为 day、week 或 month")
+    private String granularity = "day";
+    
+    @NotNull(message = "开始日期不能为空")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    
+    @NotNull(message = "结束日期不能为空")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    
+    /**
+     * 订单终态：completed/cancelled
+     */
+    @Pattern(regexp = "completed|cancelled", message = "订单状态只能为 completed 或 cancelled")
+    private String status = "completed";
+    
+    /**
+     * 展开维度：none/category/province
+     */
+    @Pattern(regexp = "none|category|province", message = "展开维度只能为 none、category 或 province")
+    private String groupBy = "none";
+    
+    private Long categoryId;
+    
+    private String province;
+}
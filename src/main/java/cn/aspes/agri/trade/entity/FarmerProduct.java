@@ -46,6 +46,12 @@ public class FarmerProduct {
     
     private ProductStatus status;
     
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Integer version;
+    
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
     
@@ -0,0 +1,99 @@
+package cn.aspes.agri.trade.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 主体统计汇总表（农户/采购方维度）
+ * 主键为 (party_type, party_id)，增量维护时同一对象也用于承载各字段的增量值
+ */
+@Data
+@TableName("party_stats")
+public class PartyStats {
+    
+    /**
+     * 主体类型：farmer/purchaser，取值同 {@link cn.aspes.agri.trade.enums.UserRole#getCode()}
+     */
+    private String partyType;
+    
+    /**
+     * 主体ID（farmer_id/purchaser_id）
+     */
+    private Long partyId;
+    
+    /**
+     * 订单数
+     */
+    private Long orderCount = 0L;
+    
+    /**
+     * 已完成订单数
+     */
+    private Long completedOrderCount = 0L;
+    
+    /**
+     * 交货结算金额（订单实际金额累计）
+     */
+    private BigDecimal deliveredAmount = BigDecimal.ZERO;
+    
+    /**
+     * 支付成功金额
+     */
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+    
+    /**
+     * 收到的评价数
+     */
+    private Long reviewCount = 0L;
+    
+    /**
+     * 收到的评分合计
+     */
+    private Long ratingSum = 0L;
+    
+    /**
+     * 收到的1~5星评价数（不计入每日统计）
+     */
+    private Long star1 = 0L;
+    private Long star2 = 0L;
+    private Long star3 = 0L;
+    private Long star4 = 0L;
+    private Long star5 = 0L;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+    
+    public PartyStats() {
+    }
+    
+    public PartyStats(String partyType, Long partyId) {
+        this.partyType = partyType;
+        this.partyId = partyId;
+    }
+    
+    /**
+     * 平均评分，无评价时为 0
+     */
+    public double averageRating() {
+        return reviewCount == null || reviewCount == 0 ? 0.0 : (double) ratingSum / reviewCount;
+    }
+    
+    /**
+     * 累加指定星级的评价数
+     */
+    public void addStar(int star, long delta) {
+        switch (star) {
+            case 1 -> star1 += delta;
+            case 2 -> star2 += delta;
+            case 3 -> star3 += delta;
+            case 4 -> star4 += delta;
+            case 5 -> star5 += delta;
+            default -> throw new IllegalArgumentException("rating out of range: " + star);
+        }
+    }
+}
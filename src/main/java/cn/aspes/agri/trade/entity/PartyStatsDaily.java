@@ -0,0 +1,21 @@
+package cn.aspes.agri.trade.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+
+/**
+ * 主体每日统计表，主键为 (party_type, party_id, stat_date)
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("party_stats_daily")
+public class PartyStatsDaily extends PartyStats {
+    
+    /**
+     * 统计日期
+     */
+    private LocalDate statDate;
+}
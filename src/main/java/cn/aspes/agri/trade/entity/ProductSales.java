@@ -0,0 +1,40 @@
+package cn.aspes.agri.trade.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 产品销量汇总表，主键为 product_id
+ */
+@Data
+@TableName("product_sales")
+public class ProductSales {
+    
+    /**
+     * 产品ID
+     */
+    private Long productId;
+    
+    /**
+     * 已完成订单数
+     */
+    private Long orderCount = 0L;
+    
+    /**
+     * 销售数量（实际交货数量累计）
+     */
+    private Long salesQuantity = 0L;
+    
+    /**
+     * 销售总额（实际结算金额累计）
+     */
+    private BigDecimal salesAmount = BigDecimal.ZERO;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
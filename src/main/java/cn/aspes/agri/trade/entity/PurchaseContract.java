@@ -53,6 +53,12 @@ public class PurchaseContract {
     
     private ContractStatus status;
     
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Integer version;
+    
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
     
@@ -48,6 +48,17 @@ public class PurchaseOrder {
     
     private String inspectionResult;
     
+    /**
+     * 完成/取消时间，随状态变更写入，之后的其他更新不影响
+     */
+    private LocalDateTime finishTime;
+    
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Integer version;
+    
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
     
@@ -50,6 +50,12 @@ public class StockReservation {
      */
     private LocalDateTime expiredTime;
     
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Integer version;
+    
     /**
      * 创建时间
      */
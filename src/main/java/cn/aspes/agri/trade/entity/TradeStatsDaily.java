@@ -0,0 +1,80 @@
+package cn.aspes.agri.trade.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 交易趋势汇总表，主键为 (stat_date, category_id, province, status, source)
+ * 周、月桶在写入时计算并随行保存，按周/月查询时直接分组，无需数据库日期函数
+ */
+@Data
+@TableName("trade_stats_daily")
+public class TradeStatsDaily {
+    
+    /**
+     * 统计日期（订单完成/取消日期）
+     */
+    private LocalDate statDate;
+    
+    /**
+     * 所在周的周一
+     */
+    private LocalDate weekStart;
+    
+    /**
+     * 所在月的1日
+     */
+    private LocalDate monthStart;
+    
+    /**
+     * 产品分类
+     */
+    private Long categoryId;
+    
+    /**
+     * 产地省份
+     */
+    private String province;
+    
+    /**
+     * 订单终态：completed/cancelled
+     */
+    private String status;
+    
+    /**
+     * 订单数
+     */
+    private Long orderCount = 0L;
+    
+    /**
+     * 数量合计
+     */
+    private Long totalQuantity = 0L;
+    
+    /**
+     * 金额合计
+     */
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+    
+    /**
+     * 设置统计日期并同时计算所在周、月
+     */
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+        if (statDate != null) {
+            this.weekStart = statDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            this.monthStart = statDate.withDayOfMonth(1);
+        }
+    }
+}
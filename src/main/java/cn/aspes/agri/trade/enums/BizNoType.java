@@ -0,0 +1,20 @@
+package cn.aspes.agri.trade.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 业务编号类型
+ * 编号格式：前缀 + yyyyMMdd + 按天递增的流水号（不足位数左补零）
+ */
+@Getter
+@AllArgsConstructor
+public enum BizNoType {
+    /** 采购订单：ORD + 日期 + 6位流水号 */
+    ORDER("ORD", 6),
+    /** 采购合同：C + 日期 + 4位流水号 */
+    CONTRACT("C", 4);
+
+    private final String prefix;
+    private final int sequenceWidth;
+}
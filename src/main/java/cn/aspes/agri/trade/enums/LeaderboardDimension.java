@@ -0,0 +1,32 @@
+package cn.aspes.agri.trade.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 排行榜维度
+ * 草图中以整数计分，scale 为换算成展示值时的小数位数（金额以分计）
+ */
+@Getter
+@AllArgsConstructor
+public enum LeaderboardDimension {
+    /** 产品销量：订单完成时按实际交货数量计入 */
+    PRODUCT("product", "产品销量", 0),
+    /** 农户成交额：支付成功时按支付金额计入 */
+    FARMER("farmer", "农户成交额", 2),
+    /** 产地热度：订单完成时按订单数计入 */
+    ORIGIN_AREA("origin_area", "产地成交单数", 0);
+
+    private final String code;
+    private final String desc;
+    private final int scale;
+
+    public static LeaderboardDimension fromCode(String code) {
+        for (LeaderboardDimension dimension : values()) {
+            if (dimension.code.equals(code)) {
+                return dimension;
+            }
+        }
+        return null;
+    }
+}
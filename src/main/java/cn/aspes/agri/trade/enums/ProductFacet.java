@@ -0,0 +1,23 @@
+package cn.aspes.agri.trade.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 产品筛选维度
+ */
+@Getter
+@AllArgsConstructor
+public enum ProductFacet {
+    /** 产品分类ID */
+    CATEGORY("category", "产品分类"),
+    /** 产地所在省份 */
+    PROVINCE("province", "产地省份"),
+    /** 价格区间 */
+    PRICE_BAND("priceBand", "价格区间"),
+    /** 生产方式 */
+    PRODUCTION_METHOD("productionMethod", "生产方式");
+
+    private final String code;
+    private final String desc;
+}
@@ -0,0 +1,21 @@
+package cn.aspes.agri.trade.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 搜索索引对象
+ */
+@Getter
+@AllArgsConstructor
+public enum SearchTarget {
+    /** 农户产品，按产品名称检索 */
+    PRODUCT("product", "农户产品"),
+    /** 农户，按农场名称检索 */
+    FARMER("farmer", "农户"),
+    /** 采购需求，按需求产品名称检索 */
+    DEMAND("demand", "采购需求");
+
+    private final String code;
+    private final String desc;
+}
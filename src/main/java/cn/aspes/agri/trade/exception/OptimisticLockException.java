@@ -0,0 +1,21 @@
+package cn.aspes.agri.trade.exception;
+
+/**
+ * 乐观锁版本冲突异常
+ * 按版本号更新未命中（记录已被并发修改）时抛出，由 {@link cn.aspes.agri.trade.util.OptimisticLockRetryTemplate} 重试整个事务
+ */
+public class OptimisticLockException extends BusinessException {
+    
+    public OptimisticLockException() {
+        super(409, "数据已被修改，请刷新后重试");
+    }
+    
+    /**
+     * 按版本号更新未命中时抛出冲突异常
+     */
+    public static void check(boolean updated) {
+        if (!updated) {
+            throw new OptimisticLockException();
+        }
+    }
+}
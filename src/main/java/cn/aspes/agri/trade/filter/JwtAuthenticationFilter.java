@@ -3,7 +3,7 @@ package cn.aspes.agri.trade.filter;
 import cn.aspes.agri.trade.enums.UserRole;
 import cn.aspes.agri.trade.security.CustomUserDetails;
 import cn.aspes.agri.trade.util.JwtUtil;
-import cn.aspes.agri.trade.service.StatisticsService;
+import cn.aspes.agri.trade.service.ActivityEventService;
 import cn.hutool.core.util.StrUtil;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
@@ -16,6 +16,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 import lombok.extern.slf4j.Slf4j;
@@ -29,7 +30,7 @@ import lombok.extern.slf4j.Slf4j;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
-    private final StatisticsService statisticsService;
+    private final ActivityEventService activityEventService;
     private final RedisTemplate<String, Object> redisTemplate;
     
     private static final String TOKEN_PREFIX = "token:";
@@ -39,6 +40,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         
         String token = getTokenFromRequest(request);
+        Long authenticatedUserId = null;
+        boolean farmer = false;
         
         // 验证Token是否过期和是否在Redis中有效
         if (StrUtil.isNotBlank(token) && !jwtUtil.isTokenExpired(token) && isTokenValid(token)) {
@@ -62,16 +65,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 
                 // 设置到安全上下文
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                // 记录农户请求活跃事件（市级）
-                if (role == UserRole.FARMER) {
-                    statisticsService.recordFarmerActivity(userId);
-                }
+                authenticatedUserId = userId;
+                farmer = role == UserRole.FARMER;
             } catch (Exception e) {
                 logger.error("JWT认证失败", e);
             }
         }
         
-        filterChain.doFilter(request, response);
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // 请求结束后发布活跃事件，统计在后台线程汇总，不占用请求线程
+            if (authenticatedUserId != null) {
+                activityEventService.publish(authenticatedUserId, farmer, resolveEndpoint(request), startTime,
+                        (System.nanoTime() - startNanos) / 1000);
+            }
+        }
+    }
+    
+    /**
+     * 以请求方法加路由模板标识接口，避免路径参数导致统计项无限增长
+     */
+    private String resolveEndpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? request.getMethod() + " " + pattern : null;
     }
     
     /**
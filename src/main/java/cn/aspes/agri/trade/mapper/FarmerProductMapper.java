@@ -4,31 +4,51 @@ import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface FarmerProductMapper extends BaseMapper<FarmerProduct> {
     
     /**
-     * 分页查询产品列表（包含图片信息）
+     * 分页查询产品ID（按创建时间倒序），只查询产品表，分页与计数不受图片数量影响
      */
-    IPage<FarmerProductVO> selectProductsWithImages(Page<FarmerProductVO> page, 
-                                                              @Param("categoryId") Long categoryId,
-                                                              @Param("originAreaId") Integer originAreaId,
-                                                              @Param("status") String status);
+    IPage<Long> selectProductIdPage(IPage<Long> page,
+                                    @Param("categoryId") Long categoryId,
+                                    @Param("originAreaId") Integer originAreaId,
+                                    @Param("status") String status);
     
     /**
-     * 查询我的产品列表（包含图片信息）
+     * 分页查询农户自己的产品ID（按创建时间倒序）
      */
-    IPage<FarmerProductVO> selectMyProductsWithImages(Page<FarmerProductVO> page, 
-                                                                 @Param("farmerId") Long farmerId);
+    IPage<Long> selectMyProductIdPage(IPage<Long> page, @Param("farmerId") Long farmerId);
+    
+    /**
+     * 按产品ID批量查询产品详情（包含图片信息）
+     */
+    List<FarmerProductVO> selectProductsWithImagesByIds(@Param("ids") Collection<Long> ids);
     
     /**
      * 根据ID查询产品详情（包含图片信息）
      */
     FarmerProductVO selectProductWithImagesById(@Param("productId") Long productId);
-}
\ No newline at end of file
+    
+    /**
+     * 条件扣减库存：仅当可售库存充足时扣减（单条原子UPDATE，避免读-改-写超卖）
+     * 同时递增版本号，使持有旧库存值的 updateById 因版本冲突失败而不会覆盖库存
+     * @return 受影响行数，0 表示库存不足或产品不存在
+     */
+    @Update("UPDATE farmer_product SET stock = stock - #{quantity}, version = version + 1 WHERE id = #{productId} AND stock >= #{quantity}")
+    int decreaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+    
+    /**
+     * 回补库存（释放预留时使用）
+     * @return 受影响行数，0 表示产品不存在
+     */
+    @Update("UPDATE farmer_product SET stock = stock + #{quantity}, version = version + 1 WHERE id = #{productId}")
+    int increaseStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+}
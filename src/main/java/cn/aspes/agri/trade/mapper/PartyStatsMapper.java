@@ -0,0 +1,172 @@
+package cn.aspes.agri.trade.mapper;
+
+import cn.aspes.agri.trade.entity.PartyStats;
+import cn.aspes.agri.trade.entity.PartyStatsDaily;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 主体统计汇总Mapper
+ * 汇总行以 INSERT ... ON DUPLICATE KEY UPDATE 原子累加，不先读后写
+ */
+@Mapper
+public interface PartyStatsMapper {
+    
+    /**
+     * 按主键查询汇总行
+     */
+    @Select("SELECT * FROM party_stats WHERE party_type = #{partyType} AND party_id = #{partyId}")
+    PartyStats selectByParty(@Param("partyType") String partyType, @Param("partyId") Long partyId);
+    
+    /**
+     * 查询日期区间内的每日统计
+     */
+    @Select("SELECT * FROM party_stats_daily WHERE party_type = #{partyType} AND party_id = #{partyId} "
+            + "AND stat_date BETWEEN #{from} AND #{to} ORDER BY stat_date")
+    List<PartyStatsDaily> selectDaily(@Param("partyType") String partyType, @Param("partyId") Long partyId,
+                                      @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    /**
+     * 累加汇总行，行不存在时以增量值插入
+     */
+    @Insert("INSERT INTO party_stats (party_type, party_id, order_count, completed_order_count, delivered_amount, "
+            + "paid_amount, review_count, rating_sum, star1, star2, star3, star4, star5, update_time) "
+            + "VALUES (#{d.partyType}, #{d.partyId}, #{d.orderCount}, #{d.completedOrderCount}, #{d.deliveredAmount}, "
+            + "#{d.paidAmount}, #{d.reviewCount}, #{d.ratingSum}, #{d.star1}, #{d.star2}, #{d.star3}, #{d.star4}, "
+            + "#{d.star5}, NOW()) "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "completed_order_count = completed_order_count + VALUES(completed_order_count), "
+            + "delivered_amount = delivered_amount + VALUES(delivered_amount), "
+            + "paid_amount = paid_amount + VALUES(paid_amount), "
+            + "review_count = review_count + VALUES(review_count), "
+            + "rating_sum = rating_sum + VALUES(rating_sum), "
+            + "star1 = star1 + VALUES(star1), star2 = star2 + VALUES(star2), star3 = star3 + VALUES(star3), "
+            + "star4 = star4 + VALUES(star4), star5 = star5 + VALUES(star5), "
+            + "update_time = VALUES(update_time)")
+    int increment(@Param("d") PartyStats delta);
+    
+    /**
+     * 累加当日统计行，行不存在时以增量值插入
+     */
+    @Insert("INSERT INTO party_stats_daily (party_type, party_id, stat_date, order_count, completed_order_count, "
+            + "delivered_amount, paid_amount, review_count, rating_sum, update_time) "
+            + "VALUES (#{d.partyType}, #{d.partyId}, #{statDate}, #{d.orderCount}, #{d.completedOrderCount}, "
+            + "#{d.deliveredAmount}, #{d.paidAmount}, #{d.reviewCount}, #{d.ratingSum}, NOW()) "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "completed_order_count = completed_order_count + VALUES(completed_order_count), "
+            + "delivered_amount = delivered_amount + VALUES(delivered_amount), "
+            + "paid_amount = paid_amount + VALUES(paid_amount), "
+            + "review_count = review_count + VALUES(review_count), "
+            + "rating_sum = rating_sum + VALUES(rating_sum), "
+            + "update_time = VALUES(update_time)")
+    int incrementDaily(@Param("d") PartyStats delta, @Param("statDate") LocalDate statDate);
+    
+    /**
+     * 按主键顺序取下一段在订单中出现过的主体ID（走 farmer_id/purchaser_id 索引）
+     */
+    @Select({"<script>",
+            "<choose><when test=\"partyType == 'farmer'\">",
+            "SELECT DISTINCT farmer_id FROM purchase_order WHERE farmer_id &gt; #{afterId} ORDER BY farmer_id LIMIT #{size}",
+            "</when><otherwise>",
+            "SELECT DISTINCT purchaser_id FROM purchase_order WHERE purchaser_id &gt; #{afterId} ORDER BY purchaser_id LIMIT #{size}",
+            "</otherwise></choose>",
+            "</script>"})
+    List<Long> selectPartyIdChunk(@Param("partyType") String partyType, @Param("afterId") long afterId,
+                                  @Param("size") int size);
+    
+    /**
+     * 锁定主体ID区间 (afterId, toId] 内的汇总行及间隙，区间内的增量写入等待重建提交
+     */
+    @Select("SELECT party_id FROM party_stats WHERE party_type = #{partyType} "
+            + "AND party_id > #{afterId} AND party_id <= #{toId} FOR UPDATE")
+    List<Long> lockRange(@Param("partyType") String partyType, @Param("afterId") long afterId, @Param("toId") long toId);
+    
+    @Select("SELECT party_id FROM party_stats_daily WHERE party_type = #{partyType} "
+            + "AND party_id > #{afterId} AND party_id <= #{toId} FOR UPDATE")
+    List<Long> lockDailyRange(@Param("partyType") String partyType, @Param("afterId") long afterId, @Param("toId") long toId);
+    
+    @Delete("DELETE FROM party_stats WHERE party_type = #{partyType} AND party_id > #{afterId} AND party_id <= #{toId}")
+    int deleteRange(@Param("partyType") String partyType, @Param("afterId") long afterId, @Param("toId") long toId);
+    
+    @Delete("DELETE FROM party_stats_daily WHERE party_type = #{partyType} AND party_id > #{afterId} AND party_id <= #{toId}")
+    int deleteDailyRange(@Param("partyType") String partyType, @Param("afterId") long afterId, @Param("toId") long toId);
+    
+    /**
+     * 从订单、支付记录与评价表汇总主体ID区间 (afterId, toId] 内的统计
+     * 普通查询为一致性读，不对基础表加锁；与主体类型不符的分支条件恒假，不扫描
+     */
+    @Select("SELECT party_type, party_id, SUM(order_count) AS order_count, SUM(completed_order_count) AS completed_order_count, "
+            + "SUM(delivered_amount) AS delivered_amount, SUM(paid_amount) AS paid_amount, SUM(review_count) AS review_count, "
+            + "SUM(rating_sum) AS rating_sum, SUM(star1) AS star1, SUM(star2) AS star2, SUM(star3) AS star3, "
+            + "SUM(star4) AS star4, SUM(star5) AS star5 FROM ("
+            + "SELECT 'farmer' AS party_type, farmer_id AS party_id, 1 AS order_count, "
+            + "CASE WHEN status = 'completed' THEN 1 ELSE 0 END AS completed_order_count, "
+            + "COALESCE(actual_amount, 0) AS delivered_amount, 0 AS paid_amount, 0 AS review_count, 0 AS rating_sum, "
+            + "0 AS star1, 0 AS star2, 0 AS star3, 0 AS star4, 0 AS star5 "
+            + "FROM purchase_order WHERE #{partyType} = 'farmer' AND farmer_id > #{afterId} AND farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', purchaser_id, 1, CASE WHEN status = 'completed' THEN 1 ELSE 0 END, "
+            + "COALESCE(actual_amount, 0), 0, 0, 0, 0, 0, 0, 0, 0 FROM purchase_order "
+            + "WHERE #{partyType} = 'purchaser' AND purchaser_id > #{afterId} AND purchaser_id <= #{toId} "
+            + "UNION ALL SELECT 'farmer', o.farmer_id, 0, 0, 0, p.amount, 0, 0, 0, 0, 0, 0, 0 "
+            + "FROM payment_record p JOIN purchase_order o ON o.id = p.order_id WHERE p.status = 'success' "
+            + "AND #{partyType} = 'farmer' AND o.farmer_id > #{afterId} AND o.farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', o.purchaser_id, 0, 0, 0, p.amount, 0, 0, 0, 0, 0, 0, 0 "
+            + "FROM payment_record p JOIN purchase_order o ON o.id = p.order_id WHERE p.status = 'success' "
+            + "AND #{partyType} = 'purchaser' AND o.purchaser_id > #{afterId} AND o.purchaser_id <= #{toId} "
+            + "UNION ALL SELECT review_to, target_id, 0, 0, 0, 0, 1, rating, "
+            + "CASE WHEN rating = 1 THEN 1 ELSE 0 END, CASE WHEN rating = 2 THEN 1 ELSE 0 END, "
+            + "CASE WHEN rating = 3 THEN 1 ELSE 0 END, CASE WHEN rating = 4 THEN 1 ELSE 0 END, "
+            + "CASE WHEN rating = 5 THEN 1 ELSE 0 END FROM cooperation_review "
+            + "WHERE review_to = #{partyType} AND target_id > #{afterId} AND target_id <= #{toId}"
+            + ") t GROUP BY party_type, party_id")
+    List<PartyStats> aggregateRange(@Param("partyType") String partyType, @Param("afterId") long afterId,
+                                    @Param("toId") long toId);
+    
+    /**
+     * 从基础表汇总主体ID区间 (afterId, toId] 内的每日统计
+     * 新建订单按创建时间、交货金额按首次交货时间、完成订单按完成时间（历史订单按最后更新时间）、支付按支付时间、评价按评价时间归日
+     */
+    @Select("SELECT party_type, party_id, stat_date, SUM(order_count) AS order_count, "
+            + "SUM(completed_order_count) AS completed_order_count, SUM(delivered_amount) AS delivered_amount, "
+            + "SUM(paid_amount) AS paid_amount, SUM(review_count) AS review_count, SUM(rating_sum) AS rating_sum FROM ("
+            + "SELECT 'farmer' AS party_type, farmer_id AS party_id, CAST(create_time AS DATE) AS stat_date, 1 AS order_count, "
+            + "0 AS completed_order_count, 0 AS delivered_amount, 0 AS paid_amount, 0 AS review_count, 0 AS rating_sum "
+            + "FROM purchase_order WHERE #{partyType} = 'farmer' AND farmer_id > #{afterId} AND farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', purchaser_id, CAST(create_time AS DATE), 1, 0, 0, 0, 0, 0 FROM purchase_order "
+            + "WHERE #{partyType} = 'purchaser' AND purchaser_id > #{afterId} AND purchaser_id <= #{toId} "
+            + "UNION ALL SELECT 'farmer', farmer_id, CAST(COALESCE(finish_time, update_time) AS DATE), 0, 1, 0, 0, 0, 0 "
+            + "FROM purchase_order WHERE status = 'completed' "
+            + "AND #{partyType} = 'farmer' AND farmer_id > #{afterId} AND farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', purchaser_id, CAST(COALESCE(finish_time, update_time) AS DATE), 0, 1, 0, 0, 0, 0 "
+            + "FROM purchase_order WHERE status = 'completed' "
+            + "AND #{partyType} = 'purchaser' AND purchaser_id > #{afterId} AND purchaser_id <= #{toId} "
+            + "UNION ALL SELECT 'farmer', farmer_id, CAST(delivery_time AS DATE), 0, 0, actual_amount, 0, 0, 0 "
+            + "FROM purchase_order WHERE actual_amount IS NOT NULL AND delivery_time IS NOT NULL "
+            + "AND #{partyType} = 'farmer' AND farmer_id > #{afterId} AND farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', purchaser_id, CAST(delivery_time AS DATE), 0, 0, actual_amount, 0, 0, 0 "
+            + "FROM purchase_order WHERE actual_amount IS NOT NULL AND delivery_time IS NOT NULL "
+            + "AND #{partyType} = 'purchaser' AND purchaser_id > #{afterId} AND purchaser_id <= #{toId} "
+            + "UNION ALL SELECT 'farmer', o.farmer_id, CAST(COALESCE(p.payment_time, p.create_time) AS DATE), 0, 0, 0, p.amount, 0, 0 "
+            + "FROM payment_record p JOIN purchase_order o ON o.id = p.order_id WHERE p.status = 'success' "
+            + "AND #{partyType} = 'farmer' AND o.farmer_id > #{afterId} AND o.farmer_id <= #{toId} "
+            + "UNION ALL SELECT 'purchaser', o.purchaser_id, CAST(COALESCE(p.payment_time, p.create_time) AS DATE), 0, 0, 0, p.amount, 0, 0 "
+            + "FROM payment_record p JOIN purchase_order o ON o.id = p.order_id WHERE p.status = 'success' "
+            + "AND #{partyType} = 'purchaser' AND o.purchaser_id > #{afterId} AND o.purchaser_id <= #{toId} "
+            + "UNION ALL SELECT review_to, target_id, CAST(create_time AS DATE), 0, 0, 0, 0, 1, rating FROM cooperation_review "
+            + "WHERE review_to = #{partyType} AND target_id > #{afterId} AND target_id <= #{toId}"
+            + ") t GROUP BY party_type, party_id, stat_date")
+    List<PartyStatsDaily> aggregateDailyRange(@Param("partyType") String partyType, @Param("afterId") long afterId,
+                                              @Param("toId") long toId);
+    
+    /**
+     * 汇总表是否为空（首次部署）
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM party_stats LIMIT 1) t")
+    int countAny();
+}
@@ -3,7 +3,32 @@ package cn.aspes.agri.trade.mapper;
 import cn.aspes.agri.trade.entity.PaymentRecord;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Mapper
 public interface PaymentRecordMapper extends BaseMapper<PaymentRecord> {
+    
+    /**
+     * 汇总订单已支付成功的金额
+     * @return 已支付金额，无支付成功记录时为 0
+     */
+    @Select("SELECT COALESCE(SUM(amount), 0) FROM payment_record WHERE order_id = #{orderId} AND status = 'success'")
+    BigDecimal sumSuccessAmount(@Param("orderId") Long orderId);
+    
+    /**
+     * 按创建时间区间游标读取支付记录（导出用），需在事务内逐行消费
+     */
+    @Select("<script>SELECT * FROM payment_record WHERE create_time &gt;= #{from} AND create_time &lt; #{to}"
+            + "<if test='status != null'> AND status = #{status}</if>"
+            + " ORDER BY create_time, id</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<PaymentRecord> selectCursorByCreateTime(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                   @Param("status") String status);
 }
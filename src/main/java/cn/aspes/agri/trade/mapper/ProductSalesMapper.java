@@ -0,0 +1,89 @@
+package cn.aspes.agri.trade.mapper;
+
+import cn.aspes.agri.trade.entity.ProductSales;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 产品销量汇总Mapper
+ * 销量以订单的 product_id 列统计，依赖 purchase_order 的 (product_id, status) 索引，不解析 product_info 快照
+ */
+@Mapper
+public interface ProductSalesMapper {
+    
+    /**
+     * 按主键查询产品销量
+     */
+    @Select("SELECT * FROM product_sales WHERE product_id = #{productId}")
+    ProductSales selectByProductId(@Param("productId") Long productId);
+    
+    /**
+     * 直接从订单表汇总单个产品的已完成订单销量（走 product_id + status 索引）
+     */
+    @Select("SELECT #{productId} AS product_id, COUNT(*) AS order_count, "
+            + "COALESCE(SUM(COALESCE(actual_quantity, quantity)), 0) AS sales_quantity, "
+            + "COALESCE(SUM(COALESCE(actual_amount, total_amount)), 0) AS sales_amount "
+            + "FROM purchase_order WHERE product_id = #{productId} AND status = 'completed'")
+    ProductSales aggregateCompleted(@Param("productId") Long productId);
+    
+    /**
+     * 累加一笔已完成订单的销量，行不存在时返回 0
+     */
+    @Update("UPDATE product_sales SET order_count = order_count + 1, sales_quantity = sales_quantity + #{quantity}, "
+            + "sales_amount = sales_amount + #{amount}, update_time = NOW() WHERE product_id = #{productId}")
+    int incrementCompleted(@Param("productId") Long productId, @Param("quantity") long quantity,
+                           @Param("amount") BigDecimal amount);
+    
+    /**
+     * 产品首次写入销量行：以该产品其他已完成订单的汇总为基数加上本笔订单插入，
+     * 并发插入冲突时退化为累加本笔订单
+     */
+    @Insert("INSERT INTO product_sales (product_id, order_count, sales_quantity, sales_amount, update_time) "
+            + "SELECT #{productId}, COUNT(*) + 1, COALESCE(SUM(COALESCE(actual_quantity, quantity)), 0) + #{quantity}, "
+            + "COALESCE(SUM(COALESCE(actual_amount, total_amount)), 0) + #{amount}, NOW() "
+            + "FROM purchase_order WHERE product_id = #{productId} AND status = 'completed' AND id <> #{orderId} "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + 1, "
+            + "sales_quantity = sales_quantity + #{quantity}, "
+            + "sales_amount = sales_amount + #{amount}, "
+            + "update_time = NOW()")
+    int insertCompleted(@Param("productId") Long productId, @Param("orderId") Long orderId,
+                        @Param("quantity") long quantity, @Param("amount") BigDecimal amount);
+    
+    /**
+     * 按主键顺序取下一段有已完成订单的产品ID（走 product_id + status 索引）
+     */
+    @Select("SELECT DISTINCT product_id FROM purchase_order WHERE product_id > #{afterId} AND status = 'completed' "
+            + "ORDER BY product_id LIMIT #{size}")
+    List<Long> selectProductIdChunk(@Param("afterId") long afterId, @Param("size") int size);
+    
+    /**
+     * 锁定产品ID区间 (afterId, toId] 内的销量行及间隙，区间内的增量写入等待重建提交
+     */
+    @Select("SELECT product_id FROM product_sales WHERE product_id > #{afterId} AND product_id <= #{toId} FOR UPDATE")
+    List<Long> lockRange(@Param("afterId") long afterId, @Param("toId") long toId);
+    
+    @Delete("DELETE FROM product_sales WHERE product_id > #{afterId} AND product_id <= #{toId}")
+    int deleteRange(@Param("afterId") long afterId, @Param("toId") long toId);
+    
+    /**
+     * 从订单表汇总产品ID区间 (afterId, toId] 内的销量，一致性读不对订单加锁
+     */
+    @Select("SELECT product_id, COUNT(*) AS order_count, SUM(COALESCE(actual_quantity, quantity)) AS sales_quantity, "
+            + "SUM(COALESCE(actual_amount, total_amount)) AS sales_amount FROM purchase_order "
+            + "WHERE product_id > #{afterId} AND product_id <= #{toId} AND status = 'completed' GROUP BY product_id")
+    List<ProductSales> aggregateRange(@Param("afterId") long afterId, @Param("toId") long toId);
+    
+    /**
+     * 写入一行汇总值
+     */
+    @Insert("INSERT INTO product_sales (product_id, order_count, sales_quantity, sales_amount, update_time) "
+            + "VALUES (#{s.productId}, #{s.orderCount}, #{s.salesQuantity}, #{s.salesAmount}, NOW())")
+    int insert(@Param("s") ProductSales sales);
+}
@@ -3,7 +3,27 @@ package cn.aspes.agri.trade.mapper;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
 
 @Mapper
 public interface PurchaseOrderMapper extends BaseMapper<PurchaseOrder> {
+    
+    /**
+     * 按创建时间区间游标读取订单（导出用），需在事务内逐行消费
+     * MySQL 连接需开启 useCursorFetch=true，fetchSize 才会按批从服务端拉取而非一次读入内存
+     */
+    @Select("<script>SELECT * FROM purchase_order WHERE create_time &gt;= #{from} AND create_time &lt; #{to}"
+            + "<if test='status != null'> AND status = #{status}</if>"
+            + " ORDER BY create_time, id</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    @ResultMap("mybatis-plus_PurchaseOrder")
+    Cursor<PurchaseOrder> selectCursorByCreateTime(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                   @Param("status") String status);
 }
@@ -0,0 +1,102 @@
+package cn.aspes.agri.trade.mapper;
+
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统计聚合Mapper
+ * 统计数据在数据库侧聚合，只返回计数与汇总结果，不把明细行加载到内存
+ */
+@Mapper
+public interface StatisticsMapper {
+    
+    /**
+     * 按角色统计未删除用户数
+     * @return 每个角色一行：role、total
+     */
+    @Select("SELECT role, COUNT(*) AS total FROM `user` WHERE is_delete = 0 GROUP BY role")
+    List<Map<String, Object>> countUsersByRole();
+    
+    /**
+     * 平台商品与订单汇总：商品总数、订单总数、已完成订单交易总额、今日新建订单数
+     * @param todayStart 今日零点
+     */
+    @Select("SELECT (SELECT COUNT(*) FROM farmer_product) AS total_products, "
+            + "COUNT(*) AS total_orders, "
+            + "COALESCE(SUM(CASE WHEN status = 'completed' THEN actual_amount END), 0) AS total_transaction_amount, "
+            + "COALESCE(SUM(CASE WHEN create_time >= #{todayStart} THEN 1 ELSE 0 END), 0) AS active_users_today "
+            + "FROM purchase_order")
+    StatisticsVO.PlatformStats selectOrderAggregates(@Param("todayStart") LocalDateTime todayStart);
+    
+    /**
+     * 查询农户所属地级市
+     * @return 产地未填写市名时为"未知"，农户不存在或未设置产地时为 null
+     */
+    @Select("SELECT COALESCE(NULLIF(a.city, ''), '未知') FROM farmer_info f "
+            + "LEFT JOIN origin_area a ON a.area_id = f.origin_area_id "
+            + "WHERE f.user_id = #{userId} AND f.origin_area_id IS NOT NULL")
+    String selectFarmerCity(@Param("userId") Long userId);
+    
+    /**
+     * 订单按状态分组计数（走 status 索引）
+     */
+    @Select("SELECT status, COUNT(*) AS total FROM purchase_order GROUP BY status")
+    List<StatisticsVO.StatusCount> countOrdersByStatus();
+    
+    /**
+     * 产品按状态分组计数（走 status 索引）
+     */
+    @Select("SELECT status, COUNT(*) AS total FROM farmer_product GROUP BY status")
+    List<StatisticsVO.StatusCount> countProductsByStatus();
+    
+    /**
+     * 精确计算产品销量排行：区间内完成的订单按实际交货数量汇总
+     * 按完成时间归日，与草图在完成提交时计入一致；历史订单没有完成时间，按最后更新时间
+     */
+    @Select("SELECT product_id AS id, SUM(COALESCE(actual_quantity, quantity)) AS score FROM purchase_order "
+            + "WHERE status = 'completed' AND COALESCE(finish_time, update_time) >= #{from} "
+            + "AND COALESCE(finish_time, update_time) < #{to} "
+            + "GROUP BY product_id ORDER BY score DESC, id LIMIT #{limit}")
+    List<StatisticsVO.LeaderboardEntry> selectTopProducts(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                          @Param("limit") int limit);
+    
+    /**
+     * 精确计算农户成交额排行：区间内支付成功的金额按订单所属农户汇总
+     */
+    @Select("SELECT o.farmer_id AS id, SUM(r.amount) AS score FROM payment_record r "
+            + "JOIN purchase_order o ON o.id = r.order_id "
+            + "WHERE r.status = 'success' AND r.payment_time >= #{from} AND r.payment_time < #{to} "
+            + "GROUP BY o.farmer_id ORDER BY score DESC, id LIMIT #{limit}")
+    List<StatisticsVO.LeaderboardEntry> selectTopFarmers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                         @Param("limit") int limit);
+    
+    /**
+     * 精确计算产地成交单数排行（按产品当前产地归属，近似排行按下单时的产品快照归属），按完成时间归日同产品排行
+     */
+    @Select("SELECT p.origin_area_id AS id, COUNT(*) AS score FROM purchase_order o "
+            + "JOIN farmer_product p ON p.id = o.product_id "
+            + "WHERE o.status = 'completed' AND COALESCE(o.finish_time, o.update_time) >= #{from} "
+            + "AND COALESCE(o.finish_time, o.update_time) < #{to} "
+            + "GROUP BY p.origin_area_id ORDER BY score DESC, id LIMIT #{limit}")
+    List<StatisticsVO.LeaderboardEntry> selectTopOriginAreas(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                                             @Param("limit") int limit);
+    
+    @Select("<script>SELECT id, name FROM farmer_product WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<StatisticsVO.LeaderboardEntry> selectProductNames(@Param("ids") Collection<Long> ids);
+    
+    @Select("<script>SELECT id, farm_name AS name FROM farmer_info WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<StatisticsVO.LeaderboardEntry> selectFarmerNames(@Param("ids") Collection<Long> ids);
+    
+    @Select("<script>SELECT area_id AS id, area_name AS name FROM origin_area WHERE area_id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<StatisticsVO.LeaderboardEntry> selectOriginAreaNames(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,117 @@
+package cn.aspes.agri.trade.mapper;
+
+import cn.aspes.agri.trade.entity.TradeStatsDaily;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 交易趋势汇总Mapper
+ * 分类与产地省份取自订单关联产品的当前信息；汇总行按来源分开保存（live 增量维护 / backfill 历史回填），查询时合并；
+ * 回填进行中的结果写入 staging 来源，不参与查询，回填结束后整体替换 backfill 行
+ */
+@Mapper
+public interface TradeStatsMapper {
+    
+    /**
+     * 按订单产品的分类与产地累加一笔订单，行不存在时以增量值插入；产品不存在时不写入
+     */
+    @Insert("INSERT INTO trade_stats_daily (stat_date, week_start, month_start, category_id, province, status, source, "
+            + "order_count, total_quantity, total_amount, update_time) "
+            + "SELECT #{d.statDate}, #{d.weekStart}, #{d.monthStart}, p.category_id, "
+            + "COALESCE(NULLIF(a.province, ''), '未知'), #{d.status}, 'live', #{d.orderCount}, #{d.totalQuantity}, #{d.totalAmount}, NOW() "
+            + "FROM farmer_product p LEFT JOIN origin_area a ON a.area_id = p.origin_area_id WHERE p.id = #{productId} "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "total_quantity = total_quantity + VALUES(total_quantity), "
+            + "total_amount = total_amount + VALUES(total_amount), "
+            + "update_time = VALUES(update_time)")
+    int incrementByProduct(@Param("productId") Long productId, @Param("d") TradeStatsDaily d);
+    
+    /**
+     * 累加一行已确定维度的回填汇总值，写入暂存来源
+     */
+    @Insert("INSERT INTO trade_stats_daily (stat_date, week_start, month_start, category_id, province, status, source, "
+            + "order_count, total_quantity, total_amount, update_time) "
+            + "VALUES (#{d.statDate}, #{d.weekStart}, #{d.monthStart}, #{d.categoryId}, #{d.province}, #{d.status}, 'staging', "
+            + "#{d.orderCount}, #{d.totalQuantity}, #{d.totalAmount}, NOW()) "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "total_quantity = total_quantity + VALUES(total_quantity), "
+            + "total_amount = total_amount + VALUES(total_amount), "
+            + "update_time = VALUES(update_time)")
+    int incrementBackfill(@Param("d") TradeStatsDaily d);
+    
+    /**
+     * 清理上次中断的回填留下的暂存行
+     */
+    @Delete("DELETE FROM trade_stats_daily WHERE source = 'staging'")
+    int deleteBackfillStaging();
+    
+    @Delete("DELETE FROM trade_stats_daily WHERE source = 'backfill'")
+    int deleteBackfill();
+    
+    /**
+     * 暂存行转为回填行，需与 deleteBackfill 在同一事务内执行
+     */
+    @Update("UPDATE trade_stats_daily SET source = 'backfill' WHERE source = 'staging'")
+    int publishBackfillStaging();
+    
+    /**
+     * 按主键顺序取下一段订单ID
+     */
+    @Select("SELECT id FROM purchase_order WHERE id > #{afterId} ORDER BY id LIMIT #{size}")
+    List<Long> selectIdChunk(@Param("afterId") long afterId, @Param("size") int size);
+    
+    /**
+     * 按日期、分类、省份、终态汇总一段ID区间内增量维护上线前结束的订单
+     * 增量维护在结束订单的同一事务内写入完成时间，有完成时间的订单已计入增量行；
+     * 历史订单没有完成时间，以 update_time 作为完成/取消日期
+     */
+    @Select("SELECT CAST(o.update_time AS DATE) AS stat_date, p.category_id, "
+            + "COALESCE(NULLIF(a.province, ''), '未知') AS province, o.status, COUNT(*) AS order_count, "
+            + "SUM(CASE WHEN o.status = 'completed' THEN COALESCE(o.actual_quantity, o.quantity) ELSE o.quantity END) AS total_quantity, "
+            + "SUM(CASE WHEN o.status = 'completed' THEN COALESCE(o.actual_amount, o.total_amount) ELSE o.total_amount END) AS total_amount "
+            + "FROM purchase_order o JOIN farmer_product p ON p.id = o.product_id "
+            + "LEFT JOIN origin_area a ON a.area_id = p.origin_area_id "
+            + "WHERE o.id > #{afterId} AND o.id <= #{toId} AND o.status IN ('completed', 'cancelled') "
+            + "AND o.finish_time IS NULL "
+            + "GROUP BY CAST(o.update_time AS DATE), p.category_id, COALESCE(NULLIF(a.province, ''), '未知'), o.status")
+    List<TradeStatsDaily> aggregateOrders(@Param("afterId") long afterId, @Param("toId") long toId);
+    
+    /**
+     * 按日/周/月桶查询趋势，可按分类或省份展开，并按分类、省份过滤
+     */
+    @Select({"<script>",
+            "SELECT",
+            "<choose><when test=\"granularity == 'week'\">week_start</when>",
+            "<when test=\"granularity == 'month'\">month_start</when><otherwise>stat_date</otherwise></choose> AS bucket,",
+            "<if test=\"groupBy == 'category'\">category_id,</if>",
+            "<if test=\"groupBy == 'province'\">province,</if>",
+            "SUM(order_count) AS order_count, SUM(total_quantity) AS quantity, SUM(total_amount) AS gmv",
+            "FROM trade_stats_daily",
+            "WHERE status = #{status} AND stat_date BETWEEN #{from} AND #{to} AND source IN ('live', 'backfill')",
+            "<if test=\"categoryId != null\">AND category_id = #{categoryId}</if>",
+            "<if test=\"province != null and province != ''\">AND province = #{province}</if>",
+            "GROUP BY",
+            "<choose><when test=\"granularity == 'week'\">week_start</when>",
+            "<when test=\"granularity == 'month'\">month_start</when><otherwise>stat_date</otherwise></choose>",
+            "<if test=\"groupBy == 'category'\">, category_id</if>",
+            "<if test=\"groupBy == 'province'\">, province</if>",
+            "ORDER BY bucket",
+            "<if test=\"groupBy == 'category'\">, category_id</if>",
+            "<if test=\"groupBy == 'province'\">, province</if>",
+            "</script>"})
+    List<StatisticsVO.TradeTrendPoint> selectTrend(@Param("granularity") String granularity,
+                                                   @Param("groupBy") String groupBy,
+                                                   @Param("status") String status,
+                                                   @Param("from") LocalDate from,
+                                                   @Param("to") LocalDate to,
+                                                   @Param("categoryId") Long categoryId,
+                                                   @Param("province") String province);
+}
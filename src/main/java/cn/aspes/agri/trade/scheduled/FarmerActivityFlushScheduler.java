@@ -0,0 +1,27 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.service.FarmerActivityService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 农户活跃度分钟桶写入Redis定时任务，供管理端汇总集群各节点数据
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FarmerActivityFlushScheduler {
+    
+    private final FarmerActivityService farmerActivityService;
+    
+    @Scheduled(fixedDelayString = "${statistics.activity-flush-interval-ms:5000}")
+    public void flushFarmerActivity() {
+        try {
+            farmerActivityService.flush();
+        } catch (Exception e) {
+            log.warn("农户活跃度写入Redis出错", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.config.HotStockProperties;
+import cn.aspes.agri.trade.service.HotStockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热点库存预留流水落库定时任务
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotStockFlushScheduler {
+    
+    private final HotStockService hotStockService;
+    private final HotStockProperties hotStockProperties;
+    
+    /**
+     * 应用启动后立即执行一次，重放上次进程崩溃遗留的落库批次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        flushPendingReservations();
+    }
+    
+    /**
+     * 周期性将落库队列中的预留流水批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${stock.hot.flush-interval-ms:500}")
+    public void flushPendingReservations() {
+        if (!hotStockProperties.isEnabled()) {
+            return;
+        }
+        try {
+            int persisted = hotStockService.flushPendingReservations();
+            if (persisted > 0) {
+                log.debug("热点库存预留落库 {} 条", persisted);
+            }
+        } catch (Exception e) {
+            log.error("热点库存预留落库出错", e);
+        }
+    }
+}
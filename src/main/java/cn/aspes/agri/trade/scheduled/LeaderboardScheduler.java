@@ -0,0 +1,40 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.service.LeaderboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 排行榜定时任务
+ * 定期将本节点草图写入Redis；每日低峰期以订单表精确计算最近7天前10名，校验近似排行的准确度
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LeaderboardScheduler {
+    
+    private static final int VALIDATE_DAYS = 7;
+    private static final int VALIDATE_TOP_K = 10;
+    
+    private final LeaderboardService leaderboardService;
+    
+    @Scheduled(fixedDelayString = "${statistics.leaderboard-flush-interval-ms:60000}")
+    public void flushLeaderboard() {
+        try {
+            leaderboardService.flush();
+        } catch (Exception e) {
+            log.warn("排行榜草图写入Redis出错", e);
+        }
+    }
+    
+    @Scheduled(cron = "${statistics.leaderboard-validate-cron:0 0 4 * * *}")
+    public void validateLeaderboard() {
+        try {
+            leaderboardService.validate(VALIDATE_DAYS, VALIDATE_TOP_K);
+        } catch (Exception e) {
+            log.error("排行榜校验出错", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.service.PartyStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 主体统计汇总表重建定时任务
+ * 主体统计汇总表随业务事务增量维护，每日低峰期从基础表全量重建一次，修正手工改库等造成的偏差；
+ * 首次部署时汇总表为空，应用启动后立即重建，不必等到夜间任务
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartyStatsRebuildScheduler {
+    
+    private final PartyStatsService partyStatsService;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initPartyStats() {
+        try {
+            partyStatsService.rebuildIfEmpty();
+        } catch (Exception e) {
+            log.error("启动时初始化主体统计出错，由夜间任务重建", e);
+        }
+    }
+    
+    @Scheduled(cron = "${statistics.party-stats-rebuild-cron:0 30 3 * * *}")
+    public void rebuildPartyStats() {
+        try {
+            partyStatsService.rebuild();
+        } catch (Exception e) {
+            log.error("主体统计重建出错", e);
+        }
+    }
+}
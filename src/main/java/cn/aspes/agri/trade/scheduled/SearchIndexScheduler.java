@@ -0,0 +1,43 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.config.SearchProperties;
+import cn.aspes.agri.trade.enums.SearchTarget;
+import cn.aspes.agri.trade.service.ProductFacetService;
+import cn.aspes.agri.trade.service.SearchIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 名称搜索与产品筛选索引重建定时任务
+ * 启动后立即构建索引，之后定期全量重建，使其他节点的写入在本节点可见
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexScheduler {
+    
+    private final SearchIndexService searchIndexService;
+    private final ProductFacetService productFacetService;
+    private final SearchProperties searchProperties;
+    
+    @Scheduled(initialDelay = 0, fixedDelayString = "${search.rebuild-interval-ms:600000}")
+    public void rebuildSearchIndexes() {
+        if (!searchProperties.isEnabled()) {
+            return;
+        }
+        for (SearchTarget target : SearchTarget.values()) {
+            try {
+                searchIndexService.rebuild(target);
+            } catch (Exception e) {
+                log.error("搜索索引重建出错：{}", target.getDesc(), e);
+            }
+        }
+        try {
+            productFacetService.rebuild();
+        } catch (Exception e) {
+            log.error("产品筛选索引重建出错", e);
+        }
+    }
+}
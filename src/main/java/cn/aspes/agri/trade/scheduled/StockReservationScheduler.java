@@ -1,69 +1,340 @@
 package cn.aspes.agri.trade.scheduled;
 
+import cn.aspes.agri.trade.config.StockReservationProperties;
 import cn.aspes.agri.trade.entity.StockReservation;
-import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.enums.ReservationStatus;
-import cn.aspes.agri.trade.service.FarmerProductService;
 import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.FarmerProductService;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.ReservationExpiryService;
+import cn.aspes.agri.trade.service.ShardLeaseService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 库存预留过期释放定时任务
+ *
+ * 正常路径：每秒从过期延迟队列领取到期预留并释放，预留到期后数秒内归还库存；
+ * 兜底路径：每小时按主键游标分批扫描全部过期预留，处理延迟队列遗漏（如Redis数据丢失），
+ *          多节点部署时按分片租约划分扫描范围。
+ *
+ * 两条路径共用同一批处理逻辑，每批在独立事务内：
+ * 锁定本批预留 -> 批量标记过期（带状态条件）-> 按产品汇总后每个产品一次回补库存
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class StockReservationScheduler {
-    
+
+    private static final String EXPIRE_REASON = "自动过期释放";
+    private static final String SWEEP_TASK = "reservation-expiry-sweep";
+
     private final StockReservationMapper stockReservationMapper;
     private final FarmerProductService farmerProductService;
-    
+    private final HotStockService hotStockService;
+    private final StockReservationProperties properties;
+    private final PlatformTransactionManager transactionManager;
+    private final ReservationExpiryService reservationExpiryService;
+    private final ShardLeaseService shardLeaseService;
+
+    private final AtomicLong totalRuns = new AtomicLong();
+    private final AtomicLong totalBatches = new AtomicLong();
+    private final AtomicLong totalReleased = new AtomicLong();
+    private final AtomicLong totalBatchMillis = new AtomicLong();
+    private final AtomicLong maxBatchMillis = new AtomicLong();
+    private final AtomicLong lastRunReleased = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final AtomicLong queueReleased = new AtomicLong();
+    private volatile List<Integer> lastRunShards = List.of();
+
+    /**
+     * 应用启动后以数据库中的待预留记录重建过期延迟队列
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildExpiryQueue() {
+        if (!properties.isExpiryQueueEnabled()) {
+            return;
+        }
+        try {
+            reservationExpiryService.rebuild();
+        } catch (Exception e) {
+            log.error("重建库存预留过期队列出错，由整点兜底任务释放", e);
+        }
+    }
+
     /**
-     * 每小时执行一次，释放已过期的库存预留
-     * 预留24小时后自动过期，此任务负责标记为过期并释放
+     * 轮询过期延迟队列，释放已到期的预留
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.expiry-poll-interval-ms:1000}")
+    public void releaseDueReservations() {
+        if (!properties.isExpiryQueueEnabled()) {
+            return;
+        }
+        try {
+            releaseDueFromQueue(LocalDateTime.now());
+        } catch (Exception e) {
+            // 未确认的预留在租约到期后重新投递
+            log.error("释放到期库存预留出错", e);
+        }
+    }
+
+    /**
+     * 从延迟队列领取到期预留并分批释放
+     *
+     * @param deadline 过期截止时间，领取到的预留仍以数据库中的过期时间为准
+     * @return 本次释放的预留条数
+     */
+    public int releaseDueFromQueue(LocalDateTime deadline) {
+        int batchSize = Math.max(1, properties.getExpiryPollBatchSize());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int released = 0;
+        while (true) {
+            List<Long> ids = reservationExpiryService.pollDue(batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long batchStart = System.currentTimeMillis();
+            BatchResult result = transactionTemplate.execute(status -> releaseBatch(wrapper -> wrapper
+                    .in(StockReservation::getId, ids)
+                    .lt(StockReservation::getExpiredTime, deadline)));
+            if (result != null && result.scanned > 0) {
+                result.quantityByProduct.forEach(hotStockService::restoreStock);
+                recordBatch(result, System.currentTimeMillis() - batchStart);
+                queueReleased.addAndGet(result.released);
+                released += result.released;
+            }
+            // 已释放、已确认或已被兜底任务处理的预留一并确认出队
+            reservationExpiryService.acknowledge(ids);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 每小时执行一次，兜底释放已过期的库存预留
+     * 预留24小时后自动过期，正常情况下已由延迟队列释放，此任务处理遗漏的记录
      */
     @Scheduled(cron = "0 0 * * * *")
     public void releaseExpiredReservations() {
         try {
-            // 查询已过期且状态为"预留"的预留记录
-            List<StockReservation> expiredReservations = stockReservationMapper.selectList(
-                    new LambdaQueryWrapper<StockReservation>()
-                            .eq(StockReservation::getStatus, ReservationStatus.PENDING)
-                            .lt(StockReservation::getExpiredTime, LocalDateTime.now())
-            );
-            
-            if (expiredReservations.isEmpty()) {
+            int released = sweepExpiredReservations(LocalDateTime.now());
+            if (released == 0) {
                 log.debug("没有过期的库存预留需要释放");
-                return;
             }
-            
-            // 批量更新为已过期状态，并回补库存
-            for (StockReservation reservation : expiredReservations) {
-                FarmerProduct product = farmerProductService.getById(reservation.getProductId());
-                if (product != null) {
-                    product.setStock(product.getStock() + reservation.getReservedQuantity());
-                    farmerProductService.updateById(product);
+        } catch (Exception e) {
+            log.error("释放过期库存预留出错", e);
+        }
+    }
+
+    /**
+     * 分批释放截止时间之前过期的预留
+     *
+     * 按 id % N 分为N个分片，逐个竞争分片租约，只处理本节点取得租约的分片，
+     * 多节点同时执行时各自处理不相交的分片。从随机分片开始竞争，使各节点大致均分。
+     * 租约时间需小于执行周期，处理完成的分片在本轮内不会被其他节点重复扫描。
+     * 单批失败时该批回滚并中止本次扫描，已提交的批次不受影响
+     *
+     * @param deadline 过期截止时间
+     * @return 本次释放的预留条数
+     */
+    public int sweepExpiredReservations(LocalDateTime deadline) {
+        long runStart = System.currentTimeMillis();
+        int shards = Math.max(1, properties.getSweepShards());
+        Duration leaseTtl = Duration.ofSeconds(properties.getSweepLeaseSeconds());
+        int offset = ThreadLocalRandom.current().nextInt(shards);
+
+        int released = 0;
+        List<Integer> ownedShards = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            int shard = (offset + i) % shards;
+            ShardLeaseService.Lease lease;
+            try {
+                lease = shardLeaseService.tryAcquire(SWEEP_TASK, shard, leaseTtl);
+            } catch (Exception e) {
+                // Redis不可用时不分片执行，正确性由行锁与状态条件保证
+                log.warn("获取过期扫描分片租约失败，本节点不分片执行兜底扫描", e);
+                released += sweepShard(deadline, 1, 0, null, leaseTtl);
+                ownedShards = List.of();
+                break;
+            }
+            if (lease == null) {
+                continue;
+            }
+            ownedShards.add(shard);
+            try {
+                released += sweepShard(deadline, shards, shard, lease, leaseTtl);
+            } catch (LeaseLostException e) {
+                log.warn("过期扫描分片租约已失效，停止处理该分片：分片={}, 令牌={}", shard, lease.fencingToken());
+            } catch (RuntimeException e) {
+                // 处理失败时释放租约，其他节点可立即接手
+                releaseLeaseQuietly(lease);
+                throw e;
+            }
+            // 处理完成后保留租约至自然过期，避免其他节点在本轮重复扫描该分片
+        }
+
+        long runMillis = System.currentTimeMillis() - runStart;
+        totalRuns.incrementAndGet();
+        lastRunReleased.set(released);
+        lastRunMillis.set(runMillis);
+        lastRunShards = ownedShards;
+        if (released > 0) {
+            log.info("本次释放已过期库存预留 {} 条，处理分片{}，耗时{}ms", released, ownedShards, runMillis);
+        }
+        return released;
+    }
+
+    /**
+     * 按主键游标分批释放一个分片内的过期预留
+     *
+     * @param lease 分片租约，每批提交前续约，续约失败时回滚该批；为 null 时不校验
+     */
+    private int sweepShard(LocalDateTime deadline, int shards, int shard, ShardLeaseService.Lease lease, Duration leaseTtl) {
+        int batchSize = Math.max(1, properties.getExpireBatchSize());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        long lastId = 0L;
+        int released = 0;
+        while (true) {
+            long batchStart = System.currentTimeMillis();
+            final long cursor = lastId;
+            BatchResult result = transactionTemplate.execute(status -> {
+                BatchResult batch = releaseBatch(wrapper -> {
+                    wrapper.lt(StockReservation::getExpiredTime, deadline)
+                            .gt(StockReservation::getId, cursor)
+                            .last("LIMIT " + batchSize + " FOR UPDATE");
+                    if (shards > 1) {
+                        wrapper.apply("MOD(id, {0}) = {1}", shards, shard);
+                    }
+                });
+                // 提交前以防护令牌续约：租约已被其他节点接管（如本节点长时间停顿）时回滚本批
+                if (lease != null && batch.scanned > 0 && !shardLeaseService.renew(lease, leaseTtl)) {
+                    throw new LeaseLostException();
                 }
+                return batch;
+            });
+            if (result == null || result.scanned == 0) {
+                break;
+            }
+            // Redis 计数不参与数据库事务，批次提交后再回补
+            result.quantityByProduct.forEach(hotStockService::restoreStock);
+
+            released += result.released;
+            lastId = result.ids.get(result.ids.size() - 1);
+            recordBatch(result, System.currentTimeMillis() - batchStart);
 
-                reservation.setStatus(ReservationStatus.EXPIRED);
-                reservation.setReleaseReason("自动过期释放");
-                stockReservationMapper.updateById(reservation);
-                
-                log.info("库存预留已过期释放：预留ID={}, 订单ID={}, 产品ID={}",
-                        reservation.getId(), reservation.getOrderId(), reservation.getProductId());
+            if (result.scanned < batchSize) {
+                break;
             }
-            
-            log.info("本次释放已过期库存预留 {} 条", expiredReservations.size());
+        }
+        return released;
+    }
+
+    private void releaseLeaseQuietly(ShardLeaseService.Lease lease) {
+        try {
+            shardLeaseService.release(lease);
         } catch (Exception e) {
-            log.error("释放过期库存预留出错", e);
+            log.warn("释放过期扫描分片租约失败，等待租约自然过期：分片={}", lease.shard(), e);
+        }
+    }
+
+    /**
+     * 过期释放任务运行指标
+     */
+    public Map<String, Object> getSweepMetrics() {
+        long batches = totalBatches.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("batchSize", properties.getExpireBatchSize());
+        metrics.put("totalRuns", totalRuns.get());
+        metrics.put("totalBatches", batches);
+        metrics.put("totalReleased", totalReleased.get());
+        metrics.put("avgBatchMillis", batches == 0 ? 0 : totalBatchMillis.get() / batches);
+        metrics.put("maxBatchMillis", maxBatchMillis.get());
+        metrics.put("lastRunReleased", lastRunReleased.get());
+        metrics.put("lastRunMillis", lastRunMillis.get());
+        metrics.put("lastRunShards", lastRunShards);
+        metrics.put("queueReleased", queueReleased.get());
+        metrics.put("queueSize", properties.isExpiryQueueEnabled() ? reservationExpiryService.size() : 0);
+        return metrics;
+    }
+
+    private void recordBatch(BatchResult result, long batchMillis) {
+        totalBatches.incrementAndGet();
+        totalReleased.addAndGet(result.released);
+        totalBatchMillis.addAndGet(batchMillis);
+        maxBatchMillis.accumulateAndGet(batchMillis, Math::max);
+        log.info("过期预留释放批次：扫描{}条，释放{}条，涉及产品{}个，耗时{}ms",
+                result.scanned, result.released, result.quantityByProduct.size(), batchMillis);
+    }
+
+    /**
+     * 释放一批待预留记录（需在事务内调用）
+     *
+     * @param condition 本批的筛选条件，未指定 last 时默认加行锁
+     */
+    private BatchResult releaseBatch(Consumer<LambdaQueryWrapper<StockReservation>> condition) {
+        // 加行锁读取本批预留，与取消订单等并发释放互斥，保证批量更新的行与汇总的行一致
+        LambdaQueryWrapper<StockReservation> query = new LambdaQueryWrapper<StockReservation>()
+                .select(StockReservation::getId, StockReservation::getProductId, StockReservation::getReservedQuantity)
+                .eq(StockReservation::getStatus, ReservationStatus.PENDING)
+                .orderByAsc(StockReservation::getId)
+                .last("FOR UPDATE");
+        condition.accept(query);
+        List<StockReservation> batch = stockReservationMapper.selectList(query);
+        if (batch.isEmpty()) {
+            return new BatchResult(0, 0, List.of(), Collections.emptyMap());
         }
+
+        List<Long> ids = batch.stream().map(StockReservation::getId).toList();
+        int updated = stockReservationMapper.update(null, new LambdaUpdateWrapper<StockReservation>()
+                .set(StockReservation::getStatus, ReservationStatus.EXPIRED)
+                .set(StockReservation::getReleaseReason, EXPIRE_REASON)
+                .set(StockReservation::getUpdateTime, LocalDateTime.now())
+                // 条件更新不经过乐观锁插件，需手动递增版本号，使持有旧版本的 updateById 失效
+                .setSql("version = version + 1")
+                .in(StockReservation::getId, ids)
+                .eq(StockReservation::getStatus, ReservationStatus.PENDING));
+        if (updated != batch.size()) {
+            throw new IllegalStateException("过期预留批量更新行数不一致：期望" + batch.size() + "，实际" + updated);
+        }
+
+        // 按产品ID升序回补，多个批次/事务之间加锁顺序一致
+        Map<Long, Integer> quantityByProduct = new TreeMap<>();
+        for (StockReservation reservation : batch) {
+            quantityByProduct.merge(reservation.getProductId(), reservation.getReservedQuantity(), Integer::sum);
+        }
+        quantityByProduct.forEach(farmerProductService::increaseStock);
+        return new BatchResult(batch.size(), updated, ids, quantityByProduct);
+    }
+
+    /**
+     * 分片租约已失效
+     */
+    private static class LeaseLostException extends RuntimeException {
+    }
+
+    private record BatchResult(int scanned, int released, List<Long> ids, Map<Long, Integer> quantityByProduct) {
     }
 }
@@ -0,0 +1,36 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.vo.StatisticsVO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求活跃事件管道
+ *
+ * 认证过滤器只向有界环形缓冲区发布基本类型事件，由后台消费线程批量汇总农户活跃度、
+ * 接口访问量与延迟分布；缓冲区满时丢弃事件并计数，不阻塞请求。
+ */
+public interface ActivityEventService {
+    
+    /**
+     * 发布一次已认证请求的事件，不抛出异常
+     * @param userId 用户ID
+     * @param farmer 是否农户请求
+     * @param endpoint 接口路由模板，如 "GET /api/farmer/product/{id}"
+     * @param timestamp 请求开始时间（毫秒）
+     * @param latencyMicros 请求处理耗时（微秒）
+     * @return 是否写入缓冲区
+     */
+    boolean publish(Long userId, boolean farmer, String endpoint, long timestamp, long latencyMicros);
+    
+    /**
+     * 本节点各接口访问量与延迟分位数，按访问量降序
+     */
+    List<StatisticsVO.EndpointStats> getEndpointStats();
+    
+    /**
+     * 管道运行指标：已发布、已丢弃、已消费事件数及当前积压
+     */
+    Map<String, Object> getPipelineMetrics();
+}
@@ -0,0 +1,14 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.enums.BizNoType;
+
+/**
+ * 业务编号服务
+ */
+public interface BizNoService {
+
+    /**
+     * 生成业务编号，多节点全局唯一
+     */
+    String nextNo(BizNoType type);
+}
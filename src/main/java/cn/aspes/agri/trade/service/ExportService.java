@@ -0,0 +1,36 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.dto.ExportRequest;
+
+import java.io.OutputStream;
+
+/**
+ * 数据导出服务
+ *
+ * 以游标逐行读取并直接写出 CSV（UTF-8 带 BOM，便于 Excel 打开），
+ * 内存占用与导出行数无关。
+ */
+public interface ExportService {
+    
+    /**
+     * 校验订单导出参数，需在开始写出响应前调用，参数错误时可正常返回错误信息
+     */
+    void checkOrderExport(ExportRequest request);
+    
+    /**
+     * 校验支付记录导出参数
+     */
+    void checkPaymentExport(ExportRequest request);
+    
+    /**
+     * 导出订单，产品快照展开为独立列
+     * @return 导出行数
+     */
+    long exportOrders(ExportRequest request, OutputStream out);
+    
+    /**
+     * 导出支付记录
+     * @return 导出行数
+     */
+    long exportPayments(ExportRequest request, OutputStream out);
+}
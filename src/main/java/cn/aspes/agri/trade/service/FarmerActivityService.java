@@ -0,0 +1,44 @@
+package cn.aspes.agri.trade.service;
+
+import java.util.Map;
+
+/**
+ * 农户活跃度统计服务（市级）
+ *
+ * 每个节点按城市维护固定大小的分钟桶环，桶内以 LongAdder 计请求数、以 HyperLogLog 估计去重农户数；
+ * 各节点定期把最近的分钟桶写入Redis；查询时合并本节点内存中的分钟桶与其他节点最近写入的快照，
+ * 得到集群范围的活跃度，查询本身不写Redis。
+ */
+public interface FarmerActivityService {
+    
+    /**
+     * 支持的最大统计窗口（分钟）
+     */
+    int MAX_WINDOW_MINUTES = 60;
+    
+    /**
+     * 记录农户请求活跃事件，请求线程内不访问数据库
+     */
+    void record(Long userId);
+    
+    /**
+     * 按事件发生时间记录农户请求活跃事件，用于异步消费的事件
+     */
+    void record(Long userId, long timestampMillis);
+    
+    /**
+     * 最近N分钟各城市农户请求数
+     */
+    Map<String, Long> countRequestsByCity(int windowMinutes);
+    
+    /**
+     * 最近N分钟各城市去重活跃农户数（估计值）
+     */
+    Map<String, Long> countActiveFarmersByCity(int windowMinutes);
+    
+    /**
+     * 将本节点尚未写入或仍在变化的分钟桶写入Redis
+     * @return 写入的城市桶数
+     */
+    int flush();
+}
@@ -1,8 +1,11 @@
 package cn.aspes.agri.trade.service;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.FarmerProductRequest;
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
 import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
+import cn.aspes.agri.trade.vo.ProductFacetVO;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 
@@ -36,6 +39,11 @@ public interface FarmerProductService extends IService<FarmerProduct> {
      */
     IPage<FarmerProduct> listProducts(int pageNum, int pageSize, Long categoryId, Integer originAreaId, String status);
     
+    /**
+     * 游标分页查询产品列表（按创建时间倒序，不查询总数）
+     */
+    CursorPage<FarmerProduct> listProductsByCursor(String after, Integer size, Long categoryId, Integer originAreaId, String status);
+    
     /**
      * 查询我的产品列表
      */
@@ -72,4 +80,20 @@ public interface FarmerProductService extends IService<FarmerProduct> {
      * 根据商品名称关键字查询商品列表（分页）
      */
     IPage<FarmerProduct> searchProductsByName(String keyword, int pageNum, int pageSize);
-}
\ No newline at end of file
+    
+    /**
+     * 在售产品分面筛选：按分类、产地省份、价格区间、生产方式筛选，并返回各维度的产品数
+     */
+    ProductFacetVO browseProducts(ProductFacetRequest request);
+    
+    /**
+     * 原子扣减库存（库存充足才扣减）
+     * @return 是否扣减成功，false 表示库存不足或产品不存在
+     */
+    boolean decreaseStock(Long productId, Integer quantity);
+    
+    /**
+     * 原子回补库存
+     */
+    void increaseStock(Long productId, Integer quantity);
+}
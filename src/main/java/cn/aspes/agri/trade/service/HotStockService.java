@@ -0,0 +1,56 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.entity.StockReservation;
+
+import java.util.Map;
+
+/**
+ * 热点库存服务接口
+ *
+ * 开启热点模式的产品，可售库存计数保存在Redis中并通过Lua脚本原子扣减，
+ * 预留记录与 farmer_product.stock 通过异步队列批量落库（write-behind）。
+ */
+public interface HotStockService {
+    
+    /**
+     * 产品是否处于热点库存模式
+     */
+    boolean isHotProduct(Long productId);
+    
+    /**
+     * 开启产品热点库存模式（以数据库当前库存初始化Redis计数）
+     */
+    void enableHotProduct(Long productId);
+    
+    /**
+     * 关闭产品热点库存模式（先落库积压流水，再移除Redis计数）
+     */
+    void disableHotProduct(Long productId);
+    
+    /**
+     * 热点预留：Redis原子扣减计数并登记预留流水，事务提交后进入落库队列，回滚则归还计数
+     */
+    void reserve(StockReservation reservation);
+    
+    /**
+     * 预留释放/过期后回补热点计数（数据库库存由调用方回补）
+     */
+    void restoreStock(Long productId, Integer quantity);
+    
+    /**
+     * 将落库队列中的预留流水批量写入数据库
+     * @return 本次新落库的预留条数
+     */
+    int flushPendingReservations();
+    
+    /**
+     * 将订单尚未落库的热点预留流水立即落库，不依赖落库锁，按预留ID幂等
+     * 订单事务仍未提交时不处理；流水已转入死信或落库失败时抛出异常
+     */
+    void persistOrderReservation(Long orderId);
+    
+    /**
+     * 查询产品热点库存状态（计数、待提交及待落库流水数量）
+     */
+    Map<String, Object> getHotStockStatus(Long productId);
+}
@@ -0,0 +1,51 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 排行榜服务（热销产品、农户成交额、热门产地）
+ *
+ * 订单完成与支付成功事件提交后计入本节点按天划分的 Space-Saving 草图，内存只与计数器数相关；
+ * 草图定期写入Redis（每个实例一个哈希字段），查询时合并其他实例已写入的草图与本实例内存中的草图，
+ * 得到近似前K名，查询本身不写Redis；已停止实例的草图保留到窗口过期，重启后以新实例号重新计数。
+ * 另提供按订单表精确计算的结果，用于校验近似排行。
+ */
+public interface LeaderboardService {
+    
+    /**
+     * 订单完成：计入产品销量与产地成交单数
+     */
+    void recordOrderCompleted(PurchaseOrder order);
+    
+    /**
+     * 支付成功：计入农户成交额
+     */
+    void recordPaymentSucceeded(PurchaseOrder order, BigDecimal amount);
+    
+    /**
+     * 查询最近若干天的前K名
+     * @param dimension 排行维度：product/farmer/origin_area
+     * @param exact 为 true 时从订单表精确计算
+     */
+    List<StatisticsVO.LeaderboardEntry> getTop(String dimension, int days, int topK, boolean exact);
+    
+    /**
+     * 将本节点有变化的草图写入Redis
+     * @return 写入的草图数
+     */
+    int flush();
+    
+    /**
+     * 对比各维度近似排行与精确排行
+     */
+    List<StatisticsVO.LeaderboardValidation> validate(int days, int topK);
+    
+    /**
+     * 最近一次校验结果
+     */
+    List<StatisticsVO.LeaderboardValidation> getLastValidation();
+}
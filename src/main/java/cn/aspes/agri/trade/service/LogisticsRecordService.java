@@ -1,5 +1,6 @@
 package cn.aspes.agri.trade.service;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.LogisticsRequest;
 import cn.aspes.agri.trade.dto.LogisticsTraceRequest;
 import cn.aspes.agri.trade.entity.LogisticsRecord;
@@ -53,4 +54,9 @@ public interface LogisticsRecordService extends IService<LogisticsRecord> {
      * 分页查询物流轨迹
      */
     Page<LogisticsTrace> pageTraces(Long logisticsId, Integer current, Integer size, Long userId);
+    
+    /**
+     * 游标分页查询物流轨迹（按节点时间倒序，不查询总数）
+     */
+    CursorPage<LogisticsTrace> pageTracesByCursor(Long logisticsId, String after, Integer size, Long userId);
 }
\ No newline at end of file
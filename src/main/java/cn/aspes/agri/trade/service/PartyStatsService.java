@@ -0,0 +1,79 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.entity.CooperationReview;
+import cn.aspes.agri.trade.entity.PartyStats;
+import cn.aspes.agri.trade.entity.PartyStatsDaily;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 主体统计汇总服务接口
+ *
+ * 订单、支付、评价变更时在同一事务内累加 party_stats 与当日 party_stats_daily，
+ * 业务事务回滚时增量随之回滚；统计查询只按主键读取一行。
+ */
+public interface PartyStatsService {
+    
+    /**
+     * 订单创建：农户与采购方订单数加一
+     */
+    void recordOrdersCreated(Collection<PurchaseOrder> orders);
+    
+    /**
+     * 订单交货：累加本次交货结算金额
+     */
+    void recordOrderDelivered(PurchaseOrder order, BigDecimal deliveredAmount);
+    
+    /**
+     * 订单完成：农户与采购方已完成订单数加一，并累加产品销量（product_sales）
+     */
+    void recordOrderCompleted(PurchaseOrder order);
+    
+    /**
+     * 支付成功：累加农户与采购方的支付成功金额
+     */
+    void recordPaymentSucceeded(PurchaseOrder order, BigDecimal amount);
+    
+    /**
+     * 提交评价：被评价方评价数、评分合计与对应星级累加
+     */
+    void recordReviewSubmitted(CooperationReview review);
+    
+    /**
+     * 修改评价评分：被评价方评分合计按差值调整，旧星级减一、新星级加一
+     */
+    void recordReviewRatingChanged(CooperationReview review, int previousRating);
+    
+    /**
+     * 删除评价：扣减被评价方评价数、评分合计与对应星级
+     */
+    void recordReviewDeleted(CooperationReview review);
+    
+    /**
+     * 获取主体统计，无记录时返回全零统计
+     * @param partyType farmer/purchaser
+     */
+    PartyStats getStats(String partyType, Long partyId);
+    
+    /**
+     * 获取日期区间内的每日统计（无发生额的日期不返回）
+     */
+    List<PartyStatsDaily> listDailyStats(String partyType, Long partyId, LocalDate from, LocalDate to);
+    
+    /**
+     * 从订单、支付记录与评价表重建全部统计（含产品销量），用于修正增量维护的偏差
+     * 按主体/产品ID分段，每段在独立的短事务中重算，不长时间锁定基础表
+     * @return 重建的汇总行数
+     */
+    int rebuild();
+    
+    /**
+     * 汇总表为空（首次部署）时从基础表重建，应用启动时调用
+     * @return 重建的汇总行数，无需重建时返回 0
+     */
+    int rebuildIfEmpty();
+}
@@ -1,11 +1,13 @@
 package cn.aspes.agri.trade.service;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.PaymentRequest;
 import cn.aspes.agri.trade.entity.PaymentRecord;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -28,11 +30,21 @@ public interface PaymentRecordService extends IService<PaymentRecord> {
      */
     List<PaymentRecord> listByOrder(Long orderId);
     
+    /**
+     * 订单已支付成功的总金额（数据库汇总）
+     */
+    BigDecimal sumPaidAmount(Long orderId);
+    
     /**
      * 分页查询支付记录
      */
     Page<PaymentRecord> pagePayments(Integer current, Integer size, Long orderId, String status);
     
+    /**
+     * 游标分页查询支付记录（按创建时间倒序，不查询总数）
+     */
+    CursorPage<PaymentRecord> pagePaymentsByCursor(String after, Integer size, Long orderId, String status);
+    
     /**
      * 标记支付失败
      */
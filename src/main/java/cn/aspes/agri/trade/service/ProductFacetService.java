@@ -0,0 +1,63 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.enums.ProductFacet;
+import cn.aspes.agri.trade.util.FacetBitmapIndex;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 产品分面筛选索引服务
+ *
+ * 在售产品按分类、产地省份、价格区间、生产方式在进程内建立位图索引，
+ * 筛选与各维度计数都在索引中完成，数据库仅按主键查询当前页的记录。
+ * 索引启动时从数据库构建并定期全量重建，本节点的发布、修改、上下架、删除在事务提交后实时更新索引。
+ */
+public interface ProductFacetService {
+
+    /**
+     * 索引是否可用；未启用或尚未建好时调用方应回退到数据库查询
+     */
+    boolean isReady();
+
+    /**
+     * 按筛选条件查询在售产品
+     *
+     * @return 命中总数、当前页的产品ID（按创建时间倒序）与各维度取值计数
+     */
+    FacetBitmapIndex.Result<ProductFacet> query(ProductFacetRequest request);
+
+    /**
+     * 按产品当前状态更新索引：在售则新增或更新，否则移除；处于事务中时在提交后生效
+     */
+    void index(FarmerProduct product);
+
+    /**
+     * 移除产品，处于事务中时在提交后生效
+     */
+    void remove(Long productId);
+
+    /**
+     * 从数据库全量重建索引，重建期间的写入会在切换前补录
+     *
+     * @return 索引中的在售产品数
+     */
+    int rebuild();
+
+    /**
+     * 按配置的分界划分的价格区间
+     */
+    List<PriceBand> priceBands();
+
+    /**
+     * 价格区间：[lower, upper)，upper 为 null 表示不设上限
+     */
+    record PriceBand(String label, BigDecimal lower, BigDecimal upper) {
+
+        public boolean contains(BigDecimal price) {
+            return price.compareTo(lower) >= 0 && (upper == null || price.compareTo(upper) < 0);
+        }
+    }
+}
@@ -4,7 +4,9 @@ import cn.aspes.agri.trade.dto.ProductImageRequest;
 import cn.aspes.agri.trade.entity.ProductImage;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 产品图片服务
@@ -26,6 +28,11 @@ public interface ProductImageService extends IService<ProductImage> {
      */
     List<ProductImage> listByProductId(Long productId);
     
+    /**
+     * 批量查询多个产品的图片，按产品ID分组，组内按排序升序；没有图片的产品不在结果中
+     */
+    Map<Long, List<ProductImage>> groupByProductIds(Collection<Long> productIds);
+    
     /**
      * 删除产品图片
      */
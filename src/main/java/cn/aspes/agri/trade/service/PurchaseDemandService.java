@@ -1,5 +1,6 @@
 package cn.aspes.agri.trade.service;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.PurchaseDemandRequest;
 import cn.aspes.agri.trade.entity.PurchaseDemand;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -35,6 +36,11 @@ public interface PurchaseDemandService extends IService<PurchaseDemand> {
      */
     IPage<PurchaseDemand> listDemands(int pageNum, int pageSize, Long categoryId, String status);
     
+    /**
+     * 游标分页查询需求列表（按创建时间倒序，不查询总数）
+     */
+    CursorPage<PurchaseDemand> listDemandsByCursor(String after, Integer size, Long categoryId, String status);
+    
     /**
      * 查询我的需求列表
      */
@@ -1,10 +1,14 @@
 package cn.aspes.agri.trade.service;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.vo.ContractOrderResultVO;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+
 /**
  * 采购订单服务接口
  */
@@ -15,6 +19,11 @@ public interface PurchaseOrderService extends IService<PurchaseOrder> {
      */
     PurchaseOrder createOrderFromContract(Long contractId);
     
+    /**
+     * 基于多个合同批量创建订单，逐个合同返回结果
+     */
+    List<ContractOrderResultVO> createOrdersFromContracts(List<Long> contractIds, Long userId);
+    
     /**
      * 农户交货
      */
@@ -30,11 +39,21 @@ public interface PurchaseOrderService extends IService<PurchaseOrder> {
      */
     Page<PurchaseOrder> pageOrders(Integer current, Integer size, String status);
     
+    /**
+     * 游标分页查询订单（按创建时间倒序，不查询总数）
+     */
+    CursorPage<PurchaseOrder> pageOrdersByCursor(String after, Integer size, String status);
+    
     /**
      * 查询我的订单
      */
     Page<PurchaseOrder> listMyOrders(Long userId, String role, Integer current, Integer size);
     
+    /**
+     * 游标分页查询我的订单
+     */
+    CursorPage<PurchaseOrder> listMyOrdersByCursor(Long userId, String role, String after, Integer size);
+    
     /**
      * 订单详情
      */
@@ -0,0 +1,31 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.vo.RatingSummary;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+
+/**
+ * 评分汇总服务接口
+ *
+ * 评价数、评分合计与1~5星分布随 party_stats 在评价事务内增量维护（见 {@link PartyStatsService}），
+ * 本服务只读取这些字段并缓存在Redis，评价变更后失效缓存。
+ */
+public interface RatingSummaryService {
+    
+    /**
+     * 评价提交、修改、删除后失效被评价方的评分缓存
+     */
+    void evictSummary(String reviewTo, Long targetId);
+    
+    /**
+     * 查询被评价方的评分汇总，无评价时各项为0
+     *
+     * @param reviewTo 被评价方类型：farmer/purchaser
+     * @param targetId 被评价方ID
+     */
+    RatingSummary getSummary(String reviewTo, Long targetId);
+    
+    /**
+     * 查询被评价方的评分分布
+     */
+    StatisticsVO.RatingDistribution getDistribution(String reviewTo, Long targetId);
+}
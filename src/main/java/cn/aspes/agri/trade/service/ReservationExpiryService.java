@@ -0,0 +1,47 @@
+package cn.aspes.agri.trade.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 库存预留过期延迟队列服务
+ *
+ * 以预留过期时间为分值维护延迟队列，到期后由定时任务逐批释放，
+ * 整点全表扫描任务仅作为兜底。
+ */
+public interface ReservationExpiryService {
+
+    /**
+     * 登记预留的过期时间（当前事务提交后生效）
+     */
+    void schedule(Long reservationId, LocalDateTime expiredTime);
+
+    /**
+     * 预留已释放/确认，从延迟队列移除（当前事务提交后生效）
+     */
+    void cancel(Long reservationId);
+
+    /**
+     * 领取至多 limit 条已到期的预留
+     * 领取后在租约时间内对其他节点不可见，处理完成需调用 {@link #acknowledge}，否则租约到期后重新投递
+     */
+    List<Long> pollDue(int limit);
+
+    /**
+     * 确认已处理，从延迟队列移除
+     */
+    void acknowledge(Collection<Long> reservationIds);
+
+    /**
+     * 以数据库中全部待预留记录重建延迟队列
+     *
+     * @return 登记的预留条数
+     */
+    int rebuild();
+
+    /**
+     * 延迟队列当前长度
+     */
+    long size();
+}
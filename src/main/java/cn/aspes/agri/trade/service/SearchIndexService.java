@@ -0,0 +1,47 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.enums.SearchTarget;
+import cn.aspes.agri.trade.util.NgramIndex;
+
+import java.time.LocalDateTime;
+
+/**
+ * 名称搜索索引服务
+ *
+ * 产品名称、农场名称、需求产品名称在进程内建立 n-gram 倒排索引，搜索只在索引中完成匹配与排序，
+ * 数据库仅按主键查询当前页的记录。索引启动时从数据库构建并定期全量重建，
+ * 本节点的新增、修改、删除在事务提交后实时更新索引。
+ */
+public interface SearchIndexService {
+
+    /**
+     * 索引是否可用；未启用或尚未建好时调用方应回退到数据库查询
+     */
+    boolean isReady(SearchTarget target);
+
+    /**
+     * 按相关度检索
+     *
+     * @return 命中总数与当前页的ID（按相关度降序）
+     */
+    NgramIndex.Hits search(SearchTarget target, String keyword, int pageNum, int pageSize);
+
+    /**
+     * 新增或更新索引文档，处于事务中时在提交后生效
+     *
+     * @param createTime 相关度相同时按创建时间倒序
+     */
+    void index(SearchTarget target, Long id, String name, LocalDateTime createTime);
+
+    /**
+     * 删除索引文档，处于事务中时在提交后生效
+     */
+    void remove(SearchTarget target, Long id);
+
+    /**
+     * 从数据库全量重建索引，重建期间的写入会在切换前补录
+     *
+     * @return 索引文档数
+     */
+    int rebuild(SearchTarget target);
+}
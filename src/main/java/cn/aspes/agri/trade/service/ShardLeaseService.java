@@ -0,0 +1,42 @@
+package cn.aspes.agri.trade.service;
+
+import java.time.Duration;
+
+/**
+ * 分片租约服务
+ *
+ * 多节点部署时，定时任务按分片竞争租约，每个分片同一时刻只有一个持有者。
+ * 每次成功获取租约都会分配单调递增的防护令牌（fencing token），
+ * 租约过期后被其他节点重新获取时令牌随之变化，原持有者续约/校验将失败。
+ */
+public interface ShardLeaseService {
+
+    /**
+     * 尝试获取分片租约
+     *
+     * @return 租约，已被其他节点持有时返回 null
+     */
+    Lease tryAcquire(String task, int shard, Duration ttl);
+
+    /**
+     * 校验租约仍由当前持有者持有并续期
+     *
+     * @return false 表示租约已过期或被其他节点获取，持有者应立即停止处理
+     */
+    boolean renew(Lease lease, Duration ttl);
+
+    /**
+     * 释放租约（仅持有者可释放）
+     */
+    void release(Lease lease);
+
+    /**
+     * 分片租约
+     *
+     * @param task         任务名称
+     * @param shard        分片序号
+     * @param fencingToken 防护令牌
+     */
+    record Lease(String task, int shard, long fencingToken) {
+    }
+}
@@ -35,12 +35,12 @@ public interface StatisticsService {
     StatisticsVO.FarmerStats getFarmerStats(Long farmerId);
     
     /**
-     * 记录农户请求活跃事件（市级）
+     * 获取最近N分钟各城市农户活跃度
      */
-    void recordFarmerActivity(Long userId);
+    Map<String, Long> getFarmerActivityByCity(int windowMinutes);
     
     /**
-     * 获取最近N分钟各城市农户活跃度
+     * 获取最近N分钟各城市去重活跃农户数（估计值）
      */
-    Map<String, Long> getFarmerActivityByCity(int windowMinutes);
+    Map<String, Long> getActiveFarmersByCity(int windowMinutes);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.enums.ProductStatus;
+
+import java.util.EnumMap;
+
+/**
+ * 状态分布统计服务
+ *
+ * 以一次 GROUP BY status 查询得到各状态数量（包含数量为0的状态），结果在本地缓存较短时间，
+ * 管理端高频轮询不再反复扫描大表；本节点状态变更在事务提交后立即失效缓存。
+ */
+public interface StatusHistogramService {
+    
+    /**
+     * 各订单状态的订单数
+     */
+    EnumMap<OrderStatus, Long> getOrderStatusHistogram();
+    
+    /**
+     * 各产品状态的产品数
+     */
+    EnumMap<ProductStatus, Long> getProductStatusHistogram();
+    
+    /**
+     * 订单状态变更后调用，处于事务中时在提交后失效
+     */
+    void evictOrders();
+    
+    /**
+     * 产品状态变更或增删后调用，处于事务中时在提交后失效
+     */
+    void evictProducts();
+}
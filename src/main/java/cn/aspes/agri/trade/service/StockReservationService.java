@@ -3,6 +3,8 @@ package cn.aspes.agri.trade.service;
 import cn.aspes.agri.trade.entity.StockReservation;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+
 /**
  * 库存预留服务接口
  */
@@ -13,6 +15,14 @@ public interface StockReservationService extends IService<StockReservation> {
      */
     Long reserveStock(Long orderId, Long productId, Integer quantity);
 
+    /**
+     * 批量预留库存（预留即扣减），同一产品合并为一次条件扣减
+     * 合并扣减失败时逐条扣减，单条库存不足不影响其他预留
+     * @param reservations 待预留记录，需设置订单、产品与数量
+     * @return 预留成功的记录
+     */
+    List<StockReservation> reserveStockBatch(List<StockReservation> reservations);
+
     /**
      * 订单取消/支付失败等场景释放预留（会回补库存）
      */
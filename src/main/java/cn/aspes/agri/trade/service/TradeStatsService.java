@@ -0,0 +1,39 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.dto.TradeTrendRequest;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+
+import java.util.List;
+
+/**
+ * 交易趋势统计服务
+ *
+ * 订单完成或取消时，在同一事务内按 (日期, 分类, 产地省份, 终态) 累加到 trade_stats_daily，
+ * 日/周/月趋势只扫描汇总表，查询耗时与订单总量无关。
+ */
+public interface TradeStatsService {
+    
+    /**
+     * 订单完成：按实际交货数量与结算金额计入
+     */
+    void recordOrderCompleted(PurchaseOrder order);
+    
+    /**
+     * 订单取消：按订单数量与金额计入
+     */
+    void recordOrderCancelled(PurchaseOrder order);
+    
+    /**
+     * 查询交易趋势，桶数超过上限时拒绝
+     */
+    List<StatisticsVO.TradeTrendPoint> getTradeTrend(TradeTrendRequest request);
+    
+    /**
+     * 按订单ID分段回填增量维护上线前结束的历史订单（没有完成时间的订单），
+     * 回填行与增量行分开保存，重复执行只替换回填行；集群内同一时刻只有一个节点执行；
+     * 回填完成前查询读取上一次完整回填的结果，中途失败不影响已有回填行
+     * @return 扫描的订单数
+     */
+    long backfill();
+}
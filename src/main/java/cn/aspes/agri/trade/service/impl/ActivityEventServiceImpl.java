@@ -0,0 +1,232 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.service.ActivityEventService;
+import cn.aspes.agri.trade.service.FarmerActivityService;
+import cn.aspes.agri.trade.util.ActivityRingBuffer;
+import cn.aspes.agri.trade.util.LatencyHistogram;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 请求活跃事件管道实现
+ *
+ * 单个消费线程按批取出事件：农户事件直接计入活跃度滑动窗口，
+ * 接口访问量与延迟先在线程内的批次数组中累加，每批结束后合并到共享统计。
+ */
+@Slf4j
+@Service
+public class ActivityEventServiceImpl implements ActivityEventService {
+    
+    /** 路由模板数超过上限后归入该项，防止异常路径撑大统计表 */
+    static final String OTHER_ENDPOINT = "other";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final FarmerActivityService farmerActivityService;
+    private final ActivityRingBuffer buffer;
+    private final int batchSize;
+    private final int maxEndpoints;
+    
+    private final ConcurrentHashMap<String, Integer> endpointIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextEndpointId = new AtomicInteger(1);
+    private final AtomicReferenceArray<String> endpointNames;
+    private final AtomicLongArray endpointHits;
+    private final AtomicReferenceArray<LatencyHistogram> endpointLatencies;
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    /** 以下批次数组仅消费线程访问 */
+    private final long[] batchHits;
+    private final long[][] batchLatencies;
+    private final int[] touched;
+    private int touchedCount;
+    
+    private volatile boolean running;
+    private Thread consumer;
+    
+    public ActivityEventServiceImpl(FarmerActivityService farmerActivityService, StatisticsProperties properties) {
+        this.farmerActivityService = farmerActivityService;
+        this.buffer = new ActivityRingBuffer(properties.getActivityBufferSize());
+        this.batchSize = Math.max(1, properties.getActivityBatchSize());
+        this.maxEndpoints = Math.max(2, properties.getActivityMaxEndpoints());
+        this.endpointNames = new AtomicReferenceArray<>(maxEndpoints);
+        this.endpointNames.set(0, OTHER_ENDPOINT);
+        this.endpointHits = new AtomicLongArray(maxEndpoints);
+        this.endpointLatencies = new AtomicReferenceArray<>(maxEndpoints);
+        this.batchHits = new long[maxEndpoints];
+        this.batchLatencies = new long[maxEndpoints][];
+        this.touched = new int[maxEndpoints];
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer = new Thread(this::consumeLoop, "activity-event-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    @Override
+    public boolean publish(Long userId, boolean farmer, String endpoint, long timestamp, long latencyMicros) {
+        if (userId == null) {
+            return false;
+        }
+        if (buffer.offer(userId, farmer, endpointId(endpoint), timestamp, latencyMicros)) {
+            published.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+    
+    @Override
+    public List<StatisticsVO.EndpointStats> getEndpointStats() {
+        List<StatisticsVO.EndpointStats> result = new ArrayList<>();
+        for (int id = 0; id < maxEndpoints; id++) {
+            LatencyHistogram histogram = endpointLatencies.get(id);
+            if (histogram == null) {
+                continue;
+            }
+            result.add(new StatisticsVO.EndpointStats(endpointNames.get(id), endpointHits.get(id),
+                    toMillis(histogram.percentile(0.5)), toMillis(histogram.percentile(0.95)),
+                    toMillis(histogram.percentile(0.99))));
+        }
+        result.sort(Comparator.comparing(StatisticsVO.EndpointStats::getHits).reversed());
+        return result;
+    }
+    
+    @Override
+    public Map<String, Object> getPipelineMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("capacity", buffer.capacity());
+        metrics.put("published", published.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("consumed", consumed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("backlog", buffer.size());
+        return metrics;
+    }
+    
+    /**
+     * 取出并处理一批事件，返回处理数；仅由消费线程调用，测试可直接驱动
+     */
+    public int drainBatch() {
+        int count = buffer.drain(this::handle, batchSize);
+        if (count > 0) {
+            mergeBatch();
+            consumed.addAndGet(count);
+        }
+        return count;
+    }
+    
+    private void consumeLoop() {
+        while (running) {
+            try {
+                if (drainBatch() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (Throwable e) {
+                log.error("活跃事件消费出错", e);
+            }
+        }
+        // 停止前处理剩余事件
+        while (drainBatch() > 0) {
+            // 继续取
+        }
+    }
+    
+    private void handle(long userId, boolean farmer, int endpointId, long timestamp, long latencyMicros) {
+        if (batchHits[endpointId]++ == 0) {
+            touched[touchedCount++] = endpointId;
+            if (batchLatencies[endpointId] == null) {
+                batchLatencies[endpointId] = new long[LatencyHistogram.bucketCount()];
+            }
+        }
+        batchLatencies[endpointId][LatencyHistogram.bucketOf(latencyMicros)]++;
+        if (farmer) {
+            try {
+                farmerActivityService.record(userId, timestamp);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.debug("记录农户活跃事件失败 userId={}", userId, e);
+            }
+        }
+    }
+    
+    private void mergeBatch() {
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            LatencyHistogram histogram = endpointLatencies.get(id);
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                endpointLatencies.set(id, histogram);
+            }
+            histogram.add(batchLatencies[id]);
+            endpointHits.addAndGet(id, batchHits[id]);
+            batchHits[id] = 0;
+            Arrays.fill(batchLatencies[id], 0);
+        }
+        touchedCount = 0;
+    }
+    
+    private int endpointId(String endpoint) {
+        if (endpoint == null) {
+            return 0;
+        }
+        Integer id = endpointIds.get(endpoint);
+        if (id != null) {
+            return id;
+        }
+        if (nextEndpointId.get() >= maxEndpoints) {
+            return 0;
+        }
+        // 编号用尽时不登记映射，返回 null 使新路由归入 other
+        id = endpointIds.computeIfAbsent(endpoint, k -> {
+            int next = nextEndpointId.getAndUpdate(v -> v < maxEndpoints ? v + 1 : v);
+            if (next >= maxEndpoints) {
+                return null;
+            }
+            endpointNames.set(next, k);
+            return next;
+        });
+        return id != null ? id : 0;
+    }
+    
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
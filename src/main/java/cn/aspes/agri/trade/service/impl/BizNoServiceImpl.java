@@ -0,0 +1,162 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.BizNoProperties;
+import cn.aspes.agri.trade.entity.PurchaseContract;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.enums.BizNoType;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.BizNoService;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 业务编号服务实现（按天号段分配）
+ *
+ * Redis数据结构：
+ * - bizno:{type}:{yyyyMMdd}   当天已分配的最大流水号，保留2天
+ *
+ * 每次以 INCRBY 申请一段连续流水号（步长按类型配置），在内存中通过CAS发放，
+ * 号段用完或跨天时才访问Redis。当天计数不存在（首次使用或Redis数据丢失）时，
+ * 以数据库中当天最大编号加上每个节点一个号段的间隔初始化，
+ * 避免与已有编号及其他节点内存中尚未用完的号段重复。
+ * 流水号超出位数时编号变长，重建时按长度、再按编号取最大值。
+ * Redis不可用时降级为 前缀 + 日期 + 雪花ID（至少15位），长度与流水号格式不同，不会相互重复。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BizNoServiceImpl implements BizNoService {
+
+    private static final String BIZ_NO_KEY = "bizno:";
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Duration COUNTER_TTL = Duration.ofDays(2);
+
+    /**
+     * 流水号最大位数，更长的是雪花ID降级编号，不参与续号
+     */
+    private static final int MAX_SEQUENCE_DIGITS = 12;
+
+    private final StringRedisTemplate redisTemplate;
+    private final BizNoProperties properties;
+    private final PurchaseOrderMapper purchaseOrderMapper;
+    private final PurchaseContractMapper purchaseContractMapper;
+    private final SnowflakeIdGenerator idGenerator;
+
+    private final Map<BizNoType, AtomicReference<Segment>> segments = initSegments();
+
+    @Override
+    public String nextNo(BizNoType type) {
+        String day = LocalDate.now().format(DAY_FORMATTER);
+        String prefix = type.getPrefix() + day;
+        long sequence;
+        try {
+            sequence = nextSequence(type, day, prefix);
+        } catch (Exception e) {
+            log.warn("号段申请失败，使用雪花ID降级生成编号：{}", type, e);
+            return prefix + idGenerator.nextId();
+        }
+        String digits = Long.toString(sequence);
+        if (digits.length() >= type.getSequenceWidth()) {
+            return prefix + digits;
+        }
+        return prefix + "0".repeat(type.getSequenceWidth() - digits.length()) + digits;
+    }
+
+    private long nextSequence(BizNoType type, String day, String prefix) {
+        AtomicReference<Segment> holder = segments.get(type);
+        while (true) {
+            Segment segment = holder.get();
+            if (segment != null && segment.day.equals(day)) {
+                long value = segment.next.getAndIncrement();
+                if (value <= segment.max) {
+                    return value;
+                }
+            }
+            // 号段用完或跨天：同一类型只由一个线程申请新号段，其余线程等待后重试
+            synchronized (holder) {
+                Segment current = holder.get();
+                if (current == segment || current == null || !current.day.equals(day)) {
+                    holder.set(allocate(type, day, prefix));
+                }
+            }
+        }
+    }
+
+    private Segment allocate(BizNoType type, String day, String prefix) {
+        String key = BIZ_NO_KEY + type.name().toLowerCase() + ":" + day;
+        int step = properties.stepOf(type);
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            long currentMax = loadCurrentMax(type, prefix);
+            // 首次使用无需间隔；计数丢失时其他节点可能还持有未写入数据库的号段
+            long seed = currentMax == 0 ? 0 : currentMax + (long) step * properties.getMaxNodes();
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(seed), COUNTER_TTL);
+        }
+        Long end = redisTemplate.opsForValue().increment(key, step);
+        if (end == null) {
+            throw new IllegalStateException("号段申请失败：" + key);
+        }
+        return new Segment(day, end - step + 1, end);
+    }
+
+    /**
+     * 查询数据库中当天流水号格式的最大编号（含超出位数的更长编号，不含雪花ID降级编号）
+     */
+    private long loadCurrentMax(BizNoType type, String prefix) {
+        int maxLength = prefix.length() + MAX_SEQUENCE_DIGITS;
+        String lastNo = switch (type) {
+            case ORDER -> {
+                PurchaseOrder last = purchaseOrderMapper.selectOne(new LambdaQueryWrapper<PurchaseOrder>()
+                        .select(PurchaseOrder::getOrderNo)
+                        .likeRight(PurchaseOrder::getOrderNo, prefix)
+                        .apply("CHAR_LENGTH(order_no) <= {0}", maxLength)
+                        .last("ORDER BY CHAR_LENGTH(order_no) DESC, order_no DESC LIMIT 1"));
+                yield last == null ? null : last.getOrderNo();
+            }
+            case CONTRACT -> {
+                PurchaseContract last = purchaseContractMapper.selectOne(new LambdaQueryWrapper<PurchaseContract>()
+                        .select(PurchaseContract::getContractNo)
+                        .likeRight(PurchaseContract::getContractNo, prefix)
+                        .apply("CHAR_LENGTH(contract_no) <= {0}", maxLength)
+                        .last("ORDER BY CHAR_LENGTH(contract_no) DESC, contract_no DESC LIMIT 1"));
+                yield last == null ? null : last.getContractNo();
+            }
+        };
+        return lastNo == null ? 0L : Long.parseLong(lastNo.substring(prefix.length()));
+    }
+
+    private static Map<BizNoType, AtomicReference<Segment>> initSegments() {
+        Map<BizNoType, AtomicReference<Segment>> map = new EnumMap<>(BizNoType.class);
+        for (BizNoType type : BizNoType.values()) {
+            map.put(type, new AtomicReference<>());
+        }
+        return map;
+    }
+
+    /**
+     * 内存号段 [next, max]
+     */
+    private static final class Segment {
+        private final String day;
+        private final AtomicLong next;
+        private final long max;
+
+        private Segment(String day, long start, long max) {
+            this.day = day;
+            this.next = new AtomicLong(start);
+            this.max = max;
+        }
+    }
+}
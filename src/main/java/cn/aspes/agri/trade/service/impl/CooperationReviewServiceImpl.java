@@ -10,9 +10,12 @@ import cn.aspes.agri.trade.mapper.CooperationReviewMapper;
 import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
 import cn.aspes.agri.trade.service.CooperationReviewService;
 import cn.aspes.agri.trade.service.FarmerInfoService;
+import cn.aspes.agri.trade.service.PartyStatsService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.service.RatingSummaryService;
 import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +33,8 @@ public class CooperationReviewServiceImpl extends ServiceImpl<CooperationReviewM
     private final SnowflakeIdGenerator idGenerator;
     private final FarmerInfoService farmerInfoService;
     private final PurchaserInfoService purchaserInfoService;
+    private final PartyStatsService partyStatsService;
+    private final RatingSummaryService ratingSummaryService;
     
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -89,6 +94,8 @@ public class CooperationReviewServiceImpl extends ServiceImpl<CooperationReviewM
         
         review.setId(idGenerator.nextId());
         save(review);
+        partyStatsService.recordReviewSubmitted(review);
+        ratingSummaryService.evictSummary(review.getReviewTo(), review.getTargetId());
     }
     
     @Override
@@ -151,6 +158,7 @@ public class CooperationReviewServiceImpl extends ServiceImpl<CooperationReviewM
     }
     
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateReview(Long reviewId, Integer rating, String comment, Long currentUserId) {
         CooperationReview review = getById(reviewId);
         if (review == null) {
@@ -178,12 +186,24 @@ public class CooperationReviewServiceImpl extends ServiceImpl<CooperationReviewM
             throw new BusinessException("无权限修改此评价");
         }
         
+        int previousRating = review.getRating();
+        // 以读取时的评分为条件更新：并发修改同一评价时后到的一方条件不再成立，避免按过期评分重复计算增量
+        boolean updated = update(new LambdaUpdateWrapper<CooperationReview>()
+                .set(CooperationReview::getRating, rating)
+                .set(CooperationReview::getComment, comment)
+                .eq(CooperationReview::getId, reviewId)
+                .eq(CooperationReview::getRating, previousRating));
+        if (!updated) {
+            throw new BusinessException("评价已被修改，请刷新后重试");
+        }
         review.setRating(rating);
         review.setComment(comment);
-        updateById(review);
+        partyStatsService.recordReviewRatingChanged(review, previousRating);
+        ratingSummaryService.evictSummary(review.getReviewTo(), review.getTargetId());
     }
     
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteReview(Long reviewId, Long currentUserId) {
         CooperationReview review = getById(reviewId);
         if (review == null) {
@@ -211,6 +231,9 @@ public class CooperationReviewServiceImpl extends ServiceImpl<CooperationReviewM
             throw new BusinessException("无权限删除此评价");
         }
         
-        removeById(reviewId);
+        if (removeById(reviewId)) {
+            partyStatsService.recordReviewDeleted(review);
+            ratingSummaryService.evictSummary(review.getReviewTo(), review.getTargetId());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.dto.ExportRequest;
+import cn.aspes.agri.trade.entity.PaymentRecord;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.enums.PaymentStatus;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.PaymentRecordMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.ExportService;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.text.csv.CsvWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 数据导出服务实现类
+ */
+@Slf4j
+@Service
+public class ExportServiceImpl implements ExportService {
+    
+    /**
+     * 单次导出的最大天数
+     */
+    private static final int MAX_EXPORT_DAYS = 366;
+    
+    /**
+     * 每写出若干行刷新一次，让数据持续发往客户端而不是堆积在缓冲区
+     */
+    private static final int FLUSH_ROWS = 1000;
+    
+    private static final String[] ORDER_HEADER = {"订单ID", "订单编号", "合同ID", "产品ID", "产品名称", "规格", "单位",
+            "单价", "数量", "订单金额", "实际数量", "实际金额", "农户ID", "采购方ID", "状态", "交货时间", "创建时间"};
+    
+    private static final String[] PAYMENT_HEADER = {"支付ID", "支付流水号", "订单ID", "支付阶段", "金额", "支付方式",
+            "状态", "支付时间", "创建时间"};
+    
+    private final PurchaseOrderMapper purchaseOrderMapper;
+    private final PaymentRecordMapper paymentRecordMapper;
+    private final TransactionTemplate transactionTemplate;
+    
+    public ExportServiceImpl(PurchaseOrderMapper purchaseOrderMapper, PaymentRecordMapper paymentRecordMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.purchaseOrderMapper = purchaseOrderMapper;
+        this.paymentRecordMapper = paymentRecordMapper;
+        // 游标只在会话存活期间可读，整个导出在同一只读事务内完成
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+    
+    @Override
+    public void checkOrderExport(ExportRequest request) {
+        checkRange(request);
+        parseStatus(OrderStatus.class, OrderStatus::getCode, request.getStatus());
+    }
+    
+    @Override
+    public void checkPaymentExport(ExportRequest request) {
+        checkRange(request);
+        parseStatus(PaymentStatus.class, PaymentStatus::getCode, request.getStatus());
+    }
+    
+    @Override
+    public long exportOrders(ExportRequest request, OutputStream out) {
+        checkOrderExport(request);
+        return transactionTemplate.execute(status -> {
+            try (Cursor<PurchaseOrder> cursor = purchaseOrderMapper.selectCursorByCreateTime(
+                    request.getFrom().atStartOfDay(), request.getTo().plusDays(1).atStartOfDay(), request.getStatus())) {
+                CsvWriter writer = openWriter(out);
+                writer.writeLine(ORDER_HEADER);
+                long rows = 0;
+                for (PurchaseOrder order : cursor) {
+                    Map<String, Object> product = order.getProductInfo() != null ? order.getProductInfo() : Map.of();
+                    writer.writeLine(
+                            text(order.getId()),
+                            text(order.getOrderNo()),
+                            text(order.getContractId()),
+                            text(order.getProductId()),
+                            cell(product.get("name")),
+                            cell(product.get("spec")),
+                            cell(product.get("unit")),
+                            amount(product.get("price")),
+                            text(order.getQuantity()),
+                            amount(order.getTotalAmount()),
+                            text(order.getActualQuantity()),
+                            amount(order.getActualAmount()),
+                            text(order.getFarmerId()),
+                            text(order.getPurchaserId()),
+                            order.getStatus() != null ? order.getStatus().getDesc() : "",
+                            time(order.getDeliveryTime()),
+                            time(order.getCreateTime()));
+                    if (++rows % FLUSH_ROWS == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+                log.info("导出订单完成，区间：{} ~ {}，行数：{}", request.getFrom(), request.getTo(), rows);
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    @Override
+    public long exportPayments(ExportRequest request, OutputStream out) {
+        checkPaymentExport(request);
+        return transactionTemplate.execute(status -> {
+            try (Cursor<PaymentRecord> cursor = paymentRecordMapper.selectCursorByCreateTime(
+                    request.getFrom().atStartOfDay(), request.getTo().plusDays(1).atStartOfDay(), request.getStatus())) {
+                CsvWriter writer = openWriter(out);
+                writer.writeLine(PAYMENT_HEADER);
+                long rows = 0;
+                for (PaymentRecord payment : cursor) {
+                    writer.writeLine(
+                            text(payment.getId()),
+                            text(payment.getPaymentNo()),
+                            text(payment.getOrderId()),
+                            cell(payment.getPaymentStage()),
+                            amount(payment.getAmount()),
+                            payment.getPaymentMethod() != null ? payment.getPaymentMethod().getDesc() : "",
+                            payment.getStatus() != null ? payment.getStatus().getDesc() : "",
+                            time(payment.getPaymentTime()),
+                            time(payment.getCreateTime()));
+                    if (++rows % FLUSH_ROWS == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+                log.info("导出支付记录完成，区间：{} ~ {}，行数：{}", request.getFrom(), request.getTo(), rows);
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private void checkRange(ExportRequest request) {
+        if (request.getFrom() == null || request.getTo() == null) {
+            throw new BusinessException("导出日期区间不能为空");
+        }
+        if (request.getFrom().isAfter(request.getTo())) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(request.getFrom(), request.getTo()) + 1 > MAX_EXPORT_DAYS) {
+            throw new BusinessException("单次最多导出" + MAX_EXPORT_DAYS + "天的数据，请缩小日期区间");
+        }
+    }
+    
+    private static <E extends Enum<E>> void parseStatus(Class<E> type, Function<E, String> code, String status) {
+        if (status == null) {
+            return;
+        }
+        for (E value : type.getEnumConstants()) {
+            if (code.apply(value).equals(status)) {
+                return;
+            }
+        }
+        throw new BusinessException("无效的状态：" + status);
+    }
+    
+    /**
+     * 写入 UTF-8 BOM 后返回 CSV 写出器；不关闭底层输出流，由容器负责
+     */
+    private static CsvWriter openWriter(OutputStream out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        return new CsvWriter(writer);
+    }
+    
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+    
+    /**
+     * 用户填写的文本列：以公式字符开头时加单引号，避免在 Excel 中被当作公式执行
+     */
+    private static String cell(Object value) {
+        String text = text(value);
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+    
+    private static String amount(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return text(value);
+    }
+    
+    private static String time(LocalDateTime value) {
+        return value != null ? DatePattern.NORM_DATETIME_FORMATTER.format(value) : "";
+    }
+}
@@ -0,0 +1,337 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.FarmerActivityService;
+import cn.aspes.agri.trade.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 农户活跃度统计服务实现
+ */
+@Slf4j
+@Service
+public class FarmerActivityServiceImpl implements FarmerActivityService {
+    
+    private static final String KEY_PREFIX = "stats:farmer-activity:";
+    private static final int HLL_PRECISION = 10;
+    private static final long MINUTE_MILLIS = 60_000L;
+    
+    /**
+     * 城市缓存中表示"不计入统计"（农户不存在或未设置产地）
+     */
+    private static final String UNTRACKED = "";
+    
+    private final StatisticsMapper statisticsMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final StatisticsProperties properties;
+    /**
+     * 本实例在Redis哈希中的字段前缀，每次启动唯一，实例之间的分钟桶不会互相覆盖；
+     * 已停止实例写入的分钟桶保留到过期，查询时照常合并
+     */
+    private final String nodeId;
+    private final Executor lookupExecutor;
+    
+    private final ConcurrentHashMap<String, CityWindow> windows = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CachedCity> cityCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<String>> pendingLookups = new ConcurrentHashMap<>();
+    
+    /**
+     * 已完整写入Redis的最后一分钟，之后的分钟在下次刷新时补写
+     */
+    private volatile long flushedMinute = Long.MIN_VALUE;
+    
+    @Autowired
+    public FarmerActivityServiceImpl(StatisticsMapper statisticsMapper, StringRedisTemplate redisTemplate,
+                                     StatisticsProperties properties) {
+        // 城市查询在单个后台线程执行，队列满时丢弃，不阻塞请求线程
+        this(statisticsMapper, redisTemplate, properties, UUID.randomUUID().toString(),
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), r -> {
+                    Thread thread = new Thread(r, "farmer-city-lookup");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy()));
+    }
+    
+    public FarmerActivityServiceImpl(StatisticsMapper statisticsMapper, StringRedisTemplate redisTemplate,
+                                     StatisticsProperties properties, String nodeId, Executor lookupExecutor) {
+        this.statisticsMapper = statisticsMapper;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.nodeId = nodeId;
+        this.lookupExecutor = lookupExecutor;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (lookupExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+    
+    @Override
+    public void record(Long userId) {
+        recordAt(userId, currentMinute());
+    }
+    
+    @Override
+    public void record(Long userId, long timestampMillis) {
+        recordAt(userId, timestampMillis / MINUTE_MILLIS);
+    }
+    
+    private void recordAt(Long userId, long minute) {
+        CachedCity cached = cityCache.get(userId);
+        if (cached != null) {
+            if (cached.expiresAt() < System.currentTimeMillis()) {
+                // 过期后先沿用旧值，后台刷新
+                lookupCity(userId);
+            }
+            recordCity(cached.city(), userId, minute);
+            return;
+        }
+        lookupCity(userId).thenAccept(city -> recordCity(city, userId, minute));
+    }
+    
+    @Override
+    public Map<String, Long> countRequestsByCity(int windowMinutes) {
+        return aggregate(windowMinutes, activity -> activity.requests);
+    }
+    
+    @Override
+    public Map<String, Long> countActiveFarmersByCity(int windowMinutes) {
+        return aggregate(windowMinutes, activity -> activity.farmers.estimate());
+    }
+    
+    @Override
+    public synchronized int flush() {
+        long now = currentMinute();
+        int written = 0;
+        // 上一分钟可能仍有异步查询后补记的请求，始终重写；刷新中断过的分钟一并补写
+        long from = Math.max(Math.min(flushedMinute, now - 2) + 1, now - MAX_WINDOW_MINUTES + 1);
+        for (long minute = from; minute <= now; minute++) {
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, CityWindow> entry : windows.entrySet()) {
+                Bucket bucket = entry.getValue().get(minute);
+                if (bucket != null) {
+                    fields.put(nodeId + "|" + entry.getKey(), bucket.requests.sum() + ","
+                            + Base64.getEncoder().encodeToString(bucket.farmers.toBytes()));
+                }
+            }
+            if (!fields.isEmpty()) {
+                String key = KEY_PREFIX + minute;
+                redisTemplate.opsForHash().putAll(key, fields);
+                redisTemplate.expire(key, Duration.ofMinutes(MAX_WINDOW_MINUTES * 2L));
+                written += fields.size();
+            }
+        }
+        flushedMinute = now - 2;
+        // 超出最大窗口无活动的城市移除，内存只与近期活跃城市数相关
+        windows.entrySet().removeIf(entry -> entry.getValue().latestMinute() <= now - MAX_WINDOW_MINUTES);
+        return written;
+    }
+    
+    /**
+     * 当前分钟序号，测试可覆盖以模拟时间推进
+     */
+    protected long currentMinute() {
+        return System.currentTimeMillis() / MINUTE_MILLIS;
+    }
+    
+    private Map<String, Long> aggregate(int windowMinutes, ToLongFunction<CityActivity> metric) {
+        int window = Math.max(1, Math.min(windowMinutes, MAX_WINDOW_MINUTES));
+        long to = currentMinute();
+        long from = to - window + 1;
+        // 本节点读内存中的最新分钟桶，其他节点读其定时写入的快照；读取不触发写入
+        Map<String, CityActivity> activities = aggregateLocal(from, to);
+        try {
+            aggregateCluster(from, to).forEach((city, activity) ->
+                    activities.computeIfAbsent(city, k -> new CityActivity()).merge(activity));
+        } catch (Exception e) {
+            log.warn("读取集群农户活跃度失败，仅统计本节点数据", e);
+        }
+        Map<String, Long> result = new HashMap<>();
+        activities.forEach((city, activity) -> result.put(city, metric.applyAsLong(activity)));
+        return result;
+    }
+    
+    /**
+     * 以管道一次读取窗口内各分钟的哈希，按城市累加其他节点的请求数并合并去重草图，跳过本节点写入的字段
+     */
+    private Map<String, CityActivity> aggregateCluster(long from, long to) {
+        List<Object> minutes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long minute = from; minute <= to; minute++) {
+                connection.hashCommands().hGetAll((KEY_PREFIX + minute).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        String ownFieldPrefix = nodeId + "|";
+        Map<String, CityActivity> activities = new HashMap<>();
+        for (Object fields : minutes) {
+            if (!(fields instanceof Map<?, ?> map)) {
+                continue;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String field = entry.getKey().toString();
+                if (field.startsWith(ownFieldPrefix)) {
+                    continue;
+                }
+                String value = entry.getValue().toString();
+                int split = value.indexOf(',');
+                CityActivity activity = activities.computeIfAbsent(field.substring(field.indexOf('|') + 1), k -> new CityActivity());
+                activity.requests += Long.parseLong(value.substring(0, split));
+                activity.farmers.merge(HyperLogLog.fromBytes(Base64.getDecoder().decode(value.substring(split + 1))));
+            }
+        }
+        return activities;
+    }
+    
+    private Map<String, CityActivity> aggregateLocal(long from, long to) {
+        Map<String, CityActivity> activities = new HashMap<>();
+        windows.forEach((city, window) -> {
+            for (long minute = from; minute <= to; minute++) {
+                Bucket bucket = window.get(minute);
+                if (bucket != null) {
+                    CityActivity activity = activities.computeIfAbsent(city, k -> new CityActivity());
+                    activity.requests += bucket.requests.sum();
+                    activity.farmers.merge(bucket.farmers);
+                }
+            }
+        });
+        return activities;
+    }
+    
+    private void recordCity(String city, Long userId, long minute) {
+        if (UNTRACKED.equals(city)) {
+            return;
+        }
+        Bucket bucket = windows.computeIfAbsent(city, k -> new CityWindow()).bucketFor(minute);
+        if (bucket != null) {
+            bucket.requests.increment();
+            bucket.farmers.offer(userId);
+        }
+    }
+    
+    /**
+     * 后台查询农户所属城市并写入缓存，同一农户并发查询只执行一次
+     */
+    private CompletableFuture<String> lookupCity(Long userId) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = pendingLookups.putIfAbsent(userId, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            lookupExecutor.execute(() -> {
+                try {
+                    String city = statisticsMapper.selectFarmerCity(userId);
+                    String resolved = city != null ? city : UNTRACKED;
+                    long expiresAt = System.currentTimeMillis() + properties.getActivityCityCacheTtlMinutes() * MINUTE_MILLIS;
+                    cityCache.put(userId, new CachedCity(resolved, expiresAt));
+                    created.complete(resolved);
+                } catch (Exception e) {
+                    log.warn("查询农户所属城市失败 userId={}", userId, e);
+                    created.completeExceptionally(e);
+                } finally {
+                    pendingLookups.remove(userId, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingLookups.remove(userId, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+    
+    private record CachedCity(String city, long expiresAt) {
+    }
+    
+    /**
+     * 单个分钟桶：请求计数与去重农户草图
+     */
+    private static final class Bucket {
+        final long minute;
+        final LongAdder requests = new LongAdder();
+        final HyperLogLog farmers = new HyperLogLog(HLL_PRECISION);
+        
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+    
+    /**
+     * 单个城市的分钟桶环，槽位按分钟序号取模复用，过期桶以CAS替换为新桶
+     */
+    private static final class CityWindow {
+        final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(MAX_WINDOW_MINUTES);
+        
+        Bucket bucketFor(long minute) {
+            int slot = (int) Math.floorMod(minute, (long) MAX_WINDOW_MINUTES);
+            Bucket bucket = ring.get(slot);
+            while (bucket == null || bucket.minute < minute) {
+                Bucket fresh = new Bucket(minute);
+                if (ring.compareAndSet(slot, bucket, fresh)) {
+                    return fresh;
+                }
+                bucket = ring.get(slot);
+            }
+            // 槽位已被更新的分钟占用，说明该事件已超出窗口
+            return bucket.minute == minute ? bucket : null;
+        }
+        
+        Bucket get(long minute) {
+            Bucket bucket = ring.get((int) Math.floorMod(minute, (long) MAX_WINDOW_MINUTES));
+            return bucket != null && bucket.minute == minute ? bucket : null;
+        }
+        
+        /**
+         * 最近有活动的分钟，刚创建尚无桶时视为活跃，避免与写入并发时被移除
+         */
+        long latestMinute() {
+            long latest = Long.MIN_VALUE;
+            for (int i = 0; i < ring.length(); i++) {
+                Bucket bucket = ring.get(i);
+                if (bucket != null) {
+                    latest = Math.max(latest, bucket.minute);
+                }
+            }
+            return latest == Long.MIN_VALUE ? Long.MAX_VALUE : latest;
+        }
+    }
+    
+    /**
+     * 查询时按城市汇总的活跃度
+     */
+    private static final class CityActivity {
+        long requests;
+        final HyperLogLog farmers = new HyperLogLog(HLL_PRECISION);
+        
+        void merge(CityActivity other) {
+            requests += other.requests;
+            farmers.merge(other.farmers);
+        }
+    }
+}
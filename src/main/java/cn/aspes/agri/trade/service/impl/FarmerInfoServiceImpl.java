@@ -5,12 +5,16 @@ import cn.aspes.agri.trade.dto.FarmerInfoRequest;
 import cn.aspes.agri.trade.entity.FarmerInfo;
 import cn.aspes.agri.trade.entity.User;
 import cn.aspes.agri.trade.enums.AuditStatus;
+import cn.aspes.agri.trade.enums.SearchTarget;
 import cn.aspes.agri.trade.enums.UserRole;
 import cn.aspes.agri.trade.exception.BusinessException;
 import cn.aspes.agri.trade.mapper.FarmerInfoMapper;
 import cn.aspes.agri.trade.mapper.UserMapper;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.FileUploadService;
+import cn.aspes.agri.trade.service.SearchIndexService;
+import cn.aspes.agri.trade.util.IdOrder;
+import cn.aspes.agri.trade.util.NgramIndex;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
@@ -21,6 +25,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
@@ -35,6 +40,7 @@ public class FarmerInfoServiceImpl extends ServiceImpl<FarmerInfoMapper, FarmerI
     
     private final UserMapper userMapper;
     private final FileUploadService fileUploadService;
+    private final SearchIndexService searchIndexService;
     
     @Override
     public void submitFarmerInfo(Long userId, FarmerInfoRequest request) {
@@ -114,6 +120,7 @@ public class FarmerInfoServiceImpl extends ServiceImpl<FarmerInfoMapper, FarmerI
         }
         
         save(farmerInfo);
+        searchIndexService.index(SearchTarget.FARMER, farmerInfo.getId(), farmerInfo.getFarmName(), farmerInfo.getCreateTime());
     }
     
     /**
@@ -213,6 +220,7 @@ public class FarmerInfoServiceImpl extends ServiceImpl<FarmerInfoMapper, FarmerI
         BeanUtils.copyProperties(request, farmerInfo);
         farmerInfo.setId(farmerId);
         updateById(farmerInfo);
+        searchIndexService.index(SearchTarget.FARMER, farmerId, farmerInfo.getFarmName(), farmerInfo.getCreateTime());
         
         // 删除旧的身份证图片（如果URL发生变化）
         deleteOldImageIfChanged(oldIdCardFrontUrl, farmerInfo.getIdCardFrontUrl());
@@ -236,6 +244,17 @@ public class FarmerInfoServiceImpl extends ServiceImpl<FarmerInfoMapper, FarmerI
     @Override
     public Page<FarmerInfo> searchFarmersByName(String keyword, Integer current, Integer size) {
         Page<FarmerInfo> page = new Page<>(current, size);
+        
+        // 索引可用时在内存中匹配排序，只按主键查询当前页
+        if (StringUtils.hasText(keyword) && searchIndexService.isReady(SearchTarget.FARMER)) {
+            NgramIndex.Hits hits = searchIndexService.search(SearchTarget.FARMER, keyword, current, size);
+            page.setTotal(hits.total());
+            if (!hits.ids().isEmpty()) {
+                page.setRecords(IdOrder.arrange(hits.ids(), listByIds(hits.ids()), FarmerInfo::getId));
+            }
+            return page;
+        }
+        
         LambdaQueryWrapper<FarmerInfo> wrapper = new LambdaQueryWrapper<>();
         
         if (keyword != null && !keyword.isEmpty()) {
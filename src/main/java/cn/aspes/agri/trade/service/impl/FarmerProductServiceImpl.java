@@ -1,21 +1,39 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.converter.EntityVOConverter;
 import cn.aspes.agri.trade.dto.FarmerProductRequest;
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
 import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.OriginArea;
 import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.enums.ProductFacet;
 import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.enums.SearchTarget;
 import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
 import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.OriginAreaMapper;
 import cn.aspes.agri.trade.mapper.StockReservationMapper;
 import cn.aspes.agri.trade.service.FarmerProductService;
 import cn.aspes.agri.trade.service.FileUploadService;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.ProductFacetService;
 import cn.aspes.agri.trade.service.ProductImageService;
+import cn.aspes.agri.trade.service.SearchIndexService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
+import cn.aspes.agri.trade.util.FacetBitmapIndex;
+import cn.aspes.agri.trade.util.IdOrder;
+import cn.aspes.agri.trade.util.KeysetCursor;
+import cn.aspes.agri.trade.util.NgramIndex;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
+import cn.aspes.agri.trade.vo.ProductFacetVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,14 +41,18 @@ import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.annotation.Resource;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 农户产品服务实现类
  */
+@Slf4j
 @Service
 public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, FarmerProduct> implements FarmerProductService {
     
@@ -46,6 +68,24 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
     @Resource
     private EntityVOConverter entityVOConverter;
     
+    @Resource
+    private HotStockService hotStockService;
+    
+    @Resource
+    private OptimisticLockRetryTemplate optimisticLockRetryTemplate;
+    
+    @Resource
+    private StatusHistogramService statusHistogramService;
+    
+    @Resource
+    private SearchIndexService searchIndexService;
+    
+    @Resource
+    private ProductFacetService productFacetService;
+    
+    @Resource
+    private OriginAreaMapper originAreaMapper;
+    
     @Override
     public Long publishProduct(Long farmerId, FarmerProductRequest request) {
         // 参数验证
@@ -72,6 +112,9 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         product.setStatus(ProductStatus.ON_SALE);
         
         save(product);
+        statusHistogramService.evictProducts();
+        searchIndexService.index(SearchTarget.PRODUCT, product.getId(), product.getName(), product.getCreateTime());
+        productFacetService.index(product);
         
         // 处理产品图片
         productImageService.saveProductImages(product.getId(), request.getProductImageDetails());
@@ -93,6 +136,10 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         // 校验新库存
         Integer newStock = request.getStock();
         if (newStock != null && newStock != product.getStock()) {
+            if (hotStockService.isHotProduct(productId)) {
+                throw new BusinessException("该产品已开启热点库存模式，请先关闭后再修改库存");
+            }
+            
             Integer reservedQuantity = stockReservationMapper.selectCount(
                     new LambdaQueryWrapper<StockReservation>()
                             .eq(StockReservation::getProductId, productId)
@@ -115,7 +162,9 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         } else {
             // 只更新产品字段，不改变图片
             BeanUtils.copyProperties(request, product);
-            updateById(product);
+            OptimisticLockException.check(updateById(product));
+            searchIndexService.index(SearchTarget.PRODUCT, productId, product.getName(), product.getCreateTime());
+            productFacetService.index(product);
         }
     }
     
@@ -126,7 +175,9 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
     @Transactional(rollbackFor = Exception.class)
     public void updateProductInternal(Long productId, FarmerProduct product, FarmerProductRequest request) {
         BeanUtils.copyProperties(request, product);
-        updateById(product);
+        OptimisticLockException.check(updateById(product));
+        searchIndexService.index(SearchTarget.PRODUCT, productId, product.getName(), product.getCreateTime());
+        productFacetService.index(product);
         
         // 先删除旧图片
         productImageService.deleteByProductId(productId);
@@ -136,8 +187,12 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void onSale(Long productId, Long farmerId) {
+        // 库存扣减会递增版本号，与下单并发时按版本号冲突重试
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doOnSale(productId, farmerId));
+    }
+    
+    private void doOnSale(Long productId, Long farmerId) {
         FarmerProduct product = getById(productId);
         if (product == null) {
             throw new BusinessException("产品不存在");
@@ -148,12 +203,17 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         }
         
         product.setStatus(ProductStatus.ON_SALE);
-        updateById(product);
+        OptimisticLockException.check(updateById(product));
+        statusHistogramService.evictProducts();
+        productFacetService.index(product);
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void offSale(Long productId, Long farmerId) {
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doOffSale(productId, farmerId));
+    }
+    
+    private void doOffSale(Long productId, Long farmerId) {
         FarmerProduct product = getById(productId);
         if (product == null) {
             throw new BusinessException("产品不存在");
@@ -177,12 +237,24 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         }
         
         product.setStatus(ProductStatus.OFF_SALE);
-        updateById(product);
+        OptimisticLockException.check(updateById(product));
+        statusHistogramService.evictProducts();
+        productFacetService.index(product);
     }
     
     @Override
     public IPage<FarmerProduct> listProducts(int pageNum, int pageSize, Long categoryId, Integer originAreaId, String status) {
         Page<FarmerProduct> page = new Page<>(pageNum, pageSize);
+        return page(page, productsWrapper(categoryId, originAreaId, status).orderByDesc(FarmerProduct::getCreateTime));
+    }
+    
+    @Override
+    public CursorPage<FarmerProduct> listProductsByCursor(String after, Integer size, Long categoryId, Integer originAreaId, String status) {
+        return KeysetCursor.page(baseMapper, productsWrapper(categoryId, originAreaId, status),
+                FarmerProduct::getCreateTime, FarmerProduct::getId, after, size);
+    }
+    
+    private LambdaQueryWrapper<FarmerProduct> productsWrapper(Long categoryId, Integer originAreaId, String status) {
         LambdaQueryWrapper<FarmerProduct> wrapper = new LambdaQueryWrapper<>();
         
         if (categoryId != null) {
@@ -196,10 +268,7 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         } else {
             wrapper.eq(FarmerProduct::getStatus, ProductStatus.ON_SALE);
         }
-        
-        wrapper.orderByDesc(FarmerProduct::getCreateTime);
-        
-        return page(page, wrapper);
+        return wrapper;
     }
     
     @Override
@@ -214,15 +283,25 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
     
     @Override
     public IPage<FarmerProductVO> listProductsWithImages(int pageNum, int pageSize, Long categoryId, Integer originAreaId, String status) {
-        Page<FarmerProductVO> page = new Page<>(pageNum, pageSize);
-        IPage<FarmerProductVO> result = baseMapper.selectProductsWithImages(page, categoryId, originAreaId, status);
-        return result;
+        IPage<Long> idPage = baseMapper.selectProductIdPage(new Page<>(pageNum, pageSize), categoryId, originAreaId, status);
+        return withImages(idPage);
     }
     
     @Override
     public IPage<FarmerProductVO> listMyProductsWithImages(Long farmerId, int pageNum, int pageSize) {
-        Page<FarmerProductVO> page = new Page<>(pageNum, pageSize);
-        IPage<FarmerProductVO> result = baseMapper.selectMyProductsWithImages(page, farmerId);
+        IPage<Long> idPage = baseMapper.selectMyProductIdPage(new Page<>(pageNum, pageSize), farmerId);
+        return withImages(idPage);
+    }
+    
+    /**
+     * 两阶段分页的第二步：按当前页的产品ID查询详情及图片，保持ID的分页顺序
+     */
+    private IPage<FarmerProductVO> withImages(IPage<Long> idPage) {
+        IPage<FarmerProductVO> result = new Page<>(idPage.getCurrent(), idPage.getSize(), idPage.getTotal());
+        if (!idPage.getRecords().isEmpty()) {
+            List<FarmerProductVO> rows = baseMapper.selectProductsWithImagesByIds(idPage.getRecords());
+            result.setRecords(IdOrder.arrange(idPage.getRecords(), rows, FarmerProductVO::getId));
+        }
         return result;
     }
     
@@ -246,6 +325,17 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
     @Override
     public IPage<FarmerProduct> searchProductsByName(String keyword, int pageNum, int pageSize) {
         Page<FarmerProduct> page = new Page<>(pageNum, pageSize);
+        
+        // 索引可用时在内存中匹配排序，只按主键查询当前页
+        if (StringUtils.hasText(keyword) && searchIndexService.isReady(SearchTarget.PRODUCT)) {
+            NgramIndex.Hits hits = searchIndexService.search(SearchTarget.PRODUCT, keyword, pageNum, pageSize);
+            page.setTotal(hits.total());
+            if (!hits.ids().isEmpty()) {
+                page.setRecords(IdOrder.arrange(hits.ids(), listByIds(hits.ids()), FarmerProduct::getId));
+            }
+            return page;
+        }
+        
         LambdaQueryWrapper<FarmerProduct> wrapper = new LambdaQueryWrapper<>();
         
         if (keyword != null && !keyword.isEmpty()) {
@@ -255,4 +345,102 @@ public class FarmerProductServiceImpl extends ServiceImpl<FarmerProductMapper, F
         wrapper.orderByDesc(FarmerProduct::getCreateTime);
         return page(page, wrapper);
     }
-}
\ No newline at end of file
+    
+    @Override
+    public ProductFacetVO browseProducts(ProductFacetRequest request) {
+        ProductFacetVO result = new ProductFacetVO();
+        Page<FarmerProduct> page = new Page<>(request.getPageNum(), request.getPageSize());
+        
+        // 索引可用时筛选与计数都在内存中完成，只按主键查询当前页
+        if (productFacetService.isReady()) {
+            FacetBitmapIndex.Result<ProductFacet> hits = productFacetService.query(request);
+            page.setTotal(hits.total());
+            if (!hits.ids().isEmpty()) {
+                page.setRecords(IdOrder.arrange(hits.ids(), listByIds(hits.ids()), FarmerProduct::getId));
+            }
+            result.setCategories(toFacetCounts(hits.counts().get(ProductFacet.CATEGORY)));
+            result.setProvinces(toFacetCounts(hits.counts().get(ProductFacet.PROVINCE)));
+            result.setPriceBands(toFacetCounts(hits.counts().get(ProductFacet.PRICE_BAND)));
+            result.setProductionMethods(toFacetCounts(hits.counts().get(ProductFacet.PRODUCTION_METHOD)));
+        } else {
+            // 回退到数据库只返回产品列表，不计算各维度数量
+            LambdaQueryWrapper<FarmerProduct> wrapper = facetWrapper(request);
+            if (wrapper != null) {
+                page = page(page, wrapper);
+            }
+            result.setCategories(List.of());
+            result.setProvinces(List.of());
+            result.setPriceBands(List.of());
+            result.setProductionMethods(List.of());
+        }
+        result.setProducts(entityVOConverter.toFarmerProductVOPage(page));
+        return result;
+    }
+    
+    /**
+     * 分面筛选条件对应的数据库查询，条件不可能命中时返回 null
+     */
+    private LambdaQueryWrapper<FarmerProduct> facetWrapper(ProductFacetRequest request) {
+        LambdaQueryWrapper<FarmerProduct> wrapper = new LambdaQueryWrapper<FarmerProduct>()
+                .eq(FarmerProduct::getStatus, ProductStatus.ON_SALE);
+        if (!CollectionUtils.isEmpty(request.getCategoryIds())) {
+            wrapper.in(FarmerProduct::getCategoryId, request.getCategoryIds());
+        }
+        if (!CollectionUtils.isEmpty(request.getProvinces())) {
+            List<Integer> areaIds = originAreaMapper.selectList(new LambdaQueryWrapper<OriginArea>()
+                            .select(OriginArea::getAreaId)
+                            .in(OriginArea::getProvince, request.getProvinces()))
+                    .stream().map(OriginArea::getAreaId).toList();
+            if (areaIds.isEmpty()) {
+                return null;
+            }
+            wrapper.in(FarmerProduct::getOriginAreaId, areaIds);
+        }
+        if (!CollectionUtils.isEmpty(request.getPriceBands())) {
+            List<ProductFacetService.PriceBand> bands = productFacetService.priceBands().stream()
+                    .filter(band -> request.getPriceBands().contains(band.label()))
+                    .toList();
+            if (bands.isEmpty()) {
+                return null;
+            }
+            wrapper.and(w -> bands.forEach(band -> w.or(b -> b.ge(FarmerProduct::getPrice, band.lower())
+                    .lt(band.upper() != null, FarmerProduct::getPrice, band.upper()))));
+        }
+        if (!CollectionUtils.isEmpty(request.getProductionMethods())) {
+            wrapper.in(FarmerProduct::getProductionMethod, request.getProductionMethods());
+        }
+        return wrapper.orderByDesc(FarmerProduct::getCreateTime).orderByDesc(FarmerProduct::getId);
+    }
+    
+    private static List<ProductFacetVO.FacetCount> toFacetCounts(Map<String, Long> counts) {
+        if (counts == null) {
+            return List.of();
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new ProductFacetVO.FacetCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+    
+    @Override
+    public boolean decreaseStock(Long productId, Integer quantity) {
+        return baseMapper.decreaseStock(productId, quantity) > 0;
+    }
+    
+    @Override
+    public void increaseStock(Long productId, Integer quantity) {
+        if (baseMapper.increaseStock(productId, quantity) == 0) {
+            log.warn("回补库存时产品不存在：产品={}, 数量={}", productId, quantity);
+        }
+    }
+    
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            statusHistogramService.evictProducts();
+            searchIndexService.remove(SearchTarget.PRODUCT, Long.valueOf(String.valueOf(id)));
+            productFacetService.remove(Long.valueOf(String.valueOf(id)));
+        }
+        return removed;
+    }
+}
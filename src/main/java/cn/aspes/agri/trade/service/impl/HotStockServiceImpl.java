@@ -0,0 +1,601 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.HotStockProperties;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.enums.ReservationStatus;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.util.TransactionCallbacks;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 热点库存服务实现
+ *
+ * Redis数据结构：
+ * - stock:hot:products           开启热点模式的产品ID集合
+ * - stock:hot:available:{id}     产品可售库存计数
+ * - stock:hot:pending            待提交流水（订单事务未结束），field = 订单ID:产品ID
+ * - stock:hot:queue              已提交、待落库流水
+ * - stock:hot:processing         正在落库的批次，进程崩溃后由下一次落库重放
+ * - stock:hot:unflushed          尚未落库的流水（含待提交），field = 订单ID，用于按订单即时落库和重建计数
+ *
+ * 落库按预留ID幂等（已存在或并发插入的预留跳过且不重复扣减库存），
+ * 因此定时落库、按订单落库与崩溃重放可以并发执行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HotStockServiceImpl implements HotStockService {
+
+    private static final String HOT_PRODUCTS_KEY = "stock:hot:products";
+    private static final String AVAILABLE_KEY = "stock:hot:available:";
+    private static final String PENDING_KEY = "stock:hot:pending";
+    private static final String QUEUE_KEY = "stock:hot:queue";
+    private static final String PROCESSING_KEY = "stock:hot:processing";
+    private static final String DEAD_KEY = "stock:hot:dead";
+    private static final String UNFLUSHED_KEY = "stock:hot:unflushed";
+    private static final String FLUSH_LOCK_KEY = "stock:hot:flush:lock";
+
+    /**
+     * 预扣减：计数存在且充足时扣减，并在同一脚本内登记待提交流水
+     * 返回 1=成功，0=库存不足，-1=计数不存在，-2=重复预留
+     */
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            local stock = redis.call('GET', KEYS[1])
+            if not stock then return -1 end
+            if redis.call('HEXISTS', KEYS[2], ARGV[2]) == 1 then return -2 end
+            if tonumber(stock) < tonumber(ARGV[1]) then return 0 end
+            redis.call('DECRBY', KEYS[1], ARGV[1])
+            redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])
+            redis.call('HSET', KEYS[3], ARGV[4], ARGV[3])
+            return 1
+            """, Long.class);
+
+    /**
+     * 事务提交：待提交流水移入落库队列
+     */
+    private static final RedisScript<Long> COMMIT_SCRIPT = new DefaultRedisScript<>("""
+            local entry = redis.call('HGET', KEYS[1], ARGV[1])
+            if not entry then return 0 end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            redis.call('LPUSH', KEYS[2], entry)
+            return 1
+            """, Long.class);
+
+    /**
+     * 事务回滚：删除待提交流水并归还计数
+     */
+    private static final RedisScript<Long> ROLLBACK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HDEL', KEYS[1], ARGV[1]) == 0 then return 0 end
+            redis.call('HDEL', KEYS[3], ARGV[3])
+            if redis.call('EXISTS', KEYS[2]) == 1 then redis.call('INCRBY', KEYS[2], ARGV[2]) end
+            return 1
+            """, Long.class);
+
+    /**
+     * 回补计数：仅在计数存在（产品处于热点模式）时回补
+     */
+    private static final RedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            redis.call('INCRBY', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    /**
+     * 批量转移：从落库队列取出至多N条放入处理中列表
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>("""
+            local moved = {}
+            for i = 1, tonumber(ARGV[1]) do
+                local entry = redis.call('RPOPLPUSH', KEYS[1], KEYS[2])
+                if not entry then break end
+                moved[#moved + 1] = entry
+            end
+            return moved
+            """, List.class);
+
+    /**
+     * 移除已落库（或转入死信）的流水，值不一致说明已被新流水替换，不删除
+     */
+    private static final RedisScript<Long> REMOVE_UNFLUSHED_SCRIPT = new DefaultRedisScript<>("""
+            local removed = 0
+            for i = 1, #ARGV, 2 do
+                if redis.call('HGET', KEYS[1], ARGV[i]) == ARGV[i + 1] then
+                    redis.call('HDEL', KEYS[1], ARGV[i])
+                    removed = removed + 1
+                end
+            end
+            return removed
+            """, Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final HotStockProperties properties;
+    private final FarmerProductMapper farmerProductMapper;
+    private final StockReservationMapper stockReservationMapper;
+    private final PurchaseOrderMapper purchaseOrderMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    public boolean isHotProduct(Long productId) {
+        return properties.isEnabled()
+                && Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(HOT_PRODUCTS_KEY, productId.toString()));
+    }
+
+    @Override
+    public void enableHotProduct(Long productId) {
+        if (!properties.isEnabled()) {
+            throw new BusinessException("热点库存引擎未开启");
+        }
+        if (!reseedAvailableStock(productId)) {
+            throw new BusinessException("产品不存在");
+        }
+        redisTemplate.opsForSet().add(HOT_PRODUCTS_KEY, productId.toString());
+        log.info("产品已开启热点库存模式：产品={}, 可售库存={}", productId,
+                redisTemplate.opsForValue().get(AVAILABLE_KEY + productId));
+    }
+
+    @Override
+    public void disableHotProduct(Long productId) {
+        // 先移出集合，新的预留立即回到数据库模式；再落库积压流水后移除计数
+        redisTemplate.opsForSet().remove(HOT_PRODUCTS_KEY, productId.toString());
+        flushPendingReservations();
+        redisTemplate.delete(AVAILABLE_KEY + productId);
+        log.info("产品已关闭热点库存模式：产品={}", productId);
+    }
+
+    @Override
+    public void reserve(StockReservation reservation) {
+        Long productId = reservation.getProductId();
+        Integer quantity = reservation.getReservedQuantity();
+        Long orderId = reservation.getOrderId();
+        String field = pendingField(orderId, productId);
+        String entry = encode(reservation, System.currentTimeMillis());
+
+        Long result = executeReserve(productId, quantity, orderId, field, entry);
+        if (result == -1) {
+            // 计数缺失（如Redis数据丢失或落库发现偏差），重建计数后重试
+            reseedAvailableStock(productId);
+            result = executeReserve(productId, quantity, orderId, field, entry);
+        }
+        if (result == -2) {
+            throw new BusinessException("该订单的库存已预留，请勿重复操作");
+        }
+        if (result == 0) {
+            throw new BusinessException("库存不足，无法预留");
+        }
+        if (result != 1) {
+            throw new BusinessException("产品不存在");
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // STATUS_UNKNOWN 时保留待提交流水，由超时检查按订单是否存在处理
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            commitPending(field);
+                        } else if (status == STATUS_ROLLED_BACK) {
+                            rollbackPending(orderId, field, productId, quantity);
+                        }
+                    } catch (Exception e) {
+                        log.error("热点预留流水事务回调失败，待超时检查处理：{}", field, e);
+                    }
+                }
+            });
+        } else {
+            commitPending(field);
+        }
+    }
+
+    @Override
+    public void restoreStock(Long productId, Integer quantity) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> executeRestore(productId, quantity));
+    }
+
+    @Override
+    public int flushPendingReservations() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        String token = tryLockFlush();
+        if (token == null) {
+            return 0;
+        }
+        try {
+            return drainQueue(token);
+        } finally {
+            unlockFlush(token);
+        }
+    }
+
+    @Override
+    public void persistOrderReservation(Long orderId) {
+        if (!properties.isEnabled() || orderId == null) {
+            return;
+        }
+        String entry = (String) redisTemplate.opsForHash().get(UNFLUSHED_KEY, orderId.toString());
+        if (entry == null) {
+            if (isDeadLettered(orderId)) {
+                throw new BusinessException("该订单的热点库存预留落库失败，请联系管理员处理");
+            }
+            return;
+        }
+        StockReservation reservation = decode(entry);
+        String field = pendingField(orderId, reservation.getProductId());
+        if (Boolean.TRUE.equals(redisTemplate.opsForHash().hasKey(PENDING_KEY, field))) {
+            // 订单事务尚未回调提交：订单已提交则补提交，否则事务仍在执行，由其回调处理
+            if (!orderCommitted(orderId)) {
+                log.info("订单事务尚未提交，暂不落库热点预留：订单={}", orderId);
+                return;
+            }
+            commitPending(field);
+        }
+        try {
+            persistInTransaction(List.of(reservation));
+        } catch (Exception e) {
+            // 流水仍在落库队列中，由定时落库重试或转入死信
+            log.error("按订单落库热点预留失败：订单={}", orderId, e);
+            throw new BusinessException("库存预留落库失败，请稍后重试");
+        }
+        removeUnflushed(List.of(entry));
+    }
+
+    @Override
+    public Map<String, Object> getHotStockStatus(Long productId) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("engineEnabled", properties.isEnabled());
+        status.put("hot", isHotProduct(productId));
+        String available = redisTemplate.opsForValue().get(AVAILABLE_KEY + productId);
+        status.put("available", available == null ? null : Long.valueOf(available));
+        status.put("pendingCount", redisTemplate.opsForHash().size(PENDING_KEY));
+        status.put("queueSize", redisTemplate.opsForList().size(QUEUE_KEY));
+        status.put("unflushedCount", redisTemplate.opsForHash().size(UNFLUSHED_KEY));
+        status.put("deadCount", redisTemplate.opsForList().size(DEAD_KEY));
+        return status;
+    }
+
+    /**
+     * 重建计数（已存在则不覆盖）：持有落库锁，先落库积压流水，再以数据库库存减去仍未落库的流水数量
+     *
+     * 未落库流水已扣过计数但尚未扣减数据库库存，直接以数据库库存重建会把它们重新算作可售。
+     * 先读未落库数量、后读数据库库存：期间按订单落库的流水只会被多减一次（少卖），不会超卖。
+     */
+    private boolean reseedAvailableStock(Long productId) {
+        String token = lockFlush();
+        try {
+            drainQueue(token);
+            long unflushed = unflushedQuantity(productId);
+            // 调用方可能处于事务中，独立事务读取最新库存而不是调用方的快照
+            FarmerProduct product = inNewTransaction(() -> farmerProductMapper.selectById(productId));
+            if (product == null) {
+                return false;
+            }
+            long available = Math.max(product.getStock() - unflushed, 0);
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(AVAILABLE_KEY + productId, String.valueOf(available)))) {
+                log.info("重建热点库存计数：产品={}, 数据库库存={}, 未落库={}", productId, product.getStock(), unflushed);
+            }
+            return true;
+        } finally {
+            unlockFlush(token);
+        }
+    }
+
+    /**
+     * 在持有落库锁的前提下处理超时待提交流水、重放未完成批次并落库队列；锁丢失时停止
+     */
+    private int drainQueue(String token) {
+        recoverStalePending();
+
+        int persisted = 0;
+        // 上次落库未完成（进程崩溃）的批次先重放，落库按预留ID幂等
+        List<String> inFlight = redisTemplate.opsForList().range(PROCESSING_KEY, 0, -1);
+        if (inFlight != null && !inFlight.isEmpty()) {
+            log.warn("重放未完成的热点预留落库批次：{} 条", inFlight.size());
+            persisted += persistBatch(inFlight);
+        }
+
+        int batchSize = properties.getFlushBatchSize();
+        while (renewFlushLock(token)) {
+            @SuppressWarnings("unchecked")
+            List<String> batch = redisTemplate.execute(DRAIN_SCRIPT,
+                    List.of(QUEUE_KEY, PROCESSING_KEY), String.valueOf(batchSize));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            persisted += persistBatch(batch);
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        return persisted;
+    }
+
+    private String tryLockFlush() {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(FLUSH_LOCK_KEY, token,
+                Duration.ofSeconds(properties.getFlushLockSeconds()));
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    /**
+     * 等待获取落库锁，最多等待一个锁超时时间
+     */
+    private String lockFlush() {
+        long deadline = System.currentTimeMillis() + properties.getFlushLockSeconds() * 1000;
+        while (true) {
+            String token = tryLockFlush();
+            if (token != null) {
+                return token;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new BusinessException("库存繁忙，请稍后重试");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("库存繁忙，请稍后重试");
+            }
+        }
+    }
+
+    /**
+     * 续期落库锁，锁已过期被其他节点获取时返回 false
+     */
+    private boolean renewFlushLock(String token) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(FLUSH_LOCK_KEY), token,
+                String.valueOf(properties.getFlushLockSeconds() * 1000));
+        if (renewed == null || renewed == 0) {
+            log.warn("热点预留落库锁已失效，停止本次落库");
+            return false;
+        }
+        return true;
+    }
+
+    private void unlockFlush(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+    }
+
+    private Long executeReserve(Long productId, Integer quantity, Long orderId, String field, String entry) {
+        return redisTemplate.execute(RESERVE_SCRIPT, List.of(AVAILABLE_KEY + productId, PENDING_KEY, UNFLUSHED_KEY),
+                quantity.toString(), field, entry, orderId.toString());
+    }
+
+    private void executeRestore(Long productId, Integer quantity) {
+        try {
+            redisTemplate.execute(RESTORE_SCRIPT, List.of(AVAILABLE_KEY + productId), quantity.toString());
+        } catch (Exception e) {
+            log.error("回补热点库存计数失败：产品={}, 数量={}", productId, quantity, e);
+        }
+    }
+
+    private void commitPending(String field) {
+        redisTemplate.execute(COMMIT_SCRIPT, List.of(PENDING_KEY, QUEUE_KEY), field);
+    }
+
+    private void rollbackPending(Long orderId, String field, Long productId, Integer quantity) {
+        redisTemplate.execute(ROLLBACK_SCRIPT, List.of(PENDING_KEY, AVAILABLE_KEY + productId, UNFLUSHED_KEY),
+                field, quantity.toString(), orderId.toString());
+    }
+
+    private void removeUnflushed(List<String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(entries.size() * 2);
+        for (String entry : entries) {
+            args.add(entry.split("\\|")[1]);
+            args.add(entry);
+        }
+        redisTemplate.execute(REMOVE_UNFLUSHED_SCRIPT, List.of(UNFLUSHED_KEY), args.toArray());
+    }
+
+    /**
+     * 产品仍未落库的预留数量（含待提交）
+     */
+    private long unflushedQuantity(Long productId) {
+        List<Object> entries = redisTemplate.opsForHash().values(UNFLUSHED_KEY);
+        return entries.stream()
+                .map(entry -> decode((String) entry))
+                .filter(reservation -> productId.equals(reservation.getProductId()))
+                .mapToLong(StockReservation::getReservedQuantity)
+                .sum();
+    }
+
+    private boolean isDeadLettered(Long orderId) {
+        List<String> dead = redisTemplate.opsForList().range(DEAD_KEY, 0, -1);
+        return dead != null && dead.stream().anyMatch(entry -> orderId.equals(decode(entry).getOrderId()));
+    }
+
+    /**
+     * 在独立事务中查询订单，只能看到已提交的订单
+     */
+    private boolean orderCommitted(Long orderId) {
+        return Boolean.TRUE.equals(inNewTransaction(() -> purchaseOrderMapper.exists(
+                new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, orderId))));
+    }
+
+    private <T> T inNewTransaction(Supplier<T> query) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> query.get());
+    }
+
+    /**
+     * 处理超时的待提交流水：订单已落库则补提交；
+     * 订单不存在且超过放弃时间（远大于事务超时）才视为事务已回滚并归还计数，否则事务可能仍在执行
+     */
+    private void recoverStalePending() {
+        Map<Object, Object> pending = redisTemplate.opsForHash().entries(PENDING_KEY);
+        if (pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long commitDeadline = now - properties.getPendingTimeoutSeconds() * 1000;
+        long abandonDeadline = now - properties.getPendingAbandonSeconds() * 1000;
+        for (Map.Entry<Object, Object> item : pending.entrySet()) {
+            String field = (String) item.getKey();
+            long createdAt = Long.parseLong(((String) item.getValue()).split("\\|")[5]);
+            if (createdAt > commitDeadline) {
+                continue;
+            }
+            StockReservation reservation = decode((String) item.getValue());
+            if (orderCommitted(reservation.getOrderId())) {
+                commitPending(field);
+                log.warn("处理超时的热点预留流水：{}, 订单已存在，补提交", field);
+            } else if (createdAt <= abandonDeadline) {
+                rollbackPending(reservation.getOrderId(), field, reservation.getProductId(), reservation.getReservedQuantity());
+                log.warn("处理超时的热点预留流水：{}, 订单不存在，归还库存", field);
+            }
+        }
+    }
+
+    /**
+     * 一个批次在独立事务中落库；批次失败时逐条落库，无法落库的流水转入死信列表
+     *
+     * 数据库库存不足说明计数与数据库出现偏差：该流水转入死信，并删除产品计数，
+     * 下一次预留时以数据库库存重建，避免偏差持续存在。
+     */
+    private int persistBatch(List<String> entries) {
+        List<StockReservation> reservations = entries.stream().map(this::decode).collect(Collectors.toList());
+        int persisted;
+        try {
+            persisted = persistInTransaction(reservations);
+        } catch (Exception e) {
+            log.error("热点预留批量落库失败，改为逐条落库：{} 条", reservations.size(), e);
+            persisted = 0;
+            for (int i = 0; i < reservations.size(); i++) {
+                try {
+                    persisted += persistInTransaction(List.of(reservations.get(i)));
+                } catch (Exception single) {
+                    log.error("热点预留落库失败，转入死信：{}", entries.get(i), single);
+                    redisTemplate.opsForList().leftPush(DEAD_KEY, entries.get(i));
+                    if (single instanceof StockShortageException) {
+                        redisTemplate.delete(AVAILABLE_KEY + reservations.get(i).getProductId());
+                    }
+                }
+            }
+        }
+        removeUnflushed(entries);
+        redisTemplate.delete(PROCESSING_KEY);
+        return persisted;
+    }
+
+    private int persistInTransaction(List<StockReservation> reservations) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer persisted = transactionTemplate.execute(status -> {
+            Set<Long> existingIds = stockReservationMapper.selectList(new LambdaQueryWrapper<StockReservation>()
+                            .select(StockReservation::getId)
+                            .in(StockReservation::getId, reservations.stream().map(StockReservation::getId).toList()))
+                    .stream()
+                    .map(StockReservation::getId)
+                    .collect(Collectors.toSet());
+
+            Map<Long, Integer> quantityByProduct = new HashMap<>();
+            int count = 0;
+            for (StockReservation reservation : reservations) {
+                if (existingIds.contains(reservation.getId())) {
+                    continue;
+                }
+                try {
+                    stockReservationMapper.insert(reservation);
+                } catch (DuplicateKeyException e) {
+                    // 其他节点并发落库了同一条流水，由其扣减库存
+                    continue;
+                }
+                quantityByProduct.merge(reservation.getProductId(), reservation.getReservedQuantity(), Integer::sum);
+                count++;
+            }
+            // 每个产品每批只执行一次库存扣减，库存不足时整批回滚
+            quantityByProduct.forEach((productId, quantity) -> {
+                if (farmerProductMapper.decreaseStock(productId, quantity) == 0) {
+                    throw new StockShortageException(productId, quantity);
+                }
+            });
+            return count;
+        });
+        return persisted == null ? 0 : persisted;
+    }
+
+    private static String pendingField(Long orderId, Long productId) {
+        return orderId + ":" + productId;
+    }
+
+    /**
+     * 流水格式：预留ID|订单ID|产品ID|数量|过期时间戳|登记时间戳
+     */
+    private static String encode(StockReservation reservation, long createdAt) {
+        long expiredAt = reservation.getExpiredTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return reservation.getId() + "|" + reservation.getOrderId() + "|" + reservation.getProductId() + "|"
+                + reservation.getReservedQuantity() + "|" + expiredAt + "|" + createdAt;
+    }
+
+    private StockReservation decode(String entry) {
+        String[] parts = entry.split("\\|");
+        StockReservation reservation = new StockReservation();
+        reservation.setId(Long.valueOf(parts[0]));
+        reservation.setOrderId(Long.valueOf(parts[1]));
+        reservation.setProductId(Long.valueOf(parts[2]));
+        reservation.setReservedQuantity(Integer.valueOf(parts[3]));
+        reservation.setStatus(ReservationStatus.PENDING);
+        reservation.setExpiredTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[4])), ZoneId.systemDefault()));
+        return reservation;
+    }
+
+    /**
+     * 落库时数据库库存不足，计数与数据库存在偏差
+     */
+    private static class StockShortageException extends RuntimeException {
+        StockShortageException(Long productId, Integer quantity) {
+            super("热点预留落库时数据库库存不足：产品=" + productId + ", 数量=" + quantity);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.enums.LeaderboardDimension;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.LeaderboardService;
+import cn.aspes.agri.trade.util.SpaceSaving;
+import cn.aspes.agri.trade.util.TransactionCallbacks;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 排行榜服务实现
+ */
+@Slf4j
+@Service
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private static final String KEY_PREFIX = "stats:leaderboard:";
+
+    private final StatisticsMapper statisticsMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final StatisticsProperties properties;
+    /**
+     * 本实例在Redis哈希中的字段名，每次启动唯一，实例之间的草图不会互相覆盖；
+     * 已停止实例写入的草图保留到窗口过期，查询时照常合并
+     */
+    private final String nodeId;
+
+    /**
+     * 维度 -> (纪元日 -> 当天草图)
+     */
+    private final Map<LeaderboardDimension, ConcurrentHashMap<Long, SpaceSaving>> windows = new EnumMap<>(LeaderboardDimension.class);
+
+    /**
+     * 上次写入Redis后有新事件的 (维度, 纪元日)
+     */
+    private final Set<DayKey> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile List<StatisticsVO.LeaderboardValidation> lastValidation = List.of();
+
+    @Autowired
+    public LeaderboardServiceImpl(StatisticsMapper statisticsMapper, StringRedisTemplate redisTemplate,
+                                  StatisticsProperties properties) {
+        this(statisticsMapper, redisTemplate, properties, UUID.randomUUID().toString());
+    }
+
+    public LeaderboardServiceImpl(StatisticsMapper statisticsMapper, StringRedisTemplate redisTemplate,
+                                  StatisticsProperties properties, String nodeId) {
+        this.statisticsMapper = statisticsMapper;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.nodeId = nodeId;
+        for (LeaderboardDimension dimension : LeaderboardDimension.values()) {
+            windows.put(dimension, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void recordOrderCompleted(PurchaseOrder order) {
+        int quantity = order.getActualQuantity() != null ? order.getActualQuantity() : order.getQuantity();
+        Long originAreaId = snapshotOriginAreaId(order);
+        TransactionCallbacks.afterCommit(() -> {
+            long day = currentDay();
+            offer(LeaderboardDimension.PRODUCT, day, order.getProductId(), quantity);
+            if (originAreaId != null) {
+                offer(LeaderboardDimension.ORIGIN_AREA, day, originAreaId, 1);
+            }
+        });
+    }
+
+    @Override
+    public void recordPaymentSucceeded(PurchaseOrder order, BigDecimal amount) {
+        if (amount == null) {
+            return;
+        }
+        long cents = amount.movePointRight(LeaderboardDimension.FARMER.getScale()).longValue();
+        TransactionCallbacks.afterCommit(() -> offer(LeaderboardDimension.FARMER, currentDay(), order.getFarmerId(), cents));
+    }
+
+    @Override
+    public List<StatisticsVO.LeaderboardEntry> getTop(String dimensionCode, int days, int topK, boolean exact) {
+        LeaderboardDimension dimension = LeaderboardDimension.fromCode(dimensionCode);
+        if (dimension == null) {
+            throw new BusinessException("排行维度只能为 product、farmer 或 origin_area");
+        }
+        if (days < 1 || days > properties.getLeaderboardWindowDays()) {
+            throw new BusinessException("统计天数需在1到" + properties.getLeaderboardWindowDays() + "之间");
+        }
+        if (topK < 1 || topK > properties.getLeaderboardMaxTopK()) {
+            throw new BusinessException("名次数需在1到" + properties.getLeaderboardMaxTopK() + "之间");
+        }
+        List<StatisticsVO.LeaderboardEntry> entries = exact
+                ? exactTop(dimension, days, topK)
+                : approximateTop(dimension, days, topK);
+        fillNames(dimension, entries);
+        return entries;
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized int flush() {
+        long oldest = currentDay() - properties.getLeaderboardWindowDays() + 1;
+        Duration ttl = Duration.ofDays(properties.getLeaderboardWindowDays() + 1L);
+        int written = 0;
+        for (DayKey key : new ArrayList<>(dirty)) {
+            dirty.remove(key);
+            SpaceSaving sketch = windows.get(key.dimension()).get(key.day());
+            if (sketch == null || key.day() < oldest) {
+                continue;
+            }
+            try {
+                String redisKey = redisKey(key.dimension(), key.day());
+                redisTemplate.opsForHash().put(redisKey, nodeId, Base64.getEncoder().encodeToString(sketch.toBytes()));
+                redisTemplate.expire(redisKey, ttl);
+                written++;
+            } catch (RuntimeException e) {
+                // 写入失败的草图留待下次重试
+                dirty.add(key);
+                throw e;
+            }
+        }
+        // 超出保留天数的窗口移除，内存只与保留天数和计数器数相关
+        windows.values().forEach(days -> days.keySet().removeIf(day -> day < oldest));
+        return written;
+    }
+
+    @Override
+    public List<StatisticsVO.LeaderboardValidation> validate(int days, int topK) {
+        List<StatisticsVO.LeaderboardValidation> results = new ArrayList<>();
+        for (LeaderboardDimension dimension : LeaderboardDimension.values()) {
+            Map<Long, BigDecimal> approximate = toScores(approximateTop(dimension, days, topK));
+            Map<Long, BigDecimal> exact = toScores(exactTop(dimension, days, topK));
+            int hits = 0;
+            double maxRelativeError = 0;
+            for (Map.Entry<Long, BigDecimal> entry : exact.entrySet()) {
+                BigDecimal estimated = approximate.get(entry.getKey());
+                if (estimated == null) {
+                    continue;
+                }
+                hits++;
+                if (entry.getValue().signum() > 0) {
+                    double error = estimated.subtract(entry.getValue()).abs().doubleValue() / entry.getValue().doubleValue();
+                    maxRelativeError = Math.max(maxRelativeError, error);
+                }
+            }
+            double recall = exact.isEmpty() ? 1.0 : (double) hits / exact.size();
+            results.add(new StatisticsVO.LeaderboardValidation(dimension.getCode(), days, topK, recall,
+                    maxRelativeError, LocalDateTime.now()));
+            if (recall < 0.8) {
+                log.warn("排行榜近似结果与精确结果偏差较大，维度：{}，召回率：{}，可调大 leaderboard-capacity",
+                        dimension.getCode(), recall);
+            }
+        }
+        lastValidation = results;
+        log.info("排行榜校验完成：{}", results);
+        return results;
+    }
+
+    @Override
+    public List<StatisticsVO.LeaderboardValidation> getLastValidation() {
+        return lastValidation;
+    }
+
+    /**
+     * 当前纪元日，测试可覆盖以模拟日期推进
+     */
+    protected long currentDay() {
+        return LocalDate.now().toEpochDay();
+    }
+
+    private void offer(LeaderboardDimension dimension, long day, Long id, long weight) {
+        if (id == null || weight <= 0) {
+            return;
+        }
+        sketchFor(dimension, day).offer(id, weight);
+        dirty.add(new DayKey(dimension, day));
+    }
+
+    private SpaceSaving sketchFor(LeaderboardDimension dimension, long day) {
+        return windows.get(dimension).computeIfAbsent(day, k -> new SpaceSaving(properties.getLeaderboardCapacity()));
+    }
+
+    private List<StatisticsVO.LeaderboardEntry> approximateTop(LeaderboardDimension dimension, int days, int topK) {
+        long to = currentDay();
+        long from = to - days + 1;
+        // 查询不写Redis：其他实例取最近一次定时写入的草图，本实例直接合并内存中的最新草图
+        SpaceSaving merged = mergeLocal(dimension, from, to);
+        try {
+            merged.merge(mergeCluster(dimension, from, to));
+        } catch (Exception e) {
+            log.warn("读取集群排行榜草图失败，仅统计本节点数据", e);
+        }
+        List<StatisticsVO.LeaderboardEntry> entries = new ArrayList<>();
+        for (SpaceSaving.Entry entry : merged.top(topK)) {
+            entries.add(new StatisticsVO.LeaderboardEntry(entry.key(), null,
+                    BigDecimal.valueOf(entry.count(), dimension.getScale()),
+                    BigDecimal.valueOf(entry.count() - entry.error(), dimension.getScale())));
+        }
+        return entries;
+    }
+
+    /**
+     * 以管道一次读取区间内各天的哈希，合并除本实例外所有实例的草图
+     */
+    private SpaceSaving mergeCluster(LeaderboardDimension dimension, long from, long to) {
+        List<Object> days = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long day = from; day <= to; day++) {
+                connection.hashCommands().hGetAll(redisKey(dimension, day).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        SpaceSaving merged = new SpaceSaving(properties.getLeaderboardCapacity());
+        for (Object fields : days) {
+            if (fields instanceof Map<?, ?> map) {
+                map.forEach((field, value) -> {
+                    if (!nodeId.equals(field.toString())) {
+                        merged.merge(SpaceSaving.fromBytes(Base64.getDecoder().decode(value.toString())));
+                    }
+                });
+            }
+        }
+        return merged;
+    }
+
+    private SpaceSaving mergeLocal(LeaderboardDimension dimension, long from, long to) {
+        SpaceSaving merged = new SpaceSaving(properties.getLeaderboardCapacity());
+        windows.get(dimension).forEach((day, sketch) -> {
+            if (day >= from && day <= to) {
+                merged.merge(sketch);
+            }
+        });
+        return merged;
+    }
+
+    private List<StatisticsVO.LeaderboardEntry> exactTop(LeaderboardDimension dimension, int days, int topK) {
+        LocalDate today = LocalDate.ofEpochDay(currentDay());
+        LocalDateTime from = today.minusDays(days - 1L).atStartOfDay();
+        LocalDateTime to = today.plusDays(1).atStartOfDay();
+        List<StatisticsVO.LeaderboardEntry> entries = switch (dimension) {
+            case PRODUCT -> statisticsMapper.selectTopProducts(from, to, topK);
+            case FARMER -> statisticsMapper.selectTopFarmers(from, to, topK);
+            case ORIGIN_AREA -> statisticsMapper.selectTopOriginAreas(from, to, topK);
+        };
+        entries.forEach(entry -> entry.setMinScore(entry.getScore()));
+        return entries;
+    }
+
+    private void fillNames(LeaderboardDimension dimension, List<StatisticsVO.LeaderboardEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = entries.stream().map(StatisticsVO.LeaderboardEntry::getId).collect(Collectors.toCollection(HashSet::new));
+        List<StatisticsVO.LeaderboardEntry> names = switch (dimension) {
+            case PRODUCT -> statisticsMapper.selectProductNames(ids);
+            case FARMER -> statisticsMapper.selectFarmerNames(ids);
+            case ORIGIN_AREA -> statisticsMapper.selectOriginAreaNames(ids);
+        };
+        Map<Long, String> byId = new HashMap<>();
+        names.forEach(name -> byId.put(name.getId(), name.getName()));
+        entries.forEach(entry -> entry.setName(byId.get(entry.getId())));
+    }
+
+    private static Map<Long, BigDecimal> toScores(List<StatisticsVO.LeaderboardEntry> entries) {
+        return entries.stream().collect(Collectors.toMap(StatisticsVO.LeaderboardEntry::getId,
+                StatisticsVO.LeaderboardEntry::getScore, (a, b) -> a, HashMap::new));
+    }
+
+    /**
+     * 下单时的产品快照中的产地，快照缺失时不计入产地排行
+     */
+    private static Long snapshotOriginAreaId(PurchaseOrder order) {
+        if (order.getProductInfo() == null) {
+            return null;
+        }
+        Object value = order.getProductInfo().get("originAreaId");
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static String redisKey(LeaderboardDimension dimension, long day) {
+        return KEY_PREFIX + dimension.getCode() + ":" + day;
+    }
+
+    private record DayKey(LeaderboardDimension dimension, long day) {
+    }
+}
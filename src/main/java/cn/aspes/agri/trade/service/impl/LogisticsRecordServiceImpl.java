@@ -1,5 +1,6 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.LogisticsRequest;
 import cn.aspes.agri.trade.dto.LogisticsTraceRequest;
 import cn.aspes.agri.trade.entity.FarmerInfo;
@@ -16,6 +17,7 @@ import cn.aspes.agri.trade.service.LogisticsRecordService;
 import cn.aspes.agri.trade.service.LogisticsTraceService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.util.KeysetCursor;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
@@ -310,6 +312,28 @@ public class LogisticsRecordServiceImpl extends ServiceImpl<LogisticsRecordMappe
     
     @Override
     public Page<LogisticsTrace> pageTraces(Long logisticsId, Integer current, Integer size, Long userId) {
+        checkTraceAccess(logisticsId, userId);
+        
+        Page<LogisticsTrace> page = new Page<>(current, size);
+        return logisticsTraceService.page(page, new LambdaQueryWrapper<LogisticsTrace>()
+                .eq(LogisticsTrace::getLogisticsId, logisticsId)
+                .orderByDesc(LogisticsTrace::getNodeTime));
+    }
+    
+    @Override
+    public CursorPage<LogisticsTrace> pageTracesByCursor(Long logisticsId, String after, Integer size, Long userId) {
+        checkTraceAccess(logisticsId, userId);
+        
+        // 轨迹按节点时间排序，游标记录（节点时间, ID），走 idx_logistics_time 索引
+        return KeysetCursor.page(logisticsTraceService.getBaseMapper(),
+                new LambdaQueryWrapper<LogisticsTrace>().eq(LogisticsTrace::getLogisticsId, logisticsId),
+                LogisticsTrace::getNodeTime, LogisticsTrace::getId, after, size);
+    }
+    
+    /**
+     * 验证用户是否为物流记录所属订单的农户或采购方
+     */
+    private void checkTraceAccess(Long logisticsId, Long userId) {
         LogisticsRecord logistics = getById(logisticsId);
         if (logistics == null) {
             throw new BusinessException("物流记录不存在");
@@ -338,10 +362,5 @@ public class LogisticsRecordServiceImpl extends ServiceImpl<LogisticsRecordMappe
         if (purchaser != null && !purchaser.getId().equals(order.getPurchaserId())) {
             throw new BusinessException("无权限查看该订单的物流轨迹");
         }
-        
-        Page<LogisticsTrace> page = new Page<>(current, size);
-        return logisticsTraceService.page(page, new LambdaQueryWrapper<LogisticsTrace>()
-                .eq(LogisticsTrace::getLogisticsId, logisticsId)
-                .orderByDesc(LogisticsTrace::getNodeTime));
     }
 }
\ No newline at end of file
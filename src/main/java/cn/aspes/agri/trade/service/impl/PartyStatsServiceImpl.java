@@ -0,0 +1,213 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.CooperationReview;
+import cn.aspes.agri.trade.entity.PartyStats;
+import cn.aspes.agri.trade.entity.PartyStatsDaily;
+import cn.aspes.agri.trade.entity.ProductSales;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.enums.UserRole;
+import cn.aspes.agri.trade.mapper.PartyStatsMapper;
+import cn.aspes.agri.trade.mapper.ProductSalesMapper;
+import cn.aspes.agri.trade.service.PartyStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 主体统计汇总服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartyStatsServiceImpl implements PartyStatsService {
+    
+    /**
+     * 增量按 (主体类型, 主体ID) 固定顺序写入，避免并发事务交叉加锁死锁
+     */
+    private static final Comparator<PartyStats> PARTY_ORDER = Comparator
+            .comparing(PartyStats::getPartyType)
+            .thenComparing(PartyStats::getPartyId);
+    
+    private final PartyStatsMapper partyStatsMapper;
+    private final ProductSalesMapper productSalesMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final StatisticsProperties statisticsProperties;
+    
+    @Override
+    public void recordOrdersCreated(Collection<PurchaseOrder> orders) {
+        Map<PartyStats, PartyStats> deltas = new TreeMap<>(PARTY_ORDER);
+        for (PurchaseOrder order : orders) {
+            accumulate(deltas, UserRole.FARMER.getCode(), order.getFarmerId(), d -> d.setOrderCount(d.getOrderCount() + 1));
+            accumulate(deltas, UserRole.PURCHASER.getCode(), order.getPurchaserId(), d -> d.setOrderCount(d.getOrderCount() + 1));
+        }
+        deltas.values().forEach(this::apply);
+    }
+    
+    @Override
+    public void recordOrderDelivered(PurchaseOrder order, BigDecimal deliveredAmount) {
+        applyToBothParties(order, d -> d.setDeliveredAmount(deliveredAmount));
+    }
+    
+    @Override
+    public void recordOrderCompleted(PurchaseOrder order) {
+        applyToBothParties(order, d -> d.setCompletedOrderCount(1L));
+        // 按实际交货数量与结算金额计入销量，未记录交货时按订单数量与金额
+        long quantity = order.getActualQuantity() != null ? order.getActualQuantity() : order.getQuantity();
+        BigDecimal amount = order.getActualAmount() != null ? order.getActualAmount() : order.getTotalAmount();
+        if (productSalesMapper.incrementCompleted(order.getProductId(), quantity, amount) == 0) {
+            // 首次完成（如上线后）以历史已完成订单为基数插入，避免汇总行只含本次增量而遮盖历史销量
+            productSalesMapper.insertCompleted(order.getProductId(), order.getId(), quantity, amount);
+        }
+    }
+    
+    @Override
+    public void recordPaymentSucceeded(PurchaseOrder order, BigDecimal amount) {
+        applyToBothParties(order, d -> d.setPaidAmount(amount));
+    }
+    
+    @Override
+    public void recordReviewSubmitted(CooperationReview review) {
+        PartyStats delta = new PartyStats(review.getReviewTo(), review.getTargetId());
+        delta.setReviewCount(1L);
+        delta.setRatingSum(review.getRating().longValue());
+        delta.addStar(review.getRating(), 1);
+        apply(delta);
+    }
+    
+    @Override
+    public void recordReviewRatingChanged(CooperationReview review, int previousRating) {
+        if (review.getRating() == null || review.getRating() == previousRating) {
+            return;
+        }
+        PartyStats delta = new PartyStats(review.getReviewTo(), review.getTargetId());
+        delta.setRatingSum((long) review.getRating() - previousRating);
+        delta.addStar(previousRating, -1);
+        delta.addStar(review.getRating(), 1);
+        apply(delta);
+    }
+    
+    @Override
+    public void recordReviewDeleted(CooperationReview review) {
+        PartyStats delta = new PartyStats(review.getReviewTo(), review.getTargetId());
+        delta.setReviewCount(-1L);
+        delta.setRatingSum(-review.getRating().longValue());
+        delta.addStar(review.getRating(), -1);
+        apply(delta);
+    }
+    
+    @Override
+    public PartyStats getStats(String partyType, Long partyId) {
+        PartyStats stats = partyStatsMapper.selectByParty(partyType, partyId);
+        return stats != null ? stats : new PartyStats(partyType, partyId);
+    }
+    
+    @Override
+    public List<PartyStatsDaily> listDailyStats(String partyType, Long partyId, LocalDate from, LocalDate to) {
+        return partyStatsMapper.selectDaily(partyType, partyId, from, to);
+    }
+    
+    @Override
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunkSize = Math.max(1, statisticsProperties.getPartyStatsRebuildChunkSize());
+        int rows = 0;
+        for (String partyType : List.of(UserRole.FARMER.getCode(), UserRole.PURCHASER.getCode())) {
+            long afterId = 0;
+            while (true) {
+                List<Long> ids = partyStatsMapper.selectPartyIdChunk(partyType, afterId, chunkSize);
+                // 最后一段延伸到ID上界，同时清除已没有订单的主体残留的汇总行
+                long toId = ids.size() < chunkSize ? Long.MAX_VALUE : ids.get(ids.size() - 1);
+                long from = afterId;
+                rows += transactionTemplate.execute(status -> rebuildPartyRange(partyType, from, toId));
+                if (toId == Long.MAX_VALUE) {
+                    break;
+                }
+                afterId = toId;
+            }
+        }
+        int productRows = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = productSalesMapper.selectProductIdChunk(afterId, chunkSize);
+            long toId = ids.size() < chunkSize ? Long.MAX_VALUE : ids.get(ids.size() - 1);
+            long from = afterId;
+            productRows += transactionTemplate.execute(status -> rebuildProductRange(from, toId));
+            if (toId == Long.MAX_VALUE) {
+                break;
+            }
+            afterId = toId;
+        }
+        log.info("主体统计重建完成：汇总 {} 行，产品销量 {} 行，耗时{}ms", rows, productRows,
+                System.currentTimeMillis() - start);
+        return rows;
+    }
+    
+    @Override
+    public int rebuildIfEmpty() {
+        if (partyStatsMapper.countAny() > 0) {
+            return 0;
+        }
+        log.info("主体统计汇总表为空，从基础表重建");
+        return rebuild();
+    }
+    
+    /**
+     * 重建一段主体ID区间，在独立的短事务中执行
+     * 先以锁定读锁住区间内的汇总行及间隙（锁定读不建立一致性读快照），此前已写入增量的事务提交后才继续，
+     * 随后的一致性读能看到它们的基础数据；之后到达的增量等待本段提交后在重建结果上累加，既不丢失也不重复
+     */
+    private int rebuildPartyRange(String partyType, long afterId, long toId) {
+        partyStatsMapper.lockRange(partyType, afterId, toId);
+        partyStatsMapper.lockDailyRange(partyType, afterId, toId);
+        partyStatsMapper.deleteRange(partyType, afterId, toId);
+        partyStatsMapper.deleteDailyRange(partyType, afterId, toId);
+        List<PartyStats> stats = partyStatsMapper.aggregateRange(partyType, afterId, toId);
+        stats.forEach(partyStatsMapper::increment);
+        partyStatsMapper.aggregateDailyRange(partyType, afterId, toId)
+                .forEach(daily -> partyStatsMapper.incrementDaily(daily, daily.getStatDate()));
+        return stats.size();
+    }
+    
+    /**
+     * 重建一段产品ID区间的销量，加锁顺序同 {@link #rebuildPartyRange}
+     */
+    private int rebuildProductRange(long afterId, long toId) {
+        productSalesMapper.lockRange(afterId, toId);
+        productSalesMapper.deleteRange(afterId, toId);
+        List<ProductSales> sales = productSalesMapper.aggregateRange(afterId, toId);
+        sales.forEach(productSalesMapper::insert);
+        return sales.size();
+    }
+    
+    private void applyToBothParties(PurchaseOrder order, Consumer<PartyStats> change) {
+        PartyStats farmer = new PartyStats(UserRole.FARMER.getCode(), order.getFarmerId());
+        change.accept(farmer);
+        apply(farmer);
+        PartyStats purchaser = new PartyStats(UserRole.PURCHASER.getCode(), order.getPurchaserId());
+        change.accept(purchaser);
+        apply(purchaser);
+    }
+    
+    private void accumulate(Map<PartyStats, PartyStats> deltas, String partyType, Long partyId, Consumer<PartyStats> change) {
+        PartyStats key = new PartyStats(partyType, partyId);
+        change.accept(deltas.computeIfAbsent(key, k -> k));
+    }
+    
+    private void apply(PartyStats delta) {
+        partyStatsMapper.increment(delta);
+        partyStatsMapper.incrementDaily(delta, LocalDate.now());
+    }
+}
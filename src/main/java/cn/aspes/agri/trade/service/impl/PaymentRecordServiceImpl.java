@@ -1,19 +1,26 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.PaymentRequest;
 import cn.aspes.agri.trade.entity.*;
 import cn.aspes.agri.trade.enums.OrderStatus;
 import cn.aspes.agri.trade.enums.PaymentStatus;
 import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
 import cn.aspes.agri.trade.mapper.PaymentRecordMapper;
 import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.LeaderboardService;
+import cn.aspes.agri.trade.service.PartyStatsService;
 import cn.aspes.agri.trade.service.PaymentRecordService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
 import cn.aspes.agri.trade.service.PurchaseContractService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import cn.aspes.agri.trade.service.StockReservationService;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
 import cn.aspes.agri.trade.service.FileUploadService;
+import cn.aspes.agri.trade.util.KeysetCursor;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
@@ -28,6 +35,7 @@ import lombok.extern.slf4j.Slf4j;
 import jakarta.annotation.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -59,6 +67,18 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
     @Resource
     private FileUploadService fileUploadService;
     
+    @Resource
+    private OptimisticLockRetryTemplate optimisticLockRetryTemplate;
+    
+    @Resource
+    private PartyStatsService partyStatsService;
+    
+    @Resource
+    private StatusHistogramService statusHistogramService;
+    
+    @Resource
+    private LeaderboardService leaderboardService;
+    
     @Override
     public Long submitPayment(PaymentRequest request, Long currentUserId) {
         // 先在事务外上传文件，避免文件上传异常污染数据库事务
@@ -126,6 +146,8 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
         }
         
         save(payment);
+        partyStatsService.recordPaymentSucceeded(order, payment.getAmount());
+        leaderboardService.recordPaymentSucceeded(order, payment.getAmount());
         
         // 更新订单状态
         updateOrderStatusAfterPayment(payment.getOrderId());
@@ -154,8 +176,12 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void confirmPayment(Long paymentId, String paymentNo) {
+        // 订单状态更新与取消订单等并发时按版本号冲突重试，重试时重新读取支付与订单状态
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doConfirmPayment(paymentId, paymentNo));
+    }
+    
+    private void doConfirmPayment(Long paymentId, String paymentNo) {
         PaymentRecord payment = getById(paymentId);
         if (payment == null) {
             throw new BusinessException("支付记录不存在");
@@ -170,6 +196,11 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
         payment.setPaymentNo(paymentNo);
         payment.setPaymentTime(LocalDateTime.now());
         updateById(payment);
+        PurchaseOrder order = purchaseOrderMapper.selectById(payment.getOrderId());
+        if (order != null) {
+            partyStatsService.recordPaymentSucceeded(order, payment.getAmount());
+            leaderboardService.recordPaymentSucceeded(order, payment.getAmount());
+        }
         
         // 跨模块业务流程协调：支付成功后自动更新订单状态
         updateOrderStatusAfterPayment(payment.getOrderId());
@@ -190,7 +221,8 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
 
                 if (order.getStatus() == OrderStatus.PENDING_INSPECTION || order.getStatus() == OrderStatus.DELIVERED) {
                     order.setStatus(OrderStatus.PAID);
-                    purchaseOrderMapper.updateById(order);
+                    OptimisticLockException.check(purchaseOrderMapper.updateById(order) > 0);
+                    statusHistogramService.evictOrders();
                     
                     // 支付成功后，确认库存预留（在独立事务中处理，避免异常影响支付事务）
                     confirmStockReservationAsync(orderId);
@@ -199,6 +231,9 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
                     log.warn("订单状态不符合支付条件，订单={}，当前状态={}", orderId, order.getStatus().getDesc());
                 }
             }
+        } catch (OptimisticLockException e) {
+            // 订单已被并发修改（如同时取消），需回滚整个支付确认后重试，不能按旧状态置为已支付
+            throw e;
         } catch (Exception e) {
             // 捕获任何异常，仅记录，不影响支付流程
             log.warn("订单处理异常，orderId={}", orderId, e);
@@ -229,9 +264,24 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
                 .orderByAsc(PaymentRecord::getCreateTime));
     }
     
+    @Override
+    public BigDecimal sumPaidAmount(Long orderId) {
+        return baseMapper.sumSuccessAmount(orderId);
+    }
+    
     @Override
     public Page<PaymentRecord> pagePayments(Integer current, Integer size, Long orderId, String status) {
         Page<PaymentRecord> page = new Page<>(current, size);
+        return page(page, paymentsWrapper(orderId, status).orderByDesc(PaymentRecord::getCreateTime));
+    }
+    
+    @Override
+    public CursorPage<PaymentRecord> pagePaymentsByCursor(String after, Integer size, Long orderId, String status) {
+        return KeysetCursor.page(baseMapper, paymentsWrapper(orderId, status),
+                PaymentRecord::getCreateTime, PaymentRecord::getId, after, size);
+    }
+    
+    private LambdaQueryWrapper<PaymentRecord> paymentsWrapper(Long orderId, String status) {
         LambdaQueryWrapper<PaymentRecord> wrapper = new LambdaQueryWrapper<>();
         
         if (orderId != null) {
@@ -240,9 +290,7 @@ public class PaymentRecordServiceImpl extends ServiceImpl<PaymentRecordMapper, P
         if (status != null && !status.isEmpty()) {
             wrapper.eq(PaymentRecord::getStatus, PaymentStatus.valueOf(status.toUpperCase()));
         }
-        
-        wrapper.orderByDesc(PaymentRecord::getCreateTime);
-        return page(page, wrapper);
+        return wrapper;
     }
     
     @Override
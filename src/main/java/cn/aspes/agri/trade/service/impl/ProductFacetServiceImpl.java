@@ -0,0 +1,168 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.SearchProperties;
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.OriginArea;
+import cn.aspes.agri.trade.enums.ProductFacet;
+import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.OriginAreaMapper;
+import cn.aspes.agri.trade.service.ProductFacetService;
+import cn.aspes.agri.trade.util.FacetBitmapIndex;
+import cn.aspes.agri.trade.util.JournaledIndex;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 产品分面筛选索引服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductFacetServiceImpl implements ProductFacetService {
+
+    private final FarmerProductMapper farmerProductMapper;
+    private final OriginAreaMapper originAreaMapper;
+    private final SearchProperties searchProperties;
+
+    private final JournaledIndex<FacetBitmapIndex<ProductFacet>> index = new JournaledIndex<>();
+
+    /**
+     * 产地ID -> 省份，重建时全量加载，新产地按需查询
+     */
+    private final Map<Integer, String> areaProvinces = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isReady() {
+        return searchProperties.isEnabled() && index.current() != null;
+    }
+
+    @Override
+    public FacetBitmapIndex.Result<ProductFacet> query(ProductFacetRequest request) {
+        FacetBitmapIndex<ProductFacet> current = index.current();
+        if (current == null) {
+            return new FacetBitmapIndex.Result<>(0, List.of(), new EnumMap<>(ProductFacet.class));
+        }
+        Map<ProductFacet, List<String>> filters = new EnumMap<>(ProductFacet.class);
+        if (request.getCategoryIds() != null) {
+            filters.put(ProductFacet.CATEGORY, request.getCategoryIds().stream().map(String::valueOf).toList());
+        }
+        filters.put(ProductFacet.PROVINCE, request.getProvinces());
+        filters.put(ProductFacet.PRICE_BAND, request.getPriceBands());
+        filters.put(ProductFacet.PRODUCTION_METHOD, request.getProductionMethods());
+        int offset = (int) Math.min((long) Math.max(request.getPageNum() - 1, 0) * request.getPageSize(), Integer.MAX_VALUE);
+        return current.query(filters, offset, request.getPageSize());
+    }
+
+    @Override
+    public void index(FarmerProduct product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long productId = product.getId();
+        if (product.getStatus() != ProductStatus.ON_SALE) {
+            index.update(target -> target.remove(productId));
+            return;
+        }
+        Map<ProductFacet, String> values = facetValues(product, priceBands());
+        long sortKey = JournaledIndex.toSortKey(product.getCreateTime() != null ? product.getCreateTime() : LocalDateTime.now());
+        index.update(target -> target.put(productId, values, sortKey));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        index.update(target -> target.remove(productId));
+    }
+
+    @Override
+    public int rebuild() {
+        FacetBitmapIndex<ProductFacet> fresh = index.rebuild(new FacetBitmapIndex<>(ProductFacet.class), this::load);
+        log.info("产品筛选索引重建完成：{} 条在售产品", fresh.size());
+        return fresh.size();
+    }
+
+    @Override
+    public List<PriceBand> priceBands() {
+        List<BigDecimal> bounds = searchProperties.getFacetPriceBounds().stream().sorted().distinct().toList();
+        List<PriceBand> bands = new ArrayList<>(bounds.size() + 1);
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : bounds) {
+            if (upper.compareTo(lower) > 0) {
+                bands.add(new PriceBand(plain(lower) + "-" + plain(upper), lower, upper));
+                lower = upper;
+            }
+        }
+        bands.add(new PriceBand(plain(lower) + "+", lower, null));
+        return bands;
+    }
+
+    /**
+     * 只查询在售产品的筛选字段
+     */
+    private void load(FacetBitmapIndex<ProductFacet> target) {
+        areaProvinces.clear();
+        originAreaMapper.selectList(new LambdaQueryWrapper<OriginArea>()
+                        .select(OriginArea::getAreaId, OriginArea::getProvince))
+                .forEach(area -> {
+                    if (area.getProvince() != null) {
+                        areaProvinces.put(area.getAreaId(), area.getProvince());
+                    }
+                });
+        List<PriceBand> bands = priceBands();
+        farmerProductMapper.selectList(new LambdaQueryWrapper<FarmerProduct>()
+                        .select(FarmerProduct::getId, FarmerProduct::getCategoryId, FarmerProduct::getOriginAreaId,
+                                FarmerProduct::getPrice, FarmerProduct::getProductionMethod, FarmerProduct::getCreateTime)
+                        .eq(FarmerProduct::getStatus, ProductStatus.ON_SALE))
+                .forEach(p -> target.put(p.getId(), facetValues(p, bands),
+                        JournaledIndex.toSortKey(p.getCreateTime())));
+    }
+
+    private Map<ProductFacet, String> facetValues(FarmerProduct product, List<PriceBand> bands) {
+        Map<ProductFacet, String> values = new EnumMap<>(ProductFacet.class);
+        if (product.getCategoryId() != null) {
+            values.put(ProductFacet.CATEGORY, String.valueOf(product.getCategoryId()));
+        }
+        values.put(ProductFacet.PROVINCE, provinceOf(product.getOriginAreaId()));
+        if (product.getPrice() != null) {
+            bands.stream().filter(band -> band.contains(product.getPrice())).findFirst()
+                    .ifPresent(band -> values.put(ProductFacet.PRICE_BAND, band.label()));
+        }
+        if (product.getProductionMethod() != null && !product.getProductionMethod().isBlank()) {
+            values.put(ProductFacet.PRODUCTION_METHOD, product.getProductionMethod().trim());
+        }
+        return values;
+    }
+
+    private String provinceOf(Integer originAreaId) {
+        if (originAreaId == null) {
+            return null;
+        }
+        String province = areaProvinces.get(originAreaId);
+        if (province == null) {
+            OriginArea area = originAreaMapper.selectById(originAreaId);
+            if (area != null && area.getProvince() != null) {
+                province = area.getProvince();
+                areaProvinces.put(originAreaId, province);
+            }
+        }
+        return province;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value.stripTrailingZeros().toPlainString();
+    }
+}
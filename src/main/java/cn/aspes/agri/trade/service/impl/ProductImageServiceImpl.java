@@ -18,7 +18,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 产品图片服务实现
@@ -137,6 +140,18 @@ public class ProductImageServiceImpl extends ServiceImpl<ProductImageMapper, Pro
                 .orderByAsc(ProductImage::getSort));
     }
     
+    @Override
+    public Map<Long, List<ProductImage>> groupByProductIds(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Map.of();
+        }
+        return list(new LambdaQueryWrapper<ProductImage>()
+                .in(ProductImage::getProductId, productIds)
+                .orderByAsc(ProductImage::getProductId, ProductImage::getSort))
+                .stream()
+                .collect(Collectors.groupingBy(ProductImage::getProductId));
+    }
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteByProductId(Long productId) {
@@ -2,13 +2,16 @@ package cn.aspes.agri.trade.service.impl;
 
 import cn.aspes.agri.trade.dto.ContractRequest;
 import cn.aspes.agri.trade.entity.*;
+import cn.aspes.agri.trade.enums.BizNoType;
 import cn.aspes.agri.trade.enums.ContractStatus;
 import cn.aspes.agri.trade.enums.DockingStatus;
 import cn.aspes.agri.trade.enums.OrderStatus;
 import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
 import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
 import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
 import cn.aspes.agri.trade.service.*;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
 import cn.aspes.agri.trade.util.ProductSnapshotUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -20,15 +23,11 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +65,12 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
     @Resource
     private ProductSnapshotUtil productSnapshotUtil;
     
+    @Resource
+    private BizNoService bizNoService;
+    
+    @Resource
+    private OptimisticLockRetryTemplate optimisticLockRetryTemplate;
+    
     private ApplicationContext applicationContext;
     
     @Override
@@ -117,7 +122,7 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         BigDecimal totalAmount = price.multiply(new BigDecimal(quantity));
         
         // 生成合同编号：C + 日期 + 四位流水号
-        String contractNo = generateContractNo();
+        String contractNo = bizNoService.nextNo(BizNoType.CONTRACT);
         
         // 创建合同
         PurchaseContract contract = new PurchaseContract();
@@ -135,7 +140,6 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void signContract(Long contractId, Long userId, MultipartFile signFile, String role) {
         PurchaseContract contract = getById(contractId);
         if (contract == null) {
@@ -160,21 +164,22 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
             throw new BusinessException("签字文件上传失败：" + e.getMessage());
         }
         
-        // 在事务中处理签署逆辑
-        signContractInternal(contractId, userId, signUrl, role);
+        // 在事务中处理签署逆辑，双方同时签署时按版本号冲突重试，避免一方的签字被覆盖
+        String uploadedUrl = signUrl;
+        try {
+            optimisticLockRetryTemplate.executeWithoutResult(() -> signContractInternal(contractId, userId, uploadedUrl, role));
+        } catch (RuntimeException e) {
+            // 最终失败时删除已上传的文件（单次尝试回滚后仍会重试，不能在事务回调中删除）
+            deleteFileQuietly(uploadedUrl);
+            throw e;
+        }
     }
     
     /**
      * 内部方法：在事务中处理合同签署（已提前上传文件）
-     * 如果事务回滚，会自动删除已上传的文件
      */
     @Transactional(rollbackFor = Exception.class)
     public void signContractInternal(Long contractId, Long userId, String signUrl, String role) {
-        // 注册事务回滚时的文件删除回调
-        if (signUrl != null && TransactionSynchronizationManager.isActualTransactionActive()) {
-            registerFileDeleteOnRollback(signUrl);
-        }
-        
         PurchaseContract contract = getById(contractId);
         if (contract == null) {
             throw new BusinessException("合同不存在");
@@ -198,7 +203,7 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         // 如果双方都已签署，更新状态为已签署，并自动创建订单
         if (contract.getFarmerSignUrl() != null && contract.getPurchaserSignUrl() != null) {
             contract.setStatus(ContractStatus.SIGNED);
-            updateById(contract);
+            OptimisticLockException.check(updateById(contract));
             
             // 自动基于合同创建订单
             // 由于存在循环依赖问题，我们需要通过Spring上下文获取PurchaseOrderService
@@ -206,33 +211,27 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
                 PurchaseOrderService purchaseOrderService = applicationContext.getBean(PurchaseOrderService.class);
                 purchaseOrderService.createOrderFromContract(contractId);
                 log.info("合同双方签署完成，已自动创建订单，合同ID: {}", contractId);
+            } catch (OptimisticLockException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("基于合同创建订单失败，合同ID: {}", contractId, e);
                 throw new BusinessException("合同签署成功，但自动创建订单失败：" + e.getMessage());
             }
         } else {
-            updateById(contract);
+            OptimisticLockException.check(updateById(contract));
         }
     }
     
     /**
-     * 注册事务回滚时的文件删除回调
+     * 签署失败时删除已上传的签字文件
      */
-    private void registerFileDeleteOnRollback(String fileUrl) {
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-            @Override
-            public void afterCompletion(int status) {
-                // status = TransactionSynchronization.STATUS_ROLLED_BACK 表示事务已回滚
-                if (status == STATUS_ROLLED_BACK) {
-                    try {
-                        fileUploadService.deleteFile(fileUrl);
-                        log.info("事务回滚：已自动删除上传的签幺文件，URL={}", fileUrl);
-                    } catch (Exception e) {
-                        log.error("事务回滚时删除文件失败，URL={}", fileUrl, e);
-                    }
-                }
-            }
-        });
+    private void deleteFileQuietly(String fileUrl) {
+        try {
+            fileUploadService.deleteFile(fileUrl);
+            log.info("签署失败：已删除上传的签字文件，URL={}", fileUrl);
+        } catch (Exception e) {
+            log.error("签署失败时删除文件失败，URL={}", fileUrl, e);
+        }
     }
     
     @Override
@@ -252,30 +251,12 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         return page(page, wrapper);
     }
     
-    /**
-     * 生成合同编号：C + YYYYMMDD + 4位流水号
-     */
-    private String generateContractNo() {
-        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "C" + dateStr;
-        
-        // 查询当天最大的流水号
-        LambdaQueryWrapper<PurchaseContract> wrapper = new LambdaQueryWrapper<>();
-        wrapper.likeRight(PurchaseContract::getContractNo, prefix);
-        wrapper.orderByDesc(PurchaseContract::getContractNo);
-        wrapper.last("LIMIT 1");
-        
-        PurchaseContract last = getOne(wrapper);
-        int sequence = 1;
-        if (last != null && last.getContractNo() != null) {
-            String lastNo = last.getContractNo().substring(prefix.length());
-            sequence = Integer.parseInt(lastNo) + 1;
-        }
-        return prefix + String.format("%04d", sequence);
-    }
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void withdrawContract(Long contractId, Long userId, String reason) {
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doWithdrawContract(contractId, reason));
+    }
+    
+    private void doWithdrawContract(Long contractId, String reason) {
         PurchaseContract contract = getById(contractId);
         if (contract == null) {
             throw new BusinessException("合同不存在");
@@ -289,12 +270,15 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         deleteContractSignFiles(contract);
         
         contract.setStatus(ContractStatus.TERMINATED);
-        updateById(contract);
+        OptimisticLockException.check(updateById(contract));
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void rejectContract(Long contractId, Long userId, String reason) {
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doRejectContract(contractId, reason));
+    }
+    
+    private void doRejectContract(Long contractId, String reason) {
         PurchaseContract contract = getById(contractId);
         if (contract == null) {
             throw new BusinessException("合同不存在");
@@ -305,12 +289,15 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         }
         
         contract.setStatus(ContractStatus.TERMINATED);
-        updateById(contract);
+        OptimisticLockException.check(updateById(contract));
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void terminateContract(Long contractId, Long userId, String reason) {
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doTerminateContract(contractId, reason));
+    }
+    
+    private void doTerminateContract(Long contractId, String reason) {
         PurchaseContract contract = getById(contractId);
         if (contract == null) {
             throw new BusinessException("合同不存在");
@@ -324,7 +311,7 @@ public class PurchaseContractServiceImpl extends ServiceImpl<PurchaseContractMap
         deleteContractSignFiles(contract);
         
         contract.setStatus(ContractStatus.TERMINATED);
-        updateById(contract);
+        OptimisticLockException.check(updateById(contract));
         
         // ✅ 修复：合同终止时，需要释放其下所有订单的库存预留
         // 改用Mapper直接查询，避免循环依赖
@@ -1,13 +1,19 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.dto.PurchaseDemandRequest;
 import cn.aspes.agri.trade.entity.PurchaseDemand;
 import cn.aspes.agri.trade.entity.PurchaserInfo;
 import cn.aspes.agri.trade.enums.DemandStatus;
+import cn.aspes.agri.trade.enums.SearchTarget;
 import cn.aspes.agri.trade.exception.BusinessException;
 import cn.aspes.agri.trade.mapper.PurchaseDemandMapper;
 import cn.aspes.agri.trade.service.PurchaseDemandService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.service.SearchIndexService;
+import cn.aspes.agri.trade.util.IdOrder;
+import cn.aspes.agri.trade.util.KeysetCursor;
+import cn.aspes.agri.trade.util.NgramIndex;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -28,6 +34,9 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
     @Resource
     private PurchaserInfoService purchaserInfoService;
     
+    @Resource
+    private SearchIndexService searchIndexService;
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long publishDemand(Long purchaserId, PurchaseDemandRequest request) {
@@ -44,6 +53,7 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
         demand.setStatus(DemandStatus.PENDING);
         
         save(demand);
+        searchIndexService.index(SearchTarget.DEMAND, demand.getId(), demand.getProductName(), demand.getCreateTime());
         return demand.getId();
     }
     
@@ -66,6 +76,7 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
         // 更新需求信息
         BeanUtils.copyProperties(request, demand);
         updateById(demand);
+        searchIndexService.index(SearchTarget.DEMAND, demandId, demand.getProductName(), demand.getCreateTime());
     }
     
     @Override
@@ -107,6 +118,16 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
     @Override
     public IPage<PurchaseDemand> listDemands(int pageNum, int pageSize, Long categoryId, String status) {
         Page<PurchaseDemand> page = new Page<>(pageNum, pageSize);
+        return page(page, demandsWrapper(categoryId, status).orderByDesc(PurchaseDemand::getCreateTime));
+    }
+    
+    @Override
+    public CursorPage<PurchaseDemand> listDemandsByCursor(String after, Integer size, Long categoryId, String status) {
+        return KeysetCursor.page(baseMapper, demandsWrapper(categoryId, status),
+                PurchaseDemand::getCreateTime, PurchaseDemand::getId, after, size);
+    }
+    
+    private LambdaQueryWrapper<PurchaseDemand> demandsWrapper(Long categoryId, String status) {
         LambdaQueryWrapper<PurchaseDemand> wrapper = new LambdaQueryWrapper<>();
         
         if (categoryId != null) {
@@ -115,10 +136,7 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
         if (StringUtils.hasText(status)) {
             wrapper.eq(PurchaseDemand::getStatus, DemandStatus.valueOf(status.toUpperCase()));
         }
-        
-        wrapper.orderByDesc(PurchaseDemand::getCreateTime);
-        
-        return page(page, wrapper);
+        return wrapper;
     }
     
     @Override
@@ -134,6 +152,17 @@ public class PurchaseDemandServiceImpl extends ServiceImpl<PurchaseDemandMapper,
     @Override
     public IPage<PurchaseDemand> searchDemandsByProductName(String keyword, int pageNum, int pageSize) {
         Page<PurchaseDemand> page = new Page<>(pageNum, pageSize);
+        
+        // 索引可用时在内存中匹配排序，只按主键查询当前页
+        if (StringUtils.hasText(keyword) && searchIndexService.isReady(SearchTarget.DEMAND)) {
+            NgramIndex.Hits hits = searchIndexService.search(SearchTarget.DEMAND, keyword, pageNum, pageSize);
+            page.setTotal(hits.total());
+            if (!hits.ids().isEmpty()) {
+                page.setRecords(IdOrder.arrange(hits.ids(), listByIds(hits.ids()), PurchaseDemand::getId));
+            }
+            return page;
+        }
+        
         LambdaQueryWrapper<PurchaseDemand> wrapper = new LambdaQueryWrapper<>();
         
         if (keyword != null && !keyword.isEmpty()) {
@@ -1,27 +1,36 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.common.CursorPage;
 import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.entity.PurchaseContract;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
 import cn.aspes.agri.trade.entity.FarmerInfo;
 import cn.aspes.agri.trade.entity.PurchaserInfo;
-import cn.aspes.agri.trade.entity.PaymentRecord;
+import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.enums.BizNoType;
 import cn.aspes.agri.trade.enums.ContractStatus;
 import cn.aspes.agri.trade.enums.OrderStatus;
-import cn.aspes.agri.trade.enums.PaymentStatus;
 import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
 import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
 import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.service.BizNoService;
 import cn.aspes.agri.trade.service.FarmerProductService;
+import cn.aspes.agri.trade.service.LeaderboardService;
+import cn.aspes.agri.trade.service.PartyStatsService;
 import cn.aspes.agri.trade.service.PurchaseContractService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
 import cn.aspes.agri.trade.service.PaymentRecordService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import cn.aspes.agri.trade.service.StockReservationService;
+import cn.aspes.agri.trade.service.TradeStatsService;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.util.KeysetCursor;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
 import cn.aspes.agri.trade.util.ProductSnapshotUtil;
 import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
-import cn.hutool.core.date.DateUtil;
+import cn.aspes.agri.trade.vo.ContractOrderResultVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -38,9 +47,14 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -63,9 +77,20 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
     private final ProductSnapshotUtil productSnapshotUtil;
     private final PurchaseOrderMapper purchaseOrderMapper;
     private final PurchaseContractMapper contractMapper;
+    private final BizNoService bizNoService;
+    private final OptimisticLockRetryTemplate optimisticLockRetryTemplate;
+    private final PartyStatsService partyStatsService;
+    private final TradeStatsService tradeStatsService;
+    private final StatusHistogramService statusHistogramService;
+    private final LeaderboardService leaderboardService;
     
     private static final String STOCK_LOCK_KEY = "stock:lock:";
     
+    /**
+     * 单次批量建单的合同数上限
+     */
+    private static final int MAX_BATCH_CONTRACTS = 200;
+    
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
@@ -113,7 +138,7 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
         // 4. 创建订单
         PurchaseOrder order = new PurchaseOrder();
         order.setId(idGenerator.nextId());
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(bizNoService.nextNo(BizNoType.ORDER));
         order.setContractId(contractId);
         order.setProductId(contract.getProductId());
         order.setProductInfo(productInfo);
@@ -129,13 +154,15 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
         if (!saved) {
             throw new BusinessException("订单创建失败");
         }
+        partyStatsService.recordOrdersCreated(List.of(order));
+        statusHistogramService.evictOrders();
         
         // 6. 再预留库存（预留即扣减）
         stockReservationService.reserveStock(order.getId(), product.getId(), contract.getQuantity());
         
         // 7. 更新合同状态为执行中
         contract.setStatus(ContractStatus.EXECUTING);
-        contractService.updateById(contract);
+        OptimisticLockException.check(contractService.updateById(contract));
         
         log.info("订单创建成功，订单ID: {}, 订单号: {}, 合同状态已更新为执行中", order.getId(), order.getOrderNo());
         return order;
@@ -143,6 +170,138 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
     
 
     
+    /**
+     * 基于多个合同批量创建订单
+     * 合同、已有订单与产品均以IN查询一次加载，同一产品的库存合并为一次条件扣减，
+     * 订单与预留记录批量写入；单个合同校验、并发状态变更或预留失败不影响其他合同。
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<ContractOrderResultVO> createOrdersFromContracts(List<Long> contractIds, Long userId) {
+        if (contractIds == null || contractIds.isEmpty()) {
+            throw new BusinessException("合同ID不能为空");
+        }
+        List<Long> distinctIds = contractIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_CONTRACTS) {
+            throw new BusinessException("单次最多处理" + MAX_BATCH_CONTRACTS + "个合同");
+        }
+        PurchaserInfo purchaser = purchaserInfoService.getByUserId(userId);
+        if (purchaser == null) {
+            throw new BusinessException("采购方信息不存在");
+        }
+        log.info("批量从合同创建订单，采购方ID: {}, 合同数: {}", purchaser.getId(), distinctIds.size());
+        
+        // 1. 批量加载合同、已有订单与产品
+        Map<Long, PurchaseContract> contracts = contractService.listByIds(distinctIds).stream()
+                .collect(Collectors.toMap(PurchaseContract::getId, Function.identity()));
+        Set<Long> orderedContractIds = contracts.isEmpty() ? Set.of() : list(new LambdaQueryWrapper<PurchaseOrder>()
+                        .select(PurchaseOrder::getContractId)
+                        .in(PurchaseOrder::getContractId, contracts.keySet()))
+                .stream().map(PurchaseOrder::getContractId).collect(Collectors.toSet());
+        Set<Long> productIds = contracts.values().stream().map(PurchaseContract::getProductId).collect(Collectors.toSet());
+        Map<Long, FarmerProduct> products = productIds.isEmpty() ? Map.of() : productService.listByIds(productIds).stream()
+                .collect(Collectors.toMap(FarmerProduct::getId, Function.identity()));
+        
+        // 2. 逐个合同校验并构建订单
+        Map<Long, ContractOrderResultVO> results = new LinkedHashMap<>();
+        List<PurchaseOrder> candidates = new ArrayList<>();
+        List<StockReservation> reservations = new ArrayList<>();
+        long[] orderIds = idGenerator.nextIds(distinctIds.size());
+        for (int i = 0; i < distinctIds.size(); i++) {
+            Long contractId = distinctIds.get(i);
+            PurchaseContract contract = contracts.get(contractId);
+            FarmerProduct product = contract == null ? null : products.get(contract.getProductId());
+            String error = null;
+            if (contract == null) {
+                error = "合同不存在";
+            } else if (!purchaser.getId().equals(contract.getPurchaserId())) {
+                error = "无权限操作此合同";
+            } else if (!ContractStatus.SIGNED.equals(contract.getStatus())) {
+                error = "合同未签署，无法创建订单";
+            } else if (orderedContractIds.contains(contractId)) {
+                error = "该合同已创建订单";
+            } else if (product == null) {
+                error = "产品不存在";
+            } else if (!claimContract(contractId)) {
+                // 加载后被其他请求抢先建单或变更状态
+                error = "合同状态已变更，请刷新后重试";
+            }
+            if (error != null) {
+                results.put(contractId, ContractOrderResultVO.failed(contractId, error));
+                continue;
+            }
+            
+            PurchaseOrder order = new PurchaseOrder();
+            order.setId(orderIds[i]);
+            order.setContractId(contractId);
+            order.setProductId(contract.getProductId());
+            order.setProductInfo(productSnapshotUtil.createProductSnapshot(product));
+            order.setQuantity(contract.getQuantity());
+            order.setTotalAmount(contract.getTotalAmount());
+            order.setFarmerId(product.getFarmerId());
+            order.setPurchaserId(contract.getPurchaserId());
+            order.setStatus(OrderStatus.PENDING_INSPECTION);
+            order.setRemark("从合同创建订单");
+            candidates.add(order);
+            results.put(contractId, null);
+            
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(order.getId());
+            reservation.setProductId(product.getId());
+            reservation.setReservedQuantity(contract.getQuantity());
+            reservations.add(reservation);
+        }
+        
+        // 3. 批量预留库存（预留即扣减），库存不足的合同单独失败
+        Set<Long> reservedOrderIds = stockReservationService.reserveStockBatch(reservations).stream()
+                .map(StockReservation::getOrderId).collect(Collectors.toSet());
+        List<PurchaseOrder> orders = new ArrayList<>();
+        List<Long> unreservedContractIds = new ArrayList<>();
+        for (PurchaseOrder order : candidates) {
+            if (reservedOrderIds.contains(order.getId())) {
+                order.setOrderNo(bizNoService.nextNo(BizNoType.ORDER));
+                orders.add(order);
+            } else {
+                unreservedContractIds.add(order.getContractId());
+                results.put(order.getContractId(), ContractOrderResultVO.failed(order.getContractId(), "库存不足，无法预留"));
+            }
+        }
+        if (!unreservedContractIds.isEmpty()) {
+            // 预留失败的合同恢复为已签署，可稍后重新建单
+            contractMapper.update(null, new LambdaUpdateWrapper<PurchaseContract>()
+                    .set(PurchaseContract::getStatus, ContractStatus.SIGNED)
+                    .set(PurchaseContract::getUpdateTime, LocalDateTime.now())
+                    .setSql("version = version + 1")
+                    .in(PurchaseContract::getId, unreservedContractIds)
+                    .eq(PurchaseContract::getStatus, ContractStatus.EXECUTING));
+        }
+        
+        if (!orders.isEmpty()) {
+            // 4. 批量保存订单
+            saveBatch(orders);
+            partyStatsService.recordOrdersCreated(orders);
+            statusHistogramService.evictOrders();
+            orders.forEach(order -> results.put(order.getContractId(),
+                    ContractOrderResultVO.success(order.getContractId(), order.getId(), order.getOrderNo())));
+        }
+        
+        log.info("批量建单完成，采购方ID: {}, 合同数: {}, 成功: {}", purchaser.getId(), distinctIds.size(), orders.size());
+        return new ArrayList<>(results.values());
+    }
+    
+    /**
+     * 以带状态条件的UPDATE将合同从已签署推进为执行中，逐个合同判断影响行数，
+     * 并发建单时只有一个请求能占用合同，失败的合同单独返回而不回滚整批
+     */
+    private boolean claimContract(Long contractId) {
+        return contractMapper.update(null, new LambdaUpdateWrapper<PurchaseContract>()
+                .set(PurchaseContract::getStatus, ContractStatus.EXECUTING)
+                .set(PurchaseContract::getUpdateTime, LocalDateTime.now())
+                .setSql("version = version + 1")
+                .eq(PurchaseContract::getId, contractId)
+                .eq(PurchaseContract::getStatus, ContractStatus.SIGNED)) == 1;
+    }
+    
     /**
      * 采购方确认订单（带权限验证）
      */
@@ -150,62 +309,69 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
     @Transactional(rollbackFor = Exception.class)
     public void completeOrder(Long orderId, Long userId) {
         // 1. 验证当前用户是否有权限操作该订单
-        Long purchaserId = purchaserInfoService.getByUserId(userId).getId();
-        PurchaseOrder order = getOrderDetail(orderId, userId, "purchaser");
-        if (order == null || !order.getPurchaserId().equals(purchaserId)) {
-            throw new BusinessException(403, "无权限操作此订单");
-        }
-        
-        // 2. 查询订单
-        order = getById(orderId);
+        PurchaserInfo purchaser = purchaserInfoService.getByUserId(userId);
+        PurchaseOrder order = getById(orderId);
         if (order == null) {
             throw new BusinessException("订单不存在");
         }
+        if (purchaser == null || !purchaser.getId().equals(order.getPurchaserId())) {
+            throw new BusinessException(403, "无权限操作此订单");
+        }
         
-        // 3. 验证订单状态
+        // 2. 验证订单状态
         if (order.getStatus() != OrderStatus.DELIVERED) {
             throw new BusinessException("只有已交货的订单才能完成，当前订单状态：" + order.getStatus().getDesc());
         }
         
-        // 4. 验证订单是否已支付全部金额
-        List<PaymentRecord> paymentRecords = getPaymentRecordService().listByOrder(orderId);
-        if (paymentRecords == null || paymentRecords.isEmpty()) {
+        // 3. 验证订单是否已支付全部金额（数据库汇总支付成功金额）
+        BigDecimal paidAmount = getPaymentRecordService().sumPaidAmount(orderId);
+        if (paidAmount == null || paidAmount.signum() == 0) {
             throw new BusinessException("订单尚未支付，无法完成");
         }
-        
-        // 计算已支付金额
-        BigDecimal paidAmount = paymentRecords.stream()
-            .filter(record -> record.getStatus() == PaymentStatus.SUCCESS)
-            .map(PaymentRecord::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 比较已支付金额与订单总金额
         if (paidAmount.compareTo(order.getTotalAmount()) < 0) {
             throw new BusinessException("订单尚未支付全部金额，已支付：" + paidAmount + "，需支付：" + order.getTotalAmount());
         }
         
-        // 5. 查询合同
-        PurchaseContract contract = contractService.getById(order.getContractId());
-        if (contract == null) {
-            throw new BusinessException("关联合同不存在");
+        // 4. 完成订单并汇总合同状态
+        completeDeliveredOrder(order);
+    }
+    
+    /**
+     * 完成已交货订单：条件UPDATE推进订单状态，再以COUNT判断合同下是否还有未结束的订单
+     */
+    private void completeDeliveredOrder(PurchaseOrder order) {
+        // 带状态条件更新，并发重复确认时只有一个请求成功
+        LocalDateTime now = LocalDateTime.now();
+        boolean completed = update(new LambdaUpdateWrapper<PurchaseOrder>()
+                .set(PurchaseOrder::getStatus, OrderStatus.COMPLETED)
+                .set(PurchaseOrder::getFinishTime, now)
+                .set(PurchaseOrder::getUpdateTime, now)
+                .setSql("version = version + 1")
+                .eq(PurchaseOrder::getId, order.getId())
+                .eq(PurchaseOrder::getStatus, OrderStatus.DELIVERED));
+        if (!completed) {
+            throw new BusinessException("订单状态已变更，请刷新后重试");
         }
-        
-        // 6. 更新订单状态
-        order.setStatus(OrderStatus.COMPLETED);
-        updateById(order);
-        
-        // 7. 检查合同下所有订单是否都已完成，如果是，则更新合同状态为已完成
-        List<PurchaseOrder> contractOrders = list(
-            new LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getContractId, contract.getId())
-        );
-        
-        boolean allCompleted = contractOrders.stream()
-            .allMatch(o -> o.getStatus() == OrderStatus.COMPLETED || o.getStatus() == OrderStatus.CANCELLED);
-            
-        if (allCompleted) {
-            contract.setStatus(ContractStatus.COMPLETED);
-            contractService.updateById(contract);
+        order.setFinishTime(now);
+        partyStatsService.recordOrderCompleted(order);
+        tradeStatsService.recordOrderCompleted(order);
+        leaderboardService.recordOrderCompleted(order);
+        statusHistogramService.evictOrders();
+        
+        // 合同下所有订单均已完成或取消时，合同置为已完成
+        long unfinished = count(new LambdaQueryWrapper<PurchaseOrder>()
+                .eq(PurchaseOrder::getContractId, order.getContractId())
+                .notIn(PurchaseOrder::getStatus, OrderStatus.COMPLETED, OrderStatus.CANCELLED));
+        if (unfinished == 0) {
+            int updated = contractMapper.update(null, new LambdaUpdateWrapper<PurchaseContract>()
+                    .set(PurchaseContract::getStatus, ContractStatus.COMPLETED)
+                    .set(PurchaseContract::getUpdateTime, LocalDateTime.now())
+                    .setSql("version = version + 1")
+                    .eq(PurchaseContract::getId, order.getContractId())
+                    .ne(PurchaseContract::getStatus, ContractStatus.COMPLETED));
+            if (updated > 0) {
+                log.info("合同下订单均已结束，合同已完成：合同ID={}", order.getContractId());
+            }
         }
     }
     
@@ -223,34 +389,17 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
             throw new BusinessException("只有已交货的订单才能完成，当前订单状态：" + order.getStatus().getDesc());
         }
         
-        // 3. 查询合同
-        PurchaseContract contract = contractService.getById(order.getContractId());
-        if (contract == null) {
-            throw new BusinessException("关联合同不存在");
-        }
-        
-        // 4. 更新订单状态
-        order.setStatus(OrderStatus.COMPLETED);
-        updateById(order);
-        
-        // 5. 检查合同下所有订单是否都已完成，如果是，则更新合同状态为已完成
-        List<PurchaseOrder> contractOrders = list(
-            new LambdaQueryWrapper<PurchaseOrder>()
-                .eq(PurchaseOrder::getContractId, contract.getId())
-        );
-        
-        boolean allCompleted = contractOrders.stream()
-            .allMatch(o -> o.getStatus() == OrderStatus.COMPLETED || o.getStatus() == OrderStatus.CANCELLED);
-            
-        if (allCompleted) {
-            contract.setStatus(ContractStatus.COMPLETED);
-            contractService.updateById(contract);
-        }
+        // 3. 完成订单并汇总合同状态
+        completeDeliveredOrder(order);
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void cancelOrder(Long orderId, String reason) {
+        // 与支付确认、交货等状态流转并发时按版本号冲突重试
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doCancelOrder(orderId, reason));
+    }
+    
+    private void doCancelOrder(Long orderId, String reason) {
         PurchaseOrder order = getById(orderId);
         if (order == null) {
             throw new BusinessException("订单不存在");
@@ -261,7 +410,10 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
         }
         
         order.setStatus(OrderStatus.CANCELLED);
-        updateById(order);
+        order.setFinishTime(LocalDateTime.now());
+        OptimisticLockException.check(updateById(order));
+        tradeStatsService.recordOrderCancelled(order);
+        statusHistogramService.evictOrders();
         
         // 取消订单时释放库存预留（预留即扣减，需要回补库存）
         stockReservationService.releaseReservation(orderId, "订单取消");
@@ -270,71 +422,83 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
     @Override
     public Page<PurchaseOrder> pageOrders(Integer current, Integer size, String status) {
         Page<PurchaseOrder> page = new Page<>(current, size);
+        return page(page, ordersWrapper(status).orderByDesc(PurchaseOrder::getCreateTime));
+    }
+    
+    @Override
+    public CursorPage<PurchaseOrder> pageOrdersByCursor(String after, Integer size, String status) {
+        return KeysetCursor.page(baseMapper, ordersWrapper(status),
+                PurchaseOrder::getCreateTime, PurchaseOrder::getId, after, size);
+    }
+    
+    private LambdaQueryWrapper<PurchaseOrder> ordersWrapper(String status) {
         LambdaQueryWrapper<PurchaseOrder> wrapper = new LambdaQueryWrapper<>();
         
         if (status != null && !status.isEmpty()) {
             wrapper.eq(PurchaseOrder::getStatus, OrderStatus.valueOf(status.toUpperCase()));
         }
-        
-        wrapper.orderByDesc(PurchaseOrder::getCreateTime);
-        return page(page, wrapper);
+        return wrapper;
     }
     
     @Override
     public Page<PurchaseOrder> listMyOrders(Long userId, String role, Integer current, Integer size) {
         Page<PurchaseOrder> page = new Page<>(current, size);
-        LambdaQueryWrapper<PurchaseOrder> wrapper = new LambdaQueryWrapper<>();
-        
-        // 根据角色查询订单
+        LambdaQueryWrapper<PurchaseOrder> wrapper = myOrdersWrapper(userId, role);
+        if (wrapper == null) {
+            return page;
+        }
+        return page(page, wrapper.orderByDesc(PurchaseOrder::getCreateTime));
+    }
+    
+    @Override
+    public CursorPage<PurchaseOrder> listMyOrdersByCursor(Long userId, String role, String after, Integer size) {
+        LambdaQueryWrapper<PurchaseOrder> wrapper = myOrdersWrapper(userId, role);
+        if (wrapper == null) {
+            return new CursorPage<>(List.of(), null, false);
+        }
+        return KeysetCursor.page(baseMapper, wrapper, PurchaseOrder::getCreateTime, PurchaseOrder::getId, after, size);
+    }
+    
+    /**
+     * 我的订单查询条件：农户按卖方合同、采购方按买方合同；没有可见订单时返回 null
+     */
+    private LambdaQueryWrapper<PurchaseOrder> myOrdersWrapper(Long userId, String role) {
+        List<PurchaseContract> contracts;
         if ("farmer".equalsIgnoreCase(role)) {
             // 农户查询：通过合同关联查询他作为卖方的订单
             FarmerInfo farmer = farmerInfoService.getByUserId(userId);
-            if (farmer != null) {
-                // ✅ 修复SQL注入：先查询合同ID列表，再用in查询
-                List<PurchaseContract> contracts = contractService.list(
-                        new LambdaQueryWrapper<PurchaseContract>()
-                                .eq(PurchaseContract::getFarmerId, farmer.getId())
-                                .select(PurchaseContract::getId)
-                );
-                if (!contracts.isEmpty()) {
-                    List<Long> contractIds = contracts.stream()
-                            .map(PurchaseContract::getId)
-                            .collect(java.util.stream.Collectors.toList());
-                    wrapper.in(PurchaseOrder::getContractId, contractIds);
-                } else {
-                    return page(page, new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, -1L));
-                }
-            } else {
-                return page(page, new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, -1L));
+            if (farmer == null) {
+                return null;
             }
+            // ✅ 修复SQL注入：先查询合同ID列表，再用in查询
+            contracts = contractService.list(
+                    new LambdaQueryWrapper<PurchaseContract>()
+                            .eq(PurchaseContract::getFarmerId, farmer.getId())
+                            .select(PurchaseContract::getId)
+            );
         } else if ("purchaser".equalsIgnoreCase(role)) {
             // 采购方查询：通过合同关联查询他作为买方的订单
             PurchaserInfo purchaser = purchaserInfoService.getByUserId(userId);
-            if (purchaser != null) {
-                // ✅ 修复SQL注入：先查询合同ID列表，再用in查询
-                List<PurchaseContract> contracts = contractService.list(
-                        new LambdaQueryWrapper<PurchaseContract>()
-                                .eq(PurchaseContract::getPurchaserId, purchaser.getId())
-                                .select(PurchaseContract::getId)
-                );
-                if (!contracts.isEmpty()) {
-                    List<Long> contractIds = contracts.stream()
-                            .map(PurchaseContract::getId)
-                            .collect(java.util.stream.Collectors.toList());
-                    wrapper.in(PurchaseOrder::getContractId, contractIds);
-                } else {
-                    return page(page, new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, -1L));
-                }
-            } else {
-                return page(page, new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, -1L));
+            if (purchaser == null) {
+                return null;
             }
+            contracts = contractService.list(
+                    new LambdaQueryWrapper<PurchaseContract>()
+                            .eq(PurchaseContract::getPurchaserId, purchaser.getId())
+                            .select(PurchaseContract::getId)
+            );
         } else {
             // 其他角色返回空
-            return page(page, new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getId, -1L));
+            return null;
         }
         
-        wrapper.orderByDesc(PurchaseOrder::getCreateTime);
-        return page(page, wrapper);
+        if (contracts.isEmpty()) {
+            return null;
+        }
+        List<Long> contractIds = contracts.stream()
+                .map(PurchaseContract::getId)
+                .collect(Collectors.toList());
+        return new LambdaQueryWrapper<PurchaseOrder>().in(PurchaseOrder::getContractId, contractIds);
     }
     
     @Override
@@ -364,22 +528,16 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
         return order;
     }
     
-    /**
-     * 生成订单号
-     * 格式: ORD + 年月日时分秒 + 4位随机数
-     */
-    private String generateOrderNo() {
-        String timestamp = DateUtil.format(LocalDateTime.now(), "yyyyMMddHHmmss");
-        int randomNum = (int) (Math.random() * 9000) + 1000; // 生成4位随机数
-        return "ORD" + timestamp + randomNum;
-    }
-    
     /**
      * 农户交货
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void deliverOrder(Long orderId, Integer actualQuantity, String inspectionResult) {
+        // 分批交货累加数量与金额，并发交货时按版本号冲突重试，避免累加丢失
+        optimisticLockRetryTemplate.executeWithoutResult(() -> doDeliverOrder(orderId, actualQuantity, inspectionResult));
+    }
+    
+    private void doDeliverOrder(Long orderId, Integer actualQuantity, String inspectionResult) {
         // 1. 查询订单
         PurchaseOrder order = getById(orderId);
         if (order == null) {
@@ -421,6 +579,8 @@ public class PurchaseOrderServiceImpl extends ServiceImpl<PurchaseOrderMapper, P
         
         // 更新订单状态为已交货
         order.setStatus(OrderStatus.DELIVERED);
-        updateById(order);
+        OptimisticLockException.check(updateById(order));
+        partyStatsService.recordOrderDelivered(order, actualAmount);
+        statusHistogramService.evictOrders();
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.enums.UserRole;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.service.PartyStatsService;
+import cn.aspes.agri.trade.service.RatingSummaryService;
+import cn.aspes.agri.trade.util.TransactionCallbacks;
+import cn.aspes.agri.trade.vo.RatingSummary;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 评分汇总服务实现类
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RatingSummaryServiceImpl implements RatingSummaryService {
+
+    private static final String KEY_PREFIX = "rating:summary:";
+    private static final String FIELD_COUNT = "count";
+    private static final String FIELD_SUM = "sum";
+
+    private final PartyStatsService partyStatsService;
+    private final StringRedisTemplate redisTemplate;
+    private final StatisticsProperties statisticsProperties;
+
+    @Override
+    public void evictSummary(String reviewTo, Long targetId) {
+        String key = cacheKey(reviewTo, targetId);
+        TransactionCallbacks.invalidateAroundCommit(() -> evict(key));
+    }
+
+    @Override
+    public RatingSummary getSummary(String reviewTo, Long targetId) {
+        String key = cacheKey(reviewTo, targetId);
+        try {
+            Map<Object, Object> cached = redisTemplate.opsForHash().entries(key);
+            if (!cached.isEmpty()) {
+                return fromHash(reviewTo, targetId, cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取评分汇总缓存失败，直接查询数据库：{}", key, e);
+        }
+
+        RatingSummary summary = RatingSummary.from(partyStatsService.getStats(reviewTo, targetId));
+        try {
+            redisTemplate.opsForHash().putAll(key, toHash(summary));
+            redisTemplate.expire(key, Duration.ofSeconds(statisticsProperties.getRatingSummaryCacheTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("写入评分汇总缓存失败：{}", key, e);
+        }
+        return summary;
+    }
+
+    @Override
+    public StatisticsVO.RatingDistribution getDistribution(String reviewTo, Long targetId) {
+        if (!UserRole.FARMER.getCode().equals(reviewTo) && !UserRole.PURCHASER.getCode().equals(reviewTo)) {
+            throw new BusinessException("被评价方类型只能是farmer或purchaser");
+        }
+        RatingSummary summary = getSummary(reviewTo, targetId);
+        Map<Integer, Long> starCounts = new LinkedHashMap<>();
+        for (int star = RatingSummary.MIN_STAR; star <= RatingSummary.MAX_STAR; star++) {
+            starCounts.put(star, summary.getStarCount(star));
+        }
+        return new StatisticsVO.RatingDistribution(reviewTo, targetId, summary.getRatingCount(),
+                summary.averageRating(), starCounts);
+    }
+
+    private void evict(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("清除评分汇总缓存失败：{}", key, e);
+        }
+    }
+
+    private static String cacheKey(String reviewTo, Long targetId) {
+        return KEY_PREFIX + reviewTo + ":" + targetId;
+    }
+
+    private static Map<String, String> toHash(RatingSummary summary) {
+        Map<String, String> hash = new HashMap<>();
+        hash.put(FIELD_COUNT, String.valueOf(summary.getRatingCount()));
+        hash.put(FIELD_SUM, String.valueOf(summary.getRatingSum()));
+        for (int star = RatingSummary.MIN_STAR; star <= RatingSummary.MAX_STAR; star++) {
+            hash.put(String.valueOf(star), String.valueOf(summary.getStarCount(star)));
+        }
+        return hash;
+    }
+
+    private static RatingSummary fromHash(String reviewTo, Long targetId, Map<Object, Object> hash) {
+        RatingSummary summary = new RatingSummary(reviewTo, targetId);
+        summary.setRatingCount(Long.parseLong((String) hash.get(FIELD_COUNT)));
+        summary.setRatingSum(Long.parseLong((String) hash.get(FIELD_SUM)));
+        for (int star = RatingSummary.MIN_STAR; star <= RatingSummary.MAX_STAR; star++) {
+            summary.addStar(star, Long.parseLong((String) hash.get(String.valueOf(star))));
+        }
+        return summary;
+    }
+}
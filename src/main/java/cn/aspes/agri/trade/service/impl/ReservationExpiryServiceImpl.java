@@ -0,0 +1,153 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StockReservationProperties;
+import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.enums.ReservationStatus;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.ReservationExpiryService;
+import cn.aspes.agri.trade.util.TransactionCallbacks;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 库存预留过期延迟队列实现
+ *
+ * Redis数据结构：
+ * - stock:reservation:expiry     有序集合，member = 预留ID，score = 过期时间戳（毫秒）
+ *
+ * 领取到期预留时将其分值推迟到租约结束时间，处理成功后删除；
+ * 节点在处理中崩溃时，租约到期后预留会被重新领取。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReservationExpiryServiceImpl implements ReservationExpiryService {
+
+    private static final String EXPIRY_KEY = "stock:reservation:expiry";
+
+    /**
+     * 领取到期预留：取出分值不大于当前时间的至多N个成员，并将分值推迟到租约结束时间
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> POLL_SCRIPT = new DefaultRedisScript<>("""
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            for i = 1, #due do
+                redis.call('ZADD', KEYS[1], ARGV[3], due[i])
+            end
+            return due
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StockReservationMapper stockReservationMapper;
+    private final StockReservationProperties properties;
+
+    @Override
+    public void schedule(Long reservationId, LocalDateTime expiredTime) {
+        if (!properties.isExpiryQueueEnabled()) {
+            return;
+        }
+        runAfterCommit(() -> redisTemplate.opsForZSet().add(EXPIRY_KEY, reservationId.toString(), toEpochMilli(expiredTime)));
+    }
+
+    @Override
+    public void cancel(Long reservationId) {
+        if (!properties.isExpiryQueueEnabled()) {
+            return;
+        }
+        runAfterCommit(() -> redisTemplate.opsForZSet().remove(EXPIRY_KEY, reservationId.toString()));
+    }
+
+    @Override
+    public List<Long> pollDue(int limit) {
+        long now = System.currentTimeMillis();
+        long leaseUntil = now + properties.getExpiryLeaseSeconds() * 1000;
+        @SuppressWarnings("unchecked")
+        List<String> due = redisTemplate.execute(POLL_SCRIPT, List.of(EXPIRY_KEY),
+                String.valueOf(now), String.valueOf(limit), String.valueOf(leaseUntil));
+        if (due == null || due.isEmpty()) {
+            return List.of();
+        }
+        return due.stream().map(Long::valueOf).toList();
+    }
+
+    @Override
+    public void acknowledge(Collection<Long> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForZSet().remove(EXPIRY_KEY, reservationIds.stream().map(String::valueOf).toArray());
+    }
+
+    @Override
+    public int rebuild() {
+        int batchSize = Math.max(1, properties.getExpireBatchSize());
+        long lastId = 0L;
+        int total = 0;
+        while (true) {
+            List<StockReservation> batch = stockReservationMapper.selectList(new LambdaQueryWrapper<StockReservation>()
+                    .select(StockReservation::getId, StockReservation::getExpiredTime)
+                    .eq(StockReservation::getStatus, ReservationStatus.PENDING)
+                    .gt(StockReservation::getId, lastId)
+                    .orderByAsc(StockReservation::getId)
+                    .last("LIMIT " + batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            for (StockReservation reservation : batch) {
+                if (reservation.getExpiredTime() != null) {
+                    tuples.add(new DefaultTypedTuple<>(reservation.getId().toString(),
+                            (double) toEpochMilli(reservation.getExpiredTime())));
+                }
+            }
+            if (!tuples.isEmpty()) {
+                redisTemplate.opsForZSet().add(EXPIRY_KEY, tuples);
+            }
+            total += tuples.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        log.info("库存预留过期队列重建完成：{} 条", total);
+        return total;
+    }
+
+    @Override
+    public long size() {
+        Long size = redisTemplate.opsForZSet().zCard(EXPIRY_KEY);
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 事务提交后再操作Redis；Redis异常只记录日志，由整点兜底任务处理，不影响业务事务
+     */
+    private void runAfterCommit(Runnable action) {
+        Runnable safeAction = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("更新库存预留过期队列失败，由兜底任务处理", e);
+            }
+        };
+        TransactionCallbacks.afterCommit(safeAction);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,119 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.SearchProperties;
+import cn.aspes.agri.trade.entity.FarmerInfo;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.PurchaseDemand;
+import cn.aspes.agri.trade.enums.SearchTarget;
+import cn.aspes.agri.trade.mapper.FarmerInfoMapper;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseDemandMapper;
+import cn.aspes.agri.trade.service.SearchIndexService;
+import cn.aspes.agri.trade.util.JournaledIndex;
+import cn.aspes.agri.trade.util.NgramIndex;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 名称搜索索引服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchIndexServiceImpl implements SearchIndexService {
+
+    private final FarmerProductMapper farmerProductMapper;
+    private final FarmerInfoMapper farmerInfoMapper;
+    private final PurchaseDemandMapper purchaseDemandMapper;
+    private final SearchProperties searchProperties;
+
+    /**
+     * 每类对象一个索引，构造后不再增删键，可无锁读取
+     */
+    private final Map<SearchTarget, JournaledIndex<NgramIndex>> indexes = newIndexes();
+
+    @Override
+    public boolean isReady(SearchTarget target) {
+        return searchProperties.isEnabled() && current(target) != null;
+    }
+
+    @Override
+    public NgramIndex.Hits search(SearchTarget target, String keyword, int pageNum, int pageSize) {
+        NgramIndex index = current(target);
+        if (index == null || keyword == null) {
+            return new NgramIndex.Hits(0, List.of());
+        }
+        if (keyword.length() > searchProperties.getMaxKeywordLength()) {
+            keyword = keyword.substring(0, searchProperties.getMaxKeywordLength());
+        }
+        int offset = (int) Math.min((long) Math.max(pageNum - 1, 0) * pageSize, Integer.MAX_VALUE);
+        return index.search(keyword, offset, pageSize);
+    }
+
+    @Override
+    public void index(SearchTarget target, Long id, String name, LocalDateTime createTime) {
+        if (id == null || name == null) {
+            return;
+        }
+        long sortKey = JournaledIndex.toSortKey(createTime != null ? createTime : LocalDateTime.now());
+        indexes.get(target).update(index -> index.put(id, name, sortKey));
+    }
+
+    @Override
+    public void remove(SearchTarget target, Long id) {
+        if (id == null) {
+            return;
+        }
+        indexes.get(target).update(index -> index.remove(id));
+    }
+
+    @Override
+    public int rebuild(SearchTarget target) {
+        NgramIndex fresh = indexes.get(target).rebuild(new NgramIndex(searchProperties.getMinShouldMatch()),
+                index -> load(target, index));
+        log.info("搜索索引重建完成：{} {} 条", target.getDesc(), fresh.size());
+        return fresh.size();
+    }
+
+    /**
+     * 只查询主键、名称和创建时间
+     */
+    private void load(SearchTarget target, NgramIndex index) {
+        switch (target) {
+            case PRODUCT -> farmerProductMapper.selectList(new LambdaQueryWrapper<FarmerProduct>()
+                            .select(FarmerProduct::getId, FarmerProduct::getName, FarmerProduct::getCreateTime))
+                    .forEach(p -> putIfNamed(index, p.getId(), p.getName(), p.getCreateTime()));
+            case FARMER -> farmerInfoMapper.selectList(new LambdaQueryWrapper<FarmerInfo>()
+                            .select(FarmerInfo::getId, FarmerInfo::getFarmName, FarmerInfo::getCreateTime))
+                    .forEach(f -> putIfNamed(index, f.getId(), f.getFarmName(), f.getCreateTime()));
+            case DEMAND -> purchaseDemandMapper.selectList(new LambdaQueryWrapper<PurchaseDemand>()
+                            .select(PurchaseDemand::getId, PurchaseDemand::getProductName, PurchaseDemand::getCreateTime))
+                    .forEach(d -> putIfNamed(index, d.getId(), d.getProductName(), d.getCreateTime()));
+        }
+    }
+
+    private static void putIfNamed(NgramIndex index, Long id, String name, LocalDateTime createTime) {
+        if (name != null) {
+            index.put(id, name, JournaledIndex.toSortKey(createTime));
+        }
+    }
+
+    private NgramIndex current(SearchTarget target) {
+        return indexes.get(target).current();
+    }
+
+    private static Map<SearchTarget, JournaledIndex<NgramIndex>> newIndexes() {
+        Map<SearchTarget, JournaledIndex<NgramIndex>> indexes = new EnumMap<>(SearchTarget.class);
+        for (SearchTarget target : SearchTarget.values()) {
+            indexes.put(target, new JournaledIndex<>());
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,74 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 基于Redis的分片租约实现
+ *
+ * Redis数据结构：
+ * - sched:lease:{task}:{shard}   租约，值为防护令牌，带过期时间
+ * - sched:lease:{task}:fence     任务级防护令牌计数器
+ */
+@Service
+@RequiredArgsConstructor
+public class ShardLeaseServiceImpl implements ShardLeaseService {
+
+    private static final String LEASE_KEY = "sched:lease:";
+
+    /**
+     * 获取租约：租约不存在时分配新令牌并写入，返回令牌；已被持有返回 0
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            local token = redis.call('INCR', KEYS[2])
+            redis.call('SET', KEYS[1], token, 'PX', ARGV[1])
+            return token
+            """, Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Override
+    public Lease tryAcquire(String task, int shard, Duration ttl) {
+        Long token = redisTemplate.execute(ACQUIRE_SCRIPT,
+                List.of(leaseKey(task, shard), LEASE_KEY + task + ":fence"), String.valueOf(ttl.toMillis()));
+        if (token == null || token == 0) {
+            return null;
+        }
+        return new Lease(task, shard, token);
+    }
+
+    @Override
+    public boolean renew(Lease lease, Duration ttl) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey(lease.task(), lease.shard())),
+                String.valueOf(lease.fencingToken()), String.valueOf(ttl.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    @Override
+    public void release(Lease lease) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(lease.task(), lease.shard())),
+                String.valueOf(lease.fencingToken()));
+    }
+
+    private static String leaseKey(String task, int shard) {
+        return LEASE_KEY + task + ":" + shard;
+    }
+}
@@ -1,12 +1,16 @@
 package cn.aspes.agri.trade.service.impl;
 
+import cn.aspes.agri.trade.config.StatisticsProperties;
 import cn.aspes.agri.trade.entity.*;
-import cn.aspes.agri.trade.enums.OrderStatus;
 import cn.aspes.agri.trade.enums.UserRole;
 import cn.aspes.agri.trade.mapper.*;
+import cn.aspes.agri.trade.service.PartyStatsService;
 import cn.aspes.agri.trade.service.StatisticsService;
+import cn.aspes.agri.trade.service.FarmerActivityService;
 import cn.aspes.agri.trade.service.FarmerInfoService;
 import cn.aspes.agri.trade.service.PurchaserInfoService;
+import cn.aspes.agri.trade.service.RatingSummaryService;
+import cn.aspes.agri.trade.vo.RatingSummary;
 import cn.aspes.agri.trade.vo.StatisticsVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -15,9 +19,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.LocalDateTime;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,68 +30,42 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
     
-    private final UserMapper userMapper;
-    private final PurchaseOrderMapper purchaseOrderMapper;
     private final FarmerProductMapper farmerProductMapper;
     private final PurchaseDemandMapper purchaseDemandMapper;
-    private final CooperationReviewMapper cooperationReviewMapper;
-    private final PurchaseContractMapper purchaseContractMapper;
-    private final FarmerInfoMapper farmerInfoMapper;
-    private final PurchaserInfoMapper purchaserInfoMapper;
-    private final OriginAreaMapper originAreaMapper;
     private final FarmerInfoService farmerInfoService;
     private final PurchaserInfoService purchaserInfoService;
+    private final StatisticsMapper statisticsMapper;
+    private final StatisticsProperties statisticsProperties;
+    private final PartyStatsService partyStatsService;
+    private final ProductSalesMapper productSalesMapper;
+    private final FarmerActivityService farmerActivityService;
+    private final RatingSummaryService ratingSummaryService;
     
-    // 市级农户活跃事件滑动窗口，按城市聚合（内存实现）
-    private final java.util.concurrent.ConcurrentHashMap<String, java.util.concurrent.ConcurrentLinkedQueue<Long>> cityEvents = new java.util.concurrent.ConcurrentHashMap<>();
+    // 平台统计结果短时缓存
+    private final Object platformStatsLock = new Object();
+    private volatile CachedPlatformStats cachedPlatformStats;
     
     @Override
     public StatisticsVO.UserOrderStats getUserOrderStats(Long userId, String role) {
-        StatisticsVO.UserOrderStats stats = new StatisticsVO.UserOrderStats();
-        
-        // 查询用户的所有订单
-        List<PurchaseOrder> orders;
+        // 按主键读取增量维护的主体统计
+        PartyStats partyStats;
         if ("farmer".equalsIgnoreCase(role)) {
             FarmerInfo farmer = farmerInfoService.getByUserId(userId);
             if (farmer == null) {
-                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0);
-            }
-            List<PurchaseContract> contracts = purchaseContractMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseContract>()
-                            .eq(PurchaseContract::getFarmerId, farmer.getId()));
-            List<Long> contractIds = contracts.stream().map(PurchaseContract::getId).toList();
-            if (contractIds.isEmpty()) {
-                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0);
+                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0, BigDecimal.ZERO);
             }
-            orders = purchaseOrderMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseOrder>()
-                            .in(PurchaseOrder::getContractId, contractIds));
+            partyStats = partyStatsService.getStats(UserRole.FARMER.getCode(), farmer.getId());
         } else {
             PurchaserInfo purchaser = purchaserInfoService.getByUserId(userId);
             if (purchaser == null) {
-                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0);
+                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0, BigDecimal.ZERO);
             }
-            List<PurchaseContract> contracts = purchaseContractMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseContract>()
-                            .eq(PurchaseContract::getPurchaserId, purchaser.getId()));
-            List<Long> contractIds = contracts.stream().map(PurchaseContract::getId).toList();
-            if (contractIds.isEmpty()) {
-                return new StatisticsVO.UserOrderStats(0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, 0.0);
-            }
-            orders = purchaseOrderMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseOrder>()
-                            .in(PurchaseOrder::getContractId, contractIds));
+            partyStats = partyStatsService.getStats(UserRole.PURCHASER.getCode(), purchaser.getId());
         }
         
-        // 统计数据
-        long completedOrders = orders.stream()
-                .filter(o -> o.getStatus() == OrderStatus.COMPLETED)
-                .count();
-        long totalOrders = orders.size();
-        BigDecimal totalAmount = orders.stream()
-                .filter(o -> o.getActualAmount() != null)
-                .map(PurchaseOrder::getActualAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long completedOrders = partyStats.getCompletedOrderCount();
+        long totalOrders = partyStats.getOrderCount();
+        BigDecimal totalAmount = partyStats.getDeliveredAmount();
         BigDecimal averageAmount = totalOrders > 0 
                 ? totalAmount.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
@@ -97,13 +73,8 @@ public class StatisticsServiceImpl implements StatisticsService {
                 ? (double) completedOrders / totalOrders * 100
                 : 0.0;
         
-        stats.setCompletedOrders(completedOrders);
-        stats.setTotalOrders(totalOrders);
-        stats.setTotalAmount(totalAmount);
-        stats.setAverageAmount(averageAmount);
-        stats.setCompletionRate(completionRate);
-        
-        return stats;
+        return new StatisticsVO.UserOrderStats(completedOrders, totalOrders, totalAmount, averageAmount,
+                completionRate, partyStats.getPaidAmount());
     }
     
     @Override
@@ -113,239 +84,120 @@ public class StatisticsServiceImpl implements StatisticsService {
             return new StatisticsVO.ProductSalesStats("", 0, BigDecimal.ZERO, 0, 0.0);
         }
 
-        int salesCount = 0;
-        BigDecimal salesAmount = BigDecimal.ZERO;
-        
-        // 查询包含该产品的所有已完成订单
-        List<PurchaseOrder> orders = purchaseOrderMapper.selectList(
-                new LambdaQueryWrapper<PurchaseOrder>()
-                        .eq(PurchaseOrder::getStatus, OrderStatus.COMPLETED));
-        
-        for (PurchaseOrder order : orders) {
-            // 解析 product_info JSON 字段
-            Map<String, Object> productInfo = order.getProductInfo();
-            if (productInfo != null) {
-                Object prodIdObj = productInfo.get("productId");
-                if (prodIdObj != null) {
-                    Long prodId = Long.valueOf(prodIdObj.toString());
-                    if (prodId.equals(productId)) {
-                        Integer quantity = Integer.valueOf(productInfo.get("quantity").toString());
-                        BigDecimal price = new BigDecimal(productInfo.get("price").toString());
-                        salesCount += quantity;
-                        salesAmount = salesAmount.add(price.multiply(new BigDecimal(quantity)));
-                    }
-                }
-            }
+        // 产品销量按主键读取汇总行；尚未汇总时按 (product_id, status) 索引聚合订单
+        ProductSales sales = productSalesMapper.selectByProductId(productId);
+        if (sales == null) {
+            sales = productSalesMapper.aggregateCompleted(productId);
         }
         
-        // 查询评价
-        List<CooperationReview> reviews = cooperationReviewMapper.selectList(
-                new LambdaQueryWrapper<CooperationReview>()
-                        .eq(CooperationReview::getTargetId, product.getFarmerId())
-                        .eq(CooperationReview::getReviewTo, "farmer"));
-        
-        int reviewCount = reviews.size();
-        double averageRating = reviews.isEmpty() ? 0.0 :
-                reviews.stream()
-                        .mapToInt(CooperationReview::getRating)
-                        .average()
-                        .orElse(0.0);
+        // 评价按产品所属农户统计
+        RatingSummary rating = ratingSummaryService.getSummary(UserRole.FARMER.getCode(), product.getFarmerId());
         
         return new StatisticsVO.ProductSalesStats(
                 product.getName(),
-                salesCount,
-                salesAmount,
-                reviewCount,
-                averageRating
+                Math.toIntExact(sales.getSalesQuantity()),
+                sales.getSalesAmount(),
+                rating.getRatingCount().intValue(),
+                rating.averageRating()
         );
     }
     
     @Override
     public StatisticsVO.PlatformStats getPlatformStats() {
-        StatisticsVO.PlatformStats stats = new StatisticsVO.PlatformStats();
-        
-        // 统计总用户数
-        stats.setTotalUsers(userMapper.selectCount(
-                new LambdaQueryWrapper<User>().eq(User::getIsDelete, 0)));
-        
-        // 统计农户数
-        stats.setTotalFarmers(userMapper.selectCount(
-                new LambdaQueryWrapper<User>()
-                        .eq(User::getRole, UserRole.FARMER)
-                        .eq(User::getIsDelete, 0)));
-        
-        // 统计采购方数
-        stats.setTotalPurchasers(userMapper.selectCount(
-                new LambdaQueryWrapper<User>()
-                        .eq(User::getRole, UserRole.PURCHASER)
-                        .eq(User::getIsDelete, 0)));
-        
-        // 统计商品总数
-        stats.setTotalProducts(farmerProductMapper.selectCount(null));
-        
-        // 统计订单总数
-        stats.setTotalOrders(purchaseOrderMapper.selectCount(null));
-        
-        // 统计交易总额
-        List<PurchaseOrder> orders = purchaseOrderMapper.selectList(
-                new LambdaQueryWrapper<PurchaseOrder>()
-                        .eq(PurchaseOrder::getStatus, OrderStatus.COMPLETED));
-        BigDecimal totalAmount = orders.stream()
-                .filter(o -> o.getActualAmount() != null)
-                .map(PurchaseOrder::getActualAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        stats.setTotalTransactionAmount(totalAmount);
-        
-        // 统计今日活跃用户（简化：今日创建的订单数）
-        LocalDate today = LocalDate.now();
-        Long activeToday = purchaseOrderMapper.selectCount(
-                new LambdaQueryWrapper<PurchaseOrder>()
-                        .ge(PurchaseOrder::getCreateTime, today.atStartOfDay()));
-        stats.setActiveUsersToday(activeToday);
+        CachedPlatformStats cached = cachedPlatformStats;
+        if (cached != null && cached.isFresh()) {
+            return cached.stats();
+        }
+        // 缓存失效时只允许一个线程回源，其余线程等待后直接复用结果
+        synchronized (platformStatsLock) {
+            cached = cachedPlatformStats;
+            if (cached != null && cached.isFresh()) {
+                return cached.stats();
+            }
+            StatisticsVO.PlatformStats stats = loadPlatformStats();
+            long ttlMillis = statisticsProperties.getPlatformStatsTtlSeconds() * 1000L;
+            cachedPlatformStats = new CachedPlatformStats(stats, System.currentTimeMillis() + ttlMillis);
+            return stats;
+        }
+    }
+    
+    /**
+     * 以两条聚合查询统计平台数据：用户按角色分组计数，商品与订单汇总
+     */
+    private StatisticsVO.PlatformStats loadPlatformStats() {
+        // 商品总数、订单总数、交易总额、今日活跃（简化：今日创建的订单数）
+        StatisticsVO.PlatformStats stats = statisticsMapper.selectOrderAggregates(LocalDate.now().atStartOfDay());
+        
+        // 按角色统计用户数
+        long totalUsers = 0;
+        long totalFarmers = 0;
+        long totalPurchasers = 0;
+        for (Map<String, Object> row : statisticsMapper.countUsersByRole()) {
+            long count = ((Number) row.get("total")).longValue();
+            String role = String.valueOf(row.get("role"));
+            totalUsers += count;
+            if (UserRole.FARMER.getCode().equals(role)) {
+                totalFarmers = count;
+            } else if (UserRole.PURCHASER.getCode().equals(role)) {
+                totalPurchasers = count;
+            }
+        }
+        stats.setTotalUsers(totalUsers);
+        stats.setTotalFarmers(totalFarmers);
+        stats.setTotalPurchasers(totalPurchasers);
         
         return stats;
     }
     
+    private record CachedPlatformStats(StatisticsVO.PlatformStats stats, long expiresAt) {
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+    
     @Override
     public StatisticsVO.PurchaserStats getPurchaserStats(Long purchaserId) {
         StatisticsVO.PurchaserStats stats = new StatisticsVO.PurchaserStats();
-        
-        PurchaserInfo purchaser = purchaserInfoMapper.selectById(purchaserId);
-        if (purchaser == null) {
-            return stats;
-        }
-        
-        // 查询采购方的所有合同
-        List<PurchaseContract> contracts = purchaseContractMapper.selectList(
-                new LambdaQueryWrapper<PurchaseContract>()
-                        .eq(PurchaseContract::getPurchaserId, purchaserId));
-        List<Long> contractIds = contracts.stream().map(PurchaseContract::getId).toList();
-        
-        if (!contractIds.isEmpty()) {
-            // 查询所有订单
-            List<PurchaseOrder> orders = purchaseOrderMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseOrder>()
-                            .in(PurchaseOrder::getContractId, contractIds));
-            
-            // 统计采购需求
-            long totalDemands = purchaseDemandMapper.selectCount(
-                    new LambdaQueryWrapper<PurchaseDemand>()
-                            .eq(PurchaseDemand::getPurchaserId, purchaserId));
-            stats.setDemandCount(totalDemands);
-            
-            // 统计订单
-            stats.setOrdersCount((long) orders.size());
-            
-            // 统计交易金额
-            BigDecimal totalAmount = orders.stream()
-                    .filter(o -> o.getActualAmount() != null)
-                    .map(PurchaseOrder::getActualAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            stats.setTotalPurchase(totalAmount);
-            
-            // 计算平均订单金额
-            double averageAmount = orders.isEmpty() ? 0.0 :
-                    totalAmount.divide(BigDecimal.valueOf(orders.size()), 2, RoundingMode.HALF_UP).doubleValue();
-            stats.setAverageOrderAmount(averageAmount);
-        }
-        
+        PartyStats partyStats = partyStatsService.getStats(UserRole.PURCHASER.getCode(), purchaserId);
+        
+        // 统计采购需求
+        stats.setDemandCount(purchaseDemandMapper.selectCount(
+                new LambdaQueryWrapper<PurchaseDemand>()
+                        .eq(PurchaseDemand::getPurchaserId, purchaserId)));
+        stats.setOrdersCount(partyStats.getOrderCount());
+        stats.setTotalPurchase(partyStats.getDeliveredAmount());
+        
+        // 计算平均订单金额
+        long ordersCount = partyStats.getOrderCount();
+        stats.setAverageOrderAmount(ordersCount == 0 ? 0.0 :
+                partyStats.getDeliveredAmount().divide(BigDecimal.valueOf(ordersCount), 2, RoundingMode.HALF_UP).doubleValue());
         return stats;
     }
     
     @Override
     public StatisticsVO.FarmerStats getFarmerStats(Long farmerId) {
         StatisticsVO.FarmerStats stats = new StatisticsVO.FarmerStats();
-        
-        FarmerInfo farmer = farmerInfoMapper.selectById(farmerId);
-        if (farmer == null) {
-            return stats;
-        }
+        PartyStats partyStats = partyStatsService.getStats(UserRole.FARMER.getCode(), farmerId);
         
         // 统计产品数量
-        Long productCountLong = farmerProductMapper.selectCount(
+        stats.setProductCount(farmerProductMapper.selectCount(
                 new LambdaQueryWrapper<FarmerProduct>()
-                        .eq(FarmerProduct::getFarmerId, farmerId));
-        stats.setProductCount(productCountLong.intValue());
-        
-        // 查询农户的所有合同
-        List<PurchaseContract> contracts = purchaseContractMapper.selectList(
-                new LambdaQueryWrapper<PurchaseContract>()
-                        .eq(PurchaseContract::getFarmerId, farmerId));
-        List<Long> contractIds = contracts.stream().map(PurchaseContract::getId).toList();
-        
-        if (!contractIds.isEmpty()) {
-            // 查询所有订单
-            List<PurchaseOrder> orders = purchaseOrderMapper.selectList(
-                    new LambdaQueryWrapper<PurchaseOrder>()
-                            .in(PurchaseOrder::getContractId, contractIds));
-            
-            // 统计已完成订单数
-            long completedOrders = orders.stream()
-                    .filter(o -> o.getStatus() == OrderStatus.COMPLETED)
-                    .count();
-            stats.setSalesOrders(completedOrders);
-            
-            // 统计销售额
-            BigDecimal totalAmount = orders.stream()
-                    .filter(o -> o.getActualAmount() != null)
-                    .map(PurchaseOrder::getActualAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            stats.setTotalSales(totalAmount);
-            
-            // 统计平均评分
-            List<CooperationReview> reviews = cooperationReviewMapper.selectList(
-                    new LambdaQueryWrapper<CooperationReview>()
-                            .eq(CooperationReview::getTargetId, farmerId)
-                            .eq(CooperationReview::getReviewTo, "farmer"));
-            double averageRating = reviews.isEmpty() ? 0.0 :
-                    reviews.stream()
-                            .mapToInt(CooperationReview::getRating)
-                            .average()
-                            .orElse(0.0);
-            stats.setAverageRating(averageRating);
-        }
-        
+                        .eq(FarmerProduct::getFarmerId, farmerId)).intValue());
+        stats.setSalesOrders(partyStats.getCompletedOrderCount());
+        stats.setTotalSales(partyStats.getDeliveredAmount());
+        stats.setAverageRating(ratingSummaryService.getSummary(UserRole.FARMER.getCode(), farmerId).averageRating());
         return stats;
     }
     
-    // 记录农户请求活跃事件（市级）
+    // 获取最近N分钟各城市农户活跃度
     @Override
-    public void recordFarmerActivity(Long userId) {
-        try {
-            FarmerInfo farmer = farmerInfoService.getByUserId(userId);
-            if (farmer == null || farmer.getOriginAreaId() == null) {
-                return;
-            }
-            OriginArea area = originAreaMapper.selectById(farmer.getOriginAreaId());
-            String city = (area != null && area.getCity() != null && !area.getCity().isEmpty()) ? area.getCity() : "未知";
-            java.util.concurrent.ConcurrentLinkedQueue<Long> queue = cityEvents.computeIfAbsent(city, k -> new java.util.concurrent.ConcurrentLinkedQueue<>());
-            long ts = System.currentTimeMillis();
-            queue.add(ts);
-        } catch (Exception e) {
-            log.warn("记录农户活跃事件失败 userId={}", userId, e);
-        }
+    public Map<String, Long> getFarmerActivityByCity(int windowMinutes) {
+        return farmerActivityService.countRequestsByCity(windowMinutes);
     }
     
-    // 获取最近N分钟各城市农户活跃度
+    // 获取最近N分钟各城市去重活跃农户数
     @Override
-    public java.util.Map<String, Long> getFarmerActivityByCity(int windowMinutes) {
-        long cutoff = System.currentTimeMillis() - windowMinutes * 60_000L;
-        java.util.Map<String, Long> result = new java.util.HashMap<>();
-        for (java.util.Map.Entry<String, java.util.concurrent.ConcurrentLinkedQueue<Long>> entry : cityEvents.entrySet()) {
-            String city = entry.getKey();
-            java.util.concurrent.ConcurrentLinkedQueue<Long> q = entry.getValue();
-            // 清理过期事件
-            while (!q.isEmpty() && q.peek() < cutoff) {
-                q.poll();
-            }
-            int size = q.size();
-            if (size > 0) {
-                result.put(city, (long) size);
-            } else {
-                // 队列为空则尝试移除该城市，避免内存增长
-                cityEvents.remove(city, q);
-            }
-        }
-        return result;
+    public Map<String, Long> getActiveFarmersByCity(int windowMinutes) {
+        return farmerActivityService.countActiveFarmersByCity(windowMinutes);
     }
-}
\ No newline at end of file
+}
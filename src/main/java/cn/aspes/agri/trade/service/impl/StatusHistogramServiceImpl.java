@@ -0,0 +1,95 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.StatusHistogramService;
+import cn.aspes.agri.trade.util.TransactionCallbacks;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 状态分布统计服务实现类
+ */
+@Slf4j
+@Service
+public class StatusHistogramServiceImpl implements StatusHistogramService {
+    
+    private final StatisticsMapper statisticsMapper;
+    
+    /**
+     * 键为状态枚举类型；同一键并发未命中时只执行一次查询，其余请求等待结果
+     */
+    private final Cache<Class<?>, EnumMap<?, Long>> cache;
+    
+    public StatusHistogramServiceImpl(StatisticsMapper statisticsMapper, StatisticsProperties properties) {
+        this.statisticsMapper = statisticsMapper;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(properties.getStatusHistogramTtlSeconds()))
+                .build();
+    }
+    
+    @Override
+    public EnumMap<OrderStatus, Long> getOrderStatusHistogram() {
+        return histogram(OrderStatus.class, OrderStatus::getCode, statisticsMapper::countOrdersByStatus);
+    }
+    
+    @Override
+    public EnumMap<ProductStatus, Long> getProductStatusHistogram() {
+        return histogram(ProductStatus.class, ProductStatus::getCode, statisticsMapper::countProductsByStatus);
+    }
+    
+    @Override
+    public void evictOrders() {
+        evictAfterCommit(OrderStatus.class);
+    }
+    
+    @Override
+    public void evictProducts() {
+        evictAfterCommit(ProductStatus.class);
+    }
+    
+    /**
+     * 读取缓存的状态分布，返回副本避免调用方修改缓存
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends Enum<E>> EnumMap<E, Long> histogram(Class<E> type, Function<E, String> code,
+                                                           Supplier<List<StatisticsVO.StatusCount>> query) {
+        EnumMap<E, Long> cached = (EnumMap<E, Long>) cache.get(type, k -> load(type, code, query.get()));
+        return new EnumMap<>(cached);
+    }
+    
+    /**
+     * 将分组计数转换为包含全部状态的 EnumMap，未出现的状态计为0，未知状态编码忽略
+     */
+    private static <E extends Enum<E>> EnumMap<E, Long> load(Class<E> type, Function<E, String> code,
+                                                             List<StatisticsVO.StatusCount> rows) {
+        EnumMap<E, Long> histogram = new EnumMap<>(type);
+        for (E status : type.getEnumConstants()) {
+            histogram.put(status, 0L);
+        }
+        for (StatisticsVO.StatusCount row : rows) {
+            for (E status : type.getEnumConstants()) {
+                if (code.apply(status).equals(row.getStatus())) {
+                    histogram.put(status, row.getTotal());
+                    break;
+                }
+            }
+        }
+        return histogram;
+    }
+    
+    private void evictAfterCommit(Class<?> type) {
+        TransactionCallbacks.invalidateAroundCommit(() -> cache.invalidate(type));
+    }
+}
@@ -1,14 +1,17 @@
 package cn.aspes.agri.trade.service.impl;
 
-import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.entity.StockReservation;
 import cn.aspes.agri.trade.enums.ReservationStatus;
 import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
 import cn.aspes.agri.trade.mapper.StockReservationMapper;
 import cn.aspes.agri.trade.service.FarmerProductService;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.ReservationExpiryService;
 import cn.aspes.agri.trade.service.StockReservationService;
 import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * 库存预留服务实现
@@ -27,16 +34,12 @@ public class StockReservationServiceImpl extends ServiceImpl<StockReservationMap
     
     private final FarmerProductService farmerProductService;
     private final SnowflakeIdGenerator idGenerator;
+    private final HotStockService hotStockService;
+    private final ReservationExpiryService reservationExpiryService;
     
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long reserveStock(Long orderId, Long productId, Integer quantity) {
-        // 检查产品是否存在
-        FarmerProduct product = farmerProductService.getById(productId);
-        if (product == null) {
-            throw new BusinessException("产品不存在");
-        }
-        
         // 检查是否已预留过（订单+商品唯一）
         StockReservation existing = getOne(new LambdaQueryWrapper<StockReservation>()
                 .eq(StockReservation::getOrderId, orderId)
@@ -45,14 +48,6 @@ public class StockReservationServiceImpl extends ServiceImpl<StockReservationMap
             throw new BusinessException("该订单的库存已预留，请勿重复操作");
         }
 
-        // 预留即扣减：在同一事务中减少可售库存，避免超卖
-        if (product.getStock() < quantity) {
-            throw new BusinessException("库存不足，无法预留");
-        }
-        product.setStock(product.getStock() - quantity);
-        farmerProductService.updateById(product);
-
-        // 创建预留记录
         StockReservation reservation = new StockReservation();
         reservation.setId(idGenerator.nextId());
         reservation.setOrderId(orderId);
@@ -62,13 +57,93 @@ public class StockReservationServiceImpl extends ServiceImpl<StockReservationMap
 
         // 预留24小时后自动过期（如未支付）
         reservation.setExpiredTime(LocalDateTime.now().plusHours(24));
+
+        if (hotStockService.isHotProduct(productId)) {
+            // 热点产品：Redis原子预扣减，预留记录与数据库库存由落库队列异步批量写入
+            hotStockService.reserve(reservation);
+            reservationExpiryService.schedule(reservation.getId(), reservation.getExpiredTime());
+            log.info("热点库存预留成功：订单={}, 产品={}, 数量={}", orderId, productId, quantity);
+            return reservation.getId();
+        }
+
+        // 预留即扣减：单条条件UPDATE（stock >= quantity）原子扣减，避免并发读-改-写超卖
+        if (!farmerProductService.decreaseStock(productId, quantity)) {
+            if (farmerProductService.getById(productId) == null) {
+                throw new BusinessException("产品不存在");
+            }
+            throw new BusinessException("库存不足，无法预留");
+        }
         
         save(reservation);
+        reservationExpiryService.schedule(reservation.getId(), reservation.getExpiredTime());
         log.info("库存预留成功：订单={}, 产品={}, 数量={}", orderId, productId, quantity);
         
         return reservation.getId();
     }
     
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<StockReservation> reserveStockBatch(List<StockReservation> reservations) {
+        if (reservations == null || reservations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        long[] ids = idGenerator.nextIds(reservations.size());
+        LocalDateTime expiredTime = LocalDateTime.now().plusHours(24);
+        // 按产品ID有序分组，多个批次并发时以相同顺序加行锁，避免死锁
+        Map<Long, List<StockReservation>> byProduct = new TreeMap<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            StockReservation reservation = reservations.get(i);
+            reservation.setId(ids[i]);
+            reservation.setStatus(ReservationStatus.PENDING);
+            reservation.setExpiredTime(expiredTime);
+            byProduct.computeIfAbsent(reservation.getProductId(), k -> new ArrayList<>()).add(reservation);
+        }
+        
+        List<StockReservation> reserved = new ArrayList<>();
+        List<StockReservation> toSave = new ArrayList<>();
+        for (Map.Entry<Long, List<StockReservation>> entry : byProduct.entrySet()) {
+            Long productId = entry.getKey();
+            List<StockReservation> group = entry.getValue();
+            
+            if (hotStockService.isHotProduct(productId)) {
+                // 热点产品：逐条Redis原子预扣减，预留记录由落库队列写入
+                for (StockReservation reservation : group) {
+                    try {
+                        hotStockService.reserve(reservation);
+                        reserved.add(reservation);
+                    } catch (BusinessException e) {
+                        log.warn("批量预留失败：订单={}, 产品={}, 原因={}", reservation.getOrderId(), productId, e.getMessage());
+                    }
+                }
+                continue;
+            }
+            
+            int total = group.stream().mapToInt(StockReservation::getReservedQuantity).sum();
+            if (farmerProductService.decreaseStock(productId, total)) {
+                toSave.addAll(group);
+                continue;
+            }
+            // 合并扣减失败（库存不足以满足全部），逐条扣减尽量满足
+            for (StockReservation reservation : group) {
+                if (farmerProductService.decreaseStock(productId, reservation.getReservedQuantity())) {
+                    toSave.add(reservation);
+                } else {
+                    log.warn("批量预留失败：订单={}, 产品={}, 原因=库存不足", reservation.getOrderId(), productId);
+                }
+            }
+        }
+        
+        if (!toSave.isEmpty()) {
+            saveBatch(toSave);
+            reserved.addAll(toSave);
+        }
+        reserved.forEach(reservation -> reservationExpiryService.schedule(reservation.getId(), reservation.getExpiredTime()));
+        log.info("批量库存预留完成：请求={}, 成功={}", reservations.size(), reserved.size());
+        
+        return reserved;
+    }
+    
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void releaseReservation(Long orderId, String reason) {
@@ -78,24 +153,22 @@ public class StockReservationServiceImpl extends ServiceImpl<StockReservationMap
             return;
         }
         
-        if (reservation.getStatus() == ReservationStatus.RELEASED
-                || reservation.getStatus() == ReservationStatus.EXPIRED
-                || reservation.getStatus() == ReservationStatus.CONFIRMED) {
-            log.warn("预留已非待预留状态，请勿重复操作：预留={}, 状态={}", reservation.getId(), reservation.getStatus());
+        // 带状态条件更新，只有仍为PENDING的预留才能释放，防止并发重复回补库存
+        boolean released = update(new LambdaUpdateWrapper<StockReservation>()
+                .set(StockReservation::getStatus, ReservationStatus.RELEASED)
+                .set(StockReservation::getReleaseReason, reason)
+                .setSql("version = version + 1")
+                .eq(StockReservation::getId, reservation.getId())
+                .eq(StockReservation::getStatus, ReservationStatus.PENDING));
+        if (!released) {
+            log.warn("预留已非待预留状态，请勿重复操作：预留={}", reservation.getId());
             return;
         }
         
         // 回补库存（预留即扣减，对应释放必须恢复）
-        FarmerProduct product = farmerProductService.getById(reservation.getProductId());
-        if (product != null) {
-            product.setStock(product.getStock() + reservation.getReservedQuantity());
-            farmerProductService.updateById(product);
-        }
-
-        // 释放预留
-        reservation.setStatus(ReservationStatus.RELEASED);
-        reservation.setReleaseReason(reason);
-        updateById(reservation);
+        farmerProductService.increaseStock(reservation.getProductId(), reservation.getReservedQuantity());
+        hotStockService.restoreStock(reservation.getProductId(), reservation.getReservedQuantity());
+        reservationExpiryService.cancel(reservation.getId());
         
         log.info("库存预留释放成功：预留={}, 原因={}", reservation.getId(), reason);
     }
@@ -117,15 +190,25 @@ public class StockReservationServiceImpl extends ServiceImpl<StockReservationMap
         // 预留阶段已经扣减库存，这里只更新状态为已确认
         // 更新预留状态为已确认
         reservation.setStatus(ReservationStatus.CONFIRMED);
-        updateById(reservation);
+        // 版本号条件更新，防止与过期释放并发时把已释放（库存已回补）的预留改回已确认
+        OptimisticLockException.check(updateById(reservation));
+        reservationExpiryService.cancel(reservationId);
         
         log.info("库存预留已确认：产品={}, 数量={}", reservation.getProductId(), reservation.getReservedQuantity());
     }
     
     @Override
     public StockReservation getActiveReservationByOrderId(Long orderId) {
-        return getOne(new LambdaQueryWrapper<StockReservation>()
+        LambdaQueryWrapper<StockReservation> wrapper = new LambdaQueryWrapper<StockReservation>()
                 .eq(StockReservation::getOrderId, orderId)
-                .eq(StockReservation::getStatus, ReservationStatus.PENDING));
+                .eq(StockReservation::getStatus, ReservationStatus.PENDING);
+        StockReservation reservation = getOne(wrapper);
+        if (reservation == null) {
+            // 热点产品的预留可能仍在Redis中未落库：按订单立即落库（失败时抛出异常，不静默返回空）；
+            // 也可能刚由其他节点落库，外层事务快照看不到，因此总是以当前读再查一次
+            hotStockService.persistOrderReservation(orderId);
+            reservation = getOne(wrapper.last("FOR UPDATE"));
+        }
+        return reservation;
     }
 }
\ No newline at end of file
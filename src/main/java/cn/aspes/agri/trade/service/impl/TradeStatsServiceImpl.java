@@ -0,0 +1,145 @@
+package cn.aspes.agri.trade.service.impl;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.dto.TradeTrendRequest;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.entity.TradeStatsDaily;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.TradeStatsMapper;
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import cn.aspes.agri.trade.service.TradeStatsService;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 交易趋势统计服务实现类
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TradeStatsServiceImpl implements TradeStatsService {
+    
+    private static final String BACKFILL_TASK = "trade-stats-backfill";
+    
+    private final TradeStatsMapper tradeStatsMapper;
+    private final StatisticsProperties statisticsProperties;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardLeaseService shardLeaseService;
+    
+    @Override
+    public void recordOrderCompleted(PurchaseOrder order) {
+        long quantity = order.getActualQuantity() != null ? order.getActualQuantity() : order.getQuantity();
+        BigDecimal amount = order.getActualAmount() != null ? order.getActualAmount() : order.getTotalAmount();
+        record(order, OrderStatus.COMPLETED, quantity, amount);
+    }
+    
+    @Override
+    public void recordOrderCancelled(PurchaseOrder order) {
+        record(order, OrderStatus.CANCELLED, order.getQuantity(), order.getTotalAmount());
+    }
+    
+    @Override
+    public List<StatisticsVO.TradeTrendPoint> getTradeTrend(TradeTrendRequest request) {
+        if (request.getFrom().isAfter(request.getTo())) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        // 限制桶数，保证查询扫描的汇总行数有上界
+        long buckets = switch (request.getGranularity()) {
+            case "week" -> ChronoUnit.WEEKS.between(request.getFrom(), request.getTo()) + 1;
+            case "month" -> ChronoUnit.MONTHS.between(request.getFrom().withDayOfMonth(1), request.getTo()) + 1;
+            default -> ChronoUnit.DAYS.between(request.getFrom(), request.getTo()) + 1;
+        };
+        if (buckets > statisticsProperties.getTradeTrendMaxBuckets()) {
+            throw new BusinessException("查询时间范围过大，最多" + statisticsProperties.getTradeTrendMaxBuckets()
+                    + "个时间桶，请缩小范围或使用更粗的粒度");
+        }
+        List<StatisticsVO.TradeTrendPoint> points = tradeStatsMapper.selectTrend(request.getGranularity(),
+                request.getGroupBy(), request.getStatus(), request.getFrom(), request.getTo(),
+                request.getCategoryId(), request.getProvince());
+        for (StatisticsVO.TradeTrendPoint point : points) {
+            if (point.getQuantity() != null && point.getQuantity() > 0) {
+                point.setAveragePrice(point.getGmv().divide(BigDecimal.valueOf(point.getQuantity()), 2, RoundingMode.HALF_UP));
+            }
+        }
+        return points;
+    }
+    
+    @Override
+    public long backfill() {
+        Duration leaseTtl = Duration.ofSeconds(statisticsProperties.getTradeBackfillLeaseSeconds());
+        ShardLeaseService.Lease lease = shardLeaseService.tryAcquire(BACKFILL_TASK, 0, leaseTtl);
+        if (lease == null) {
+            throw new BusinessException("交易趋势回填正在其他节点执行");
+        }
+        try {
+            return doBackfill(lease, leaseTtl);
+        } finally {
+            try {
+                shardLeaseService.release(lease);
+            } catch (Exception e) {
+                log.warn("释放交易趋势回填租约失败", e);
+            }
+        }
+    }
+    
+    private long doBackfill(ShardLeaseService.Lease lease, Duration leaseTtl) {
+        long start = System.currentTimeMillis();
+        // 只替换回填行；写入了完成时间的订单已由增量维护计入，回填只处理其余历史订单，两者不重叠。
+        // 分段结果先写入暂存行，回填期间查询仍读取上一次的回填行，全部完成后在一个事务内切换
+        tradeStatsMapper.deleteBackfillStaging();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunkSize = statisticsProperties.getTradeBackfillChunkSize();
+        long afterId = 0;
+        long scanned = 0;
+        while (true) {
+            if (!shardLeaseService.renew(lease, leaseTtl)) {
+                throw new BusinessException("交易趋势回填租约已失效，已停止");
+            }
+            List<Long> ids = tradeStatsMapper.selectIdChunk(afterId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long from = afterId;
+            long toId = ids.get(ids.size() - 1);
+            Integer rows = transactionTemplate.execute(status -> {
+                List<TradeStatsDaily> chunk = tradeStatsMapper.aggregateOrders(from, toId);
+                chunk.forEach(tradeStatsMapper::incrementBackfill);
+                return chunk.size();
+            });
+            scanned += ids.size();
+            afterId = toId;
+            log.debug("交易趋势回填进度：订单ID<={}，本段汇总行数={}", toId, rows);
+        }
+        if (!shardLeaseService.renew(lease, leaseTtl)) {
+            throw new BusinessException("交易趋势回填租约已失效，已停止");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            tradeStatsMapper.deleteBackfill();
+            tradeStatsMapper.publishBackfillStaging();
+        });
+        log.info("交易趋势回填完成：扫描订单{}条，耗时{}ms", scanned, System.currentTimeMillis() - start);
+        return scanned;
+    }
+    
+    private void record(PurchaseOrder order, OrderStatus status, long quantity, BigDecimal amount) {
+        TradeStatsDaily delta = new TradeStatsDaily();
+        delta.setStatDate(order.getFinishTime() != null ? order.getFinishTime().toLocalDate() : LocalDate.now());
+        delta.setStatus(status.getCode());
+        delta.setOrderCount(1L);
+        delta.setTotalQuantity(quantity);
+        delta.setTotalAmount(amount);
+        tradeStatsMapper.incrementByProduct(order.getProductId(), delta);
+    }
+}
@@ -0,0 +1,104 @@
+package cn.aspes.agri.trade.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 请求活跃事件环形缓冲区（多生产者、单消费者）
+ *
+ * 事件字段按列保存在预分配的基本类型数组中，发布时不创建对象。
+ * 每个槽位带序号：生产者CAS推进写游标后写入字段并发布序号，
+ * 消费者按序号判断槽位是否可读，读完后将序号推进一圈交还生产者。
+ * 缓冲区满时发布直接失败，由调用方计数丢弃，不阻塞请求线程。
+ */
+public final class ActivityRingBuffer {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] userIds;
+    private final long[] timestamps;
+    private final int[] endpointIds;
+    private final long[] latencies;
+    private final boolean[] farmers;
+
+    private final AtomicLong tail = new AtomicLong();
+    /** 仅消费者线程读写 */
+    private long head;
+
+    public ActivityRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("capacity must be between 2 and 16777216");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.userIds = new long[size];
+        this.timestamps = new long[size];
+        this.endpointIds = new int[size];
+        this.latencies = new long[size];
+        this.farmers = new boolean[size];
+    }
+
+    /**
+     * 发布事件，缓冲区满时返回 false
+     */
+    public boolean offer(long userId, boolean farmer, int endpointId, long timestamp, long latencyMicros) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff < 0) {
+                return false;
+            }
+            if (diff == 0 && tail.compareAndSet(position, position + 1)) {
+                userIds[index] = userId;
+                farmers[index] = farmer;
+                endpointIds[index] = endpointId;
+                timestamps[index] = timestamp;
+                latencies[index] = latencyMicros;
+                // 序号写入在字段之后，对消费者形成发布屏障
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 批量取出已发布的事件，只能由单个消费者线程调用
+     *
+     * @return 本次取出的事件数
+     */
+    public int drain(Consumer consumer, int maxEvents) {
+        int drained = 0;
+        while (drained < maxEvents) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            consumer.accept(userIds[index], farmers[index], endpointIds[index], timestamps[index], latencies[index]);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 当前积压的事件数（近似值）
+     */
+    public long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long userId, boolean farmer, int endpointId, long timestamp, long latencyMicros);
+    }
+}
@@ -0,0 +1,216 @@
+package cn.aspes.agri.trade.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存位图筛选索引
+ *
+ * 每个文档分配一个连续的槽位，每个维度的每个取值对应一个位图（槽位集合）。
+ * 同一维度内多个取值为“或”，不同维度之间为“且”；
+ * 某个维度的计数只应用其他维度的筛选条件，因此已选维度仍能看到其余取值的数量。
+ * 删除的槽位回收复用，位图大小与文档数同阶。
+ */
+public final class FacetBitmapIndex<F extends Enum<F>> {
+
+    private final Class<F> facetType;
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private final Map<F, Map<String, BitSet>> bitmaps;
+    private final Map<Integer, Map<F, String>> slotValues = new HashMap<>();
+    private long[] ids = new long[64];
+    private long[] sortKeys = new long[64];
+    private int slotCount;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FacetBitmapIndex(Class<F> facetType) {
+        this.facetType = facetType;
+        this.bitmaps = new EnumMap<>(facetType);
+        for (F facet : facetType.getEnumConstants()) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * 新增或替换文档
+     *
+     * @param values  各维度的取值，缺少或为 null 的维度不参与该维度的筛选与计数
+     * @param sortKey 结果排序值，越大越靠前（如创建时间）
+     */
+    public void put(long id, Map<F, String> values, long sortKey) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                clearSlot(slot);
+            } else {
+                slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+                ensureCapacity(slot + 1);
+                slots.put(id, slot);
+            }
+            ids[slot] = id;
+            sortKeys[slot] = sortKey;
+            live.set(slot);
+            Map<F, String> stored = new EnumMap<>(facetType);
+            for (Map.Entry<F, String> entry : values.entrySet()) {
+                if (entry.getValue() != null) {
+                    bitmaps.get(entry.getKey()).computeIfAbsent(entry.getValue(), k -> new BitSet()).set(slot);
+                    stored.put(entry.getKey(), entry.getValue());
+                }
+            }
+            slotValues.put(slot, stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(id);
+            if (slot != null) {
+                clearSlot(slot);
+                live.clear(slot);
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按筛选条件查询
+     *
+     * @param filters 各维度选中的取值，未出现或为空的维度不筛选
+     * @param offset  跳过的文档数
+     * @param limit   返回的最大文档数
+     */
+    public Result<F> query(Map<F, ? extends Collection<String>> filters, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<F, BitSet> masks = new EnumMap<>(facetType);
+            for (Map.Entry<F, ? extends Collection<String>> entry : filters.entrySet()) {
+                if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                BitSet mask = new BitSet();
+                Map<String, BitSet> values = bitmaps.get(entry.getKey());
+                for (String value : entry.getValue()) {
+                    BitSet bits = values.get(value);
+                    if (bits != null) {
+                        mask.or(bits);
+                    }
+                }
+                masks.put(entry.getKey(), mask);
+            }
+
+            BitSet matched = intersect(masks, null);
+            Map<F, Map<String, Long>> counts = new EnumMap<>(facetType);
+            for (F facet : facetType.getEnumConstants()) {
+                BitSet base = masks.containsKey(facet) ? intersect(masks, facet) : matched;
+                counts.put(facet, count(bitmaps.get(facet), base));
+            }
+            return new Result<>(matched.cardinality(), page(matched, offset, limit), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在线文档与除 excluded 外所有维度条件的交集
+     */
+    private BitSet intersect(Map<F, BitSet> masks, F excluded) {
+        BitSet result = (BitSet) live.clone();
+        for (Map.Entry<F, BitSet> entry : masks.entrySet()) {
+            if (entry.getKey() != excluded) {
+                result.and(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 各取值在 base 中的数量，数量为 0 的取值不返回；按数量降序、取值升序
+     */
+    private static Map<String, Long> count(Map<String, BitSet> values, BitSet base) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, BitSet> entry : values.entrySet()) {
+            BitSet bits = (BitSet) entry.getValue().clone();
+            bits.and(base);
+            int cardinality = bits.cardinality();
+            if (cardinality > 0) {
+                entries.add(Map.entry(entry.getKey(), (long) cardinality));
+            }
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        entries.forEach(e -> counts.put(e.getKey(), e.getValue()));
+        return counts;
+    }
+
+    /**
+     * 命中文档按排序值降序、ID降序分页
+     */
+    private List<Long> page(BitSet matched, int offset, int limit) {
+        List<Integer> hits = new ArrayList<>(matched.cardinality());
+        for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+            hits.add(slot);
+        }
+        hits.sort(Comparator.<Integer>comparingLong(slot -> sortKeys[slot]).reversed()
+                .thenComparing(Comparator.<Integer>comparingLong(slot -> ids[slot]).reversed()));
+        return hits.stream().skip(Math.max(offset, 0)).limit(Math.max(limit, 0)).map(slot -> ids[slot]).toList();
+    }
+
+    private void clearSlot(int slot) {
+        Map<F, String> stored = slotValues.remove(slot);
+        if (stored == null) {
+            return;
+        }
+        for (Map.Entry<F, String> entry : stored.entrySet()) {
+            Map<String, BitSet> values = bitmaps.get(entry.getKey());
+            BitSet bits = values.get(entry.getValue());
+            if (bits != null) {
+                bits.clear(slot);
+                if (bits.isEmpty()) {
+                    values.remove(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newLength = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newLength);
+            sortKeys = Arrays.copyOf(sortKeys, newLength);
+        }
+    }
+
+    /**
+     * 查询结果：命中总数、当前页的文档ID与各维度取值计数
+     */
+    public record Result<F extends Enum<F>>(long total, List<Long> ids, Map<F, Map<String, Long>> counts) {
+    }
+}
@@ -0,0 +1,114 @@
+package cn.aspes.agri.trade.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * HyperLogLog 基数估计
+ *
+ * 以固定 2^precision 字节的寄存器估计不重复元素个数，标准误差约 1.04/√(2^precision)。
+ * 寄存器以CAS取最大值更新，多线程并发写入无锁；两个草图按寄存器取最大值即可合并，
+ * 因此各节点的草图可序列化后汇总为全局去重计数。
+ */
+public final class HyperLogLog {
+
+    private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复草图
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision) {
+            throw new IllegalArgumentException("invalid register length: " + bytes.length);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        System.arraycopy(bytes, 0, sketch.registers, 0, bytes.length);
+        return sketch;
+    }
+
+    public void offer(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        // 低位补1保证秩不超过 64 - precision + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        updateMax(index, (byte) (Long.numberOfLeadingZeros(rest) + 1));
+    }
+
+    /**
+     * 合并另一个同精度的草图
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("precision mismatch");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            byte value = (byte) REGISTER.getVolatile(other.registers, i);
+            if (value > 0) {
+                updateMax(i, value);
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            byte value = (byte) REGISTER.getVolatile(registers, i);
+            sum += 1.0 / (1L << value);
+            if (value == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // 小基数时使用线性计数修正
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        byte[] copy = new byte[registers.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) REGISTER.getVolatile(registers, i);
+        }
+        return copy;
+    }
+
+    private void updateMax(int index, byte value) {
+        byte current;
+        do {
+            current = (byte) REGISTER.getVolatile(registers, index);
+            if (current >= value) {
+                return;
+            }
+        } while (!REGISTER.compareAndSet(registers, index, current, value));
+    }
+
+    /**
+     * 64位哈希混合（MurmurHash3 fmix64），使连续ID的哈希均匀分布
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,30 @@
+package cn.aspes.agri.trade.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 按给定ID顺序排列记录
+ *
+ * 先确定一页ID（如检索命中、键集分页）再按主键批量查询时，IN 查询不保证返回顺序，需按ID列表重新排列
+ */
+public final class IdOrder {
+
+    private IdOrder() {
+    }
+
+    /**
+     * 将按主键查询到的记录按 ids 的顺序排列，查询时已不存在的记录跳过
+     */
+    public static <T> List<T> arrange(List<Long> ids, Collection<T> rows, Function<T, Long> idGetter) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idGetter.apply(row), row);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package cn.aspes.agri.trade.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 可在线重建的内存索引持有者
+ *
+ * 写入在事务提交后应用到当前索引；重建期间写入同时记入日志，新索引加载完成后补录再切换。
+ * 写入、补录与切换在本对象上同步，读取当前索引不加锁。
+ *
+ * @param <T> 索引类型
+ */
+public final class JournaledIndex<T> {
+
+    /**
+     * 当前使用的索引，未建好时为 null
+     */
+    private volatile T current;
+
+    /**
+     * 重建期间记录的写入，切换前在新索引上补录
+     */
+    private List<Consumer<T>> journal;
+
+    public T current() {
+        return current;
+    }
+
+    /**
+     * 事务提交后应用一次写入，不在事务中时立即应用
+     */
+    public void update(Consumer<T> change) {
+        TransactionCallbacks.afterCommit(() -> apply(change));
+    }
+
+    /**
+     * 用 loader 加载新索引后切换；加载失败时保留原索引
+     */
+    public T rebuild(T fresh, Consumer<T> loader) {
+        synchronized (this) {
+            journal = new ArrayList<>();
+        }
+        try {
+            loader.accept(fresh);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                journal = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // 查询开始后提交的写入可能不在结果中，按发生顺序补录
+            journal.forEach(change -> change.accept(fresh));
+            journal = null;
+            current = fresh;
+        }
+        return fresh;
+    }
+
+    /**
+     * 按创建时间排序的排序键，时间为空时排在最后
+     */
+    public static long toSortKey(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    private synchronized void apply(Consumer<T> change) {
+        if (current != null) {
+            change.accept(current);
+        }
+        if (journal != null) {
+            journal.add(change);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cn.aspes.agri.trade.util;
+
+import cn.aspes.agri.trade.common.CursorPage;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标（keyset）分页
+ *
+ * 游标是上一页最后一条记录的（时间, ID）经 Base64 编码后的字符串，对客户端不透明。
+ * 下一页查询 (时间 &lt; t) OR (时间 = t AND ID &lt; id)，按（时间, ID）倒序取 size + 1 条判断是否还有下一页，
+ * 不使用 OFFSET，也不执行 COUNT 查询，配合以时间列开头的索引，每页耗时与翻页深度无关。
+ */
+public final class KeysetCursor {
+
+    private static final int DEFAULT_SIZE = 10;
+    private static final int MAX_SIZE = 100;
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static Position decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("分页游标无效");
+            }
+            return new Position(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("分页游标无效");
+        }
+    }
+
+    /**
+     * 按（时间, ID）倒序查询 after 之后的一页
+     *
+     * @param wrapper    筛选条件，不应包含排序
+     * @param timeColumn 排序时间列，记录中不能为 null
+     * @param after      上一页的 next 游标，为空时查询首页
+     */
+    public static <T> CursorPage<T> page(BaseMapper<T> mapper, LambdaQueryWrapper<T> wrapper,
+                                         SFunction<T, LocalDateTime> timeColumn, SFunction<T, Long> idColumn,
+                                         String after, Integer size) {
+        int limit = size == null ? DEFAULT_SIZE : Math.max(1, Math.min(size, MAX_SIZE));
+        if (StringUtils.hasText(after)) {
+            Position position = decode(after);
+            wrapper.and(w -> w.lt(timeColumn, position.time())
+                    .or(o -> o.eq(timeColumn, position.time()).lt(idColumn, position.id())));
+        }
+        wrapper.orderByDesc(timeColumn).orderByDesc(idColumn).last("LIMIT " + (limit + 1));
+
+        List<T> rows = mapper.selectList(wrapper);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> records = new ArrayList<>(rows.subList(0, limit));
+        T last = records.get(limit - 1);
+        return new CursorPage<>(records, encode(timeColumn.apply(last), idColumn.apply(last)), true);
+    }
+
+    /**
+     * 游标位置：上一页最后一条记录的时间与ID
+     */
+    public record Position(LocalDateTime time, long id) {
+    }
+}
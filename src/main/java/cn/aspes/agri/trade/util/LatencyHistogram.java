@@ -0,0 +1,85 @@
+package cn.aspes.agri.trade.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的延迟直方图
+ *
+ * 桶上界按 1-2-5 递增（微秒），共享实例可被多线程并发累加与读取，
+ * 分位数取所在桶的上界，精度为相邻桶的比例，超过10秒的样本按10秒计。
+ */
+public final class LatencyHistogram {
+
+    private static final long[] BOUNDS = {
+            100, 200, 500,
+            1_000, 2_000, 5_000,
+            10_000, 20_000, 50_000,
+            100_000, 200_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000,
+            10_000_000, Long.MAX_VALUE
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length);
+
+    public void record(long micros) {
+        counts.incrementAndGet(bucketOf(micros));
+    }
+
+    /**
+     * 累加批次内的局部计数
+     */
+    public void add(long[] batchCounts) {
+        for (int i = 0; i < batchCounts.length; i++) {
+            if (batchCounts[i] > 0) {
+                counts.addAndGet(i, batchCounts[i]);
+            }
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * 分位数对应的延迟上界（微秒），无样本时返回 0
+     *
+     * @param quantile 0~1
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return BOUNDS[Math.min(i, BOUNDS.length - 2)];
+            }
+        }
+        return BOUNDS[BOUNDS.length - 2];
+    }
+
+    public static int bucketCount() {
+        return BOUNDS.length;
+    }
+
+    public static int bucketOf(long micros) {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (micros <= BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS.length - 1;
+    }
+}
@@ -0,0 +1,224 @@
+package cn.aspes.agri.trade.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存 n-gram 倒排索引
+ *
+ * 文本归一化（小写、全角转半角、去除空白和标点）后按单字与相邻双字切分为词项，
+ * 汉字同时按拼音首字母串切分，建立 词项 -> 文档ID 的倒排表。
+ * 查询按双字切分（单字查询按单字），命中查询词项的比例不低于 minShouldMatch 即为候选，
+ * 因此可容忍错字、多字等模糊输入；候选按覆盖率、子串/前缀命中、名称长度计算相关度排序。
+ */
+public final class NgramIndex {
+
+    /**
+     * 拼音首字母词项的前缀，与文本词项区分
+     */
+    private static final char INITIALS_MARK = '\u0001';
+
+    private final double minShouldMatch;
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param minShouldMatch 候选文档至少命中的查询词项比例，取值 (0, 1]
+     */
+    public NgramIndex(double minShouldMatch) {
+        if (minShouldMatch <= 0 || minShouldMatch > 1) {
+            throw new IllegalArgumentException("minShouldMatch must be in (0, 1]");
+        }
+        this.minShouldMatch = minShouldMatch;
+    }
+
+    /**
+     * 新增或替换文档
+     *
+     * @param sortKey 相关度相同时的排序值，越大越靠前（如创建时间）
+     */
+    public void put(long id, String text, long sortKey) {
+        String normalized = normalize(text);
+        String initials = PinyinInitials.of(normalized);
+        Set<String> terms = new HashSet<>();
+        addGrams(terms, normalized, "");
+        if (!initials.equals(normalized)) {
+            addGrams(terms, initials, String.valueOf(INITIALS_MARK));
+        }
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+            docs.put(id, new Doc(normalized, initials, sortKey, terms));
+            for (String term : terms) {
+                postings.computeIfAbsent(term, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按相关度降序检索
+     *
+     * @param offset 跳过的文档数
+     * @param limit  返回的最大文档数
+     */
+    public Hits search(String query, int offset, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return new Hits(0, List.of());
+        }
+        Set<String> grams = new LinkedHashSet<>();
+        if (q.length() == 1) {
+            grams.add(q);
+        } else {
+            for (int i = 0; i + 1 < q.length(); i++) {
+                grams.add(q.substring(i, i + 2));
+            }
+        }
+        // 纯字母数字的查询同时按拼音首字母匹配
+        boolean matchInitials = q.chars().allMatch(c -> c < 0x80);
+        int required = Math.max(1, (int) Math.ceil(grams.size() * minShouldMatch));
+
+        List<Scored> matched = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, int[]> counts = new HashMap<>();
+            for (String gram : grams) {
+                countPostings(counts, gram, 0);
+                if (matchInitials) {
+                    countPostings(counts, INITIALS_MARK + gram, 1);
+                }
+            }
+            for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+                int[] count = entry.getValue();
+                int hits = Math.max(count[0], count[1]);
+                if (hits < required) {
+                    continue;
+                }
+                Doc doc = docs.get(entry.getKey());
+                matched.add(new Scored(entry.getKey(), doc.sortKey, score(doc, q, hits, grams.size(), matchInitials)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matched.sort(Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparing(Comparator.comparingLong(Scored::sortKey).reversed())
+                .thenComparing(Comparator.comparingLong(Scored::id).reversed()));
+        List<Long> ids = matched.stream().skip(Math.max(offset, 0)).limit(Math.max(limit, 0)).map(Scored::id).toList();
+        return new Hits(matched.size(), ids);
+    }
+
+    /**
+     * 小写、全角转半角，只保留字母、数字和汉字
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0xFF01 && c <= 0xFF5E) {
+                c = (char) (c - 0xFEE0);
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 覆盖率为主，子串、前缀、完全相等依次加分，名称越短越靠前
+     */
+    private static double score(Doc doc, String q, int hits, int gramCount, boolean matchInitials) {
+        double score = 4.0 * hits / gramCount;
+        if (doc.text.contains(q)) {
+            score += 2;
+            if (doc.text.startsWith(q)) {
+                score += 1;
+            }
+            if (doc.text.equals(q)) {
+                score += 1;
+            }
+        } else if (matchInitials && doc.initials.contains(q)) {
+            score += 1.5;
+            if (doc.initials.startsWith(q)) {
+                score += 1;
+            }
+        }
+        return score + (double) q.length() / Math.max(doc.text.length(), q.length());
+    }
+
+    private void countPostings(Map<Long, int[]> counts, String term, int slot) {
+        Set<Long> ids = postings.get(term);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            counts.computeIfAbsent(id, k -> new int[2])[slot]++;
+        }
+    }
+
+    private void unlink(long id) {
+        Doc old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static void addGrams(Set<String> terms, String text, String prefix) {
+        for (int i = 0; i < text.length(); i++) {
+            terms.add(prefix + text.charAt(i));
+            if (i + 1 < text.length()) {
+                terms.add(prefix + text.substring(i, i + 2));
+            }
+        }
+    }
+
+    /**
+     * 检索结果：命中总数与当前页的文档ID（按相关度降序）
+     */
+    public record Hits(long total, List<Long> ids) {
+    }
+
+    private record Doc(String text, String initials, long sortKey, Set<String> terms) {
+    }
+
+    private record Scored(long id, long sortKey, double score) {
+    }
+}
@@ -0,0 +1,66 @@
+package cn.aspes.agri.trade.util;
+
+import cn.aspes.agri.trade.config.OptimisticLockProperties;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 乐观锁冲突重试模板
+ *
+ * 每次尝试在独立事务中执行（重新读取最新版本），版本冲突时回滚并按指数退避重试，
+ * 超过最大次数后抛出 {@link OptimisticLockException}。
+ * 已处于外层事务中时只执行一次：同一事务内重读仍是旧快照，重试无意义，冲突交由外层处理。
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetryTemplate {
+    
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticLockProperties properties;
+    
+    public OptimisticLockRetryTemplate(PlatformTransactionManager transactionManager, OptimisticLockProperties properties) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+    
+    public <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("乐观锁冲突重试{}次仍失败", attempt);
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+    
+    public void executeWithoutResult(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    private void backoff(int attempt) {
+        long delay = Math.min(properties.getMaxBackoffMillis(), properties.getBackoffMillis() << (attempt - 1));
+        // 随机抖动，避免冲突双方同时重试再次冲突
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(jittered));
+    }
+}
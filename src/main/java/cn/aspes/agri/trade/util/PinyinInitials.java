@@ -0,0 +1,85 @@
+package cn.aspes.agri.trade.util;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * 汉字拼音首字母
+ *
+ * GB2312 一级汉字按拼音排序，根据编码落在的区间即可得到首字母，无需拼音词典。
+ * 二级汉字按部首排序无法推算，仅补充农产品名称中的常用字，其余汉字不参与拼音匹配。
+ * 多音字取 GB2312 排序所用的读音。
+ */
+public final class PinyinInitials {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    /**
+     * 各首字母在 GB2312 中的起始编码，最后一项为一级汉字的结束边界
+     */
+    private static final int[] BOUNDS = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7, 0xBFA6, 0xC0AC, 0xC2E8,
+            0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6, 0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1, 0xD7FA
+    };
+    private static final String LETTERS = "abcdefghjklmnopqrstwxyz";
+
+    /**
+     * 二级汉字中的常用农产品用字
+     */
+    private static final Map<Character, Character> SUPPLEMENT = Map.ofEntries(
+            Map.entry('莓', 'm'), Map.entry('猕', 'm'), Map.entry('枸', 'g'), Map.entry('杞', 'q'),
+            Map.entry('榛', 'z'), Map.entry('柚', 'y'), Map.entry('薏', 'y'), Map.entry('苡', 'y'),
+            Map.entry('荞', 'q'), Map.entry('蕈', 'x'), Map.entry('芡', 'q'), Map.entry('茭', 'j'),
+            Map.entry('葚', 's'), Map.entry('橘', 'j'), Map.entry('榄', 'l'), Map.entry('蚝', 'h'),
+            Map.entry('鳝', 's'), Map.entry('鲈', 'l'), Map.entry('鲫', 'j'), Map.entry('鳙', 'y'),
+            Map.entry('鲢', 'l'), Map.entry('鹌', 'a'), Map.entry('鹑', 'c'), Map.entry('菁', 'j'),
+            Map.entry('茗', 'm'), Map.entry('秫', 's'), Map.entry('荸', 'b'), Map.entry('荠', 'q'),
+            Map.entry('莴', 'w'), Map.entry('苣', 'j'), Map.entry('蕨', 'j'));
+
+    private PinyinInitials() {
+    }
+
+    /**
+     * 汉字的小写拼音首字母，无法推算时返回0
+     */
+    public static char of(char c) {
+        Character supplement = SUPPLEMENT.get(c);
+        if (supplement != null) {
+            return supplement;
+        }
+        if (!isHan(c)) {
+            return 0;
+        }
+        byte[] bytes = String.valueOf(c).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return 0;
+        }
+        int code = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        if (code < BOUNDS[0] || code >= BOUNDS[BOUNDS.length - 1]) {
+            return 0;
+        }
+        for (int i = LETTERS.length() - 1; i >= 0; i--) {
+            if (code >= BOUNDS[i]) {
+                return LETTERS.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 文本的首字母串：汉字取首字母，无法推算的汉字及其余字符原样保留
+     */
+    public static String of(String text) {
+        StringBuilder initials = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char initial = isHan(c) ? of(c) : 0;
+            initials.append(initial != 0 ? initial : c);
+        }
+        return initials.toString();
+    }
+
+    public static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+}
@@ -1,78 +1,155 @@
 package cn.aspes.agri.trade.util;
 
-import org.springframework.stereotype.Component;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 雪花算法ID生成器
+ *
+ * ID结构：时间戳(41位) | 数据中心ID(5位) | 机器ID(5位) | 序列号(12位)
+ *
+ * 时间戳与序列号合并保存在一个 AtomicLong 中，通过CAS推进，无锁且多线程不互斥。
+ * 同一毫秒序列号用尽或时钟回拨时，向后借用少量未来时间继续发号而不抛异常；
+ * 借用超过上限时等待系统时钟追上。
+ * 机器ID与数据中心ID由 {@link cn.aspes.agri.trade.config.SnowflakeConfig} 在启动时租用分配，
+ * 租约丢失期间暂停发号，避免与占用同一节点号的其他节点产生重复ID。
  */
-@Component
+@Slf4j
 public class SnowflakeIdGenerator {
-    
-    private final long twepoch = 1704067200000L; // 2024-01-01 00:00:00
-    private final long workerIdBits = 5L;
-    private final long datacenterIdBits = 5L;
-    private final long sequenceBits = 12L;
-    
-    private final long maxWorkerId = ~(-1L << workerIdBits);
-    private final long maxDatacenterId = ~(-1L << datacenterIdBits);
-    
-    private final long workerIdShift = sequenceBits;
-    private final long datacenterIdShift = sequenceBits + workerIdBits;
-    private final long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
-    private final long sequenceMask = ~(-1L << sequenceBits);
-    
-    private long workerId;
-    private long datacenterId;
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
-    
-    public SnowflakeIdGenerator() {
-        this(1L, 1L);
-    }
-    
+
+    private static final long TWEPOCH = 1704067200000L; // 2024-01-01 00:00:00
+    private static final long WORKER_ID_BITS = 5L;
+    private static final long DATACENTER_ID_BITS = 5L;
+    private static final long SEQUENCE_BITS = 12L;
+
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    public static final long MAX_DATACENTER_ID = ~(-1L << DATACENTER_ID_BITS);
+
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final long DATACENTER_ID_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+    private static final long TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATACENTER_ID_BITS;
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    /**
+     * 最多向未来借用的毫秒数，超过后等待时钟追上
+     * 需远小于进程重启耗时，避免重启后与借用时段内已发出的ID重复
+     */
+    private static final long MAX_BORROW_MS = 1000L;
+
+    /**
+     * 单次批量取号上限，保证一次批量借用的时间不超过借用上限
+     */
+    public static final int MAX_BATCH_SIZE = 100_000;
+
+    private final long workerId;
+    private final long datacenterId;
+    private final long nodeBits;
+
+    /**
+     * 最近一次发出的 (时间戳 - twepoch) << 12 | 序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 暂停发号（节点号租约丢失）
+     */
+    private volatile boolean suspended;
+
     public SnowflakeIdGenerator(long workerId, long datacenterId) {
-        if (workerId > maxWorkerId || workerId < 0) {
-            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
+        if (workerId > MAX_WORKER_ID || workerId < 0) {
+            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", MAX_WORKER_ID));
         }
-        if (datacenterId > maxDatacenterId || datacenterId < 0) {
-            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
+        if (datacenterId > MAX_DATACENTER_ID || datacenterId < 0) {
+            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", MAX_DATACENTER_ID));
         }
         this.workerId = workerId;
         this.datacenterId = datacenterId;
+        this.nodeBits = (datacenterId << DATACENTER_ID_SHIFT) | (workerId << WORKER_ID_SHIFT);
+    }
+
+    public long nextId() {
+        return toId(reserve(1));
     }
-    
-    public synchronized long nextId() {
-        long timestamp = timeGen();
-        
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock moved backwards. Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+
+    /**
+     * 批量生成ID，一次CAS预留连续的序列号区间，适用于批量插入
+     *
+     * @param n 数量，不超过 {@link #MAX_BATCH_SIZE}
+     * @return 单调递增的ID数组
+     */
+    public long[] nextIds(int n) {
+        if (n <= 0 || n > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(String.format("batch size must be between 1 and %d", MAX_BATCH_SIZE));
+        }
+        long first = reserve(n);
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = toId(first + i);
         }
-        
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+        return ids;
+    }
+
+    /**
+     * 暂停发号，之后的取号抛出 IllegalStateException，直到 {@link #resume()}
+     */
+    public void suspend() {
+        suspended = true;
+    }
+
+    public void resume() {
+        suspended = false;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public long getDatacenterId() {
+        return datacenterId;
+    }
+
+    /**
+     * 预留连续 count 个 (时间戳, 序列号) 槽位，返回第一个
+     * 序列号溢出时自然进位到下一毫秒，即向未来借用时间
+     */
+    private long reserve(int count) {
+        if (suspended) {
+            throw new IllegalStateException("雪花ID节点号租约已失效，暂停发号");
+        }
+        while (true) {
+            long current = state.get();
+            long now = timeGen() - TWEPOCH;
+            long first = Math.max(current + 1, now << SEQUENCE_BITS);
+            long last = first + count - 1;
+            long borrowed = (last >>> SEQUENCE_BITS) - now;
+            if (borrowed > MAX_BORROW_MS) {
+                waitForClock(borrowed - MAX_BORROW_MS);
+                continue;
+            }
+            if (state.compareAndSet(current, last)) {
+                return first;
             }
-        } else {
-            sequence = 0L;
         }
-        
-        lastTimestamp = timestamp;
-        
-        return ((timestamp - twepoch) << timestampLeftShift) |
-                (datacenterId << datacenterIdShift) |
-                (workerId << workerIdShift) |
-                sequence;
     }
-    
-    protected long tilNextMillis(long lastTimestamp) {
-        long timestamp = timeGen();
-        while (timestamp <= lastTimestamp) {
-            timestamp = timeGen();
+
+    private long toId(long slot) {
+        return ((slot >>> SEQUENCE_BITS) << TIMESTAMP_LEFT_SHIFT) | nodeBits | (slot & SEQUENCE_MASK);
+    }
+
+    private void waitForClock(long millis) {
+        if (millis > MAX_BORROW_MS) {
+            log.warn("系统时钟回拨或发号过快，等待时钟追上：{}ms", millis);
         }
-        return timestamp;
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
     }
-    
+
     protected long timeGen() {
         return System.currentTimeMillis();
     }
@@ -0,0 +1,193 @@
+package cn.aspes.agri.trade.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving 加权频繁项（Top-K）草图
+ *
+ * 最多保留 capacity 个计数器。新元素到来且计数器已满时，替换当前计数最小的元素，
+ * 新计数 = 最小计数 + 权重，并把最小计数记为误差上界。
+ * 因此每个元素的估计值只会高估，真实值位于 [count - error, count] 之间；
+ * 真实值超过 总权重/capacity 的元素一定在草图中。两个草图可合并，
+ * 各节点、各时间窗口的草图可序列化后汇总为全局排行。
+ */
+public final class SpaceSaving {
+
+    private static final int ENTRY_BYTES = Long.BYTES * 3;
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    /**
+     * 按计数升序；计数相同时键大者在前，使降序遍历时同分按键升序
+     */
+    private final TreeSet<Counter> byCount = new TreeSet<>(
+            Comparator.comparingLong((Counter c) -> c.count).thenComparing(c -> c.key, Comparator.reverseOrder()));
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复草图
+     */
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int capacity = buffer.getInt();
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        sketch.total = buffer.getLong();
+        if (buffer.remaining() % ENTRY_BYTES != 0 || buffer.remaining() / ENTRY_BYTES > capacity) {
+            throw new IllegalArgumentException("invalid sketch length: " + bytes.length);
+        }
+        while (buffer.hasRemaining()) {
+            sketch.put(new Counter(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+        }
+        return sketch;
+    }
+
+    public synchronized void offer(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(new Counter(key, weight, 0));
+            return;
+        }
+        Counter min = byCount.pollFirst();
+        counters.remove(min.key);
+        put(new Counter(key, min.count + weight, min.count));
+    }
+
+    /**
+     * 合并另一个草图
+     * 只出现在一方的元素，在另一方的真实值可能高达其最小计数（已满时），计入计数与误差以保持高估性质
+     */
+    public void merge(SpaceSaving other) {
+        Snapshot theirs = other.snapshot();
+        synchronized (this) {
+            long ourMin = minCount();
+            Map<Long, Counter> merged = new HashMap<>();
+            for (Counter counter : counters.values()) {
+                Counter copy = new Counter(counter.key, counter.count, counter.error);
+                if (!theirs.counters.containsKey(counter.key)) {
+                    copy.count += theirs.minCount;
+                    copy.error += theirs.minCount;
+                }
+                merged.put(copy.key, copy);
+            }
+            for (Counter counter : theirs.counters.values()) {
+                Counter existing = merged.get(counter.key);
+                if (existing != null) {
+                    existing.count += counter.count;
+                    existing.error += counter.error;
+                } else {
+                    merged.put(counter.key, new Counter(counter.key, counter.count + ourMin, counter.error + ourMin));
+                }
+            }
+            counters.clear();
+            byCount.clear();
+            merged.values().stream()
+                    .sorted(Comparator.comparingLong((Counter c) -> c.count).reversed().thenComparingLong(c -> c.key))
+                    .limit(capacity)
+                    .forEach(this::put);
+            total += theirs.total;
+        }
+    }
+
+    /**
+     * 估计值最大的前 k 个元素，按估计值降序
+     */
+    public synchronized List<Entry> top(int k) {
+        List<Entry> result = new ArrayList<>(Math.min(k, counters.size()));
+        Iterator<Counter> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && result.size() < k) {
+            Counter counter = iterator.next();
+            result.add(new Entry(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    /**
+     * 已记录的权重总和
+     */
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + counters.size() * ENTRY_BYTES);
+        buffer.putInt(capacity);
+        buffer.putLong(total);
+        for (Counter counter : counters.values()) {
+            buffer.putLong(counter.key).putLong(counter.count).putLong(counter.error);
+        }
+        return buffer.array();
+    }
+
+    private synchronized Snapshot snapshot() {
+        Map<Long, Counter> copy = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            copy.put(counter.key, new Counter(counter.key, counter.count, counter.error));
+        }
+        return new Snapshot(copy, minCount(), total);
+    }
+
+    /**
+     * 未满时不可能有被替换掉的元素，未出现的元素真实值为0
+     */
+    private long minCount() {
+        return counters.size() < capacity ? 0 : byCount.first().count;
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * 排行项：估计值 count 只会高估，count - error 为真实值下界
+     */
+    public record Entry(long key, long count, long error) {
+    }
+
+    private record Snapshot(Map<Long, Counter> counters, long minCount, long total) {
+    }
+
+    private static final class Counter {
+        private final long key;
+        private long count;
+        private long error;
+
+        private Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cn.aspes.agri.trade.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务提交回调工具
+ *
+ * 缓存、内存索引等不参与数据库事务的资源在事务提交后再变更，回滚的写入不会生效
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * 当前事务提交后执行，不在事务中时立即执行
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 立即失效缓存，在事务中时提交后再失效一次
+     */
+    public static void invalidateAroundCommit(Runnable invalidate) {
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 提交前其他请求可能已读到旧数据并回填缓存，提交后再失效一次
+            afterCommit(invalidate);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package cn.aspes.agri.trade.vo;
+
+import lombok.Data;
+
+/**
+ * 批量建单结果视图对象（每个合同一条）
+ */
+@Data
+public class ContractOrderResultVO {
+    
+    private Long contractId;
+    
+    private Boolean success;
+    
+    private Long orderId;
+    
+    private String orderNo;
+    
+    /**
+     * 失败原因
+     */
+    private String message;
+    
+    public static ContractOrderResultVO success(Long contractId, Long orderId, String orderNo) {
+        ContractOrderResultVO result = new ContractOrderResultVO();
+        result.setContractId(contractId);
+        result.setSuccess(true);
+        result.setOrderId(orderId);
+        result.setOrderNo(orderNo);
+        return result;
+    }
+    
+    public static ContractOrderResultVO failed(Long contractId, String message) {
+        ContractOrderResultVO result = new ContractOrderResultVO();
+        result.setContractId(contractId);
+        result.setSuccess(false);
+        result.setMessage(message);
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package cn.aspes.agri.trade.vo;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 产品分面筛选结果视图对象
+ */
+@Data
+public class ProductFacetVO {
+    
+    private IPage<FarmerProductVO> products;
+    
+    private List<FacetCount> categories;         // 各分类的在售产品数（value 为分类ID）
+    
+    private List<FacetCount> provinces;          // 各产地省份的在售产品数
+    
+    private List<FacetCount> priceBands;         // 各价格区间的在售产品数
+    
+    private List<FacetCount> productionMethods;  // 各生产方式的在售产品数
+    
+    /**
+     * 维度取值计数：只应用其他维度的筛选条件，数量为 0 的取值不返回
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private Long count;
+    }
+}
@@ -0,0 +1,98 @@
+package cn.aspes.agri.trade.vo;
+
+import cn.aspes.agri.trade.entity.PartyStats;
+import lombok.Data;
+
+/**
+ * 被评价方的评分汇总，取自 party_stats 的评价相关字段
+ */
+@Data
+public class RatingSummary {
+    
+    public static final int MIN_STAR = 1;
+    public static final int MAX_STAR = 5;
+    
+    /**
+     * 被评价方类型：farmer/purchaser
+     */
+    private String reviewTo;
+    
+    /**
+     * 被评价方ID（farmer_id/purchaser_id）
+     */
+    private Long targetId;
+    
+    /**
+     * 评价数
+     */
+    private Long ratingCount = 0L;
+    
+    /**
+     * 评分合计
+     */
+    private Long ratingSum = 0L;
+    
+    /**
+     * 1~5星评价数
+     */
+    private Long star1 = 0L;
+    private Long star2 = 0L;
+    private Long star3 = 0L;
+    private Long star4 = 0L;
+    private Long star5 = 0L;
+    
+    public RatingSummary() {
+    }
+    
+    public RatingSummary(String reviewTo, Long targetId) {
+        this.reviewTo = reviewTo;
+        this.targetId = targetId;
+    }
+    
+    public static RatingSummary from(PartyStats stats) {
+        RatingSummary summary = new RatingSummary(stats.getPartyType(), stats.getPartyId());
+        summary.setRatingCount(stats.getReviewCount());
+        summary.setRatingSum(stats.getRatingSum());
+        summary.setStar1(stats.getStar1());
+        summary.setStar2(stats.getStar2());
+        summary.setStar3(stats.getStar3());
+        summary.setStar4(stats.getStar4());
+        summary.setStar5(stats.getStar5());
+        return summary;
+    }
+    
+    /**
+     * 平均评分，无评价时为 0
+     */
+    public double averageRating() {
+        return ratingCount == null || ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+    }
+    
+    /**
+     * 指定星级的评价数
+     */
+    public long getStarCount(int star) {
+        return switch (star) {
+            case 1 -> star1;
+            case 2 -> star2;
+            case 3 -> star3;
+            case 4 -> star4;
+            case 5 -> star5;
+            default -> throw new IllegalArgumentException("rating out of range: " + star);
+        };
+    }
+    
+    /**
+     * 累加指定星级的评价数
+     */
+    public void addStar(int star, long delta) {
+        switch (star) {
+            case 1 -> star1 += delta;
+            case 2 -> star2 += delta;
+            case 3 -> star3 += delta;
+            case 4 -> star4 += delta;
+            case 5 -> star5 += delta;
+            default -> throw new IllegalArgumentException("rating out of range: " + star);
+        }
+    }
+}
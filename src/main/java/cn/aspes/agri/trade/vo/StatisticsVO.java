@@ -5,6 +5,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 数据统计VO类
@@ -23,6 +26,7 @@ public class StatisticsVO {
         private BigDecimal totalAmount;         // 总交易额
         private BigDecimal averageAmount;       // 平均订单金额
         private Double completionRate;          // 完成率
+        private BigDecimal paidAmount;          // 已支付金额
     }
     
     /**
@@ -80,4 +84,87 @@ public class StatisticsVO {
         private BigDecimal totalSales;          // 总销售额
         private Double averageRating;           // 平均评分
     }
-}
\ No newline at end of file
+    
+    /**
+     * 接口访问统计（本节点）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EndpointStats {
+        private String endpoint;                // 接口路由模板
+        private Long hits;                      // 访问次数
+        private Double p50Millis;               // 延迟中位数（毫秒）
+        private Double p95Millis;               // 95分位延迟（毫秒）
+        private Double p99Millis;               // 99分位延迟（毫秒）
+    }
+    
+    /**
+     * 交易趋势数据点
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TradeTrendPoint {
+        private LocalDate bucket;               // 时间桶起始日期（日/周一/月初）
+        private Long categoryId;                // 产品分类（按分类展开时）
+        private String province;                // 产地省份（按省份展开时）
+        private Long orderCount;                // 订单数
+        private Long quantity;                  // 数量合计
+        private BigDecimal gmv;                 // 交易额
+        private BigDecimal averagePrice;        // 平均单价（交易额/数量）
+    }
+    
+    /**
+     * 按状态分组计数
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusCount {
+        private String status;                  // 状态编码
+        private Long total;                     // 数量
+    }
+    
+    /**
+     * 排行榜条目
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LeaderboardEntry {
+        private Long id;                        // 产品/农户/产地ID
+        private String name;                    // 名称
+        private BigDecimal score;               // 估计值（只会高估）
+        private BigDecimal minScore;            // 真实值下界，精确计算时与估计值相同
+    }
+    
+    /**
+     * 排行榜近似结果与精确结果的对比
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LeaderboardValidation {
+        private String dimension;               // 排行维度
+        private Integer days;                   // 统计天数
+        private Integer topK;                   // 比较的名次数
+        private Double recall;                  // 精确前K名中出现在近似前K名的比例
+        private Double maxRelativeError;        // 共同条目估计值的最大相对误差
+        private LocalDateTime validateTime;     // 校验时间
+    }
+    
+    /**
+     * 评分分布
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RatingDistribution {
+        private String reviewTo;                // 被评价方类型：farmer/purchaser
+        private Long targetId;                  // 被评价方ID
+        private Long ratingCount;               // 评价数
+        private Double averageRating;           // 平均评分
+        private Map<Integer, Long> starCounts;  // 1~5星各自的评价数
+    }
+}
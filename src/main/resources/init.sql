@@ -114,13 +114,14 @@ CREATE TABLE IF NOT EXISTS `farmer_product` (
     `origin_area_id` INT NOT NULL COMMENT '产地（关联origin_area）',
     `description` TEXT COMMENT '产品描述（种植过程/品质特点）',
     `status` ENUM('on_sale','off_sale') DEFAULT 'on_sale' COMMENT '状态：在售/下架',
+    `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (`id`),
-    KEY `fk_product_farmer` (`farmer_id`),
+    KEY `idx_product_farmer_time` (`farmer_id`, `create_time`, `id`) COMMENT '分页查询农户自己的产品ID（覆盖索引）',
     KEY `fk_product_category` (`category_id`),
     KEY `fk_product_origin` (`origin_area_id`),
-    KEY `idx_product_status` (`status`),
+    KEY `idx_product_status_time` (`status`, `create_time`, `id`) COMMENT '按状态分页查询产品ID（覆盖索引）',
     KEY `idx_price_minpurchase` (`price`, `min_purchase`) COMMENT '按价格和起订量筛选',
     CONSTRAINT `fk_product_farmer` FOREIGN KEY (`farmer_id`) REFERENCES `farmer_info` (`id`) ON DELETE CASCADE,
     CONSTRAINT `fk_product_category` FOREIGN KEY (`category_id`) REFERENCES `product_category` (`id`) ON DELETE RESTRICT,
@@ -137,7 +138,7 @@ CREATE TABLE IF NOT EXISTS `product_image` (
     `sort` INT DEFAULT 0 COMMENT '排序（值越小越靠前）',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     PRIMARY KEY (`id`),
-    KEY `fk_image_product` (`product_id`),
+    KEY `idx_image_product_sort` (`product_id`, `sort`) COMMENT '按产品ID批量查询图片',
     CONSTRAINT `fk_image_product` FOREIGN KEY (`product_id`) REFERENCES `farmer_product` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='产品图片表';
 
@@ -162,6 +163,7 @@ CREATE TABLE IF NOT EXISTS `purchase_demand` (
     KEY `fk_demand_purchaser` (`purchaser_id`),
     KEY `fk_demand_category` (`category_id`),
     KEY `idx_demand_status_date` (`status`, `delivery_date`) COMMENT '按状态和交货日期筛选',
+    KEY `idx_demand_status_time` (`status`, `create_time`) COMMENT '按状态游标分页',
     CONSTRAINT `fk_demand_purchaser` FOREIGN KEY (`purchaser_id`) REFERENCES `purchaser_info` (`id`) ON DELETE CASCADE,
     CONSTRAINT `fk_demand_category` FOREIGN KEY (`category_id`) REFERENCES `product_category` (`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='采购方需求发布表';
@@ -211,6 +213,7 @@ CREATE TABLE IF NOT EXISTS `purchase_contract` (
     `farmer_sign_url` VARCHAR(500) DEFAULT NULL COMMENT '农户签字/盖章扫描件',
     `purchaser_sign_url` VARCHAR(500) DEFAULT NULL COMMENT '采购方签字/盖章扫描件',
     `status` ENUM('draft','signed','executing','completed','terminated') DEFAULT 'draft' COMMENT '合同状态',
+    `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (`id`),
@@ -244,15 +247,18 @@ CREATE TABLE IF NOT EXISTS `purchase_order` (
     `status` ENUM('pending','pending_inspection','delivered','paid','completed','cancelled') DEFAULT 'pending' COMMENT '订单状态',
     `delivery_time` DATETIME DEFAULT NULL COMMENT '实际交货时间',
     `inspection_result` TEXT COMMENT '验收结果',
+    `finish_time` DATETIME DEFAULT NULL COMMENT '完成/取消时间',
+    `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (`id`),
     KEY `fk_order_contract` (`contract_id`),
-    KEY `fk_order_product` (`product_id`),
+    KEY `idx_order_product_status` (`product_id`, `status`), -- 按产品汇总已完成订单销量
     KEY `fk_order_farmer` (`farmer_id`),
     KEY `fk_order_purchaser` (`purchaser_id`),
-    KEY `idx_order_status` (`status`),
+    KEY `idx_order_status_time` (`status`, `create_time`), -- 按状态游标分页
     KEY `idx_order_no` (`order_no`),
+    KEY `idx_order_create_time` (`create_time`), -- 按创建日期区间导出
     CONSTRAINT `fk_order_contract` FOREIGN KEY (`contract_id`) REFERENCES `purchase_contract` (`id`) ON DELETE RESTRICT,
     CONSTRAINT `fk_order_product` FOREIGN KEY (`product_id`) REFERENCES `farmer_product` (`id`) ON DELETE RESTRICT,
     CONSTRAINT `fk_order_farmer` FOREIGN KEY (`farmer_id`) REFERENCES `farmer_info` (`id`) ON DELETE RESTRICT,
@@ -275,7 +281,8 @@ CREATE TABLE IF NOT EXISTS `payment_record` (
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (`id`),
     KEY `fk_payment_order` (`order_id`),
-    KEY `idx_payment_status` (`status`),
+    KEY `idx_payment_status_time` (`status`, `create_time`), -- 按状态游标分页
+    KEY `idx_payment_create_time` (`create_time`), -- 按创建日期区间导出
     CONSTRAINT `fk_payment_order` FOREIGN KEY (`order_id`) REFERENCES `purchase_order` (`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付记录表（支持分阶段）';
 
@@ -341,6 +348,7 @@ CREATE TABLE IF NOT EXISTS `stock_reservation` (
     `reserved_quantity` INT NOT NULL COMMENT '预留数量',
     `status` ENUM('pending','confirmed','released','expired') DEFAULT 'pending' COMMENT '预留状态：已预留/已确认/已释放/已过期',
     `release_reason` VARCHAR(200) COMMENT '释放原因（取消/过期等）',
+    `version` INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
     `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `expired_time` TIMESTAMP DEFAULT NULL COMMENT '预留过期时间（若未支付则24小时后过期）',
@@ -354,7 +362,69 @@ CREATE TABLE IF NOT EXISTS `stock_reservation` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存预留表';
 
 
+-- 17. 主体统计汇总表（农户/采购方维度，随订单、支付、评价增量维护）
+CREATE TABLE IF NOT EXISTS `party_stats` (
+    `party_type` VARCHAR(20) NOT NULL COMMENT '主体类型：farmer/purchaser',
+    `party_id` bigint NOT NULL COMMENT '主体ID（farmer_id/purchaser_id）',
+    `order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `completed_order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `delivered_amount` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '交货结算金额（订单实际金额累计）',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '支付成功金额',
+    `review_count` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的评价数',
+    `rating_sum` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的评分合计',
+    `star1` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的1星评价数',
+    `star2` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的2星评价数',
+    `star3` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的3星评价数',
+    `star4` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的4星评价数',
+    `star5` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的5星评价数',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`party_type`, `party_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主体统计汇总表';
+
+
+-- 18. 主体每日统计表（字段同 party_stats，按发生日期累计）
+CREATE TABLE IF NOT EXISTS `party_stats_daily` (
+    `party_type` VARCHAR(20) NOT NULL COMMENT '主体类型：farmer/purchaser',
+    `party_id` bigint NOT NULL COMMENT '主体ID（farmer_id/purchaser_id）',
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '新建订单数',
+    `completed_order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '完成订单数',
+    `delivered_amount` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '交货结算金额',
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '支付成功金额',
+    `review_count` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的评价数',
+    `rating_sum` BIGINT NOT NULL DEFAULT 0 COMMENT '收到的评分合计',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`party_type`, `party_id`, `stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主体每日统计表';
+
+-- 19. 产品销量汇总表（订单完成时增量维护）
+CREATE TABLE IF NOT EXISTS `product_sales` (
+    `product_id` bigint NOT NULL COMMENT '产品ID',
+    `order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    `sales_quantity` BIGINT NOT NULL DEFAULT 0 COMMENT '销售数量（实际交货数量累计）',
+    `sales_amount` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '销售总额（实际结算金额累计）',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`product_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='产品销量汇总表';
+
+-- 20. 交易趋势汇总表（按日、分类、产地省份、订单终态预聚合，订单完成/取消时增量维护）
+CREATE TABLE IF NOT EXISTS `trade_stats_daily` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期（订单完成/取消日期）',
+    `week_start` DATE NOT NULL COMMENT '所在周的周一',
+    `month_start` DATE NOT NULL COMMENT '所在月的1日',
+    `category_id` bigint NOT NULL COMMENT '产品分类',
+    `province` VARCHAR(50) NOT NULL COMMENT '产地省份',
+    `status` VARCHAR(20) NOT NULL COMMENT '订单终态：completed/cancelled',
+    `source` VARCHAR(10) NOT NULL DEFAULT 'live' COMMENT '来源：live 增量维护 / backfill 历史回填 / staging 回填中暂存',
+    `order_count` BIGINT NOT NULL DEFAULT 0 COMMENT '订单数',
+    `total_quantity` BIGINT NOT NULL DEFAULT 0 COMMENT '数量合计（已完成按实际交货数量）',
+    `total_amount` DECIMAL(16,2) NOT NULL DEFAULT 0 COMMENT '金额合计（已完成按实际结算金额）',
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`stat_date`, `category_id`, `province`, `status`, `source`),
+    KEY `idx_trade_status_date` (`status`, `stat_date`) COMMENT '按终态和日期范围查询趋势'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='交易趋势汇总表';
+
 SET FOREIGN_KEY_CHECKS = 1;
 
 -- 执行成功提示
-SELECT '农副产品对接平台SQL脚本执行成功！共包含16张核心表，支持库存预留和用户认证' AS `result`;
\ No newline at end of file
+SELECT '农副产品对接平台SQL脚本执行成功！共包含20张核心表，支持库存预留和用户认证' AS `result`;
\ No newline at end of file
@@ -25,7 +25,9 @@ import org.springframework.transaction.annotation.Transactional;
     "spring.redis.host=localhost",
     "spring.redis.port=6370",
     "jwt.secret=test-secret-key-for-testing-only",
-    "jwt.expiration=86400"
+    "jwt.expiration=86400",
+    // 测试环境没有Redis，使用固定节点号
+    "snowflake.node-id=1"
 })
 @Transactional
 public abstract class BaseTest {
@@ -0,0 +1,67 @@
+package cn.aspes.agri.trade.config;
+
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import cn.aspes.agri.trade.service.impl.ShardLeaseServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("雪花ID节点号租用测试")
+class SnowflakeConfigTest {
+
+    @Test
+    @DisplayName("多个节点启动 - 各自租到不同节点号")
+    void multipleNodes_LeaseDistinctNodeIds() {
+        try (EmbeddedRedisSupport redis = EmbeddedRedisSupport.start()) {
+            ShardLeaseServiceImpl leaseService = new ShardLeaseServiceImpl(redis.redisTemplate());
+            Set<Long> nodes = new HashSet<>();
+            for (int i = 0; i < 50; i++) {
+                SnowflakeIdGenerator generator = new SnowflakeConfig(new SnowflakeProperties(), leaseService).snowflakeIdGenerator();
+                assertTrue(nodes.add(generator.getDatacenterId() * 32 + generator.getWorkerId()));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Redis不可用 - 重试超时后启动失败，不使用未租用的节点号")
+    void redisUnavailable_FailsStartup() {
+        ShardLeaseService leaseService = mock(ShardLeaseService.class);
+        when(leaseService.tryAcquire(anyString(), anyInt(), any())).thenThrow(new RedisConnectionFailureException("down"));
+        SnowflakeProperties properties = new SnowflakeProperties();
+        properties.setAcquireTimeoutSeconds(0);
+
+        assertThrows(IllegalStateException.class, () -> new SnowflakeConfig(properties, leaseService).snowflakeIdGenerator());
+    }
+
+    @Test
+    @DisplayName("租约丢失且被其他节点占用 - 暂停发号，重新占用后恢复")
+    void leaseLost_SuspendsUntilReacquired() {
+        try (EmbeddedRedisSupport redis = EmbeddedRedisSupport.start()) {
+            ShardLeaseServiceImpl leaseService = new ShardLeaseServiceImpl(redis.redisTemplate());
+            SnowflakeConfig config = new SnowflakeConfig(new SnowflakeProperties(), leaseService);
+            SnowflakeIdGenerator generator = config.snowflakeIdGenerator();
+            int nodeId = (int) (generator.getDatacenterId() * 32 + generator.getWorkerId());
+
+            // 模拟租约过期后被其他节点占用
+            config.releaseNodeLease();
+            ShardLeaseService.Lease other = leaseService.tryAcquire(SnowflakeConfig.NODE_LEASE_TASK, nodeId, Duration.ofSeconds(60));
+            config.renewNodeLease();
+            assertThrows(IllegalStateException.class, generator::nextId);
+
+            leaseService.release(other);
+            config.renewNodeLease();
+            assertTrue(generator.nextId() > 0);
+        }
+    }
+}
@@ -4,7 +4,9 @@ import cn.aspes.agri.trade.BaseTest;
 import cn.aspes.agri.trade.common.Result;
 import cn.aspes.agri.trade.entity.PurchaseOrder;
 import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.service.ExportService;
 import cn.aspes.agri.trade.service.PurchaseOrderService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,13 +18,18 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -38,6 +45,12 @@ class AdminOrderControllerTest extends BaseTest {
     @MockBean
     private PurchaseOrderService purchaseOrderService;
 
+    @MockBean
+    private StatusHistogramService statusHistogramService;
+
+    @MockBean
+    private ExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -154,8 +167,14 @@ class AdminOrderControllerTest extends BaseTest {
     @DisplayName("获取订单统计信息 - 成功")
     void getOrderStatistics_Success() throws Exception {
         // 模拟服务返回
-        when(purchaseOrderService.count()).thenReturn(10L);
-        when(purchaseOrderService.count(any())).thenReturn(2L);
+        EnumMap<OrderStatus, Long> histogram = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus orderStatus : OrderStatus.values()) {
+            histogram.put(orderStatus, 0L);
+        }
+        histogram.put(OrderStatus.PENDING, 2L);
+        histogram.put(OrderStatus.PENDING_INSPECTION, 3L);
+        histogram.put(OrderStatus.COMPLETED, 5L);
+        when(statusHistogramService.getOrderStatusHistogram()).thenReturn(histogram);
 
         // 执行请求并验证结果
         mockMvc.perform(get("/api/admin/orders/statistics")
@@ -163,7 +182,9 @@ class AdminOrderControllerTest extends BaseTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(200))
                 .andExpect(jsonPath("$.data.totalCount").value(10))
-                .andExpect(jsonPath("$.data.pendingCount").value(2));
+                .andExpect(jsonPath("$.data.pendingCount").value(2))
+                .andExpect(jsonPath("$.data.pendingInspectionCount").value(3))
+                .andExpect(jsonPath("$.data.deliveredCount").value(0));
     }
 
     @Test
@@ -206,6 +227,38 @@ class AdminOrderControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.data.records[0].orderNo").value("PO20231227001"));
     }
 
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @DisplayName("导出订单 - 异步流式写出CSV")
+    void exportOrders_Success() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("订单ID\r\n1\r\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(exportService).exportOrders(any(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/admin/orders/export")
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders_2026-03-01_2026-03-31.csv\""))
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string("订单ID\r\n1\r\n"));
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @DisplayName("导出订单 - 缺少日期区间")
+    void exportOrders_MissingRange() throws Exception {
+        mockMvc.perform(get("/api/admin/orders/export")
+                        .param("from", "2026-03-01"))
+                .andExpect(request().asyncNotStarted());
+    }
+
     @Test
     @DisplayName("未授权访问 - 失败")
     void unauthorizedAccess_Failure() throws Exception {
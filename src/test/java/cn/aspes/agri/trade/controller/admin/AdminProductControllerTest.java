@@ -4,6 +4,7 @@ import cn.aspes.agri.trade.BaseTest;
 import cn.aspes.agri.trade.entity.FarmerProduct;
 import cn.aspes.agri.trade.enums.ProductStatus;
 import cn.aspes.agri.trade.service.FarmerProductService;
+import cn.aspes.agri.trade.service.StatusHistogramService;
 import cn.aspes.agri.trade.vo.FarmerProductVO;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -18,6 +19,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +38,9 @@ class AdminProductControllerTest extends BaseTest {
     @MockBean
     private FarmerProductService farmerProductService;
 
+    @MockBean
+    private StatusHistogramService statusHistogramService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -191,8 +196,10 @@ class AdminProductControllerTest extends BaseTest {
     @DisplayName("获取产品统计信息 - 成功")
     void getProductStatistics_Success() throws Exception {
         // 模拟服务返回
-        when(farmerProductService.count()).thenReturn(10L);
-        when(farmerProductService.count(any())).thenReturn(7L);
+        EnumMap<ProductStatus, Long> histogram = new EnumMap<>(ProductStatus.class);
+        histogram.put(ProductStatus.ON_SALE, 7L);
+        histogram.put(ProductStatus.OFF_SALE, 3L);
+        when(statusHistogramService.getProductStatusHistogram()).thenReturn(histogram);
 
         // 执行请求并验证结果
         mockMvc.perform(get("/api/admin/products/statistics")
@@ -201,7 +208,7 @@ class AdminProductControllerTest extends BaseTest {
                 .andExpect(jsonPath("$.code").value(200))
                 .andExpect(jsonPath("$.data.totalCount").value(10))
                 .andExpect(jsonPath("$.data.onlineCount").value(7))
-                .andExpect(jsonPath("$.data.offlineCount").value(7));
+                .andExpect(jsonPath("$.data.offlineCount").value(3));
     }
 
     @Test
@@ -1,6 +1,7 @@
 package cn.aspes.agri.trade.controller.admin;
 
 import cn.aspes.agri.trade.BaseTest;
+import cn.aspes.agri.trade.config.StatisticsProperties;
 import cn.aspes.agri.trade.enums.UserRole;
 import cn.aspes.agri.trade.security.CustomUserDetails;
 import cn.aspes.agri.trade.service.StatisticsService;
@@ -8,16 +9,23 @@ import cn.aspes.agri.trade.vo.StatisticsVO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -29,6 +37,9 @@ class AdminStatisticsControllerTest extends BaseTest {
     @MockBean
     private StatisticsService statisticsService;
 
+    @Autowired
+    private StatisticsProperties statisticsProperties;
+
     private StatisticsVO.PlatformStats testPlatformStats;
     private Map<String, Long> testFarmerActivity;
 
@@ -91,6 +102,35 @@ class AdminStatisticsControllerTest extends BaseTest {
                 .andExpect(header().string("Content-Type", "text/event-stream"));
     }
 
+    @Test
+    @DisplayName("SSE实时推送市级农户活跃度 - 连接后立即推送并按间隔继续推送")
+    void streamFarmerActivity_PushesEvent() throws Exception {
+        CustomUserDetails adminUser = new CustomUserDetails(1L, "admin", "password", UserRole.ADMIN, true);
+        when(statisticsService.getFarmerActivityByCity(anyInt())).thenReturn(testFarmerActivity);
+        int interval = statisticsProperties.getActivityPushIntervalSeconds();
+        statisticsProperties.setActivityPushIntervalSeconds(1);
+
+        MvcResult result = mockMvc.perform(get("/api/admin/statistics/farmer-activity/stream")
+                        .with(user(adminUser))
+                        .param("windowMinutes", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        statisticsProperties.setActivityPushIntervalSeconds(interval);
+
+        String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("event:farmer-activity"), body);
+        assertTrue(body.contains("\"北京\":\"10\""), body);
+
+        // 间隔缩短为1秒，等待第二次定时推送
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mockingDetails(statisticsService).getInvocations().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        verify(statisticsService, atLeast(2)).getFarmerActivityByCity(10);
+        // 客户端断开：结束异步请求，停止定时推送
+        result.getRequest().getAsyncContext().complete();
+    }
+
     @Test
     @DisplayName("未授权访问 - 失败")
     void unauthorizedAccess_Failure() throws Exception {
@@ -0,0 +1,169 @@
+package cn.aspes.agri.trade.converter;
+
+import cn.aspes.agri.trade.config.ModelMapperConfig;
+import cn.aspes.agri.trade.dto.ProductImageDTO;
+import cn.aspes.agri.trade.entity.DockingRecord;
+import cn.aspes.agri.trade.entity.FarmerInfo;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.PurchaseDemand;
+import cn.aspes.agri.trade.mapper.FarmerInfoMapper;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.OriginAreaMapper;
+import cn.aspes.agri.trade.mapper.ProductImageMapper;
+import cn.aspes.agri.trade.mapper.PurchaseDemandMapper;
+import cn.aspes.agri.trade.mapper.PurchaserInfoMapper;
+import cn.aspes.agri.trade.service.impl.FarmerInfoServiceImpl;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.OriginAreaServiceImpl;
+import cn.aspes.agri.trade.service.impl.ProductImageServiceImpl;
+import cn.aspes.agri.trade.service.impl.PurchaseDemandServiceImpl;
+import cn.aspes.agri.trade.service.impl.PurchaserInfoServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.DockingRecordVO;
+import cn.aspes.agri.trade.vo.FarmerInfoVO;
+import cn.aspes.agri.trade.vo.FarmerProductVO;
+import cn.aspes.agri.trade.vo.PurchaseDemandVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("实体转换批量加载测试")
+class EntityVOConverterTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    private MybatisTestSupport db;
+    private EntityVOConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(ProductImageMapper.class, OriginAreaMapper.class, FarmerInfoMapper.class,
+                FarmerProductMapper.class, PurchaserInfoMapper.class, PurchaseDemandMapper.class);
+
+        ProductImageServiceImpl productImageService = new ProductImageServiceImpl();
+        ReflectionTestUtils.setField(productImageService, "baseMapper", db.getMapper(ProductImageMapper.class));
+        OriginAreaServiceImpl originAreaService = new OriginAreaServiceImpl();
+        ReflectionTestUtils.setField(originAreaService, "baseMapper", db.getMapper(OriginAreaMapper.class));
+        FarmerInfoServiceImpl farmerInfoService = new FarmerInfoServiceImpl(null, null, null);
+        ReflectionTestUtils.setField(farmerInfoService, "baseMapper", db.getMapper(FarmerInfoMapper.class));
+        PurchaserInfoServiceImpl purchaserInfoService = new PurchaserInfoServiceImpl(null, null);
+        ReflectionTestUtils.setField(purchaserInfoService, "baseMapper", db.getMapper(PurchaserInfoMapper.class));
+        PurchaseDemandServiceImpl purchaseDemandService = new PurchaseDemandServiceImpl();
+        ReflectionTestUtils.setField(purchaseDemandService, "baseMapper", db.getMapper(PurchaseDemandMapper.class));
+        FarmerProductServiceImpl farmerProductService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(farmerProductService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+
+        converter = new EntityVOConverter(new ModelMapperConfig().modelMapper(), productImageService, originAreaService,
+                farmerInfoService, purchaserInfoService, purchaseDemandService);
+        ReflectionTestUtils.setField(converter, "farmerProductService", farmerProductService);
+
+        for (int areaId = 1; areaId <= 3; areaId++) {
+            db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (?, ?, ?, '山东省', '潍坊市')",
+                    areaId, "A" + areaId, "产地" + areaId);
+        }
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name, origin_area_id) VALUES (?, ?, ?, ?)",
+                    id, 100 + id, "农场" + id, id % 3 + 1);
+            db.jdbcTemplate().update("INSERT INTO farmer_product (id, farmer_id, category_id, name, spec, unit, price, stock, origin_area_id, status) "
+                    + "VALUES (?, ?, 1, ?, '1kg', 'kg', 10.00, 100, 1, 'on_sale')", id, id, "产品" + id);
+            db.jdbcTemplate().update("INSERT INTO purchaser_info (id, user_id, company_name) VALUES (?, ?, ?)",
+                    id, 200 + id, "采购商" + id);
+            db.jdbcTemplate().update("INSERT INTO purchase_demand (id, purchaser_id, category_id, product_name, quantity, unit) VALUES (?, ?, 1, ?, 100, 'kg')",
+                    id, id, "需求" + id);
+            // 偶数产品没有图片，奇数产品两张图片且插入顺序与排序相反
+            if (id % 2 == 1) {
+                for (int sort = 2; sort >= 1; sort--) {
+                    db.jdbcTemplate().update("INSERT INTO product_image (id, product_id, image_url, image_type, sort) VALUES (?, ?, ?, 'detail', ?)",
+                            id * 10 + sort, id, "/img/" + id + "-" + sort + ".jpg", sort);
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("产品列表 - 整页图片一次查询，按排序值返回")
+    void productList_LoadsImagesOnce() {
+        List<FarmerProduct> products = db.getMapper(FarmerProductMapper.class).selectList(null);
+        assertEquals(PAGE_SIZE, products.size());
+
+        db.resetStatementCount();
+        List<FarmerProductVO> vos = converter.toFarmerProductVOList(products);
+
+        assertEquals(1, db.statementCount());
+        FarmerProductVO first = vos.get(0);
+        assertEquals(1L, first.getId());
+        assertEquals(List.of("/img/1-1.jpg", "/img/1-2.jpg"), first.getImages().stream().map(ProductImageDTO::getUrl).toList());
+        assertTrue(vos.get(1).getImages().isEmpty());
+
+        db.resetStatementCount();
+        assertEquals(2, converter.toFarmerProductVO(products.get(2)).getImages().size());
+        assertEquals(1, db.statementCount());
+    }
+
+    @Test
+    @DisplayName("农户与需求列表 - 产地、采购商各一次查询")
+    void farmerAndDemandLists_LoadRelationsOnce() {
+        List<FarmerInfo> farmers = db.getMapper(FarmerInfoMapper.class).selectList(null);
+        db.resetStatementCount();
+        List<FarmerInfoVO> farmerVOs = converter.toFarmerInfoVOList(farmers);
+        assertEquals(1, db.statementCount());
+        assertEquals(PAGE_SIZE, farmerVOs.size());
+        assertEquals("产地2", farmerVOs.stream().filter(vo -> vo.getId() == 1L).findFirst().orElseThrow().getOriginAreaName());
+
+        List<PurchaseDemand> demands = db.getMapper(PurchaseDemandMapper.class).selectList(null);
+        db.resetStatementCount();
+        List<PurchaseDemandVO> demandVOs = converter.toPurchaseDemandVOList(demands);
+        assertEquals(1, db.statementCount());
+        assertTrue(demandVOs.stream().allMatch(vo -> ("采购商" + vo.getPurchaserId()).equals(vo.getCompanyName())));
+    }
+
+    @Test
+    @DisplayName("对接记录列表 - 查询数与页大小无关，缺失的关联不影响其他字段")
+    void dockingRecordList_QueryCountIndependentOfPageSize() {
+        List<DockingRecord> records = new ArrayList<>();
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            DockingRecord record = new DockingRecord();
+            record.setId(id);
+            record.setFarmerId(id);
+            record.setProductId(id);
+            record.setDemandId(id % 5 + 1);
+            records.add(record);
+        }
+        DockingRecord orphan = new DockingRecord();
+        orphan.setId(99L);
+        orphan.setFarmerId(1L);
+        orphan.setProductId(999L);
+        records.add(orphan);
+
+        db.resetStatementCount();
+        List<DockingRecordVO> vos = converter.toDockingRecordVOList(records);
+
+        // 农户、产品、需求、采购商各一次
+        assertEquals(4, db.statementCount());
+        DockingRecordVO vo = vos.get(2);
+        assertEquals("农场3", vo.getFarmName());
+        assertEquals("产品3", vo.getProductName());
+        assertEquals("需求4", vo.getDemandProductName());
+        assertEquals("采购商4", vo.getPurchaserName());
+        DockingRecordVO last = vos.get(PAGE_SIZE);
+        assertEquals("农场1", last.getFarmName());
+        assertNull(last.getProductName());
+        assertNull(last.getDemandProductName());
+
+        db.resetStatementCount();
+        assertTrue(converter.toDockingRecordVOList(List.of()).isEmpty());
+        assertEquals(0, db.statementCount());
+    }
+}
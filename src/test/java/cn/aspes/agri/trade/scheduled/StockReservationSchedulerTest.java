@@ -0,0 +1,138 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.config.StockReservationProperties;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.ReservationExpiryService;
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("库存预留过期释放任务测试")
+class StockReservationSchedulerTest {
+
+    private static final long PRODUCT_A = 4001L;
+    private static final long PRODUCT_B = 4002L;
+    private static final int INITIAL_STOCK = 100;
+
+    private MybatisTestSupport db;
+    private HotStockService hotStockService;
+    private ShardLeaseService shardLeaseService;
+    private StockReservationScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class);
+        hotStockService = mock(HotStockService.class);
+        shardLeaseService = mock(ShardLeaseService.class);
+        when(shardLeaseService.tryAcquire(anyString(), anyInt(), any()))
+                .thenAnswer(invocation -> new ShardLeaseService.Lease(invocation.getArgument(0), invocation.getArgument(1), 1L));
+        when(shardLeaseService.renew(any(), any())).thenReturn(true);
+
+        FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+
+        StockReservationProperties properties = new StockReservationProperties();
+        properties.setExpireBatchSize(7);
+        properties.setSweepShards(1);
+        scheduler = new StockReservationScheduler(db.getMapper(StockReservationMapper.class), productService,
+                hotStockService, properties, db.transactionManager(), mock(ReservationExpiryService.class), shardLeaseService);
+
+        db.insertProduct(PRODUCT_A, Map.of("stock", INITIAL_STOCK));
+        db.insertProduct(PRODUCT_B, Map.of("stock", INITIAL_STOCK));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("分批释放过期预留 - 按产品汇总回补且跳过未过期及非预留状态")
+    void sweep_ReleasesExpiredInBatches() {
+        LocalDateTime expired = LocalDateTime.now().minusHours(1);
+        for (int i = 1; i <= 20; i++) {
+            insertReservation(i, i % 2 == 0 ? PRODUCT_A : PRODUCT_B, i, "pending", expired);
+        }
+        insertReservation(21, PRODUCT_A, 5, "pending", LocalDateTime.now().plusHours(1));
+        insertReservation(22, PRODUCT_A, 5, "released", expired);
+
+        assertEquals(20, scheduler.sweepExpiredReservations(LocalDateTime.now()));
+
+        // 偶数编号归产品A：2+4+...+20=110，奇数归产品B：1+3+...+19=100
+        assertEquals(INITIAL_STOCK + 110, stock(PRODUCT_A));
+        assertEquals(INITIAL_STOCK + 100, stock(PRODUCT_B));
+        assertEquals(20, countByStatus("expired"));
+        assertEquals("pending", status(21));
+        assertEquals("released", status(22));
+
+        Map<String, Object> metrics = scheduler.getSweepMetrics();
+        assertEquals(3L, metrics.get("totalBatches"));
+        assertEquals(20L, metrics.get("totalReleased"));
+        verify(hotStockService, times(6)).restoreStock(anyLong(), anyInt());
+
+        // 再次执行不重复回补
+        assertEquals(0, scheduler.sweepExpiredReservations(LocalDateTime.now()));
+        assertEquals(INITIAL_STOCK + 110, stock(PRODUCT_A));
+    }
+
+    @Test
+    @DisplayName("批次失败 - 该批整体回滚，已提交批次保留")
+    void sweep_FailedBatchRollsBack() {
+        LocalDateTime expired = LocalDateTime.now().minusHours(1);
+        for (int i = 1; i <= 10; i++) {
+            insertReservation(i, PRODUCT_A, 1, "pending", expired);
+        }
+        // 第一批正常回补，第二批回补时模拟数据库故障
+        FarmerProductServiceImpl failing = spy(new FarmerProductServiceImpl());
+        ReflectionTestUtils.setField(failing, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        doCallRealMethod().doThrow(new IllegalStateException("模拟数据库故障"))
+                .when(failing).increaseStock(anyLong(), anyInt());
+        StockReservationProperties properties = new StockReservationProperties();
+        properties.setExpireBatchSize(7);
+        properties.setSweepShards(1);
+        StockReservationScheduler failingScheduler = new StockReservationScheduler(
+                db.getMapper(StockReservationMapper.class), failing, hotStockService, properties, db.transactionManager(), mock(ReservationExpiryService.class), shardLeaseService);
+
+        assertThrows(IllegalStateException.class,
+                () -> failingScheduler.sweepExpiredReservations(LocalDateTime.now()));
+
+        assertEquals(7, countByStatus("expired"));
+        assertEquals(3, countByStatus("pending"));
+        assertEquals(INITIAL_STOCK + 7, stock(PRODUCT_A));
+
+        // 故障恢复后，下一次执行继续处理剩余预留
+        assertEquals(3, scheduler.sweepExpiredReservations(LocalDateTime.now()));
+        assertEquals(INITIAL_STOCK + 10, stock(PRODUCT_A));
+    }
+
+    private void insertReservation(long id, long productId, int quantity, String status, LocalDateTime expiredTime) {
+        db.jdbcTemplate().update("INSERT INTO stock_reservation (id, product_id, order_id, reserved_quantity, status, expired_time) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", id, productId, id, quantity, status, Timestamp.valueOf(expiredTime));
+    }
+
+    private int stock(long productId) {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, productId);
+    }
+
+    private int countByStatus(String status) {
+        return db.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE status = ?", Integer.class, status);
+    }
+
+    private String status(long id) {
+        return db.jdbcTemplate().queryForObject("SELECT status FROM stock_reservation WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,173 @@
+package cn.aspes.agri.trade.scheduled;
+
+import cn.aspes.agri.trade.config.StockReservationProperties;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.HotStockService;
+import cn.aspes.agri.trade.service.ReservationExpiryService;
+import cn.aspes.agri.trade.service.ShardLeaseService;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.ShardLeaseServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("多节点分片过期扫描测试")
+class StockReservationShardedSweepTest {
+
+    private static final long PRODUCT_ID = 6001L;
+    private static final int RESERVATIONS = 2000;
+    private static final int NODES = 4;
+    private static final int SHARDS = 8;
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+    private ShardLeaseServiceImpl shardLeaseService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class);
+        shardLeaseService = new ShardLeaseServiceImpl(redis.redisTemplate());
+
+        db.insertProduct(PRODUCT_ID, Map.of("stock", 0));
+        Timestamp expired = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= RESERVATIONS; i++) {
+            rows.add(new Object[]{i, PRODUCT_ID, i, expired});
+        }
+        db.jdbcTemplate().batchUpdate("INSERT INTO stock_reservation (id, product_id, order_id, reserved_quantity, status, expired_time) "
+                + "VALUES (?, ?, ?, 1, 'pending', ?)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("多个节点同时扫描 - 分片互不重叠且库存只回补一次")
+    void concurrentNodes_ProcessDisjointShards() throws Exception {
+        List<StockReservationScheduler> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(newNode(50));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Integer> releasedByNode = new ArrayList<>();
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (StockReservationScheduler node : nodes) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return node.sweepExpiredReservations(LocalDateTime.now());
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                releasedByNode.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 各节点处理的分片互不重叠，且不遗漏未被占用的分片
+        Set<Integer> seenShards = new HashSet<>();
+        for (StockReservationScheduler node : nodes) {
+            @SuppressWarnings("unchecked")
+            List<Integer> shards = (List<Integer>) node.getSweepMetrics().get("lastRunShards");
+            for (Integer shard : shards) {
+                assertTrue(seenShards.add(shard), "分片被多个节点处理：" + shard);
+            }
+        }
+        assertEquals(RESERVATIONS, releasedByNode.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(RESERVATIONS, stock());
+        assertEquals(RESERVATIONS, countByStatus("expired"));
+    }
+
+    @Test
+    @DisplayName("分片已被其他节点持有 - 跳过该分片")
+    void heldShard_IsSkipped() {
+        ShardLeaseService.Lease held = shardLeaseService.tryAcquire("reservation-expiry-sweep", 3, Duration.ofMinutes(1));
+        assertNotNull(held);
+
+        int released = newNode(500).sweepExpiredReservations(LocalDateTime.now());
+
+        assertEquals(RESERVATIONS - RESERVATIONS / SHARDS, released);
+        assertEquals(RESERVATIONS / SHARDS, countByStatus("pending"));
+        assertEquals(0, (int) db.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM stock_reservation WHERE status = 'pending' AND MOD(id, ?) <> 3", Integer.class, SHARDS));
+    }
+
+    @Test
+    @DisplayName("租约过期被其他节点接管 - 原持有者续约失败且令牌递增")
+    void expiredLease_FencedOut() throws Exception {
+        ShardLeaseService.Lease first = shardLeaseService.tryAcquire("fence-test", 0, Duration.ofMillis(50));
+        assertNotNull(first);
+        assertNull(shardLeaseService.tryAcquire("fence-test", 0, Duration.ofMinutes(1)));
+
+        Thread.sleep(120);
+        ShardLeaseService.Lease second = shardLeaseService.tryAcquire("fence-test", 0, Duration.ofMinutes(1));
+        assertNotNull(second);
+        assertTrue(second.fencingToken() > first.fencingToken());
+
+        assertFalse(shardLeaseService.renew(first, Duration.ofMinutes(1)));
+        // 原持有者释放不影响新持有者
+        shardLeaseService.release(first);
+        assertTrue(shardLeaseService.renew(second, Duration.ofMinutes(1)));
+    }
+
+    private StockReservationScheduler newNode(int batchSize) {
+        FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        StockReservationProperties properties = new StockReservationProperties();
+        properties.setExpireBatchSize(batchSize);
+        properties.setSweepShards(SHARDS);
+        return new StockReservationScheduler(db.getMapper(StockReservationMapper.class), productService,
+                mock(HotStockService.class), properties, db.transactionManager(),
+                mock(ReservationExpiryService.class), new ShardLeaseServiceImpl(redis.redisTemplate()));
+    }
+
+    private int stock() {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, PRODUCT_ID);
+    }
+
+    private int countByStatus(String status) {
+        return db.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE status = ?", Integer.class, status);
+    }
+}
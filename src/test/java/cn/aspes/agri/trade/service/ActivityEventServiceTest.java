@@ -0,0 +1,112 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.service.impl.ActivityEventServiceImpl;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DisplayName("请求活跃事件管道测试")
+class ActivityEventServiceTest {
+
+    private FarmerActivityService farmerActivityService;
+    private StatisticsProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        farmerActivityService = mock(FarmerActivityService.class);
+        properties = new StatisticsProperties();
+        properties.setActivityBufferSize(16);
+        properties.setActivityBatchSize(10);
+        properties.setActivityMaxEndpoints(3);
+    }
+
+    @Test
+    @DisplayName("批量消费 - 汇总接口访问量与延迟，农户事件按发生时间计入活跃度")
+    void drainBatch_AggregatesEvents() {
+        ActivityEventServiceImpl service = new ActivityEventServiceImpl(farmerActivityService, properties);
+        for (int i = 0; i < 9; i++) {
+            assertTrue(service.publish(1L, false, "GET /api/farmer/product/{id}", 1000L, 800));
+        }
+        service.publish(2L, true, "POST /api/farmer/product", 120_000L, 40_000);
+        service.publish(3L, true, "POST /api/farmer/product", 180_000L, 90_000);
+
+        assertEquals(10, service.drainBatch());
+        assertEquals(1, service.drainBatch());
+        assertEquals(0, service.drainBatch());
+
+        verify(farmerActivityService).record(2L, 120_000L);
+        verify(farmerActivityService).record(3L, 180_000L);
+        verify(farmerActivityService, never()).record(eq(1L), anyLong());
+
+        List<StatisticsVO.EndpointStats> stats = service.getEndpointStats();
+        assertEquals(2, stats.size());
+        assertEquals("GET /api/farmer/product/{id}", stats.get(0).getEndpoint());
+        assertEquals(9L, stats.get(0).getHits());
+        assertEquals(1.0, stats.get(0).getP99Millis());
+        assertEquals(2L, stats.get(1).getHits());
+        assertEquals(50.0, stats.get(1).getP50Millis());
+        assertEquals(100.0, stats.get(1).getP99Millis());
+    }
+
+    @Test
+    @DisplayName("缓冲区写满 - 丢弃事件并计数，不阻塞发布方")
+    void fullBuffer_DropsAndCounts() {
+        ActivityEventServiceImpl service = new ActivityEventServiceImpl(farmerActivityService, properties);
+        for (int i = 0; i < 20; i++) {
+            service.publish((long) i, true, "GET /a", 0L, 10);
+        }
+
+        Map<String, Object> metrics = service.getPipelineMetrics();
+        assertEquals(16L, metrics.get("published"));
+        assertEquals(4L, metrics.get("dropped"));
+        assertEquals(16L, metrics.get("backlog"));
+
+        while (service.drainBatch() > 0) {
+            // 取完积压
+        }
+        assertEquals(16L, service.getPipelineMetrics().get("consumed"));
+        assertEquals(0L, service.getPipelineMetrics().get("backlog"));
+    }
+
+    @Test
+    @DisplayName("路由数超过上限 - 新路由归入other")
+    void endpointOverflow_GroupedAsOther() {
+        ActivityEventServiceImpl service = new ActivityEventServiceImpl(farmerActivityService, properties);
+        service.publish(1L, false, "GET /a", 0L, 10);
+        service.publish(1L, false, "GET /b", 0L, 10);
+        service.publish(1L, false, "GET /c", 0L, 10);
+        service.publish(1L, false, "GET /d", 0L, 10);
+        service.publish(1L, false, null, 0L, 10);
+        service.drainBatch();
+
+        Map<String, Long> hits = new HashMap<>();
+        service.getEndpointStats().forEach(s -> hits.put(s.getEndpoint(), s.getHits()));
+        assertEquals(Map.of("GET /a", 1L, "GET /b", 1L, "other", 3L), hits);
+    }
+
+    @Test
+    @DisplayName("后台消费线程 - 启动后自动处理，停止前取完积压")
+    void consumerThread_ProcessesAndDrainsOnStop() throws Exception {
+        ActivityEventServiceImpl service = new ActivityEventServiceImpl(farmerActivityService, properties);
+        service.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                service.publish((long) i, true, "GET /a", 0L, 10);
+            }
+        } finally {
+            service.stop();
+        }
+        assertEquals(10L, service.getPipelineMetrics().get("consumed"));
+        verify(farmerActivityService, times(10)).record(anyLong(), eq(0L));
+    }
+}
@@ -0,0 +1,152 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.BizNoProperties;
+import cn.aspes.agri.trade.enums.BizNoType;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.BizNoServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("业务编号服务测试")
+class BizNoServiceTest {
+
+    private static final String TODAY = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        db = MybatisTestSupport.create(PurchaseOrderMapper.class, PurchaseContractMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("多节点多线程并发生成订单号 - 全局唯一且格式正确")
+    void concurrentNodes_UniqueOrderNos() throws Exception {
+        List<BizNoService> nodes = List.of(newService(redis.redisTemplate(), 100), newService(redis.redisTemplate(), 100));
+        Set<String> orderNos = ConcurrentHashMap.newKeySet();
+        int threads = 32;
+        int perThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                BizNoService node = nodes.get(t % nodes.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        orderNos.add(node.nextNo(BizNoType.ORDER));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, orderNos.size());
+        assertTrue(orderNos.stream().allMatch(no -> no.matches("ORD" + TODAY + "\\d{6}")));
+    }
+
+    @Test
+    @DisplayName("号段发放 - 一个号段内只访问一次Redis，默认合同步长较小")
+    void segment_AllocatedOncePerStep() {
+        assertEquals(10, new BizNoProperties().stepOf(BizNoType.CONTRACT));
+
+        BizNoService service = newService(redis.redisTemplate(), 1000);
+        assertEquals("C" + TODAY + "0001", service.nextNo(BizNoType.CONTRACT));
+        for (int i = 0; i < 998; i++) {
+            service.nextNo(BizNoType.CONTRACT);
+        }
+        assertEquals("C" + TODAY + "1000", service.nextNo(BizNoType.CONTRACT));
+        assertEquals("1000", redis.redisTemplate().opsForValue().get("bizno:contract:" + TODAY));
+        assertEquals("C" + TODAY + "1001", service.nextNo(BizNoType.CONTRACT));
+        assertEquals("2000", redis.redisTemplate().opsForValue().get("bizno:contract:" + TODAY));
+    }
+
+    @Test
+    @DisplayName("当天计数不存在 - 以数据库最大编号（含超出位数的编号）加每节点一个号段续号")
+    void missingCounter_SeededFromDatabase() {
+        insertContract(1, "C" + TODAY + "0042");
+        insertContract(2, "C" + TODAY + "10005");
+        // 雪花ID降级编号不参与续号
+        insertContract(3, "C" + TODAY + "123456789012345678");
+
+        // 10005 + 10 * 16
+        assertEquals("C" + TODAY + "10166", newService(redis.redisTemplate(), 10).nextNo(BizNoType.CONTRACT));
+    }
+
+    private void insertContract(long id, String contractNo) {
+        db.jdbcTemplate().update("INSERT INTO purchase_contract (id, contract_no, docking_id, purchaser_id, farmer_id, product_id, "
+                + "quantity, total_amount, payment_terms, delivery_time, delivery_address) "
+                + "VALUES (?, ?, 1, 1, 1, 1, 1, 1.00, '预付', CURRENT_DATE, '地址')", id, contractNo);
+    }
+
+    @Test
+    @DisplayName("Redis不可用 - 降级为雪花ID编号")
+    void redisUnavailable_FallsBackToSnowflake() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.hasKey(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        String orderNo = newService(broken, 1000).nextNo(BizNoType.ORDER);
+
+        assertTrue(orderNo.matches("ORD" + TODAY + "\\d{15,}"));
+    }
+
+    private BizNoService newService(StringRedisTemplate redisTemplate, int step) {
+        BizNoProperties properties = new BizNoProperties();
+        properties.getSegmentStep().put(BizNoType.ORDER, step);
+        properties.getSegmentStep().put(BizNoType.CONTRACT, step);
+        return new BizNoServiceImpl(redisTemplate, properties, db.getMapper(PurchaseOrderMapper.class),
+                db.getMapper(PurchaseContractMapper.class), new SnowflakeIdGenerator(1, 1));
+    }
+}
@@ -0,0 +1,79 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.BizNoProperties;
+import cn.aspes.agri.trade.enums.BizNoType;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.BizNoServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 业务编号吞吐量对比：每个编号一次 INCR vs 号段发放
+ *
+ * 默认不执行，使用 mvn test -Dtest=BizNoThroughputBenchmarkTest -Dbenchmark=true 运行。
+ */
+@DisplayName("业务编号吞吐量对比")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BizNoThroughputBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 200000);
+
+    @Test
+    @DisplayName("多线程生成订单号吞吐量")
+    void compareThroughput() throws Exception {
+        try (EmbeddedRedisSupport redis = EmbeddedRedisSupport.start();
+             MybatisTestSupport db = MybatisTestSupport.create(PurchaseOrderMapper.class, PurchaseContractMapper.class)) {
+            double perNumber = run(redis, db, 1);
+            redis.flushAll();
+            double segmented = run(redis, db, 1000);
+            System.out.printf("订单号生成吞吐量（%d线程，%d次）：逐个INCR %.0f ops/s，号段1000 %.0f ops/s%n",
+                    THREADS, REQUESTS, perNumber, segmented);
+        }
+    }
+
+    private double run(EmbeddedRedisSupport redis, MybatisTestSupport db, int step) throws Exception {
+        BizNoProperties properties = new BizNoProperties();
+        properties.getSegmentStep().put(BizNoType.ORDER, step);
+        properties.getSegmentStep().put(BizNoType.CONTRACT, step);
+        BizNoService service = new BizNoServiceImpl(redis.redisTemplate(), properties,
+                db.getMapper(PurchaseOrderMapper.class), db.getMapper(PurchaseContractMapper.class), new SnowflakeIdGenerator(1, 1));
+        service.nextNo(BizNoType.ORDER);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int perThread = REQUESTS / THREADS;
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        service.nextNo(BizNoType.ORDER);
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (double) perThread * THREADS / ((System.nanoTime() - begin) / 1_000_000_000.0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
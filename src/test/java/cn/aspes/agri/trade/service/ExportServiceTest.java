@@ -0,0 +1,129 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.dto.ExportRequest;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.PaymentRecordMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.ExportServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("订单与支付流式导出测试")
+class ExportServiceTest {
+
+    private static final LocalDate MONTH_START = LocalDate.of(2026, 3, 1);
+    private static final LocalDate MONTH_END = LocalDate.of(2026, 3, 31);
+
+    private MybatisTestSupport db;
+    private ExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(PurchaseOrderMapper.class, PaymentRecordMapper.class);
+        exportService = new ExportServiceImpl(db.getMapper(PurchaseOrderMapper.class),
+                db.getMapper(PaymentRecordMapper.class), db.transactionManager());
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("导出订单 - 按区间逐行写出，产品快照展开为列")
+    void exportOrders_FlattensSnapshot() {
+        insertOrder(1, "completed", MONTH_START.atTime(0, 0), "{\"name\":\"寿光番茄\",\"spec\":\"5kg/箱\",\"unit\":\"箱\",\"price\":12.50}");
+        insertOrder(2, "pending", MONTH_END.atTime(23, 59, 59), "{\"name\":\"=1+1\",\"spec\":\"散装, 去叶\",\"unit\":\"kg\",\"price\":3}");
+        insertOrder(3, "completed", MONTH_END.plusDays(1).atStartOfDay(), "{\"name\":\"区间外\"}");
+        insertOrder(4, "completed", MONTH_START.minusDays(1).atTime(23, 0), null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, exportService.exportOrders(request(null), out));
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("\uFEFF订单ID,订单编号"));
+        List<String> lines = csv.substring(1).lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).startsWith("1,PO1,1,1,寿光番茄,5kg/箱,箱,12.5,10,100.00,,,1,1,已完成,,2026-03-01 00:00:00"));
+        // 含逗号的字段加引号，公式字符开头的文本加单引号
+        assertTrue(lines.get(2).contains(",'=1+1,\"散装, 去叶\",kg,3,"));
+        assertFalse(csv.contains("区间外"));
+    }
+
+    @Test
+    @DisplayName("按状态导出 - 只包含指定状态")
+    void exportOrders_FilterByStatus() {
+        insertOrder(1, "completed", MONTH_START.atTime(10, 0), null);
+        insertOrder(2, "cancelled", MONTH_START.atTime(11, 0), null);
+
+        ExportRequest request = request("cancelled");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, exportService.exportOrders(request, out));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("PO2"));
+    }
+
+    @Test
+    @DisplayName("大量数据导出 - 游标逐行读取，行数与输出一致")
+    void exportPayments_ManyRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            rows.add(new Object[]{i, "PAY" + i, i, i % 2 == 0 ? "success" : "pending",
+                    Timestamp.valueOf(MONTH_START.atStartOfDay().plusMinutes(i))});
+        }
+        db.jdbcTemplate().batchUpdate("INSERT INTO payment_record (id, payment_no, order_id, payment_stage, amount, payment_method, status, create_time) "
+                + "VALUES (?, ?, ?, '全款', 99.90, 'alipay', ?, ?)", rows);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2500, exportService.exportPayments(request("success"), out));
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).substring(1).lines().toList();
+        assertEquals(2501, lines.size());
+        assertTrue(lines.get(1).startsWith("2,PAY2,2,全款,99.90,支付宝,支付成功,,2026-03-01 00:02:00"));
+    }
+
+    @Test
+    @DisplayName("参数校验 - 区间颠倒、超过上限或状态无效时拒绝")
+    void check_RejectsInvalidRequest() {
+        ExportRequest reversed = request(null);
+        reversed.setFrom(MONTH_END);
+        reversed.setTo(MONTH_START);
+        assertThrows(BusinessException.class, () -> exportService.checkOrderExport(reversed));
+
+        ExportRequest tooLong = request(null);
+        tooLong.setFrom(MONTH_START.minusYears(2));
+        assertThrows(BusinessException.class, () -> exportService.checkOrderExport(tooLong));
+
+        assertThrows(BusinessException.class, () -> exportService.checkOrderExport(request("success")));
+        assertThrows(BusinessException.class, () -> exportService.checkPaymentExport(request("completed")));
+        assertDoesNotThrow(() -> exportService.checkPaymentExport(request("success")));
+    }
+
+    private ExportRequest request(String status) {
+        ExportRequest request = new ExportRequest();
+        request.setFrom(MONTH_START);
+        request.setTo(MONTH_END);
+        request.setStatus(status);
+        return request;
+    }
+
+    private void insertOrder(long id, String status, LocalDateTime createTime, String productInfo) {
+        Map<String, Object> columns = new HashMap<>(Map.of("quantity", 10, "status", status, "create_time", createTime));
+        columns.put("product_info", productInfo);
+        db.insertOrder(id, columns);
+    }
+}
@@ -0,0 +1,138 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.impl.FarmerActivityServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DisplayName("农户活跃度滑动窗口测试")
+class FarmerActivityServiceTest {
+
+    private static EmbeddedRedisSupport redis;
+
+    private final AtomicLong clock = new AtomicLong(29_000_000L);
+    private StatisticsMapper statisticsMapper;
+    private StatisticsProperties properties;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        statisticsMapper = mock(StatisticsMapper.class);
+        when(statisticsMapper.selectFarmerCity(anyLong()))
+                .thenAnswer(invocation -> (Long) invocation.getArgument(0) % 2 == 0 ? "济南" : "青岛");
+        properties = new StatisticsProperties();
+    }
+
+    @Test
+    @DisplayName("多节点共享Redis - 请求数累加且农户跨节点去重")
+    void multipleNodes_MergedThroughRedis() {
+        FarmerActivityServiceImpl nodeA = newNode("a");
+        FarmerActivityServiceImpl nodeB = newNode("b");
+        for (long userId = 1; userId <= 100; userId++) {
+            nodeA.record(userId);
+            nodeB.record(userId);
+        }
+        nodeA.flush();
+
+        Map<String, Long> requests = nodeB.countRequestsByCity(5);
+        assertEquals(100L, requests.get("济南"));
+        assertEquals(100L, requests.get("青岛"));
+
+        Map<String, Long> farmers = nodeB.countActiveFarmersByCity(5);
+        assertEquals(50L, farmers.get("济南"), 2);
+        assertEquals(50L, farmers.get("青岛"), 2);
+    }
+
+    @Test
+    @DisplayName("读取 - 不写Redis，本节点以内存为准且不重复计入自己写入的快照")
+    void read_MergesLocalWithOtherNodesWithoutFlushing() {
+        FarmerActivityServiceImpl nodeA = newNode("a");
+        FarmerActivityServiceImpl nodeB = newNode("b");
+        for (int i = 0; i < 10; i++) {
+            nodeA.record(2L);
+        }
+        assertEquals(10L, nodeA.countRequestsByCity(5).get("济南"));
+        assertTrue(redis.redisTemplate().keys("stats:farmer-activity:*").isEmpty());
+
+        nodeA.flush();
+        for (int i = 0; i < 5; i++) {
+            nodeA.record(2L);
+        }
+        nodeB.record(4L);
+        // 本节点15次全部来自内存；节点B只能看到A上次写入的10次
+        assertEquals(15L, nodeA.countRequestsByCity(5).get("济南"));
+        assertEquals(11L, nodeB.countRequestsByCity(5).get("济南"));
+        assertEquals(2L, nodeB.countActiveFarmersByCity(5).get("济南"));
+    }
+
+    @Test
+    @DisplayName("城市查询缓存 - 同一农户只查询一次数据库")
+    void cityLookup_Cached() {
+        FarmerActivityServiceImpl node = newNode("a");
+        for (int i = 0; i < 10; i++) {
+            node.record(2L);
+        }
+        verify(statisticsMapper, times(1)).selectFarmerCity(2L);
+        assertEquals(Map.of("济南", 10L), node.countRequestsByCity(5));
+    }
+
+    @Test
+    @DisplayName("时间推进 - 窗口外的分钟不再计入")
+    void oldMinutes_OutsideWindow() {
+        FarmerActivityServiceImpl node = newNode("a");
+        node.record(2L);
+        clock.addAndGet(3);
+        node.record(2L);
+        node.record(4L);
+
+        assertEquals(2L, node.countRequestsByCity(1).get("济南"));
+        assertEquals(3L, node.countRequestsByCity(5).get("济南"));
+        assertEquals(2L, node.countActiveFarmersByCity(5).get("济南"));
+
+        clock.addAndGet(FarmerActivityService.MAX_WINDOW_MINUTES);
+        assertTrue(node.countRequestsByCity(FarmerActivityService.MAX_WINDOW_MINUTES).isEmpty());
+    }
+
+    @Test
+    @DisplayName("未登记产地的农户 - 不计入统计")
+    void untrackedFarmer_Skipped() {
+        when(statisticsMapper.selectFarmerCity(7L)).thenReturn(null);
+        FarmerActivityServiceImpl node = newNode("a");
+        node.record(7L);
+        node.record(7L);
+
+        assertTrue(node.countRequestsByCity(5).isEmpty());
+        verify(statisticsMapper, times(1)).selectFarmerCity(7L);
+    }
+
+    private FarmerActivityServiceImpl newNode(String nodeId) {
+        return new FarmerActivityServiceImpl(statisticsMapper, redis.redisTemplate(), properties, nodeId, Runnable::run) {
+            @Override
+            protected long currentMinute() {
+                return clock.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,260 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.HotStockProperties;
+import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.HotStockServiceImpl;
+import cn.aspes.agri.trade.service.impl.StockReservationServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("热点库存引擎测试")
+class HotStockServiceTest {
+
+    private static final long PRODUCT_ID = 2001L;
+    private static final int INITIAL_STOCK = 1000;
+    private static final String AVAILABLE_KEY = "stock:hot:available:" + PRODUCT_ID;
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+    private StringRedisTemplate redisTemplate;
+    private HotStockProperties properties;
+    private HotStockServiceImpl hotStockService;
+    private StockReservationServiceImpl reservationService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        redisTemplate = redis.redisTemplate();
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class, PurchaseOrderMapper.class);
+
+        properties = new HotStockProperties();
+        properties.setEnabled(true);
+        properties.setFlushBatchSize(100);
+        properties.setPendingTimeoutSeconds(0);
+        hotStockService = new HotStockServiceImpl(redisTemplate, properties,
+                db.getMapper(FarmerProductMapper.class), db.getMapper(StockReservationMapper.class),
+                db.getMapper(PurchaseOrderMapper.class), db.transactionManager());
+
+        FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        reservationService = new StockReservationServiceImpl(productService, new SnowflakeIdGenerator(1, 1), hotStockService, mock(ReservationExpiryService.class));
+        ReflectionTestUtils.setField(reservationService, "baseMapper", db.getMapper(StockReservationMapper.class));
+
+        db.insertProduct(PRODUCT_ID, Map.of("name", "热点产品", "stock", INITIAL_STOCK));
+        hotStockService.enableHotProduct(PRODUCT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("热点模式并发预留 - 不超卖且批量落库后数据库一致")
+    void concurrentHotReserve_NeverOversells() throws Exception {
+        int requests = 3000;
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                final long orderId = 10_000L + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.reserveStock(orderId, PRODUCT_ID, 1);
+                        succeeded.incrementAndGet();
+                    } catch (BusinessException e) {
+                        assertEquals("库存不足，无法预留", e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(INITIAL_STOCK, succeeded.get());
+        assertEquals("0", redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        // 落库前数据库库存尚未扣减
+        assertEquals(INITIAL_STOCK, dbStock());
+
+        assertEquals(INITIAL_STOCK, hotStockService.flushPendingReservations());
+        assertEquals(0, dbStock());
+        assertEquals(INITIAL_STOCK, reservationCount());
+    }
+
+    @Test
+    @DisplayName("订单事务回滚 - 归还热点计数且不落库")
+    void rollback_RestoresCounter() {
+        db.transactionTemplate().executeWithoutResult(status -> {
+            reservationService.reserveStock(1L, PRODUCT_ID, 5);
+            assertEquals(String.valueOf(INITIAL_STOCK - 5), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(String.valueOf(INITIAL_STOCK), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        assertEquals(0, hotStockService.flushPendingReservations());
+        assertEquals(0L, redisTemplate.opsForHash().size("stock:hot:pending"));
+    }
+
+    @Test
+    @DisplayName("崩溃后重放处理中批次 - 落库幂等")
+    void replayProcessingBatch_IsIdempotent() {
+        reservationService.reserveStock(1L, PRODUCT_ID, 3);
+        reservationService.reserveStock(2L, PRODUCT_ID, 4);
+        List<String> entries = redisTemplate.opsForList().range("stock:hot:queue", 0, -1);
+        assertEquals(2, hotStockService.flushPendingReservations());
+
+        // 模拟落库事务已提交、但删除处理中列表前进程崩溃
+        redisTemplate.opsForList().rightPushAll("stock:hot:processing", entries);
+        assertEquals(0, hotStockService.flushPendingReservations());
+
+        assertEquals(INITIAL_STOCK - 7, dbStock());
+        assertEquals(2, reservationCount());
+        assertEquals(0L, redisTemplate.opsForList().size("stock:hot:processing"));
+    }
+
+    @Test
+    @DisplayName("超时的待提交流水 - 订单不存在且超过放弃时间才归还计数")
+    void stalePendingWithoutOrder_IsRolledBack() {
+        redisTemplate.opsForValue().decrement(AVAILABLE_KEY, 6);
+        redisTemplate.opsForHash().put("stock:hot:pending", "99:" + PRODUCT_ID,
+                "5001|99|" + PRODUCT_ID + "|6|" + System.currentTimeMillis() + "|" + (System.currentTimeMillis() - 1000));
+
+        // 订单事务可能仍在执行，放弃时间内保留
+        properties.setPendingAbandonSeconds(600);
+        assertEquals(0, hotStockService.flushPendingReservations());
+        assertEquals(String.valueOf(INITIAL_STOCK - 6), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+
+        properties.setPendingAbandonSeconds(0);
+        assertEquals(0, hotStockService.flushPendingReservations());
+        assertEquals(String.valueOf(INITIAL_STOCK), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        assertEquals(INITIAL_STOCK, dbStock());
+    }
+
+    @Test
+    @DisplayName("落库锁被其他节点持有 - 按订单查询仍能立即落库，之后的落库不重复扣减")
+    void activeReservation_PersistedWithoutFlushLock() {
+        reservationService.reserveStock(1L, PRODUCT_ID, 8);
+        redisTemplate.opsForValue().set("stock:hot:flush:lock", "other-node");
+
+        StockReservation reservation = reservationService.getActiveReservationByOrderId(1L);
+        assertNotNull(reservation);
+        assertEquals(8, reservation.getReservedQuantity());
+        assertEquals(INITIAL_STOCK - 8, dbStock());
+
+        redisTemplate.delete("stock:hot:flush:lock");
+        assertEquals(0, hotStockService.flushPendingReservations());
+        assertEquals(INITIAL_STOCK - 8, dbStock());
+        assertEquals(1, reservationCount());
+    }
+
+    @Test
+    @DisplayName("计数丢失后重建 - 扣除尚未落库的流水")
+    void reseed_SubtractsUnflushedEntries() {
+        db.transactionTemplate().executeWithoutResult(status -> {
+            reservationService.reserveStock(1L, PRODUCT_ID, 5);
+            redisTemplate.delete(AVAILABLE_KEY);
+            reservationService.reserveStock(2L, PRODUCT_ID, 3);
+            assertEquals(String.valueOf(INITIAL_STOCK - 8), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        });
+
+        assertEquals(2, hotStockService.flushPendingReservations());
+        assertEquals(INITIAL_STOCK - 8, dbStock());
+    }
+
+    @Test
+    @DisplayName("落库时数据库库存不足 - 不写入预留，转入死信并重建计数")
+    void persistWithInsufficientDbStock_DeadLettered() {
+        reservationService.reserveStock(1L, PRODUCT_ID, 10);
+        db.jdbcTemplate().update("UPDATE farmer_product SET stock = 5 WHERE id = ?", PRODUCT_ID);
+
+        assertEquals(0, hotStockService.flushPendingReservations());
+        assertEquals(5, dbStock());
+        assertEquals(0, reservationCount());
+        assertEquals(1L, redisTemplate.opsForList().size("stock:hot:dead"));
+        assertNull(redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        assertThrows(BusinessException.class, () -> reservationService.getActiveReservationByOrderId(1L));
+
+        reservationService.reserveStock(2L, PRODUCT_ID, 5);
+        assertEquals("0", redisTemplate.opsForValue().get(AVAILABLE_KEY));
+    }
+
+    @Test
+    @DisplayName("释放热点预留 - 同时回补数据库库存与热点计数")
+    void releaseHotReservation_RestoresBoth() {
+        reservationService.reserveStock(1L, PRODUCT_ID, 8);
+
+        // 预留仍在落库队列中，释放时会先落库再释放
+        reservationService.releaseReservation(1L, "订单取消");
+
+        assertEquals(INITIAL_STOCK, dbStock());
+        assertEquals(String.valueOf(INITIAL_STOCK), redisTemplate.opsForValue().get(AVAILABLE_KEY));
+    }
+
+    @Test
+    @DisplayName("关闭热点模式 - 积压流水落库并回到数据库预留")
+    void disableHotProduct_FlushesAndFallsBack() {
+        reservationService.reserveStock(1L, PRODUCT_ID, 10);
+        hotStockService.disableHotProduct(PRODUCT_ID);
+
+        assertFalse(hotStockService.isHotProduct(PRODUCT_ID));
+        assertNull(redisTemplate.opsForValue().get(AVAILABLE_KEY));
+        assertEquals(INITIAL_STOCK - 10, dbStock());
+
+        reservationService.reserveStock(2L, PRODUCT_ID, 10);
+        assertEquals(INITIAL_STOCK - 20, dbStock());
+    }
+
+    private int dbStock() {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, PRODUCT_ID);
+    }
+
+    private int reservationCount() {
+        return db.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE product_id = ?", Integer.class, PRODUCT_ID);
+    }
+}
@@ -0,0 +1,101 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.HotStockProperties;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.HotStockServiceImpl;
+import cn.aspes.agri.trade.service.impl.StockReservationServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 库存预留吞吐量对比：纯数据库模式 vs 热点库存模式
+ *
+ * 默认不执行，使用 mvn test -Dtest=HotStockThroughputBenchmarkTest -Dbenchmark=true 运行。
+ * 测试库为H2内存库，绝对数值仅供参考，生产评估请将数据源指向MySQL。
+ */
+@DisplayName("热点库存吞吐量对比")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HotStockThroughputBenchmarkTest {
+
+    private static final long PRODUCT_ID = 3001L;
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20000);
+
+    @Test
+    @DisplayName("单热点产品并发预留吞吐量")
+    void compareThroughput() throws Exception {
+        try (EmbeddedRedisSupport redis = EmbeddedRedisSupport.start()) {
+            double dbOps = run(redis, false);
+            redis.flushAll();
+            double hotOps = run(redis, true);
+            System.out.printf("库存预留吞吐量（%d线程，%d次）：数据库模式 %.0f ops/s，热点模式 %.0f ops/s（含落库）%n",
+                    THREADS, REQUESTS, dbOps, hotOps);
+        }
+    }
+
+    private double run(EmbeddedRedisSupport redis, boolean hot) throws Exception {
+        try (MybatisTestSupport db = MybatisTestSupport.create(
+                FarmerProductMapper.class, StockReservationMapper.class, PurchaseOrderMapper.class)) {
+            HotStockProperties properties = new HotStockProperties();
+            properties.setEnabled(true);
+            HotStockServiceImpl hotStockService = new HotStockServiceImpl(redis.redisTemplate(), properties,
+                    db.getMapper(FarmerProductMapper.class), db.getMapper(StockReservationMapper.class),
+                    db.getMapper(PurchaseOrderMapper.class), db.transactionManager());
+
+            FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+            ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+            StockReservationServiceImpl reservationService = new StockReservationServiceImpl(
+                    productService, new SnowflakeIdGenerator(1, 1), hotStockService, mock(ReservationExpiryService.class));
+            ReflectionTestUtils.setField(reservationService, "baseMapper", db.getMapper(StockReservationMapper.class));
+
+            db.insertProduct(PRODUCT_ID, Map.of("name", "压测产品", "stock", REQUESTS));
+            if (hot) {
+                hotStockService.enableHotProduct(PRODUCT_ID);
+            }
+
+            AtomicLong orderSeq = new AtomicLong(1);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < REQUESTS; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        reservationService.reserveStock(orderSeq.getAndIncrement(), PRODUCT_ID, 1);
+                        return null;
+                    }));
+                }
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                if (hot) {
+                    hotStockService.flushPendingReservations();
+                }
+                return REQUESTS / ((System.nanoTime() - begin) / 1_000_000_000.0);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
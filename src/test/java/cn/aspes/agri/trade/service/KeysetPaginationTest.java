@@ -0,0 +1,87 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.common.CursorPage;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.KeysetCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("游标分页测试")
+class KeysetPaginationTest {
+
+    private MybatisTestSupport db;
+    private FarmerProductServiceImpl productService;
+    private final LocalDateTime base = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class);
+        productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+
+        // 每3个产品创建时间相同，翻页边界落在相同时间的记录之间
+        for (long id = 1; id <= 11; id++) {
+            db.insertProduct(id, Map.of("name", "产品" + id, "status", id % 5 == 0 ? "off_sale" : "on_sale",
+                    "create_time", base.minusMinutes((id - 1) / 3)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("逐页翻到末尾 - 按（创建时间, ID）倒序，不重不漏")
+    void walkAllPages_NoDuplicatesOrGaps() {
+        List<Long> walked = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            CursorPage<FarmerProduct> page = productService.listProductsByCursor(after, 2, null, null, "on_sale");
+            page.getRecords().forEach(p -> walked.add(p.getId()));
+            assertEquals(page.isHasMore(), page.getNext() != null);
+            after = page.getNext();
+            pages++;
+        } while (after != null);
+
+        assertEquals(List.of(3L, 2L, 1L, 6L, 4L, 9L, 8L, 7L, 11L), walked);
+        assertEquals(5, pages);
+    }
+
+    @Test
+    @DisplayName("筛选条件与游标同时生效；最后一页恰好取完时不返回游标")
+    void filtersAndLastPage() {
+        CursorPage<FarmerProduct> offSale = productService.listProductsByCursor(null, 2, null, null, "off_sale");
+        assertEquals(List.of(5L, 10L), offSale.getRecords().stream().map(FarmerProduct::getId).toList());
+        assertFalse(offSale.isHasMore());
+        assertNull(offSale.getNext());
+
+        String cursor = KeysetCursor.encode(base.minusMinutes(1), 5L);
+        CursorPage<FarmerProduct> page = productService.listProductsByCursor(cursor, 3, null, null, null);
+        assertEquals(List.of(4L, 9L, 8L), page.getRecords().stream().map(FarmerProduct::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(new KeysetCursor.Position(base.minusMinutes(2), 8L), KeysetCursor.decode(page.getNext()));
+    }
+
+    @Test
+    @DisplayName("游标格式不正确 - 参数异常")
+    void invalidCursor_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> productService.listProductsByCursor("not-a-cursor", 2, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("%%%"));
+    }
+
+}
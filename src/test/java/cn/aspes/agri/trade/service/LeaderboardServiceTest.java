@@ -0,0 +1,230 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.impl.LeaderboardServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("排行榜测试")
+class LeaderboardServiceTest {
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+    private StatisticsProperties properties;
+    private long nextOrderId = 1;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        db = MybatisTestSupport.create(StatisticsMapper.class);
+        properties = new StatisticsProperties();
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (1, '370783', '寿光市', '山东', '潍坊')");
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (2, '530522', '腾冲市', '云南', '保山')");
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name, origin_area_id) VALUES (11, 111, '绿源合作社', 1)");
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name, origin_area_id) VALUES (12, 112, '高原茶园', 2)");
+        db.insertProduct(21, Map.of("farmer_id", 11L, "origin_area_id", 1, "name", "寿光番茄", "stock", 0));
+        db.insertProduct(22, Map.of("farmer_id", 11L, "origin_area_id", 1, "name", "寿光黄瓜", "stock", 0));
+        db.insertProduct(23, Map.of("farmer_id", 12L, "origin_area_id", 2, "name", "腾冲红茶", "stock", 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("订单完成与支付成功 - 计入各维度排行并补全名称")
+    void record_RanksByDimension() {
+        TestLeaderboard leaderboard = newNode("1-1");
+        complete(leaderboard, 21, 11, 1, 30);
+        complete(leaderboard, 22, 11, 1, 50);
+        complete(leaderboard, 23, 12, 2, 10);
+        pay(leaderboard, 11, "120.50");
+        pay(leaderboard, 12, "300.00");
+
+        List<StatisticsVO.LeaderboardEntry> products = leaderboard.getTop("product", 7, 2, false);
+        assertEquals(List.of(22L, 21L), products.stream().map(StatisticsVO.LeaderboardEntry::getId).toList());
+        assertEquals("寿光黄瓜", products.get(0).getName());
+        assertEquals(0, new BigDecimal("50").compareTo(products.get(0).getScore()));
+
+        List<StatisticsVO.LeaderboardEntry> farmers = leaderboard.getTop("farmer", 7, 10, false);
+        assertEquals("高原茶园", farmers.get(0).getName());
+        assertEquals(new BigDecimal("300.00"), farmers.get(0).getScore());
+        assertEquals(new BigDecimal("120.50"), farmers.get(1).getScore());
+
+        List<StatisticsVO.LeaderboardEntry> areas = leaderboard.getTop("origin_area", 7, 10, false);
+        assertEquals("寿光市", areas.get(0).getName());
+        assertEquals(0, new BigDecimal("2").compareTo(areas.get(0).getScore()));
+
+        // 近似排行与订单表精确计算一致
+        for (StatisticsVO.LeaderboardValidation validation : leaderboard.validate(7, 10)) {
+            assertEquals(1.0, validation.getRecall(), validation.getDimension());
+            assertEquals(0.0, validation.getMaxRelativeError(), validation.getDimension());
+        }
+        assertEquals(3, leaderboard.getLastValidation().size());
+    }
+
+    @Test
+    @DisplayName("多节点 - 查询时合并各节点草图")
+    void multipleNodes_Merged() {
+        TestLeaderboard first = newNode("1-1");
+        TestLeaderboard second = newNode("1-2");
+        complete(first, 21, 11, 1, 30);
+        complete(second, 21, 11, 1, 25);
+        complete(second, 23, 12, 2, 40);
+        second.flush();
+
+        List<StatisticsVO.LeaderboardEntry> products = first.getTop("product", 1, 10, false);
+        assertEquals(21L, products.get(0).getId());
+        assertEquals(0, new BigDecimal("55").compareTo(products.get(0).getScore()));
+        assertEquals(23L, products.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("按天窗口 - 只合并查询天数内的草图，重启后旧实例已写入的草图仍计入")
+    void dailyWindows_AndRestart() {
+        TestLeaderboard node = newNode("1-1");
+        long today = node.day;
+        node.day = today - 3;
+        complete(node, 21, 11, 1, 100);
+        node.day = today;
+        complete(node, 22, 11, 1, 10);
+
+        assertEquals(List.of(22L), ids(node.getTop("product", 1, 10, false)));
+        assertEquals(List.of(21L, 22L), ids(node.getTop("product", 4, 10, false)));
+
+        // 查询不写Redis，只有定时写入后其他实例才可见
+        assertTrue(newNode("9-9").getTop("product", 1, 10, false).isEmpty());
+        // 两天各有产品与产地两个草图
+        assertEquals(4, node.flush());
+
+        // 重启后以新实例号写入，不覆盖旧实例的草图
+        TestLeaderboard restarted = newNode("1-1-restarted");
+        complete(restarted, 22, 11, 1, 5);
+        restarted.flush();
+        StatisticsVO.LeaderboardEntry top = newNode("9-9").getTop("product", 1, 10, false).get(0);
+        assertEquals(0, new BigDecimal("15").compareTo(top.getScore()));
+    }
+
+    @Test
+    @DisplayName("精确计算 - 按完成时间归日，完成后再更新订单不改变所属日期")
+    void exactTop_DatedByFinishTime() {
+        TestLeaderboard node = newNode("1-1");
+        long today = node.day;
+        node.day = today - 3;
+        complete(node, 21, 11, 1, 100);
+        node.day = today;
+        complete(node, 22, 11, 1, 10);
+        // 完成后的管理员修改、版本号递增等只改变更新时间
+        db.jdbcTemplate().update("UPDATE purchase_order SET update_time = ?", Timestamp.valueOf(LocalDateTime.now()));
+
+        assertEquals(List.of(22L), ids(node.getTop("product", 1, 10, true)));
+        assertEquals(0, new BigDecimal("1").compareTo(node.getTop("origin_area", 1, 10, true).get(0).getScore()));
+        for (StatisticsVO.LeaderboardValidation validation : node.validate(1, 10)) {
+            assertEquals(1.0, validation.getRecall(), validation.getDimension());
+        }
+    }
+
+    @Test
+    @DisplayName("事务回滚 - 不计入排行")
+    void rollback_NotRecorded() {
+        TestLeaderboard node = newNode("1-1");
+        db.transactionTemplate().executeWithoutResult(status -> {
+            complete(node, 21, 11, 1, 30);
+            status.setRollbackOnly();
+        });
+        db.transactionTemplate().executeWithoutResult(status -> complete(node, 22, 11, 1, 5));
+
+        assertEquals(List.of(22L), ids(node.getTop("product", 1, 10, false)));
+    }
+
+    @Test
+    @DisplayName("参数校验 - 维度、天数与名次数越界时拒绝")
+    void getTop_RejectsInvalidArguments() {
+        TestLeaderboard node = newNode("1-1");
+        assertThrows(BusinessException.class, () -> node.getTop("city", 7, 10, false));
+        assertThrows(BusinessException.class, () -> node.getTop("product", properties.getLeaderboardWindowDays() + 1, 10, false));
+        assertThrows(BusinessException.class, () -> node.getTop("product", 7, properties.getLeaderboardMaxTopK() + 1, false));
+    }
+
+    private TestLeaderboard newNode(String nodeId) {
+        return new TestLeaderboard(db.getMapper(StatisticsMapper.class), properties, nodeId);
+    }
+
+    /**
+     * 写入已完成订单（供精确计算）并计入排行
+     */
+    private void complete(TestLeaderboard leaderboard, long productId, long farmerId, long areaId, int quantity) {
+        long id = nextOrderId++;
+        LocalDateTime finishTime = LocalDate.ofEpochDay(leaderboard.day).atTime(12, 0);
+        db.insertOrder(id, Map.of("product_id", productId, "quantity", quantity, "total_amount", BigDecimal.ZERO, "farmer_id", farmerId,
+                "actual_quantity", quantity, "status", "completed", "finish_time", finishTime, "update_time", finishTime));
+        PurchaseOrder order = new PurchaseOrder();
+        order.setId(id);
+        order.setProductId(productId);
+        order.setFarmerId(farmerId);
+        order.setQuantity(quantity);
+        order.setActualQuantity(quantity);
+        order.setProductInfo(Map.of("originAreaId", areaId));
+        leaderboard.recordOrderCompleted(order);
+    }
+
+    private void pay(TestLeaderboard leaderboard, long farmerId, String amount) {
+        long orderId = nextOrderId++;
+        db.insertOrder(orderId, Map.of("product_id", 21L, "total_amount", new BigDecimal(amount), "farmer_id", farmerId, "status", "paid"));
+        db.jdbcTemplate().update("INSERT INTO payment_record (id, order_id, payment_stage, amount, payment_method, status, payment_time) "
+                + "VALUES (?, ?, '全款', ?, 'alipay', 'success', ?)", orderId, orderId, new BigDecimal(amount), Timestamp.valueOf(LocalDateTime.now()));
+        PurchaseOrder order = new PurchaseOrder();
+        order.setId(orderId);
+        order.setFarmerId(farmerId);
+        leaderboard.recordPaymentSucceeded(order, new BigDecimal(amount));
+    }
+
+    private static List<Long> ids(List<StatisticsVO.LeaderboardEntry> entries) {
+        return entries.stream().map(StatisticsVO.LeaderboardEntry::getId).toList();
+    }
+
+    private static class TestLeaderboard extends LeaderboardServiceImpl {
+
+        private long day = LocalDate.now().toEpochDay();
+
+        TestLeaderboard(StatisticsMapper mapper, StatisticsProperties properties, String nodeId) {
+            super(mapper, redis.redisTemplate(), properties, nodeId);
+        }
+
+        @Override
+        protected long currentDay() {
+            return day;
+        }
+    }
+}
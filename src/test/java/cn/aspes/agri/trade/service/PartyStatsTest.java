@@ -0,0 +1,268 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.CooperationReview;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.entity.PartyStats;
+import cn.aspes.agri.trade.entity.PartyStatsDaily;
+import cn.aspes.agri.trade.entity.ProductSales;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PartyStatsMapper;
+import cn.aspes.agri.trade.mapper.ProductSalesMapper;
+import cn.aspes.agri.trade.mapper.PurchaseDemandMapper;
+import cn.aspes.agri.trade.service.impl.PartyStatsServiceImpl;
+import cn.aspes.agri.trade.service.impl.RatingSummaryServiceImpl;
+import cn.aspes.agri.trade.service.impl.StatisticsServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("主体统计汇总表测试")
+class PartyStatsTest {
+
+    private static final long FARMER_ID = 11L;
+    private static final long PURCHASER_ID = 21L;
+    private static final long PRODUCT_ID = 31L;
+
+    private MybatisTestSupport db;
+    private PartyStatsServiceImpl partyStatsService;
+    private RatingSummaryServiceImpl ratingSummaryService;
+    private StatisticsServiceImpl statisticsService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        db = MybatisTestSupport.create(PartyStatsMapper.class, ProductSalesMapper.class);
+        StatisticsProperties properties = new StatisticsProperties();
+        // 小分段，覆盖多段与末段延伸到ID上界
+        properties.setPartyStatsRebuildChunkSize(1);
+        partyStatsService = new PartyStatsServiceImpl(db.getMapper(PartyStatsMapper.class),
+                db.getMapper(ProductSalesMapper.class), db.transactionManager(), properties);
+        // 评分汇总缓存始终未命中，直接读取主体统计
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForHash()).thenReturn(mock(HashOperations.class));
+        ratingSummaryService = new RatingSummaryServiceImpl(partyStatsService, redisTemplate, new StatisticsProperties());
+
+        FarmerProductMapper productMapper = mock(FarmerProductMapper.class);
+        when(productMapper.selectCount(any())).thenReturn(3L);
+        FarmerProduct product = new FarmerProduct();
+        product.setId(PRODUCT_ID);
+        product.setFarmerId(FARMER_ID);
+        product.setName("测试产品");
+        when(productMapper.selectById(PRODUCT_ID)).thenReturn(product);
+        PurchaseDemandMapper demandMapper = mock(PurchaseDemandMapper.class);
+        when(demandMapper.selectCount(any())).thenReturn(2L);
+        statisticsService = new StatisticsServiceImpl(productMapper, demandMapper, null, null,
+                null, new StatisticsProperties(), partyStatsService, db.getMapper(ProductSalesMapper.class), null,
+                ratingSummaryService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("增量维护 - 订单、支付、评价变更后按主键读取统计")
+    void incrementalUpdates_ReflectedInStats() {
+        PurchaseOrder first = order(1L);
+        PurchaseOrder second = order(2L);
+        partyStatsService.recordOrdersCreated(List.of(first, second));
+        partyStatsService.recordPaymentSucceeded(first, new BigDecimal("300.00"));
+        partyStatsService.recordOrderDelivered(first, new BigDecimal("250.00"));
+        partyStatsService.recordOrderDelivered(first, new BigDecimal("50.00"));
+        partyStatsService.recordOrderCompleted(first);
+        CooperationReview review = review(first, 4);
+        CooperationReview other = review(second, 5);
+        partyStatsService.recordReviewSubmitted(review);
+        partyStatsService.recordReviewSubmitted(other);
+        review.setRating(2);
+        partyStatsService.recordReviewRatingChanged(review, 4);
+
+        StatisticsVO.FarmerStats farmer = statisticsService.getFarmerStats(FARMER_ID);
+        assertEquals(3, farmer.getProductCount());
+        assertEquals(1L, farmer.getSalesOrders());
+        assertEquals(0, new BigDecimal("300.00").compareTo(farmer.getTotalSales()));
+        assertEquals(3.5, farmer.getAverageRating());
+
+        StatisticsVO.PurchaserStats purchaser = statisticsService.getPurchaserStats(PURCHASER_ID);
+        assertEquals(2L, purchaser.getDemandCount());
+        assertEquals(2L, purchaser.getOrdersCount());
+        assertEquals(0, new BigDecimal("300.00").compareTo(purchaser.getTotalPurchase()));
+        assertEquals(150.0, purchaser.getAverageOrderAmount());
+
+        List<PartyStatsDaily> daily = partyStatsService.listDailyStats("purchaser", PURCHASER_ID,
+                LocalDate.now().minusDays(7), LocalDate.now());
+        assertEquals(1, daily.size());
+        assertEquals(2L, daily.get(0).getOrderCount());
+        assertEquals(0, new BigDecimal("300.00").compareTo(daily.get(0).getPaidAmount()));
+
+        StatisticsVO.ProductSalesStats sales = statisticsService.getProductSalesStats(PRODUCT_ID);
+        assertEquals(10, sales.getSalesCount());
+        assertEquals(0, new BigDecimal("300.00").compareTo(sales.getSalesAmount()));
+        assertEquals(2, sales.getReviewCount());
+
+        // 删除评价后扣减
+        partyStatsService.recordReviewDeleted(review);
+        assertEquals(5.0, statisticsService.getFarmerStats(FARMER_ID).getAverageRating());
+    }
+
+    @Test
+    @DisplayName("业务事务回滚 - 统计增量随之回滚")
+    void rollback_DiscardsIncrements() {
+        db.transactionTemplate().executeWithoutResult(status -> {
+            partyStatsService.recordOrdersCreated(List.of(order(1L)));
+            status.setRollbackOnly();
+        });
+
+        PartyStats stats = partyStatsService.getStats("farmer", FARMER_ID);
+        assertEquals(0L, stats.getOrderCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(stats.getDeliveredAmount()));
+    }
+
+    @Test
+    @DisplayName("全量重建 - 与基础表汇总一致并覆盖偏差")
+    void rebuild_RecomputesFromBaseTables() {
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        insertOrder(1, "completed", "120.50", yesterday);
+        insertOrder(2, "delivered", "79.50", yesterday);
+        insertOrder(3, "pending_inspection", null, LocalDateTime.now());
+        insertPayment(1, 1, "120.50", "success");
+        insertPayment(2, 2, "10.00", "failed");
+        db.jdbcTemplate().update("INSERT INTO cooperation_review (id, order_id, review_from, review_to, target_id, rating) "
+                + "VALUES (1, 1, 'purchaser', 'farmer', ?, 4)", FARMER_ID);
+        // 模拟增量维护产生的偏差，以及已没有订单的主体残留的汇总行
+        partyStatsService.recordOrdersCreated(List.of(order(99L)));
+        db.jdbcTemplate().update("INSERT INTO party_stats (party_type, party_id, order_count) VALUES ('farmer', 5, 7)");
+        db.jdbcTemplate().update("INSERT INTO product_sales (product_id, order_count) VALUES (999, 3)");
+
+        assertEquals(2, partyStatsService.rebuild());
+        assertEquals(0, partyStatsService.rebuildIfEmpty());
+        assertEquals(0L, partyStatsService.getStats("farmer", 5L).getOrderCount());
+        assertNull(db.getMapper(ProductSalesMapper.class).selectByProductId(999L));
+
+        PartyStats farmer = partyStatsService.getStats("farmer", FARMER_ID);
+        assertEquals(3L, farmer.getOrderCount());
+        assertEquals(1L, farmer.getCompletedOrderCount());
+        assertEquals(0, new BigDecimal("200.00").compareTo(farmer.getDeliveredAmount()));
+        assertEquals(0, new BigDecimal("120.50").compareTo(farmer.getPaidAmount()));
+        assertEquals(1L, farmer.getReviewCount());
+        assertEquals(4L, farmer.getRatingSum());
+        assertEquals(1L, farmer.getStar4());
+        assertEquals(0L, farmer.getStar5());
+        PartyStats purchaser = partyStatsService.getStats("purchaser", PURCHASER_ID);
+        assertEquals(3L, purchaser.getOrderCount());
+        assertEquals(0L, purchaser.getReviewCount());
+        StatisticsVO.ProductSalesStats sales = statisticsService.getProductSalesStats(PRODUCT_ID);
+        assertEquals(1, sales.getSalesCount());
+        assertEquals(0, new BigDecimal("120.50").compareTo(sales.getSalesAmount()));
+
+        List<PartyStatsDaily> daily = partyStatsService.listDailyStats("farmer", FARMER_ID,
+                LocalDate.now().minusDays(1), LocalDate.now());
+        assertEquals(LocalDate.now().minusDays(1), daily.get(0).getStatDate());
+        assertEquals(2L, daily.get(0).getOrderCount());
+        assertEquals(0, new BigDecimal("200.00").compareTo(daily.get(0).getDeliveredAmount()));
+        assertEquals(3L, daily.stream().mapToLong(PartyStats::getOrderCount).sum());
+    }
+
+    @Test
+    @DisplayName("首次部署 - 汇总表为空时启动即重建")
+    void rebuildIfEmpty_FillsEmptyTables() {
+        insertOrder(1, "completed", "120.50", LocalDateTime.now());
+
+        assertEquals(2, partyStatsService.rebuildIfEmpty());
+        assertEquals(1L, partyStatsService.getStats("purchaser", PURCHASER_ID).getCompletedOrderCount());
+        assertEquals(1L, db.getMapper(ProductSalesMapper.class).selectByProductId(PRODUCT_ID).getOrderCount());
+    }
+
+    @Test
+    @DisplayName("产品首次完成订单 - 销量行以历史已完成订单为基数")
+    void firstCompletion_SeedsProductSalesFromHistory() {
+        LocalDateTime now = LocalDateTime.now();
+        insertOrder(1, "completed", "120.50", now);
+        insertOrder(2, "completed", null, now);
+        insertOrder(3, "completed", "80.00", now);
+        PurchaseOrder third = order(3L);
+        third.setQuantity(1);
+        third.setActualAmount(new BigDecimal("80.00"));
+
+        partyStatsService.recordOrderCompleted(third);
+        partyStatsService.recordOrderCompleted(order(4L));
+
+        ProductSales sales = db.getMapper(ProductSalesMapper.class).selectByProductId(PRODUCT_ID);
+        assertEquals(4L, sales.getOrderCount());
+        assertEquals(13L, sales.getSalesQuantity());
+        assertEquals(0, new BigDecimal("600.50").compareTo(sales.getSalesAmount()));
+    }
+
+    @Test
+    @DisplayName("产品销量未汇总 - 按产品与状态索引聚合已完成订单")
+    void productSales_FallsBackToIndexedAggregate() {
+        LocalDateTime now = LocalDateTime.now();
+        insertOrder(1, "completed", "120.50", now);
+        insertOrder(2, "completed", null, now);
+        insertOrder(3, "delivered", "79.50", now);
+
+        StatisticsVO.ProductSalesStats sales = statisticsService.getProductSalesStats(PRODUCT_ID);
+        assertEquals("测试产品", sales.getProductName());
+        assertEquals(2, sales.getSalesCount());
+        assertEquals(0, new BigDecimal("220.50").compareTo(sales.getSalesAmount()));
+        assertEquals(0, sales.getReviewCount());
+        assertEquals("", statisticsService.getProductSalesStats(999L).getProductName());
+    }
+
+    private PurchaseOrder order(long id) {
+        PurchaseOrder order = new PurchaseOrder();
+        order.setId(id);
+        order.setFarmerId(FARMER_ID);
+        order.setPurchaserId(PURCHASER_ID);
+        order.setProductId(PRODUCT_ID);
+        order.setQuantity(10);
+        order.setTotalAmount(new BigDecimal("300.00"));
+        return order;
+    }
+
+    private CooperationReview review(PurchaseOrder order, int rating) {
+        CooperationReview review = new CooperationReview();
+        review.setOrderId(order.getId());
+        review.setReviewFrom("purchaser");
+        review.setReviewTo("farmer");
+        review.setTargetId(order.getFarmerId());
+        review.setRating(rating);
+        return review;
+    }
+
+    private void insertOrder(long id, String status, String actualAmount, LocalDateTime time) {
+        Map<String, Object> columns = new HashMap<>(Map.of("product_id", PRODUCT_ID, "product_info", "{}",
+                "farmer_id", FARMER_ID, "purchaser_id", PURCHASER_ID, "status", status, "create_time", time, "update_time", time));
+        if (actualAmount != null) {
+            columns.put("actual_amount", new BigDecimal(actualAmount));
+            columns.put("delivery_time", time);
+        }
+        db.insertOrder(id, columns);
+    }
+
+    private void insertPayment(long id, long orderId, String amount, String status) {
+        db.jdbcTemplate().update("INSERT INTO payment_record (id, order_id, payment_stage, amount, payment_method, status, payment_time) "
+                + "VALUES (?, ?, '全款', ?, 'alipay', ?, ?)", id, orderId, new BigDecimal(amount), status, Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
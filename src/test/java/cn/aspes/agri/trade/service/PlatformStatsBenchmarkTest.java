@@ -0,0 +1,117 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.entity.User;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.enums.UserRole;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.mapper.UserMapper;
+import cn.aspes.agri.trade.service.impl.StatisticsServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 平台统计对比：加载已完成订单在内存中汇总 vs 数据库聚合查询
+ *
+ * 默认不执行，使用 mvn test -Dtest=PlatformStatsBenchmarkTest -Dbenchmark=true 运行。
+ * 输出每次调用的平均耗时与当前线程堆分配字节数。
+ */
+@DisplayName("平台统计内存与耗时对比")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PlatformStatsBenchmarkTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 50000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20);
+
+    @Test
+    @DisplayName("统计平台数据的分配量与耗时")
+    void compareAllocationAndLatency() {
+        try (MybatisTestSupport db = MybatisTestSupport.create(UserMapper.class, FarmerProductMapper.class,
+                PurchaseOrderMapper.class, StatisticsMapper.class)) {
+            prepare(db);
+            UserMapper userMapper = db.getMapper(UserMapper.class);
+            FarmerProductMapper productMapper = db.getMapper(FarmerProductMapper.class);
+            PurchaseOrderMapper orderMapper = db.getMapper(PurchaseOrderMapper.class);
+
+            StatisticsProperties uncached = new StatisticsProperties();
+            uncached.setPlatformStatsTtlSeconds(0);
+            StatisticsService aggregated = new StatisticsServiceImpl(null, null, null, null,
+                    db.getMapper(StatisticsMapper.class), uncached, null, null, null, null);
+            StatisticsService cached = new StatisticsServiceImpl(null, null, null, null,
+                    db.getMapper(StatisticsMapper.class), new StatisticsProperties(), null, null, null, null);
+
+            report("逐条加载汇总", () -> legacyTotalAmount(userMapper, productMapper, orderMapper));
+            report("数据库聚合", () -> aggregated.getPlatformStats().getTotalTransactionAmount());
+            report("聚合+短时缓存", () -> cached.getPlatformStats().getTotalTransactionAmount());
+        }
+    }
+
+    /**
+     * 改造前的实现：六次计数查询，已完成订单（含 product_info JSON）全部加载到内存求和
+     */
+    private BigDecimal legacyTotalAmount(UserMapper userMapper, FarmerProductMapper productMapper, PurchaseOrderMapper orderMapper) {
+        userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getIsDelete, 0));
+        userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getRole, UserRole.FARMER).eq(User::getIsDelete, 0));
+        userMapper.selectCount(new LambdaQueryWrapper<User>().eq(User::getRole, UserRole.PURCHASER).eq(User::getIsDelete, 0));
+        productMapper.selectCount(null);
+        orderMapper.selectCount(null);
+        List<PurchaseOrder> orders = orderMapper.selectList(
+                new LambdaQueryWrapper<PurchaseOrder>().eq(PurchaseOrder::getStatus, OrderStatus.COMPLETED));
+        BigDecimal total = orders.stream()
+                .filter(o -> o.getActualAmount() != null)
+                .map(PurchaseOrder::getActualAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        orderMapper.selectCount(new LambdaQueryWrapper<PurchaseOrder>().ge(PurchaseOrder::getCreateTime, LocalDate.now().atStartOfDay()));
+        return total;
+    }
+
+    private void report(String name, Supplier<BigDecimal> call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        BigDecimal result = null;
+        for (int i = 0; i < 3; i++) {
+            result = call.get();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = call.get();
+        }
+        double millis = (System.nanoTime() - begin) / 1_000_000.0 / ITERATIONS;
+        double allocatedMb = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / 1024.0 / 1024.0 / ITERATIONS;
+        System.out.printf("%s（%d个订单）：平均耗时 %.2f ms，平均分配 %.2f MB，交易总额 %s%n",
+                name, ORDERS, millis, allocatedMb, result);
+    }
+
+    private void prepare(MybatisTestSupport db) {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            users.add(new Object[]{i, "user" + i, i % 3 == 0 ? "purchaser" : "farmer"});
+        }
+        db.jdbcTemplate().batchUpdate("INSERT INTO `user` (id, username, password, role, contact_person, contact_phone) "
+                + "VALUES (?, ?, 'x', ?, '联系人', '13800000000')", users);
+
+        String productInfo = "{\"id\":1,\"name\":\"有机大米\",\"spec\":\"5kg/袋\",\"unit\":\"袋\",\"price\":59.90,"
+                + "\"minPurchase\":10,\"stock\":1000,\"status\":\"on_sale\",\"farmerId\":1,\"categoryId\":3,"
+                + "\"originAreaId\":110101,\"snapshotTime\":1704067200000,\"description\":\"" + "产地直供".repeat(40) + "\"}";
+        List<Object[]> orders = new ArrayList<>();
+        for (int i = 1; i <= ORDERS; i++) {
+            orders.add(new Object[]{i, "ORD" + i, productInfo, new BigDecimal("599.00"), i % 4 == 0 ? "pending" : "completed"});
+        }
+        db.jdbcTemplate().batchUpdate("INSERT INTO purchase_order (id, order_no, contract_id, product_id, product_info, quantity, "
+                + "total_amount, farmer_id, purchaser_id, actual_amount, status) VALUES (?, ?, 1, 1, ? FORMAT JSON, 10, 599.00, 1, 1, ?, ?)", orders);
+    }
+}
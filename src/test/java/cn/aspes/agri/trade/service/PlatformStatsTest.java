@@ -0,0 +1,97 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.impl.StatisticsServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("平台数据统计测试")
+class PlatformStatsTest {
+
+    private MybatisTestSupport db;
+    private StatisticsMapper statisticsMapper;
+    private StatisticsProperties properties;
+    private StatisticsServiceImpl statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(StatisticsMapper.class);
+        statisticsMapper = spy(db.getMapper(StatisticsMapper.class));
+        properties = new StatisticsProperties();
+        statisticsService = new StatisticsServiceImpl(null, null, null, null,
+                statisticsMapper, properties, null, null, null, null);
+
+        insertUser(1, "farmer", 0);
+        insertUser(2, "farmer", 0);
+        insertUser(3, "farmer", 1);
+        insertUser(4, "purchaser", 0);
+        insertUser(5, "admin", 0);
+        db.jdbcTemplate().update("INSERT INTO farmer_product (id, farmer_id, category_id, name, spec, unit, price, stock, origin_area_id, status) "
+                + "VALUES (1, 1, 1, '测试产品', '1kg', 'kg', 10.00, 100, 1, 'on_sale')");
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        insertOrder(1, "completed", "120.50", yesterday);
+        insertOrder(2, "completed", "79.50", LocalDateTime.now());
+        insertOrder(3, "completed", null, yesterday);
+        insertOrder(4, "delivered", "500.00", LocalDateTime.now());
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("聚合查询统计 - 与逐条统计结果一致")
+    void getPlatformStats_Aggregates() {
+        StatisticsVO.PlatformStats stats = statisticsService.getPlatformStats();
+
+        assertEquals(4L, stats.getTotalUsers());
+        assertEquals(2L, stats.getTotalFarmers());
+        assertEquals(1L, stats.getTotalPurchasers());
+        assertEquals(1L, stats.getTotalProducts());
+        assertEquals(4L, stats.getTotalOrders());
+        assertEquals(0, new BigDecimal("200.00").compareTo(stats.getTotalTransactionAmount()));
+        assertEquals(2L, stats.getActiveUsersToday());
+    }
+
+    @Test
+    @DisplayName("短时缓存 - 有效期内不重复查询，过期后重新统计")
+    void getPlatformStats_CachedWithinTtl() {
+        assertEquals(4L, statisticsService.getPlatformStats().getTotalOrders());
+        insertOrder(5, "pending", null, LocalDateTime.now());
+        assertEquals(4L, statisticsService.getPlatformStats().getTotalOrders());
+        verify(statisticsMapper, times(1)).selectOrderAggregates(any());
+
+        properties.setPlatformStatsTtlSeconds(0);
+        ReflectionTestUtils.setField(statisticsService, "cachedPlatformStats", null);
+        assertEquals(5L, statisticsService.getPlatformStats().getTotalOrders());
+        verify(statisticsMapper, times(2)).selectOrderAggregates(any());
+    }
+
+    private void insertUser(long id, String role, int deleted) {
+        db.jdbcTemplate().update("INSERT INTO `user` (id, username, password, role, contact_person, contact_phone, is_delete) "
+                + "VALUES (?, ?, 'x', ?, '联系人', '13800000000', ?)", id, "user" + id, role, deleted);
+    }
+
+    private void insertOrder(long id, String status, String actualAmount, LocalDateTime createTime) {
+        Map<String, Object> columns = new HashMap<>(Map.of("status", status, "create_time", createTime));
+        if (actualAmount != null) {
+            columns.put("actual_amount", new BigDecimal(actualAmount));
+        }
+        db.insertOrder(id, columns);
+    }
+}
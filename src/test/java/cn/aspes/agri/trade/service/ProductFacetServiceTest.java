@@ -0,0 +1,183 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.OptimisticLockProperties;
+import cn.aspes.agri.trade.config.SearchProperties;
+import cn.aspes.agri.trade.converter.EntityVOConverter;
+import cn.aspes.agri.trade.dto.ProductFacetRequest;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.enums.ProductFacet;
+import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.OriginAreaMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.ProductFacetServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
+import cn.aspes.agri.trade.vo.FarmerProductVO;
+import cn.aspes.agri.trade.vo.ProductFacetVO;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("产品分面筛选索引测试")
+class ProductFacetServiceTest {
+
+    private MybatisTestSupport db;
+    private SearchProperties properties;
+    private ProductFacetServiceImpl productFacetService;
+    private FarmerProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class, OriginAreaMapper.class, StockReservationMapper.class);
+        properties = new SearchProperties();
+        productFacetService = new ProductFacetServiceImpl(db.getMapper(FarmerProductMapper.class),
+                db.getMapper(OriginAreaMapper.class), properties);
+
+        EntityVOConverter converter = mock(EntityVOConverter.class);
+        when(converter.toFarmerProductVOPage(any())).thenAnswer(invocation -> {
+            IPage<FarmerProduct> page = invocation.getArgument(0);
+            IPage<FarmerProductVO> result = new Page<>(page.getCurrent(), page.getSize(), page.getTotal());
+            result.setRecords(page.getRecords().stream().map(p -> {
+                FarmerProductVO vo = new FarmerProductVO();
+                vo.setId(p.getId());
+                return vo;
+            }).toList());
+            return result;
+        });
+        productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        ReflectionTestUtils.setField(productService, "stockReservationMapper", db.getMapper(StockReservationMapper.class));
+        ReflectionTestUtils.setField(productService, "originAreaMapper", db.getMapper(OriginAreaMapper.class));
+        ReflectionTestUtils.setField(productService, "productFacetService", productFacetService);
+        ReflectionTestUtils.setField(productService, "entityVOConverter", converter);
+        ReflectionTestUtils.setField(productService, "searchIndexService", mock(SearchIndexService.class));
+        ReflectionTestUtils.setField(productService, "statusHistogramService", mock(StatusHistogramService.class));
+        ReflectionTestUtils.setField(productService, "optimisticLockRetryTemplate",
+                new OptimisticLockRetryTemplate(db.transactionManager(), new OptimisticLockProperties()));
+
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (1, 'A1', '寿光', '山东省', '潍坊市')");
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (2, 'A2', '元谋', '云南省', '楚雄州')");
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (3, 'A3', '五常', '黑龙江省', '哈尔滨市')");
+
+        LocalDateTime now = LocalDateTime.now();
+        insertProduct(1, 1, 1, "3.50", "有机", "on_sale", now.minusDays(5));
+        insertProduct(2, 1, 1, "8.00", "绿色", "on_sale", now.minusDays(4));
+        insertProduct(3, 2, 2, "5.00", "有机", "on_sale", now.minusDays(3));
+        insertProduct(4, 2, 3, "120.00", null, "on_sale", now.minusDays(2));
+        insertProduct(5, 3, 2, "4.99", "有机", "off_sale", now.minusDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("索引建好前回退数据库且不返回计数；建好后筛选与计数在索引中完成")
+    void browse_UsesIndexOnceBuilt() {
+        ProductFacetRequest request = new ProductFacetRequest();
+        request.setProvinces(List.of("山东省", "云南省"));
+        request.setPriceBands(List.of("0-5", "5-10"));
+
+        assertFalse(productFacetService.isReady());
+        ProductFacetVO fallback = productService.browseProducts(request);
+        assertEquals(List.of(3L, 2L, 1L), ids(fallback));
+        assertTrue(fallback.getCategories().isEmpty());
+
+        assertEquals(4, productFacetService.rebuild());
+        ProductFacetVO result = productService.browseProducts(request);
+        assertEquals(3, result.getProducts().getTotal());
+        assertEquals(List.of(3L, 2L, 1L), ids(result));
+        assertEquals(List.of(new ProductFacetVO.FacetCount("山东省", 2L), new ProductFacetVO.FacetCount("云南省", 1L)),
+                result.getProvinces());
+        // 价格区间左闭右开，下架产品不计入
+        assertEquals(List.of(new ProductFacetVO.FacetCount("5-10", 2L), new ProductFacetVO.FacetCount("0-5", 1L)),
+                result.getPriceBands());
+        assertEquals(List.of(new ProductFacetVO.FacetCount("1", 2L), new ProductFacetVO.FacetCount("2", 1L)),
+                result.getCategories());
+
+        request.setProductionMethods(List.of("有机"));
+        request.setPageSize(1);
+        assertEquals(List.of(3L), ids(productService.browseProducts(request)));
+        request.setPageNum(2);
+        assertEquals(List.of(1L), ids(productService.browseProducts(request)));
+
+        properties.setEnabled(false);
+        assertFalse(productFacetService.isReady());
+    }
+
+    @Test
+    @DisplayName("上下架、修改、删除 - 提交后增量更新索引")
+    void statusChanges_AppliedIncrementally() {
+        productFacetService.rebuild();
+
+        productService.offSale(1L, 1L);
+        productService.onSale(5L, 5L);
+        assertEquals(List.of(5L, 3L), productFacetService.query(organic()).ids());
+
+        db.transactionTemplate().executeWithoutResult(status -> {
+            FarmerProduct product = productService.getById(2L);
+            product.setProductionMethod("有机");
+            product.setPrice(new BigDecimal("60.00"));
+            productFacetService.index(product);
+            status.setRollbackOnly();
+        });
+        assertEquals(2, productFacetService.query(organic()).total());
+
+        FarmerProduct product = productService.getById(2L);
+        product.setProductionMethod("有机");
+        product.setPrice(new BigDecimal("60.00"));
+        productFacetService.index(product);
+        assertEquals(List.of(5L, 3L, 2L), productFacetService.query(organic()).ids());
+        assertEquals(1L, productFacetService.query(organic()).counts().get(ProductFacet.PRICE_BAND).get("50-100"));
+
+        assertTrue(productService.removeById(3L));
+        assertEquals(List.of(5L, 2L), productFacetService.query(organic()).ids());
+    }
+
+    @Test
+    @DisplayName("价格区间按配置的分界划分")
+    void priceBands_FromProperties() {
+        properties.setFacetPriceBounds(List.of(new BigDecimal("10.0"), new BigDecimal("2.5")));
+        List<ProductFacetService.PriceBand> bands = productFacetService.priceBands();
+        assertEquals(List.of("0-2.5", "2.5-10", "10+"), bands.stream().map(ProductFacetService.PriceBand::label).toList());
+        assertTrue(bands.get(1).contains(new BigDecimal("2.50")));
+        assertFalse(bands.get(1).contains(new BigDecimal("10")));
+        assertTrue(bands.get(2).contains(new BigDecimal("9999")));
+    }
+
+    private static ProductFacetRequest organic() {
+        ProductFacetRequest request = new ProductFacetRequest();
+        request.setProductionMethods(List.of("有机"));
+        return request;
+    }
+
+    private static List<Long> ids(ProductFacetVO result) {
+        return result.getProducts().getRecords().stream().map(FarmerProductVO::getId).toList();
+    }
+
+    private void insertProduct(long id, long categoryId, int originAreaId, String price, String method,
+                               String status, LocalDateTime createTime) {
+        Map<String, Object> columns = new HashMap<>(Map.of("farmer_id", id, "category_id", categoryId, "name", "产品" + id,
+                "price", new BigDecimal(price), "origin_area_id", originAreaId, "status", status, "create_time", createTime));
+        columns.put("production_method", method);
+        db.insertProduct(id, columns);
+    }
+}
@@ -0,0 +1,90 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.dto.ProductImageDTO;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.FarmerProductVO;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("产品列表两阶段分页测试")
+class ProductImagePagingTest {
+
+    private MybatisTestSupport db;
+    private FarmerProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class);
+        productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name) VALUES (1, 101, '绿源农场')");
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name) VALUES (2, 102, '高原茶园')");
+        db.jdbcTemplate().update("INSERT INTO product_category (id, name) VALUES (1, '蔬菜')");
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (1, 'A1', '寿光', '山东省', '潍坊市')");
+
+        LocalDateTime now = LocalDateTime.now();
+        // 每个产品3张图片，按关联行分页时一页10行只能放下4个产品
+        for (long id = 1; id <= 12; id++) {
+            db.insertProduct(id, Map.of("farmer_id", id <= 8 ? 1L : 2L, "name", "产品" + id,
+                    "status", id % 4 == 0 ? "off_sale" : "on_sale", "create_time", now.minusHours(id)));
+            for (int sort = 3; sort >= 1; sort--) {
+                db.jdbcTemplate().update("INSERT INTO product_image (id, product_id, image_url, image_type, sort) VALUES (?, ?, ?, 'detail', ?)",
+                        id * 10 + sort, id, "/img/" + id + "-" + sort + ".jpg", sort);
+            }
+        }
+        // 没有图片的产品
+        db.insertProduct(13, Map.of("name", "产品13", "create_time", now.minusHours(13)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("按产品分页 - 每页产品数与总数不受图片数量影响，图片按排序值返回")
+    void listProducts_PagedByProduct() {
+        IPage<FarmerProductVO> first = productService.listProductsWithImages(1, 4, null, null, "on_sale");
+        assertEquals(10, first.getTotal());
+        assertEquals(List.of(1L, 2L, 3L, 5L), ids(first));
+        FarmerProductVO product = first.getRecords().get(0);
+        assertEquals("绿源农场", product.getFarmName());
+        assertEquals("蔬菜", product.getCategoryName());
+        assertEquals("寿光", product.getOriginAreaName());
+        assertEquals(List.of(1, 2, 3), product.getImages().stream().map(ProductImageDTO::getSort).toList());
+
+        IPage<FarmerProductVO> last = productService.listProductsWithImages(3, 4, null, null, "on_sale");
+        assertEquals(List.of(11L, 13L), ids(last));
+        assertTrue(last.getRecords().get(1).getImages().isEmpty());
+
+        assertEquals(13, productService.listProductsWithImages(1, 20, null, null, null).getRecords().size());
+        assertTrue(productService.listProductsWithImages(5, 4, null, null, "on_sale").getRecords().isEmpty());
+    }
+
+    @Test
+    @DisplayName("我的产品 - 按农户分页")
+    void listMyProducts_PagedByProduct() {
+        IPage<FarmerProductVO> page = productService.listMyProductsWithImages(2L, 1, 3);
+        assertEquals(4, page.getTotal());
+        assertEquals(List.of(9L, 10L, 11L), ids(page));
+        assertTrue(page.getRecords().stream().allMatch(p -> p.getImages().size() == 3));
+    }
+
+    private static List<Long> ids(IPage<FarmerProductVO> page) {
+        return page.getRecords().stream().map(FarmerProductVO::getId).toList();
+    }
+
+}
@@ -0,0 +1,187 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.OptimisticLockProperties;
+import cn.aspes.agri.trade.entity.PurchaserInfo;
+import cn.aspes.agri.trade.enums.BizNoType;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.PurchaseOrderServiceImpl;
+import cn.aspes.agri.trade.service.impl.StockReservationServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.ProductSnapshotUtil;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import cn.aspes.agri.trade.vo.ContractOrderResultVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("批量从合同创建订单测试")
+class PurchaseOrderBatchCreateTest {
+
+    private static final long PURCHASER_ID = 7001L;
+    private static final long USER_ID = 7101L;
+    private static final long PRODUCT_A = 7201L;
+    private static final long PRODUCT_B = 7202L;
+
+    private MybatisTestSupport db;
+    private FarmerProductServiceImpl productService;
+    private PurchaseContractService contractService;
+    private PurchaseOrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class,
+                PurchaseOrderMapper.class, PurchaseContractMapper.class);
+        PurchaseContractMapper contractMapper = db.getMapper(PurchaseContractMapper.class);
+
+        productService = spy(new FarmerProductServiceImpl());
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        StockReservationServiceImpl reservationService = new StockReservationServiceImpl(productService,
+                new SnowflakeIdGenerator(1, 1), mock(HotStockService.class), mock(ReservationExpiryService.class));
+        ReflectionTestUtils.setField(reservationService, "baseMapper", db.getMapper(StockReservationMapper.class));
+
+        contractService = mock(PurchaseContractService.class);
+        when(contractService.listByIds(any())).thenAnswer(invocation ->
+                contractMapper.selectBatchIds(invocation.<Collection<Long>>getArgument(0)));
+
+        PurchaserInfo purchaser = new PurchaserInfo();
+        purchaser.setId(PURCHASER_ID);
+        purchaser.setUserId(USER_ID);
+        PurchaserInfoService purchaserInfoService = mock(PurchaserInfoService.class);
+        when(purchaserInfoService.getByUserId(USER_ID)).thenReturn(purchaser);
+
+        AtomicInteger sequence = new AtomicInteger();
+        BizNoService bizNoService = mock(BizNoService.class);
+        when(bizNoService.nextNo(BizNoType.ORDER)).thenAnswer(invocation -> "ORD" + sequence.incrementAndGet());
+
+        orderService = new PurchaseOrderServiceImpl(contractService, productService, reservationService,
+                new SnowflakeIdGenerator(1, 1), mock(StringRedisTemplate.class), mock(FarmerInfoService.class),
+                purchaserInfoService, new ProductSnapshotUtil(new ObjectMapper()),
+                db.getMapper(PurchaseOrderMapper.class), contractMapper, bizNoService,
+                new OptimisticLockRetryTemplate(db.transactionManager(), new OptimisticLockProperties()),
+                mock(PartyStatsService.class), mock(TradeStatsService.class),
+                mock(StatusHistogramService.class), mock(LeaderboardService.class));
+        ReflectionTestUtils.setField(orderService, "baseMapper", db.getMapper(PurchaseOrderMapper.class));
+
+        db.insertProduct(PRODUCT_A, Map.of("stock", 100));
+        db.insertProduct(PRODUCT_B, Map.of("stock", 25));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("批量建单 - 同产品合并扣减，逐个合同返回结果")
+    void createOrders_GroupsStockAndReportsPerContract() {
+        for (long id = 1; id <= 10; id++) {
+            insertContract(id, PURCHASER_ID, PRODUCT_A, 10, "signed");
+        }
+        insertContract(11, PURCHASER_ID, PRODUCT_A, 1, "draft");
+        insertContract(12, 9999L, PRODUCT_A, 1, "signed");
+        insertContract(13, PURCHASER_ID, PRODUCT_A, 1, "signed");
+        db.jdbcTemplate().update("INSERT INTO purchase_order (id, order_no, contract_id, product_id, quantity, total_amount, "
+                + "farmer_id, purchaser_id) VALUES (1, 'ORD-EXISTING', 13, ?, 1, 1.00, 1, ?)", PRODUCT_A, PURCHASER_ID);
+
+        List<Long> contractIds = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 1L);
+        List<ContractOrderResultVO> results = orderService.createOrdersFromContracts(contractIds, USER_ID);
+
+        assertEquals(14, results.size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L),
+                results.stream().map(ContractOrderResultVO::getContractId).toList());
+        assertTrue(results.subList(0, 10).stream().allMatch(ContractOrderResultVO::getSuccess));
+        assertEquals("合同未签署，无法创建订单", results.get(10).getMessage());
+        assertEquals("无权限操作此合同", results.get(11).getMessage());
+        assertEquals("该合同已创建订单", results.get(12).getMessage());
+        assertEquals("合同不存在", results.get(13).getMessage());
+
+        // 同一产品10个合同只做一次条件扣减
+        verify(productService, times(1)).decreaseStock(PRODUCT_A, 100);
+        verify(contractService, times(1)).listByIds(any());
+        assertEquals(0, stock(PRODUCT_A));
+        assertEquals(11, count("SELECT COUNT(*) FROM purchase_order"));
+        assertEquals(10, count("SELECT COUNT(*) FROM stock_reservation WHERE status = 'pending'"));
+        assertEquals(10, count("SELECT COUNT(*) FROM purchase_contract WHERE status = 'executing'"));
+        assertEquals(10, count("SELECT COUNT(*) FROM purchase_order o JOIN stock_reservation r ON r.order_id = o.id"));
+    }
+
+    @Test
+    @DisplayName("库存不足以满足全部合同 - 逐条扣减，不足的合同单独失败")
+    void createOrders_PartialStock() {
+        insertContract(1, PURCHASER_ID, PRODUCT_B, 10, "signed");
+        insertContract(2, PURCHASER_ID, PRODUCT_B, 20, "signed");
+        insertContract(3, PURCHASER_ID, PRODUCT_B, 10, "signed");
+        insertContract(4, PURCHASER_ID, PRODUCT_A, 30, "signed");
+
+        List<ContractOrderResultVO> results = orderService.createOrdersFromContracts(List.of(1L, 2L, 3L, 4L), USER_ID);
+
+        assertTrue(results.get(0).getSuccess());
+        assertFalse(results.get(1).getSuccess());
+        assertEquals("库存不足，无法预留", results.get(1).getMessage());
+        assertNull(results.get(1).getOrderId());
+        assertTrue(results.get(2).getSuccess());
+        assertTrue(results.get(3).getSuccess());
+        assertEquals(5, stock(PRODUCT_B));
+        assertEquals(70, stock(PRODUCT_A));
+        assertEquals("signed", db.jdbcTemplate().queryForObject(
+                "SELECT status FROM purchase_contract WHERE id = 2", String.class));
+        assertEquals(3, count("SELECT COUNT(*) FROM purchase_order"));
+    }
+
+    @Test
+    @DisplayName("合同已被并发建单 - 该合同单独失败，其余合同正常建单")
+    void createOrders_ConcurrentStatusChange_FailsOnlyThatContract() {
+        insertContract(1, PURCHASER_ID, PRODUCT_A, 10, "signed");
+        insertContract(2, PURCHASER_ID, PRODUCT_A, 10, "signed");
+        // 模拟合同在加载后被其他请求改为执行中
+        doAnswer(invocation -> {
+            List<?> contracts = db.getMapper(PurchaseContractMapper.class)
+                    .selectBatchIds(invocation.<Collection<Long>>getArgument(0));
+            db.jdbcTemplate().update("UPDATE purchase_contract SET status = 'executing' WHERE id = 2");
+            return contracts;
+        }).when(contractService).listByIds(any());
+
+        List<ContractOrderResultVO> results = db.transactionTemplate().execute(
+                status -> orderService.createOrdersFromContracts(List.of(1L, 2L), USER_ID));
+
+        assertTrue(results.get(0).getSuccess());
+        assertFalse(results.get(1).getSuccess());
+        assertEquals("合同状态已变更，请刷新后重试", results.get(1).getMessage());
+        assertEquals(90, stock(PRODUCT_A));
+        assertEquals(1, count("SELECT COUNT(*) FROM purchase_order WHERE contract_id = 1"));
+        assertEquals(1, count("SELECT COUNT(*) FROM stock_reservation"));
+    }
+
+    private void insertContract(long id, long purchaserId, long productId, int quantity, String status) {
+        db.jdbcTemplate().update("INSERT INTO purchase_contract (id, contract_no, docking_id, purchaser_id, farmer_id, product_id, "
+                + "quantity, total_amount, payment_terms, delivery_time, delivery_address, status) "
+                + "VALUES (?, ?, 1, ?, 1, ?, ?, 100.00, '预付', CURRENT_DATE, '地址', ?)",
+                id, "C" + id, purchaserId, productId, quantity, status);
+    }
+
+    private int stock(long productId) {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, productId);
+    }
+
+    private int count(String sql) {
+        return db.jdbcTemplate().queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,137 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.OptimisticLockProperties;
+import cn.aspes.agri.trade.entity.PurchaserInfo;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.PaymentRecordMapper;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.PaymentRecordServiceImpl;
+import cn.aspes.agri.trade.service.impl.PurchaseOrderServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("采购方确认订单测试")
+class PurchaseOrderCompletionTest {
+
+    private static final long PURCHASER_ID = 8001L;
+    private static final long USER_ID = 8101L;
+    private static final long CONTRACT_ID = 8201L;
+
+    private MybatisTestSupport db;
+    private PurchaseOrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(PurchaseOrderMapper.class, PurchaseContractMapper.class, PaymentRecordMapper.class);
+
+        PurchaserInfo purchaser = new PurchaserInfo();
+        purchaser.setId(PURCHASER_ID);
+        PurchaserInfoService purchaserInfoService = mock(PurchaserInfoService.class);
+        when(purchaserInfoService.getByUserId(USER_ID)).thenReturn(purchaser);
+
+        orderService = new PurchaseOrderServiceImpl(mock(PurchaseContractService.class), mock(FarmerProductService.class),
+                mock(StockReservationService.class), new SnowflakeIdGenerator(1, 1), mock(StringRedisTemplate.class),
+                mock(FarmerInfoService.class), purchaserInfoService, null, db.getMapper(PurchaseOrderMapper.class),
+                db.getMapper(PurchaseContractMapper.class), mock(BizNoService.class),
+                new OptimisticLockRetryTemplate(db.transactionManager(), new OptimisticLockProperties()),
+                mock(PartyStatsService.class), mock(TradeStatsService.class),
+                mock(StatusHistogramService.class), mock(LeaderboardService.class));
+        ReflectionTestUtils.setField(orderService, "baseMapper", db.getMapper(PurchaseOrderMapper.class));
+
+        PaymentRecordServiceImpl paymentRecordService = new PaymentRecordServiceImpl();
+        ReflectionTestUtils.setField(paymentRecordService, "baseMapper", db.getMapper(PaymentRecordMapper.class));
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(PaymentRecordService.class)).thenReturn(paymentRecordService);
+        orderService.setApplicationContext(applicationContext);
+
+        db.jdbcTemplate().update("INSERT INTO purchase_contract (id, contract_no, docking_id, purchaser_id, farmer_id, product_id, "
+                + "quantity, total_amount, payment_terms, delivery_time, delivery_address, status) "
+                + "VALUES (?, 'C1', 1, ?, 1, 1, 20, 200.00, '预付', CURRENT_DATE, '地址', 'executing')", CONTRACT_ID, PURCHASER_ID);
+        insertOrder(1, "delivered");
+        insertOrder(2, "delivered");
+        insertOrder(3, "cancelled");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("支付金额以成功记录汇总 - 未付清不能完成")
+    void completeOrder_RequiresFullSuccessfulPayment() {
+        assertEquals("订单尚未支付，无法完成",
+                assertThrows(BusinessException.class, () -> orderService.completeOrder(1L, USER_ID)).getMessage());
+
+        insertPayment(1, 1, "60.00", "success");
+        insertPayment(2, 1, "40.00", "failed");
+        insertPayment(3, 1, "40.00", "pending");
+        BusinessException e = assertThrows(BusinessException.class, () -> orderService.completeOrder(1L, USER_ID));
+        assertTrue(e.getMessage().startsWith("订单尚未支付全部金额，已支付：60.00"));
+
+        insertPayment(4, 1, "40.00", "success");
+        orderService.completeOrder(1L, USER_ID);
+        assertEquals("completed", orderStatus(1));
+        assertEquals(1, db.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM purchase_order WHERE id = 1 AND finish_time IS NOT NULL", Integer.class));
+        // 合同下仍有已交货未完成的订单
+        assertEquals("executing", contractStatus());
+
+        // 重复确认被状态条件拦截
+        assertThrows(BusinessException.class, () -> orderService.completeOrder(1L, USER_ID));
+    }
+
+    @Test
+    @DisplayName("合同下订单全部完成或取消 - 合同置为已完成")
+    void completeOrder_RollsUpContract() {
+        insertPayment(1, 1, "100.00", "success");
+        insertPayment(2, 2, "100.00", "success");
+
+        orderService.completeOrder(1L, USER_ID);
+        orderService.completeOrderByAdmin(2L);
+
+        assertEquals("completed", orderStatus(2));
+        assertEquals("completed", contractStatus());
+    }
+
+    @Test
+    @DisplayName("非本人订单 - 拒绝操作")
+    void completeOrder_OtherPurchaser_Forbidden() {
+        BusinessException e = assertThrows(BusinessException.class, () -> orderService.completeOrder(1L, 9999L));
+        assertEquals(403, e.getCode());
+        assertEquals("delivered", orderStatus(1));
+    }
+
+    private void insertOrder(long id, String status) {
+        db.insertOrder(id, Map.of("contract_id", CONTRACT_ID, "quantity", 10, "purchaser_id", PURCHASER_ID, "status", status));
+    }
+
+    private void insertPayment(long id, long orderId, String amount, String status) {
+        db.jdbcTemplate().update("INSERT INTO payment_record (id, order_id, payment_stage, amount, payment_method, status) "
+                + "VALUES (?, ?, '尾款', ?, 'alipay', ?)", id, orderId, new BigDecimal(amount), status);
+    }
+
+    private String orderStatus(long id) {
+        return db.jdbcTemplate().queryForObject("SELECT status FROM purchase_order WHERE id = ?", String.class, id);
+    }
+
+    private String contractStatus() {
+        return db.jdbcTemplate().queryForObject("SELECT status FROM purchase_contract WHERE id = ?", String.class, CONTRACT_ID);
+    }
+}
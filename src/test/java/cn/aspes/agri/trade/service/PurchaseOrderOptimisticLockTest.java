@@ -0,0 +1,153 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.OptimisticLockProperties;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.exception.OptimisticLockException;
+import cn.aspes.agri.trade.mapper.PurchaseContractMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.PurchaseOrderServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.OptimisticLockRetryTemplate;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("订单状态流转乐观锁测试")
+class PurchaseOrderOptimisticLockTest {
+
+    private static final long ORDER_ID = 9001L;
+    private static final long CONTRACT_ID = 9101L;
+    private static final int THREADS = 8;
+
+    private MybatisTestSupport db;
+    private PurchaseOrderMapper orderMapper;
+    private OptimisticLockProperties properties;
+    private PurchaseOrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(PurchaseOrderMapper.class, PurchaseContractMapper.class);
+        orderMapper = db.getMapper(PurchaseOrderMapper.class);
+        PurchaseContractMapper contractMapper = db.getMapper(PurchaseContractMapper.class);
+
+        PurchaseContractService contractService = mock(PurchaseContractService.class);
+        when(contractService.getById(anyLong())).thenAnswer(invocation -> contractMapper.selectById(invocation.<Long>getArgument(0)));
+
+        properties = new OptimisticLockProperties();
+        properties.setMaxAttempts(50);
+        properties.setBackoffMillis(1);
+        properties.setMaxBackoffMillis(10);
+        orderService = new PurchaseOrderServiceImpl(contractService, mock(FarmerProductService.class),
+                mock(StockReservationService.class), new SnowflakeIdGenerator(1, 1), mock(StringRedisTemplate.class),
+                mock(FarmerInfoService.class), mock(PurchaserInfoService.class), null, orderMapper, contractMapper,
+                mock(BizNoService.class), new OptimisticLockRetryTemplate(db.transactionManager(), properties),
+                mock(PartyStatsService.class), mock(TradeStatsService.class),
+                mock(StatusHistogramService.class), mock(LeaderboardService.class));
+        ReflectionTestUtils.setField(orderService, "baseMapper", orderMapper);
+
+        db.jdbcTemplate().update("INSERT INTO purchase_contract (id, contract_no, docking_id, purchaser_id, farmer_id, product_id, "
+                + "quantity, total_amount, payment_terms, delivery_time, delivery_address, status) "
+                + "VALUES (?, 'C1', 1, 1, 1, 1, 100, 1000.00, '预付', CURRENT_DATE, '地址', 'executing')", CONTRACT_ID);
+        db.insertOrder(ORDER_ID, Map.of("contract_id", CONTRACT_ID, "quantity", 100,
+                "total_amount", new BigDecimal("1000.00"), "status", "paid"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("持有旧版本的更新 - 不会覆盖并发修改")
+    void staleUpdate_IsRejected() {
+        PurchaseOrder first = orderMapper.selectById(ORDER_ID);
+        PurchaseOrder stale = orderMapper.selectById(ORDER_ID);
+
+        first.setStatus(OrderStatus.CANCELLED);
+        assertEquals(1, orderMapper.updateById(first));
+
+        stale.setStatus(OrderStatus.DELIVERED);
+        assertEquals(0, orderMapper.updateById(stale));
+        assertEquals("cancelled", status());
+        assertEquals(1, version());
+    }
+
+    @Test
+    @DisplayName("并发分批交货 - 冲突重试后累加数量不丢失")
+    void concurrentDeliveries_NoLostUpdate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    orderService.deliverOrder(ORDER_ID, 1, "合格");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS, (int) db.jdbcTemplate().queryForObject(
+                "SELECT actual_quantity FROM purchase_order WHERE id = ?", Integer.class, ORDER_ID));
+        assertEquals(THREADS, version());
+        assertEquals("delivered", status());
+    }
+
+    @Test
+    @DisplayName("重试次数耗尽 - 抛出冲突异常；外层事务中不重试")
+    void retryTemplate_BoundedAndSkippedInsideTransaction() {
+        properties.setMaxAttempts(3);
+        OptimisticLockRetryTemplate template = new OptimisticLockRetryTemplate(db.transactionManager(), properties);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockException.class, () -> template.executeWithoutResult(() -> {
+            attempts.incrementAndGet();
+            OptimisticLockException.check(false);
+        }));
+        assertEquals(3, attempts.get());
+
+        attempts.set(0);
+        assertThrows(OptimisticLockException.class, () -> db.transactionTemplate().executeWithoutResult(status ->
+                template.executeWithoutResult(() -> {
+                    attempts.incrementAndGet();
+                    OptimisticLockException.check(false);
+                })));
+        assertEquals(1, attempts.get());
+    }
+
+    private String status() {
+        return db.jdbcTemplate().queryForObject("SELECT status FROM purchase_order WHERE id = ?", String.class, ORDER_ID);
+    }
+
+    private int version() {
+        return db.jdbcTemplate().queryForObject("SELECT version FROM purchase_order WHERE id = ?", Integer.class, ORDER_ID);
+    }
+}
@@ -0,0 +1,198 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.entity.CooperationReview;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.entity.PurchaserInfo;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.CooperationReviewMapper;
+import cn.aspes.agri.trade.mapper.PartyStatsMapper;
+import cn.aspes.agri.trade.mapper.ProductSalesMapper;
+import cn.aspes.agri.trade.mapper.PurchaseOrderMapper;
+import cn.aspes.agri.trade.service.impl.CooperationReviewServiceImpl;
+import cn.aspes.agri.trade.service.impl.PartyStatsServiceImpl;
+import cn.aspes.agri.trade.service.impl.RatingSummaryServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.RatingSummary;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DisplayName("评分汇总测试")
+class RatingSummaryTest {
+
+    private static final long FARMER_ID = 11L;
+    private static final long PURCHASER_ID = 21L;
+    private static final long PURCHASER_USER_ID = 31L;
+    private static final String CACHE_KEY = "rating:summary:farmer:" + FARMER_ID;
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+    private PartyStatsServiceImpl partyStatsService;
+    private RatingSummaryServiceImpl ratingSummaryService;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        db = MybatisTestSupport.create(PartyStatsMapper.class, ProductSalesMapper.class, CooperationReviewMapper.class);
+        StatisticsProperties properties = new StatisticsProperties();
+        partyStatsService = new PartyStatsServiceImpl(db.getMapper(PartyStatsMapper.class),
+                db.getMapper(ProductSalesMapper.class), db.transactionManager(), properties);
+        ratingSummaryService = new RatingSummaryServiceImpl(partyStatsService, redis.redisTemplate(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("提交、修改、删除评价 - 从主体统计读取评价数、评分与星级分布")
+    void incrementalUpdates_MaintainHistogram() {
+        CooperationReview first = review(1L, 5);
+        CooperationReview second = review(2L, 4);
+        partyStatsService.recordReviewSubmitted(first);
+        partyStatsService.recordReviewSubmitted(second);
+        partyStatsService.recordReviewSubmitted(review(3L, 1));
+        second.setRating(2);
+        partyStatsService.recordReviewRatingChanged(second, 4);
+        partyStatsService.recordReviewRatingChanged(first, 5);
+        partyStatsService.recordReviewDeleted(first);
+
+        StatisticsVO.RatingDistribution distribution = ratingSummaryService.getDistribution("farmer", FARMER_ID);
+        assertEquals(2L, distribution.getRatingCount());
+        assertEquals(1.5, distribution.getAverageRating());
+        assertEquals(Map.of(1, 1L, 2, 1L, 3, 0L, 4, 0L, 5, 0L), distribution.getStarCounts());
+
+        // 其他方向的评价互不影响
+        RatingSummary purchaser = ratingSummaryService.getSummary("purchaser", FARMER_ID);
+        assertEquals(0L, purchaser.getRatingCount());
+        assertEquals(0.0, purchaser.averageRating());
+    }
+
+    @Test
+    @DisplayName("缓存 - 读取后命中Redis，评价变更提交后失效")
+    void cache_EvictedAfterCommit() {
+        submit(review(1L, 3));
+        assertEquals(1L, ratingSummaryService.getSummary("farmer", FARMER_ID).getRatingCount());
+        assertEquals("1", redis.redisTemplate().opsForHash().get(CACHE_KEY, "count"));
+
+        // 直接改库不会反映到缓存
+        db.jdbcTemplate().update("UPDATE party_stats SET review_count = 99");
+        assertEquals(1L, ratingSummaryService.getSummary("farmer", FARMER_ID).getRatingCount());
+
+        db.transactionTemplate().executeWithoutResult(status -> {
+            submit(review(2L, 5));
+            // 提交前的读取回填旧值，提交后再次失效
+            ratingSummaryService.getSummary("farmer", FARMER_ID);
+            assertTrue(redis.redisTemplate().hasKey(CACHE_KEY));
+        });
+        assertFalse(redis.redisTemplate().hasKey(CACHE_KEY));
+        RatingSummary summary = ratingSummaryService.getSummary("farmer", FARMER_ID);
+        assertEquals(100L, summary.getRatingCount());
+        assertEquals(1L, summary.getStar5());
+    }
+
+    @Test
+    @DisplayName("业务事务回滚 - 评分增量随之回滚")
+    void rollback_DiscardsIncrements() {
+        db.transactionTemplate().executeWithoutResult(status -> {
+            submit(review(1L, 4));
+            status.setRollbackOnly();
+        });
+
+        RatingSummary summary = ratingSummaryService.getSummary("farmer", FARMER_ID);
+        assertEquals(0L, summary.getRatingCount());
+        assertEquals(0L, summary.getStar4());
+    }
+
+    @Test
+    @DisplayName("同一评价两次修改均基于旧评分 - 后到的修改被拒绝，增量只计一次")
+    void concurrentUpdates_DeltaAppliedOnce() {
+        CooperationReview original = review(1L, 4);
+        original.setId(100L);
+        db.jdbcTemplate().update("INSERT INTO cooperation_review (id, order_id, review_from, review_to, target_id, rating) "
+                + "VALUES (100, 1, 'purchaser', 'farmer', ?, 4)", FARMER_ID);
+        submit(original);
+
+        CooperationReviewServiceImpl reviewService = spy(reviewService());
+        // 两次修改读取到的都是评分4的同一行
+        doAnswer(invocation -> review(1L, 4)).when(reviewService).getById(100L);
+
+        reviewService.updateReview(100L, 2, "一般", PURCHASER_USER_ID);
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> reviewService.updateReview(100L, 5, "很好", PURCHASER_USER_ID));
+        assertEquals("评价已被修改，请刷新后重试", ex.getMessage());
+
+        assertEquals(2, db.jdbcTemplate().queryForObject("SELECT rating FROM cooperation_review WHERE id = 100", Integer.class));
+        RatingSummary summary = ratingSummaryService.getSummary("farmer", FARMER_ID);
+        assertEquals(1L, summary.getRatingCount());
+        assertEquals(2L, summary.getRatingSum());
+        assertEquals(1L, summary.getStar2());
+        assertEquals(0L, summary.getStar4());
+        assertEquals(0L, summary.getStar5());
+    }
+
+    @Test
+    @DisplayName("被评价方类型非法 - 拒绝")
+    void invalidReviewTo_Rejected() {
+        assertThrows(BusinessException.class, () -> ratingSummaryService.getDistribution("admin", FARMER_ID));
+    }
+
+    private CooperationReviewServiceImpl reviewService() {
+        PurchaseOrder order = new PurchaseOrder();
+        order.setPurchaserId(PURCHASER_ID);
+        PurchaseOrderMapper purchaseOrderMapper = mock(PurchaseOrderMapper.class);
+        when(purchaseOrderMapper.selectById(anyLong())).thenReturn(order);
+        PurchaserInfo purchaser = new PurchaserInfo();
+        purchaser.setId(PURCHASER_ID);
+        PurchaserInfoService purchaserInfoService = mock(PurchaserInfoService.class);
+        when(purchaserInfoService.getByUserId(PURCHASER_USER_ID)).thenReturn(purchaser);
+
+        CooperationReviewServiceImpl service = new CooperationReviewServiceImpl(purchaseOrderMapper, null,
+                mock(FarmerInfoService.class), purchaserInfoService, partyStatsService, ratingSummaryService);
+        ReflectionTestUtils.setField(service, "baseMapper", db.getMapper(CooperationReviewMapper.class));
+        return service;
+    }
+
+    private CooperationReview review(long orderId, int rating) {
+        CooperationReview review = new CooperationReview();
+        review.setOrderId(orderId);
+        review.setReviewFrom("purchaser");
+        review.setReviewTo("farmer");
+        review.setTargetId(FARMER_ID);
+        review.setRating(rating);
+        return review;
+    }
+
+    /**
+     * 同评价服务：主体统计累加后失效评分缓存
+     */
+    private void submit(CooperationReview review) {
+        partyStatsService.recordReviewSubmitted(review);
+        ratingSummaryService.evictSummary(review.getReviewTo(), review.getTargetId());
+    }
+}
@@ -0,0 +1,150 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StockReservationProperties;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.scheduled.StockReservationScheduler;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.ReservationExpiryServiceImpl;
+import cn.aspes.agri.trade.service.impl.StockReservationServiceImpl;
+import cn.aspes.agri.trade.support.EmbeddedRedisSupport;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("库存预留过期延迟队列测试")
+class ReservationExpiryServiceTest {
+
+    private static final long PRODUCT_ID = 5001L;
+    private static final int INITIAL_STOCK = 100;
+
+    private static EmbeddedRedisSupport redis;
+
+    private MybatisTestSupport db;
+    private StockReservationProperties properties;
+    private ReservationExpiryServiceImpl expiryService;
+    private StockReservationServiceImpl reservationService;
+    private StockReservationScheduler scheduler;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedisSupport.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class);
+        properties = new StockReservationProperties();
+        expiryService = new ReservationExpiryServiceImpl(redis.redisTemplate(),
+                db.getMapper(StockReservationMapper.class), properties);
+
+        FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        HotStockService hotStockService = mock(HotStockService.class);
+        reservationService = new StockReservationServiceImpl(productService, new SnowflakeIdGenerator(1, 1),
+                hotStockService, expiryService);
+        ReflectionTestUtils.setField(reservationService, "baseMapper", db.getMapper(StockReservationMapper.class));
+        scheduler = new StockReservationScheduler(db.getMapper(StockReservationMapper.class), productService,
+                hotStockService, properties, db.transactionManager(), expiryService, mock(ShardLeaseService.class));
+
+        db.insertProduct(PRODUCT_ID, Map.of("stock", INITIAL_STOCK));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("到期预留 - 由延迟队列释放，未到期与已释放的不受影响")
+    void dueReservation_ReleasedFromQueue() {
+        Long expiring = reservationService.reserveStock(1L, PRODUCT_ID, 10);
+        reservationService.reserveStock(2L, PRODUCT_ID, 20);
+        reservationService.reserveStock(3L, PRODUCT_ID, 30);
+        reservationService.releaseReservation(3L, "订单取消");
+        assertEquals(2, expiryService.size());
+        assertEquals(INITIAL_STOCK - 30, stock());
+
+        // 模拟第一条预留已到期
+        LocalDateTime past = LocalDateTime.now().minusSeconds(1);
+        db.jdbcTemplate().update("UPDATE stock_reservation SET expired_time = ? WHERE id = ?", Timestamp.valueOf(past), expiring);
+        expiryService.schedule(expiring, past);
+
+        assertEquals(1, scheduler.releaseDueFromQueue(LocalDateTime.now()));
+        assertEquals(INITIAL_STOCK - 20, stock());
+        assertEquals("expired", status(expiring));
+        assertEquals(1, expiryService.size());
+        assertEquals(0, scheduler.releaseDueFromQueue(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("订单事务回滚 - 不登记过期队列")
+    void rollback_DoesNotSchedule() {
+        db.transactionTemplate().executeWithoutResult(status -> {
+            reservationService.reserveStock(1L, PRODUCT_ID, 5);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, expiryService.size());
+    }
+
+    @Test
+    @DisplayName("领取租约 - 未确认的预留在租约到期后重新投递")
+    void pollDue_RedeliversAfterLease() {
+        expiryService.schedule(11L, LocalDateTime.now().minusMinutes(1));
+        expiryService.schedule(12L, LocalDateTime.now().plusMinutes(1));
+
+        assertEquals(List.of(11L), expiryService.pollDue(10));
+        // 租约期内其他节点领取不到
+        assertTrue(expiryService.pollDue(10).isEmpty());
+
+        properties.setExpiryLeaseSeconds(0);
+        expiryService.schedule(11L, LocalDateTime.now().minusMinutes(1));
+        assertEquals(List.of(11L), expiryService.pollDue(10));
+        assertEquals(List.of(11L), expiryService.pollDue(10));
+
+        expiryService.acknowledge(List.of(11L));
+        assertEquals(1, expiryService.size());
+    }
+
+    @Test
+    @DisplayName("启动重建 - 以数据库待预留记录恢复延迟队列")
+    void rebuild_RestoresFromDatabase() {
+        properties.setExpireBatchSize(3);
+        LocalDateTime expiredTime = LocalDateTime.now().plusHours(1);
+        for (int i = 1; i <= 8; i++) {
+            db.jdbcTemplate().update("INSERT INTO stock_reservation (id, product_id, order_id, reserved_quantity, status, expired_time) "
+                    + "VALUES (?, ?, ?, 1, ?, ?)", i, PRODUCT_ID, i, i == 8 ? "confirmed" : "pending", Timestamp.valueOf(expiredTime));
+        }
+
+        assertEquals(7, expiryService.rebuild());
+        assertEquals(7, expiryService.size());
+    }
+
+    private int stock() {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, PRODUCT_ID);
+    }
+
+    private String status(long id) {
+        return db.jdbcTemplate().queryForObject("SELECT status FROM stock_reservation WHERE id = ?", String.class, id);
+    }
+}
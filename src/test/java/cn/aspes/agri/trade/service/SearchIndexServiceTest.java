@@ -0,0 +1,139 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.SearchProperties;
+import cn.aspes.agri.trade.entity.FarmerProduct;
+import cn.aspes.agri.trade.enums.SearchTarget;
+import cn.aspes.agri.trade.mapper.FarmerInfoMapper;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.PurchaseDemandMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.SearchIndexServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("名称搜索索引测试")
+class SearchIndexServiceTest {
+
+    private MybatisTestSupport db;
+    private SearchProperties properties;
+    private SearchIndexServiceImpl searchIndexService;
+    private FarmerProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class, FarmerInfoMapper.class, PurchaseDemandMapper.class);
+        properties = new SearchProperties();
+        searchIndexService = new SearchIndexServiceImpl(db.getMapper(FarmerProductMapper.class),
+                db.getMapper(FarmerInfoMapper.class), db.getMapper(PurchaseDemandMapper.class), properties);
+        productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        ReflectionTestUtils.setField(productService, "searchIndexService", searchIndexService);
+        ReflectionTestUtils.setField(productService, "statusHistogramService", mock(StatusHistogramService.class));
+        ReflectionTestUtils.setField(productService, "productFacetService", mock(ProductFacetService.class));
+
+        LocalDateTime now = LocalDateTime.now();
+        db.insertProduct(1, Map.of("name", "寿光西红柿", "create_time", now.minusDays(3)));
+        db.insertProduct(2, Map.of("name", "西红柿", "create_time", now.minusDays(2)));
+        db.insertProduct(3, Map.of("name", "有机西兰花", "create_time", now.minusDays(1)));
+        db.insertProduct(4, Map.of("name", "西红柿酱", "create_time", now));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("索引未建好 - 回退到数据库查询；建好后按相关度排序并按主键补全")
+    void search_UsesIndexOnceBuilt() {
+        assertFalse(searchIndexService.isReady(SearchTarget.PRODUCT));
+        List<FarmerProduct> fallback = productService.searchProductsByName("西红柿", 1, 10).getRecords();
+        assertEquals(List.of(4L, 2L, 1L), fallback.stream().map(FarmerProduct::getId).toList());
+
+        assertEquals(4, searchIndexService.rebuild(SearchTarget.PRODUCT));
+        assertTrue(searchIndexService.isReady(SearchTarget.PRODUCT));
+
+        IPage<FarmerProduct> page = productService.searchProductsByName("西红柿", 1, 2);
+        assertEquals(3, page.getTotal());
+        assertEquals(List.of(2L, 4L), page.getRecords().stream().map(FarmerProduct::getId).toList());
+        assertEquals("西红柿", page.getRecords().get(0).getName());
+        assertEquals(List.of(1L), productService.searchProductsByName("西红柿", 2, 2).getRecords()
+                .stream().map(FarmerProduct::getId).toList());
+        // 拼音首字母
+        assertEquals(List.of(3L), productService.searchProductsByName("yjxlh", 1, 10).getRecords()
+                .stream().map(FarmerProduct::getId).toList());
+
+        properties.setEnabled(false);
+        assertFalse(searchIndexService.isReady(SearchTarget.PRODUCT));
+    }
+
+    @Test
+    @DisplayName("事务内写入 - 提交后更新索引，回滚不生效；删除后不再命中")
+    void writes_AppliedAfterCommit() {
+        searchIndexService.rebuild(SearchTarget.PRODUCT);
+
+        db.transactionTemplate().executeWithoutResult(status -> {
+            searchIndexService.index(SearchTarget.PRODUCT, 5L, "紫皮洋葱", LocalDateTime.now());
+            assertEquals(0, searchIndexService.search(SearchTarget.PRODUCT, "洋葱", 1, 10).total());
+        });
+        assertEquals(List.of(5L), searchIndexService.search(SearchTarget.PRODUCT, "洋葱", 1, 10).ids());
+
+        db.transactionTemplate().executeWithoutResult(status -> {
+            searchIndexService.index(SearchTarget.PRODUCT, 6L, "白皮洋葱", LocalDateTime.now());
+            status.setRollbackOnly();
+        });
+        assertEquals(1, searchIndexService.search(SearchTarget.PRODUCT, "洋葱", 1, 10).total());
+
+        assertTrue(productService.removeById(2L));
+        assertEquals(List.of(4L, 1L), searchIndexService.search(SearchTarget.PRODUCT, "西红柿", 1, 10).ids());
+    }
+
+    @Test
+    @DisplayName("重建期间的写入 - 切换前补录到新索引")
+    void rebuild_ReplaysConcurrentWrites() {
+        FarmerProductMapper real = db.getMapper(FarmerProductMapper.class);
+        FarmerProductMapper slow = mock(FarmerProductMapper.class, delegatesTo(real));
+        SearchIndexServiceImpl service = new SearchIndexServiceImpl(slow, db.getMapper(FarmerInfoMapper.class),
+                db.getMapper(PurchaseDemandMapper.class), properties);
+        doAnswer(invocation -> {
+            List<FarmerProduct> rows = real.selectList(invocation.getArgument(0));
+            // 查询完成后、切换前提交的写入
+            service.index(SearchTarget.PRODUCT, 1L, "寿光番茄", LocalDateTime.now());
+            service.remove(SearchTarget.PRODUCT, 4L);
+            return rows;
+        }).when(slow).selectList(any());
+
+        service.rebuild(SearchTarget.PRODUCT);
+
+        assertEquals(List.of(1L), service.search(SearchTarget.PRODUCT, "番茄", 1, 10).ids());
+        assertEquals(List.of(2L), service.search(SearchTarget.PRODUCT, "西红柿", 1, 10).ids());
+    }
+
+    @Test
+    @DisplayName("农户 - 按农场名称建立索引")
+    void farmers_IndexedByFarmName() {
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name) VALUES (11, 111, '绿源果蔬合作社')");
+        db.jdbcTemplate().update("INSERT INTO farmer_info (id, user_id, farm_name) VALUES (12, 112, '高原茶园')");
+
+        assertEquals(2, searchIndexService.rebuild(SearchTarget.FARMER));
+        assertEquals(List.of(11L), searchIndexService.search(SearchTarget.FARMER, "果蔬合作", 1, 10).ids());
+        assertEquals(List.of(12L), searchIndexService.search(SearchTarget.FARMER, "gycy", 1, 10).ids());
+        assertFalse(searchIndexService.isReady(SearchTarget.DEMAND));
+    }
+
+}
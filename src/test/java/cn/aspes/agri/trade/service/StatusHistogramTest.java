@@ -0,0 +1,91 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.enums.OrderStatus;
+import cn.aspes.agri.trade.enums.ProductStatus;
+import cn.aspes.agri.trade.mapper.StatisticsMapper;
+import cn.aspes.agri.trade.service.impl.StatusHistogramServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("状态分布统计测试")
+class StatusHistogramTest {
+
+    private MybatisTestSupport db;
+    private StatusHistogramServiceImpl histogramService;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(StatisticsMapper.class);
+        histogramService = new StatusHistogramServiceImpl(db.getMapper(StatisticsMapper.class), new StatisticsProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("一次分组查询 - 覆盖全部状态，未出现的状态计为0")
+    void orderHistogram_ZeroFillsMissingStatuses() {
+        insertOrder("pending", 3);
+        insertOrder("completed", 2);
+
+        EnumMap<OrderStatus, Long> histogram = histogramService.getOrderStatusHistogram();
+
+        assertEquals(OrderStatus.values().length, histogram.size());
+        assertEquals(3L, histogram.get(OrderStatus.PENDING));
+        assertEquals(2L, histogram.get(OrderStatus.COMPLETED));
+        assertEquals(0L, histogram.get(OrderStatus.CANCELLED));
+    }
+
+    @Test
+    @DisplayName("缓存命中 - 失效前返回缓存结果，失效后重新查询")
+    void histogram_CachedUntilEvicted() {
+        insertOrder("pending", 1);
+        insertProduct("on_sale", 2);
+        assertEquals(1L, histogramService.getOrderStatusHistogram().get(OrderStatus.PENDING));
+        assertEquals(2L, histogramService.getProductStatusHistogram().get(ProductStatus.ON_SALE));
+
+        insertOrder("pending", 4);
+        insertProduct("on_sale", 1);
+        assertEquals(1L, histogramService.getOrderStatusHistogram().get(OrderStatus.PENDING));
+
+        // 只失效订单分布，产品分布仍为缓存值
+        histogramService.evictOrders();
+        assertEquals(5L, histogramService.getOrderStatusHistogram().get(OrderStatus.PENDING));
+        assertEquals(2L, histogramService.getProductStatusHistogram().get(ProductStatus.ON_SALE));
+
+        histogramService.evictProducts();
+        assertEquals(3L, histogramService.getProductStatusHistogram().get(ProductStatus.ON_SALE));
+    }
+
+    @Test
+    @DisplayName("返回副本 - 调用方修改不影响缓存")
+    void histogram_ReturnsCopy() {
+        insertOrder("pending", 1);
+        histogramService.getOrderStatusHistogram().put(OrderStatus.PENDING, 100L);
+        assertEquals(1L, histogramService.getOrderStatusHistogram().get(OrderStatus.PENDING));
+    }
+
+    private void insertOrder(String status, int count) {
+        for (int i = 0; i < count; i++) {
+            db.insertOrder(nextId++, Map.of("status", status));
+        }
+    }
+
+    private void insertProduct(String status, int count) {
+        for (int i = 0; i < count; i++) {
+            db.insertProduct(nextId++, Map.of("stock", 0, "status", status));
+        }
+    }
+}
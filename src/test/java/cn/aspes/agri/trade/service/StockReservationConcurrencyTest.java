@@ -0,0 +1,133 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.entity.StockReservation;
+import cn.aspes.agri.trade.enums.ReservationStatus;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.FarmerProductMapper;
+import cn.aspes.agri.trade.mapper.StockReservationMapper;
+import cn.aspes.agri.trade.service.impl.FarmerProductServiceImpl;
+import cn.aspes.agri.trade.service.impl.StockReservationServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.util.SnowflakeIdGenerator;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("库存预留并发测试")
+class StockReservationConcurrencyTest {
+
+    private static final long PRODUCT_ID = 1001L;
+    private static final int INITIAL_STOCK = 1000;
+    private static final int THREADS = 64;
+    private static final int REQUESTS = 5000;
+
+    private MybatisTestSupport db;
+    private StockReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(FarmerProductMapper.class, StockReservationMapper.class);
+
+        FarmerProductServiceImpl productService = new FarmerProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "baseMapper", db.getMapper(FarmerProductMapper.class));
+        reservationService = new StockReservationServiceImpl(productService, new SnowflakeIdGenerator(1, 1), mock(HotStockService.class), mock(ReservationExpiryService.class));
+        ReflectionTestUtils.setField(reservationService, "baseMapper", db.getMapper(StockReservationMapper.class));
+
+        db.insertProduct(PRODUCT_ID, Map.of("stock", INITIAL_STOCK));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("多线程并发预留同一产品 - 不超卖")
+    void concurrentReserve_NeverOversells() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(REQUESTS, i -> {
+            try {
+                reservationService.reserveStock(10_000L + i, PRODUCT_ID, 1);
+                succeeded.incrementAndGet();
+            } catch (BusinessException e) {
+                assertEquals("库存不足，无法预留", e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(INITIAL_STOCK, succeeded.get());
+        assertEquals(REQUESTS - INITIAL_STOCK, rejected.get());
+        assertEquals(0, currentStock());
+        assertEquals(INITIAL_STOCK, reservationService.count(new LambdaQueryWrapper<StockReservation>()
+                .eq(StockReservation::getStatus, ReservationStatus.PENDING)));
+    }
+
+    @Test
+    @DisplayName("并发重复释放同一预留 - 仅回补一次库存")
+    void concurrentRelease_RestoresStockOnce() throws Exception {
+        reservationService.reserveStock(1L, PRODUCT_ID, 10);
+        assertEquals(INITIAL_STOCK - 10, currentStock());
+
+        runConcurrently(THREADS, i -> reservationService.releaseReservation(1L, "订单取消"));
+
+        assertEquals(INITIAL_STOCK, currentStock());
+        assertNull(reservationService.getActiveReservationByOrderId(1L));
+    }
+
+    @Test
+    @DisplayName("预留不存在的产品 - 失败")
+    void reserveMissingProduct_Failure() {
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> reservationService.reserveStock(1L, 999L, 1));
+        assertEquals("产品不存在", e.getMessage());
+    }
+
+    private int currentStock() {
+        return db.jdbcTemplate().queryForObject("SELECT stock FROM farmer_product WHERE id = ?", Integer.class, PRODUCT_ID);
+    }
+
+    private void runConcurrently(int tasks, IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+}
@@ -0,0 +1,212 @@
+package cn.aspes.agri.trade.service;
+
+import cn.aspes.agri.trade.config.StatisticsProperties;
+import cn.aspes.agri.trade.dto.TradeTrendRequest;
+import cn.aspes.agri.trade.entity.PurchaseOrder;
+import cn.aspes.agri.trade.exception.BusinessException;
+import cn.aspes.agri.trade.mapper.TradeStatsMapper;
+import cn.aspes.agri.trade.service.impl.TradeStatsServiceImpl;
+import cn.aspes.agri.trade.support.MybatisTestSupport;
+import cn.aspes.agri.trade.vo.StatisticsVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("交易趋势汇总测试")
+class TradeStatsTest {
+
+    private static final long PRODUCT_SD = 41L;
+    private static final long PRODUCT_YN = 42L;
+
+    private MybatisTestSupport db;
+    private StatisticsProperties properties;
+    private ShardLeaseService shardLeaseService;
+    private TradeStatsServiceImpl tradeStatsService;
+
+    @BeforeEach
+    void setUp() {
+        db = MybatisTestSupport.create(TradeStatsMapper.class);
+        properties = new StatisticsProperties();
+        properties.setTradeBackfillChunkSize(3);
+        shardLeaseService = mock(ShardLeaseService.class);
+        when(shardLeaseService.tryAcquire(anyString(), anyInt(), any()))
+                .thenReturn(new ShardLeaseService.Lease("trade-stats-backfill", 0, 1L));
+        when(shardLeaseService.renew(any(), any())).thenReturn(true);
+        tradeStatsService = new TradeStatsServiceImpl(db.getMapper(TradeStatsMapper.class), properties,
+                db.transactionManager(), shardLeaseService);
+
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (1, '370783', '寿光市', '山东', '潍坊')");
+        db.jdbcTemplate().update("INSERT INTO origin_area (area_id, area_code, area_name, province, city) VALUES (2, '530522', '腾冲市', '云南', '保山')");
+        db.insertProduct(PRODUCT_SD, Map.of("category_id", 1L, "origin_area_id", 1));
+        db.insertProduct(PRODUCT_YN, Map.of("category_id", 2L, "origin_area_id", 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("增量维护 - 完成与取消按分类、省份、终态累加")
+    void incremental_RecordsByDimension() {
+        tradeStatsService.recordOrderCompleted(order(PRODUCT_SD, 10, "300.00", 8, "240.00"));
+        tradeStatsService.recordOrderCompleted(order(PRODUCT_SD, 5, "150.00", null, null));
+        tradeStatsService.recordOrderCompleted(order(PRODUCT_YN, 4, "200.00", 4, "200.00"));
+        tradeStatsService.recordOrderCancelled(order(PRODUCT_SD, 7, "210.00", null, null));
+
+        LocalDate today = LocalDate.now();
+        List<StatisticsVO.TradeTrendPoint> total = tradeStatsService.getTradeTrend(request("day", today, today, "none"));
+        assertEquals(1, total.size());
+        assertEquals(today, total.get(0).getBucket());
+        assertEquals(3L, total.get(0).getOrderCount());
+        assertEquals(17L, total.get(0).getQuantity());
+        assertEquals(0, new BigDecimal("590.00").compareTo(total.get(0).getGmv()));
+        assertEquals(new BigDecimal("34.71"), total.get(0).getAveragePrice());
+
+        List<StatisticsVO.TradeTrendPoint> byProvince = tradeStatsService.getTradeTrend(request("month", today, today, "province"));
+        assertEquals(2, byProvince.size());
+        assertEquals(today.withDayOfMonth(1), byProvince.get(0).getBucket());
+        StatisticsVO.TradeTrendPoint shandong = byProvince.stream().filter(p -> "山东".equals(p.getProvince())).findFirst().orElseThrow();
+        assertEquals(2L, shandong.getOrderCount());
+        assertEquals(new BigDecimal("30.00"), shandong.getAveragePrice());
+
+        TradeTrendRequest cancelled = request("day", today, today, "none");
+        cancelled.setStatus("cancelled");
+        List<StatisticsVO.TradeTrendPoint> cancelledPoints = tradeStatsService.getTradeTrend(cancelled);
+        assertEquals(1L, cancelledPoints.get(0).getOrderCount());
+        assertEquals(7L, cancelledPoints.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("分段回填 - 按周汇总历史订单，跳过未结束及已由增量维护计入的订单")
+    void backfill_AggregatesHistoryInChunks() {
+        // 2024-01-01 为周一
+        insertOrder(1, PRODUCT_SD, "completed", 10, "100.00", LocalDateTime.of(2024, 1, 1, 9, 0));
+        insertOrder(2, PRODUCT_SD, "completed", 10, "120.00", LocalDateTime.of(2024, 1, 7, 9, 0));
+        insertOrder(3, PRODUCT_YN, "completed", 5, "80.00", LocalDateTime.of(2024, 1, 3, 9, 0));
+        insertOrder(4, PRODUCT_SD, "completed", 20, "260.00", LocalDateTime.of(2024, 1, 8, 9, 0));
+        insertOrder(5, PRODUCT_SD, "cancelled", 3, "30.00", LocalDateTime.of(2024, 1, 2, 9, 0));
+        insertOrder(6, PRODUCT_SD, "pending", 9, "90.00", LocalDateTime.of(2024, 1, 2, 9, 0));
+        // 增量维护上线后完成的订单带完成时间，之后的其他更新不改变其统计日期
+        LocalDateTime finishTime = LocalDateTime.now().minusDays(1);
+        insertOrder(7, PRODUCT_SD, "completed", 9, "90.00", LocalDateTime.now());
+        db.jdbcTemplate().update("UPDATE purchase_order SET finish_time = ? WHERE id = 7", Timestamp.valueOf(finishTime));
+        PurchaseOrder live = order(PRODUCT_SD, 9, "90.00", null, null);
+        live.setFinishTime(finishTime);
+        tradeStatsService.recordOrderCompleted(live);
+
+        assertEquals(7, tradeStatsService.backfill());
+        // 重复回填只替换回填行
+        assertEquals(7, tradeStatsService.backfill());
+
+        List<StatisticsVO.TradeTrendPoint> weekly = tradeStatsService.getTradeTrend(
+                request("week", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14), "category"));
+        assertEquals(3, weekly.size());
+        assertEquals(LocalDate.of(2024, 1, 1), weekly.get(0).getBucket());
+        assertEquals(1L, weekly.get(0).getCategoryId());
+        assertEquals(2L, weekly.get(0).getOrderCount());
+        assertEquals(0, new BigDecimal("220.00").compareTo(weekly.get(0).getGmv()));
+        assertEquals(2L, weekly.get(1).getCategoryId());
+        assertEquals(LocalDate.of(2024, 1, 8), weekly.get(2).getBucket());
+        assertEquals(20L, weekly.get(2).getQuantity());
+
+        TradeTrendRequest filtered = request("month", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "none");
+        filtered.setProvince("云南");
+        assertEquals(1L, tradeStatsService.getTradeTrend(filtered).get(0).getOrderCount());
+        assertTrue(tradeStatsService.getTradeTrend(request("day", LocalDate.now(), LocalDate.now(), "none")).isEmpty());
+        List<StatisticsVO.TradeTrendPoint> livePoints = tradeStatsService.getTradeTrend(
+                request("day", finishTime.toLocalDate(), finishTime.toLocalDate(), "none"));
+        assertEquals(1L, livePoints.get(0).getOrderCount());
+        assertEquals(9L, livePoints.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("重新回填 - 进行中及中途失败时查询仍读取上一次完整的回填结果")
+    void rebackfill_KeepsPreviousResultUntilSwitched() {
+        insertOrder(1, PRODUCT_SD, "completed", 10, "100.00", LocalDateTime.of(2024, 1, 1, 9, 0));
+        insertOrder(2, PRODUCT_SD, "completed", 10, "120.00", LocalDateTime.of(2024, 1, 7, 9, 0));
+        insertOrder(3, PRODUCT_YN, "completed", 5, "80.00", LocalDateTime.of(2024, 1, 3, 9, 0));
+        insertOrder(4, PRODUCT_SD, "completed", 20, "260.00", LocalDateTime.of(2024, 1, 8, 9, 0));
+        tradeStatsService.backfill();
+        TradeTrendRequest january = request("month", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "none");
+        assertEquals(4L, tradeStatsService.getTradeTrend(january).get(0).getOrderCount());
+
+        // 每次续租时查询，回填中途看到的始终是上一次的完整结果
+        List<Long> observed = new ArrayList<>();
+        when(shardLeaseService.renew(any(), any())).thenAnswer(invocation -> {
+            observed.add(tradeStatsService.getTradeTrend(january).get(0).getOrderCount());
+            return true;
+        });
+        insertOrder(5, PRODUCT_SD, "completed", 1, "10.00", LocalDateTime.of(2024, 1, 9, 9, 0));
+        tradeStatsService.backfill();
+        assertTrue(observed.size() > 1);
+        assertTrue(observed.stream().allMatch(count -> count == 4L));
+        assertEquals(5L, tradeStatsService.getTradeTrend(january).get(0).getOrderCount());
+
+        // 第二段后租约失效：已有回填行保留，暂存行不参与查询
+        when(shardLeaseService.renew(any(), any())).thenReturn(true, false);
+        insertOrder(6, PRODUCT_SD, "completed", 1, "10.00", LocalDateTime.of(2024, 1, 10, 9, 0));
+        assertThrows(BusinessException.class, () -> tradeStatsService.backfill());
+        assertEquals(5L, tradeStatsService.getTradeTrend(january).get(0).getOrderCount());
+        assertTrue(db.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM trade_stats_daily WHERE source = 'staging'", Integer.class) > 0);
+
+        when(shardLeaseService.renew(any(), any())).thenReturn(true);
+        tradeStatsService.backfill();
+        assertEquals(6L, tradeStatsService.getTradeTrend(january).get(0).getOrderCount());
+        assertEquals(0, db.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM trade_stats_daily WHERE source = 'staging'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("查询范围过大或回填已在执行 - 拒绝")
+    void invalidRequests_Rejected() {
+        assertThrows(BusinessException.class, () -> tradeStatsService.getTradeTrend(
+                request("day", LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1), "none")));
+        assertThrows(BusinessException.class, () -> tradeStatsService.getTradeTrend(
+                request("day", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), "none")));
+        assertDoesNotThrow(() -> tradeStatsService.getTradeTrend(
+                request("month", LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1), "none")));
+
+        when(shardLeaseService.tryAcquire(anyString(), anyInt(), any())).thenReturn(null);
+        assertThrows(BusinessException.class, () -> tradeStatsService.backfill());
+    }
+
+    private TradeTrendRequest request(String granularity, LocalDate from, LocalDate to, String groupBy) {
+        TradeTrendRequest request = new TradeTrendRequest();
+        request.setGranularity(granularity);
+        request.setFrom(from);
+        request.setTo(to);
+        request.setGroupBy(groupBy);
+        return request;
+    }
+
+    private PurchaseOrder order(long productId, int quantity, String amount, Integer actualQuantity, String actualAmount) {
+        PurchaseOrder order = new PurchaseOrder();
+        order.setProductId(productId);
+        order.setQuantity(quantity);
+        order.setTotalAmount(new BigDecimal(amount));
+        order.setActualQuantity(actualQuantity);
+        order.setActualAmount(actualAmount == null ? null : new BigDecimal(actualAmount));
+        return order;
+    }
+
+    private void insertOrder(long id, long productId, String status, int quantity, String amount, LocalDateTime updateTime) {
+        db.insertOrder(id, Map.of("product_id", productId, "product_info", "{}", "quantity", quantity,
+                "total_amount", new BigDecimal(amount), "status", status, "create_time", updateTime, "update_time", updateTime));
+    }
+}
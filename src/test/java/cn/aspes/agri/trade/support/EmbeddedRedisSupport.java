@@ -0,0 +1,68 @@
+package cn.aspes.agri.trade.support;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 嵌入式Redis测试支持
+ *
+ * 在随机空闲端口启动独立的Redis进程，并提供连接到该进程的 StringRedisTemplate。
+ */
+public final class EmbeddedRedisSupport implements AutoCloseable {
+
+    private final RedisServer redisServer;
+    private final LettuceConnectionFactory connectionFactory;
+    private final StringRedisTemplate redisTemplate;
+
+    private EmbeddedRedisSupport(RedisServer redisServer, LettuceConnectionFactory connectionFactory) {
+        this.redisServer = redisServer;
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    public static EmbeddedRedisSupport start() {
+        int port = freePort();
+        RedisServer redisServer = new RedisServer(port);
+        redisServer.start();
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        return new EmbeddedRedisSupport(redisServer, connectionFactory);
+    }
+
+    public StringRedisTemplate redisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * 清空当前库，用于用例之间隔离
+     */
+    public void flushAll() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package cn.aspes.agri.trade.support;
+
+import cn.aspes.agri.trade.handler.MyMetaObjectHandler;
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据层测试支持
+ *
+ * 不启动Spring容器，基于H2内存库（MySQL兼容模式）直接构建MyBatis-Plus会话，
+ * 用于并发扣减、批量更新等需要真实SQL语义的测试。表结构见 schema-h2.sql。
+ */
+public final class MybatisTestSupport implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+    private final SqlSessionTemplate sqlSessionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceTransactionManager transactionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicInteger statementCount;
+
+    private MybatisTestSupport(HikariDataSource dataSource, SqlSessionTemplate sqlSessionTemplate, AtomicInteger statementCount) {
+        this.dataSource = dataSource;
+        this.sqlSessionTemplate = sqlSessionTemplate;
+        this.statementCount = statementCount;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 创建独立的内存库并注册指定Mapper
+     */
+    public static MybatisTestSupport create(Class<?>... mapperClasses) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        hikariConfig.setUsername("sa");
+        hikariConfig.setMaximumPoolSize(32);
+        HikariDataSource dataSource = new HikariDataSource(hikariConfig);
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema-h2.sql")).execute(dataSource);
+
+        try {
+            MybatisConfiguration configuration = new MybatisConfiguration();
+            configuration.setMapUnderscoreToCamelCase(true);
+
+            GlobalConfig globalConfig = new GlobalConfig();
+            globalConfig.setBanner(false);
+            globalConfig.setMetaObjectHandler(new MyMetaObjectHandler());
+
+            MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+            factoryBean.setDataSource(dataSource);
+            factoryBean.setConfiguration(configuration);
+            factoryBean.setGlobalConfig(globalConfig);
+            // 与 MybatisPlusConfig 一致启用分页插件和乐观锁插件
+            MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+            AtomicInteger statementCount = new AtomicInteger();
+            interceptor.addInnerInterceptor(new InnerInterceptor() {
+                @Override
+                public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+                    statementCount.incrementAndGet();
+                }
+            });
+            interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
+            interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
+            factoryBean.setPlugins(interceptor);
+            SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+
+            for (Class<?> mapperClass : mapperClasses) {
+                // 与 MyBatis-Plus 默认的 mapper-locations 一致加载 mapper/ 目录下的同名XML，解析时同时注册Mapper
+                ClassPathResource xml = new ClassPathResource("mapper/" + mapperClass.getSimpleName() + ".xml");
+                if (xml.exists()) {
+                    try (InputStream in = xml.getInputStream()) {
+                        new XMLMapperBuilder(in, configuration, xml.getPath(), configuration.getSqlFragments()).parse();
+                    }
+                }
+                if (!configuration.hasMapper(mapperClass)) {
+                    configuration.addMapper(mapperClass);
+                }
+            }
+            return new MybatisTestSupport(dataSource, new SqlSessionTemplate(sqlSessionFactory), statementCount);
+        } catch (Exception e) {
+            dataSource.close();
+            throw new IllegalStateException("初始化测试数据源失败", e);
+        }
+    }
+
+    public <T> T getMapper(Class<T> mapperClass) {
+        return sqlSessionTemplate.getMapper(mapperClass);
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * 经 MyBatis 执行的SQL语句数（含分页插件的 count 查询），不含 jdbcTemplate 直接执行的语句
+     */
+    public int statementCount() {
+        return statementCount.get();
+    }
+
+    public void resetStatementCount() {
+        statementCount.set(0);
+    }
+
+    /**
+     * 插入产品：未指定的列取默认值（农户1、分类1、产地1、单价10.00、库存100、在售）
+     *
+     * @param columns 覆盖默认值的列，键为表字段名；LocalDateTime 按时间戳写入
+     */
+    public void insertProduct(long id, Map<String, ?> columns) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("farmer_id", 1L);
+        row.put("category_id", 1L);
+        row.put("name", "测试产品");
+        row.put("spec", "1kg");
+        row.put("unit", "kg");
+        row.put("price", new BigDecimal("10.00"));
+        row.put("stock", 100);
+        row.put("origin_area_id", 1);
+        row.put("status", "on_sale");
+        row.putAll(columns);
+        insert("farmer_product", row);
+    }
+
+    public void insertProduct(long id) {
+        insertProduct(id, Map.of());
+    }
+
+    /**
+     * 插入订单：未指定的列取默认值（单号"PO"+id、合同1、产品1、数量1、金额100.00、农户1、采购商1）
+     *
+     * @param columns 覆盖默认值的列，键为表字段名；product_info 按JSON写入，LocalDateTime 按时间戳写入
+     */
+    public void insertOrder(long id, Map<String, ?> columns) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("order_no", "PO" + id);
+        row.put("contract_id", 1L);
+        row.put("product_id", 1L);
+        row.put("quantity", 1);
+        row.put("total_amount", new BigDecimal("100.00"));
+        row.put("farmer_id", 1L);
+        row.put("purchaser_id", 1L);
+        row.putAll(columns);
+        insert("purchase_order", row);
+    }
+
+    private void insert(String table, Map<String, Object> row) {
+        StringJoiner names = new StringJoiner(", ");
+        StringJoiner placeholders = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>();
+        row.forEach((column, value) -> {
+            names.add(column);
+            placeholders.add("product_info".equals(column) ? "? FORMAT JSON" : "?");
+            args.add(value instanceof LocalDateTime time ? Timestamp.valueOf(time) : value);
+        });
+        jdbcTemplate.update("INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ")", args.toArray());
+    }
+
+    public PlatformTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return transactionTemplate;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,86 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("活跃事件环形缓冲区测试")
+class ActivityRingBufferTest {
+
+    @Test
+    @DisplayName("缓冲区写满 - 发布失败且消费后可继续写入")
+    void full_OfferFailsUntilDrained() {
+        ActivityRingBuffer buffer = new ActivityRingBuffer(5);
+        assertEquals(8, buffer.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(i, false, 0, i, i));
+        }
+        assertFalse(buffer.offer(99, false, 0, 0, 0));
+
+        List<Long> drained = new ArrayList<>();
+        assertEquals(3, buffer.drain((userId, farmer, endpointId, timestamp, latency) -> drained.add(userId), 3));
+        assertEquals(List.of(0L, 1L, 2L), drained);
+        assertEquals(5, buffer.size());
+        assertTrue(buffer.offer(8, true, 1, 8, 8));
+    }
+
+    @Test
+    @DisplayName("多生产者并发发布 - 消费者按槽位完整读到全部事件")
+    void concurrentProducers_NoLossOrTearing() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        ActivityRingBuffer buffer = new ActivityRingBuffer(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] sums = new long[producers];
+        long[] received = new long[1];
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        // 缓冲区满时自旋重试，验证不丢失
+                        while (!buffer.offer(i, producer % 2 == 0, producer, i, i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received[0] < (long) producers * perProducer && System.nanoTime() < deadline) {
+                buffer.drain((userId, farmer, endpointId, timestamp, latency) -> {
+                    // 同一事件的各字段来自同一次发布
+                    assertEquals(userId, timestamp);
+                    assertEquals(userId, latency);
+                    assertEquals(endpointId % 2 == 0, farmer);
+                    sums[endpointId] += userId;
+                    received[0]++;
+                }, 256);
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals((long) producers * perProducer, received[0]);
+        long expected = (long) perProducer * (perProducer - 1) / 2;
+        for (long sum : sums) {
+            assertEquals(expected, sum);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package cn.aspes.agri.trade.util;
+
+import cn.aspes.agri.trade.enums.ProductFacet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("位图筛选索引测试")
+class FacetBitmapIndexTest {
+
+    private FacetBitmapIndex<ProductFacet> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetBitmapIndex<>(ProductFacet.class);
+        put(1, "1", "山东省", "0-5", "有机", 100);
+        put(2, "1", "山东省", "5-10", "绿色", 200);
+        put(3, "2", "云南省", "5-10", "有机", 300);
+        put(4, "2", "黑龙江省", "10+", null, 400);
+        put(5, "3", "云南省", "0-5", "有机", 500);
+    }
+
+    @Test
+    @DisplayName("维度内为或、维度间为且，按排序值倒序分页")
+    void query_OrWithinFacetAndAcross() {
+        FacetBitmapIndex.Result<ProductFacet> all = index.query(Map.of(), 0, 10);
+        assertEquals(5, all.total());
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), all.ids());
+
+        FacetBitmapIndex.Result<ProductFacet> result = index.query(Map.of(
+                ProductFacet.PROVINCE, List.of("山东省", "云南省"),
+                ProductFacet.PRODUCTION_METHOD, List.of("有机")), 0, 10);
+        assertEquals(3, result.total());
+        assertEquals(List.of(5L, 3L, 1L), result.ids());
+        assertEquals(List.of(3L), index.query(Map.of(ProductFacet.PRODUCTION_METHOD, List.of("有机")), 1, 1).ids());
+
+        assertEquals(0, index.query(Map.of(ProductFacet.CATEGORY, List.of("99")), 0, 10).total());
+    }
+
+    @Test
+    @DisplayName("计数 - 已选维度只应用其他维度的条件，未选维度应用全部条件")
+    void counts_ExcludeOwnFacet() {
+        FacetBitmapIndex.Result<ProductFacet> result = index.query(Map.of(
+                ProductFacet.PROVINCE, List.of("云南省")), 0, 10);
+
+        // 省份计数不受省份条件影响
+        assertEquals(Map.of("山东省", 2L, "云南省", 2L, "黑龙江省", 1L), result.counts().get(ProductFacet.PROVINCE));
+        // 其他维度在云南省的产品中计数，数量为 0 的取值不返回
+        assertEquals(Map.of("2", 1L, "3", 1L), result.counts().get(ProductFacet.CATEGORY));
+        assertEquals(Map.of("有机", 2L), result.counts().get(ProductFacet.PRODUCTION_METHOD));
+        // 按数量降序
+        assertEquals(List.of("有机", "绿色"), List.copyOf(index.query(Map.of(), 0, 0)
+                .counts().get(ProductFacet.PRODUCTION_METHOD).keySet()));
+    }
+
+    @Test
+    @DisplayName("更新与删除 - 旧取值失效，槽位回收复用")
+    void updateAndRemove_ReflectedInCounts() {
+        put(1, "1", "山东省", "10+", "有机", 100);
+        assertEquals(Map.of("5-10", 2L, "10+", 2L, "0-5", 1L),
+                index.query(Map.of(), 0, 10).counts().get(ProductFacet.PRICE_BAND));
+
+        index.remove(4);
+        index.remove(99);
+        assertEquals(4, index.size());
+        assertFalse(index.query(Map.of(), 0, 10).counts().get(ProductFacet.PROVINCE).containsKey("黑龙江省"));
+
+        put(6, "4", "海南省", "0-5", "有机", 600);
+        FacetBitmapIndex.Result<ProductFacet> result = index.query(Map.of(ProductFacet.CATEGORY, List.of("4")), 0, 10);
+        assertEquals(List.of(6L), result.ids());
+        assertEquals(5, index.size());
+    }
+
+    private void put(long id, String category, String province, String priceBand, String method, long sortKey) {
+        Map<ProductFacet, String> values = new EnumMap<>(ProductFacet.class);
+        values.put(ProductFacet.CATEGORY, category);
+        values.put(ProductFacet.PROVINCE, province);
+        values.put(ProductFacet.PRICE_BAND, priceBand);
+        values.put(ProductFacet.PRODUCTION_METHOD, method);
+        index.put(id, values, sortKey);
+    }
+}
@@ -0,0 +1,64 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HyperLogLog去重计数测试")
+class HyperLogLogTest {
+
+    @Test
+    @DisplayName("大基数估算 - 误差在标准误差的三倍以内")
+    void estimate_WithinError() {
+        HyperLogLog hll = new HyperLogLog(10);
+        int distinct = 100_000;
+        for (long i = 0; i < distinct; i++) {
+            hll.offer(i);
+            hll.offer(i);
+        }
+        // 精度10的标准误差约为 1.04/sqrt(1024) ≈ 3.25%
+        assertEquals(distinct, hll.estimate(), distinct * 0.1);
+    }
+
+    @Test
+    @DisplayName("小基数估算 - 线性计数修正后接近精确值")
+    void estimate_SmallCardinality() {
+        HyperLogLog hll = new HyperLogLog(10);
+        assertEquals(0, hll.estimate());
+        for (long i = 1; i <= 20; i++) {
+            hll.offer(i);
+        }
+        assertEquals(20, hll.estimate(), 1);
+    }
+
+    @Test
+    @DisplayName("合并 - 等价于对并集计数")
+    void merge_EqualsUnion() {
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long i = 0; i < 30_000; i++) {
+            left.offer(i);
+            union.offer(i);
+        }
+        for (long i = 20_000; i < 50_000; i++) {
+            right.offer(i);
+            union.offer(i);
+        }
+        left.merge(right);
+        assertEquals(union.estimate(), left.estimate());
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    @DisplayName("序列化 - 反序列化后估算值不变")
+    void bytes_RoundTrip() {
+        HyperLogLog hll = new HyperLogLog(10);
+        for (long i = 0; i < 5_000; i++) {
+            hll.offer(i * 31);
+        }
+        HyperLogLog restored = HyperLogLog.fromBytes(hll.toBytes());
+        assertEquals(hll.estimate(), restored.estimate());
+    }
+}
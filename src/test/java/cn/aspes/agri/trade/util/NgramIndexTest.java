@@ -0,0 +1,83 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("n-gram 倒排索引测试")
+class NgramIndexTest {
+
+    private NgramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NgramIndex(0.5);
+        index.put(1, "寿光西红柿", 100);
+        index.put(2, "西红柿", 50);
+        index.put(3, "有机西兰花", 300);
+        index.put(4, "腾冲红茶 一级", 200);
+        index.put(5, "Fuji 红富士苹果", 400);
+        index.put(6, "黑龙江五常大米", 500);
+        index.put(7, "新鲜草莓", 600);
+    }
+
+    @Test
+    @DisplayName("子串匹配 - 完全相等优先，其次前缀，其余按名称长度")
+    void substring_RankedByRelevance() {
+        index.put(8, "西红柿炒蛋调料", 900);
+
+        NgramIndex.Hits hits = index.search("西红柿", 0, 10);
+        assertEquals(3, hits.total());
+        assertEquals(List.of(2L, 8L, 1L), hits.ids());
+        assertEquals(List.of(6L), index.search("大米", 0, 10).ids());
+        assertEquals(List.of(7L), index.search("莓", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("模糊匹配 - 错字、多字仍可命中，无关词不命中")
+    void fuzzy_ToleratesTypos() {
+        assertTrue(index.search("西红市", 0, 10).ids().contains(2L));
+        assertEquals(List.of(6L), index.search("五常大米饭", 0, 10).ids());
+        assertEquals(0, index.search("土豆", 0, 10).total());
+        // 归一化：大小写、全角、空白与标点
+        assertEquals(List.of(5L), index.search("ＦＵＪＩ", 0, 10).ids());
+        assertEquals(List.of(4L), index.search("红茶，一级", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("拼音首字母 - 前缀与子串匹配，二级汉字使用补充表")
+    void pinyinInitials_Matched() {
+        assertEquals('x', PinyinInitials.of('西'));
+        assertEquals('m', PinyinInitials.of('莓'));
+        assertEquals("sgxhs", PinyinInitials.of("寿光西红柿"));
+
+        assertEquals(List.of(2L, 1L), index.search("xhs", 0, 10).ids());
+        assertEquals(List.of(7L), index.search("xxcm", 0, 10).ids());
+        assertEquals(List.of(6L), index.search("WCDM", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("更新与删除 - 旧词项失效，分页返回总数")
+    void updateAndRemove_ReflectedInSearch() {
+        index.put(2, "樱桃番茄", 50);
+        assertEquals(List.of(1L), index.search("西红柿", 0, 10).ids());
+        assertEquals(List.of(2L), index.search("番茄", 0, 10).ids());
+
+        index.remove(1);
+        index.remove(99);
+        assertEquals(0, index.search("西红柿", 0, 10).total());
+        assertEquals(6, index.size());
+
+        for (long id = 10; id < 15; id++) {
+            index.put(id, "苹果" + id, id);
+        }
+        NgramIndex.Hits page = index.search("苹果", 2, 2);
+        assertEquals(6, page.total());
+        assertEquals(2, page.ids().size());
+        assertEquals(0, index.search("  ", 0, 10).total());
+    }
+}
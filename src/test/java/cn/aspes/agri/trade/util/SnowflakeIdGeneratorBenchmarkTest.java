@@ -0,0 +1,36 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * 雪花ID生成器吞吐量对比，分别以 1、8、64 线程运行 {@link SnowflakeIdGeneratorBenchmark}
+ *
+ * 默认不执行，使用 mvn test -Dtest=SnowflakeIdGeneratorBenchmarkTest -Dbenchmark=true 运行。
+ */
+@DisplayName("雪花ID生成器吞吐量对比")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SnowflakeIdGeneratorBenchmarkTest {
+
+    @Test
+    @DisplayName("1/8/64 线程吞吐量")
+    void compareThroughput() throws Exception {
+        for (int threads : new int[]{1, 8, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(SnowflakeIdGeneratorBenchmark.class.getName() + ".*")
+                    .threads(threads)
+                    .forks(0)
+                    .warmupIterations(2)
+                    .warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(3)
+                    .measurementTime(TimeValue.seconds(1))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
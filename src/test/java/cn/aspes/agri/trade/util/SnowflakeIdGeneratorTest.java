@@ -0,0 +1,116 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("雪花ID生成器测试")
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    @DisplayName("多线程并发生成 - ID全局唯一且每个线程内递增")
+    void concurrentNextId_Unique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, 2);
+        int threads = 64;
+        int perThread = 20_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long previous = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        long id = i % 10 == 0 ? generator.nextIds(10)[9] : generator.nextId();
+                        assertTrue(id > previous);
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    @DisplayName("批量生成 - 连续递增且携带节点号")
+    void nextIds_MonotonicWithNodeBits() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 9);
+        long[] ids = generator.nextIds(10_000);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+        for (long id : ids) {
+            assertEquals(7, (id >> 12) & 31);
+            assertEquals(9, (id >> 17) & 31);
+        }
+        assertThrows(IllegalArgumentException.class, () -> generator.nextIds(0));
+    }
+
+    @Test
+    @DisplayName("时钟回拨 - 借用时间继续发号不抛异常且保持递增")
+    void clockRollback_BorrowsInsteadOfThrowing() {
+        AtomicLong clock = new AtomicLong(1_800_000_000_000L);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1) {
+            @Override
+            protected long timeGen() {
+                return clock.get();
+            }
+        };
+
+        long before = generator.nextId();
+        clock.addAndGet(-500);
+        long during = generator.nextId();
+        assertTrue(during > before);
+
+        // 回拨期间持续发号，ID仍递增
+        long previous = during;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+
+        clock.addAndGet(1_000);
+        long after = generator.nextId();
+        assertTrue(after > previous);
+        // 时钟追上后回到按当前时间发号
+        assertEquals(clock.get() - 1704067200000L, after >>> 22);
+    }
+
+    @Test
+    @DisplayName("同一毫秒序列号用尽 - 借用下一毫秒")
+    void sequenceExhausted_BorrowsNextMillisecond() {
+        long now = 1_800_000_000_000L;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1) {
+            @Override
+            protected long timeGen() {
+                return now;
+            }
+        };
+        long[] ids = generator.nextIds(5000);
+        assertEquals(now - 1704067200000L, ids[0] >>> 22);
+        assertEquals(now - 1704067200000L + 1, ids[4999] >>> 22);
+    }
+}
@@ -0,0 +1,91 @@
+package cn.aspes.agri.trade.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Space-Saving 频繁项草图测试")
+class SpaceSavingTest {
+
+    @Test
+    @DisplayName("未满时 - 计数精确且无误差")
+    void underCapacity_Exact() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(1, 2);
+        sketch.offer(3, 0);
+
+        List<SpaceSaving.Entry> top = sketch.top(5);
+        assertEquals(List.of(new SpaceSaving.Entry(1, 7, 0), new SpaceSaving.Entry(2, 3, 0)), top);
+        assertEquals(10, sketch.total());
+    }
+
+    @Test
+    @DisplayName("长尾分布 - 热门元素全部保留，估计值只高估且误差不超过 总量/容量")
+    void skewedStream_KeepsHeavyHitters() {
+        SpaceSaving sketch = new SpaceSaving(50);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // 前10个元素占约一半流量，其余来自 5000 个长尾元素
+            long key = random.nextBoolean() ? random.nextInt(10) : 10 + random.nextInt(5000);
+            long weight = 1 + random.nextInt(3);
+            sketch.offer(key, weight);
+            exact.merge(key, weight, Long::sum);
+        }
+
+        long bound = sketch.total() / sketch.capacity();
+        List<SpaceSaving.Entry> top = sketch.top(10);
+        for (SpaceSaving.Entry entry : top) {
+            assertTrue(entry.key() < 10, "长尾元素进入前10：" + entry.key());
+            long actual = exact.get(entry.key());
+            assertTrue(entry.count() >= actual);
+            assertTrue(entry.count() - entry.error() <= actual);
+            assertTrue(entry.error() <= bound);
+        }
+    }
+
+    @Test
+    @DisplayName("合并 - 等价于对合并后的流计数，保持高估性质")
+    void merge_PreservesUpperBound() {
+        SpaceSaving left = new SpaceSaving(20);
+        SpaceSaving right = new SpaceSaving(20);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(4) == 0 ? random.nextInt(500) : random.nextInt(5);
+            (i % 2 == 0 ? left : right).offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        left.merge(right);
+
+        assertEquals(20_000, left.total());
+        assertTrue(left.size() <= 20);
+        for (SpaceSaving.Entry entry : left.top(5)) {
+            assertTrue(entry.key() < 5);
+            assertTrue(entry.count() >= exact.get(entry.key()));
+            assertTrue(entry.count() - entry.error() <= exact.get(entry.key()));
+        }
+    }
+
+    @Test
+    @DisplayName("序列化 - 恢复后排行与误差不变")
+    void bytes_RoundTrip() {
+        SpaceSaving sketch = new SpaceSaving(3);
+        for (long key = 1; key <= 6; key++) {
+            sketch.offer(key, key * 10);
+        }
+        SpaceSaving restored = SpaceSaving.fromBytes(sketch.toBytes());
+        assertEquals(sketch.top(3), restored.top(3));
+        assertEquals(sketch.total(), restored.total());
+        assertEquals(3, restored.capacity());
+    }
+}
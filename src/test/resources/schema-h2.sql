@@ -0,0 +1,282 @@
+-- 数据层测试用H2表结构（与 init.sql 字段保持一致，省略外键与注释）
+
+CREATE TABLE IF NOT EXISTS `farmer_product` (
+    `id` BIGINT NOT NULL,
+    `farmer_id` BIGINT NOT NULL,
+    `category_id` BIGINT NOT NULL,
+    `name` VARCHAR(100) NOT NULL,
+    `spec` VARCHAR(100) NOT NULL,
+    `unit` VARCHAR(20) NOT NULL,
+    `price` DECIMAL(10,2) NOT NULL,
+    `min_purchase` INT NOT NULL DEFAULT 1,
+    `stock` INT NOT NULL,
+    `production_date` DATE DEFAULT NULL,
+    `shelf_life` VARCHAR(50),
+    `production_method` VARCHAR(50),
+    `origin_area_id` INT NOT NULL,
+    `description` TEXT,
+    `status` VARCHAR(20) DEFAULT 'on_sale',
+    `version` INT NOT NULL DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE INDEX IF NOT EXISTS `idx_product_farmer_time` ON `farmer_product` (`farmer_id`, `create_time`, `id`);
+CREATE INDEX IF NOT EXISTS `idx_product_status_time` ON `farmer_product` (`status`, `create_time`, `id`);
+
+CREATE TABLE IF NOT EXISTS `product_image` (
+    `id` BIGINT NOT NULL,
+    `product_id` BIGINT NOT NULL,
+    `image_url` VARCHAR(500) NOT NULL,
+    `image_type` VARCHAR(20) NOT NULL,
+    `sort` INT DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE INDEX IF NOT EXISTS `idx_image_product_sort` ON `product_image` (`product_id`, `sort`);
+
+CREATE TABLE IF NOT EXISTS `product_category` (
+    `id` BIGINT NOT NULL,
+    `name` VARCHAR(50) NOT NULL,
+    `parent_id` BIGINT DEFAULT NULL,
+    `status` VARCHAR(20) DEFAULT 'active',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `stock_reservation` (
+    `id` BIGINT NOT NULL,
+    `product_id` BIGINT NOT NULL,
+    `order_id` BIGINT NOT NULL,
+    `reserved_quantity` INT NOT NULL,
+    `status` VARCHAR(20) DEFAULT 'pending',
+    `release_reason` VARCHAR(200),
+    `version` INT NOT NULL DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `expired_time` TIMESTAMP DEFAULT NULL,
+    PRIMARY KEY (`id`),
+    CONSTRAINT `uk_order_product` UNIQUE (`order_id`, `product_id`)
+);
+
+CREATE TABLE IF NOT EXISTS `purchase_order` (
+    `id` BIGINT NOT NULL,
+    `order_no` VARCHAR(50) NOT NULL UNIQUE,
+    `contract_id` BIGINT NOT NULL,
+    `product_id` BIGINT NOT NULL,
+    `product_info` JSON,
+    `quantity` INT NOT NULL,
+    `total_amount` DECIMAL(12,2) NOT NULL,
+    `farmer_id` BIGINT NOT NULL,
+    `purchaser_id` BIGINT NOT NULL,
+    `remark` VARCHAR(500),
+    `actual_quantity` INT DEFAULT NULL,
+    `actual_amount` DECIMAL(12,2) DEFAULT NULL,
+    `status` VARCHAR(20) DEFAULT 'pending',
+    `delivery_time` DATETIME DEFAULT NULL,
+    `inspection_result` TEXT,
+    `finish_time` DATETIME DEFAULT NULL,
+    `version` INT NOT NULL DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE INDEX IF NOT EXISTS `idx_order_product_status` ON `purchase_order` (`product_id`, `status`);
+
+CREATE TABLE IF NOT EXISTS `purchase_contract` (
+    `id` BIGINT NOT NULL,
+    `contract_no` VARCHAR(50) NOT NULL UNIQUE,
+    `docking_id` BIGINT NOT NULL,
+    `purchaser_id` BIGINT NOT NULL,
+    `farmer_id` BIGINT NOT NULL,
+    `product_id` BIGINT NOT NULL,
+    `product_info` JSON,
+    `quantity` INT NOT NULL,
+    `total_amount` DECIMAL(12,2) NOT NULL,
+    `payment_terms` VARCHAR(500) NOT NULL,
+    `delivery_time` DATE NOT NULL,
+    `delivery_address` VARCHAR(300) NOT NULL,
+    `quality_standards` TEXT,
+    `breach_terms` TEXT,
+    `farmer_sign_url` VARCHAR(500) DEFAULT NULL,
+    `purchaser_sign_url` VARCHAR(500) DEFAULT NULL,
+    `status` VARCHAR(20) DEFAULT 'draft',
+    `version` INT NOT NULL DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `payment_record` (
+    `id` BIGINT NOT NULL,
+    `order_id` BIGINT NOT NULL,
+    `payment_no` VARCHAR(100) DEFAULT NULL UNIQUE,
+    `payment_stage` VARCHAR(50) NOT NULL,
+    `amount` DECIMAL(12,2) NOT NULL,
+    `payment_method` VARCHAR(20) NOT NULL,
+    `status` VARCHAR(20) DEFAULT 'pending',
+    `payment_time` DATETIME DEFAULT NULL,
+    `voucher_url` VARCHAR(500) DEFAULT NULL,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `user` (
+    `id` BIGINT NOT NULL,
+    `username` VARCHAR(50) NOT NULL UNIQUE,
+    `password` VARCHAR(100) NOT NULL,
+    `role` VARCHAR(20) NOT NULL,
+    `contact_person` VARCHAR(50) NOT NULL,
+    `contact_phone` VARCHAR(20) NOT NULL,
+    `contact_email` VARCHAR(100) DEFAULT NULL,
+    `is_certified` TINYINT DEFAULT 0,
+    `is_delete` TINYINT DEFAULT 0,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `cooperation_review` (
+    `id` BIGINT NOT NULL,
+    `order_id` BIGINT NOT NULL UNIQUE,
+    `review_from` VARCHAR(20) NOT NULL,
+    `review_to` VARCHAR(20) NOT NULL,
+    `target_id` BIGINT NOT NULL,
+    `rating` TINYINT NOT NULL,
+    `comment` TEXT,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `party_stats` (
+    `party_type` VARCHAR(20) NOT NULL,
+    `party_id` BIGINT NOT NULL,
+    `order_count` BIGINT NOT NULL DEFAULT 0,
+    `completed_order_count` BIGINT NOT NULL DEFAULT 0,
+    `delivered_amount` DECIMAL(14,2) NOT NULL DEFAULT 0,
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0,
+    `review_count` BIGINT NOT NULL DEFAULT 0,
+    `rating_sum` BIGINT NOT NULL DEFAULT 0,
+    `star1` BIGINT NOT NULL DEFAULT 0,
+    `star2` BIGINT NOT NULL DEFAULT 0,
+    `star3` BIGINT NOT NULL DEFAULT 0,
+    `star4` BIGINT NOT NULL DEFAULT 0,
+    `star5` BIGINT NOT NULL DEFAULT 0,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`party_type`, `party_id`)
+);
+
+CREATE TABLE IF NOT EXISTS `party_stats_daily` (
+    `party_type` VARCHAR(20) NOT NULL,
+    `party_id` BIGINT NOT NULL,
+    `stat_date` DATE NOT NULL,
+    `order_count` BIGINT NOT NULL DEFAULT 0,
+    `completed_order_count` BIGINT NOT NULL DEFAULT 0,
+    `delivered_amount` DECIMAL(14,2) NOT NULL DEFAULT 0,
+    `paid_amount` DECIMAL(14,2) NOT NULL DEFAULT 0,
+    `review_count` BIGINT NOT NULL DEFAULT 0,
+    `rating_sum` BIGINT NOT NULL DEFAULT 0,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`party_type`, `party_id`, `stat_date`)
+);
+
+CREATE TABLE IF NOT EXISTS `product_sales` (
+    `product_id` BIGINT NOT NULL,
+    `order_count` BIGINT NOT NULL DEFAULT 0,
+    `sales_quantity` BIGINT NOT NULL DEFAULT 0,
+    `sales_amount` DECIMAL(14,2) NOT NULL DEFAULT 0,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`product_id`)
+);
+
+CREATE TABLE IF NOT EXISTS `farmer_info` (
+    `id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL UNIQUE,
+    `farm_name` VARCHAR(100) NOT NULL,
+    `origin_area_id` INT DEFAULT NULL,
+    `production_scale` VARCHAR(200),
+    `certifications` JSON DEFAULT NULL,
+    `bank_account` VARCHAR(50) DEFAULT NULL,
+    `bank_name` VARCHAR(100) DEFAULT NULL,
+    `id_number` VARCHAR(50) DEFAULT NULL,
+    `id_card_front_url` VARCHAR(500) DEFAULT NULL,
+    `id_card_back_url` VARCHAR(500) DEFAULT NULL,
+    `apply_reason` TEXT,
+    `audit_status` VARCHAR(20) DEFAULT 'pending',
+    `audit_remark` VARCHAR(500) DEFAULT NULL,
+    `approved_time` DATETIME DEFAULT NULL,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `purchaser_info` (
+    `id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL UNIQUE,
+    `company_name` VARCHAR(100) NOT NULL,
+    `company_type` VARCHAR(50),
+    `business_license_url` VARCHAR(500) DEFAULT NULL,
+    `purchase_scale` VARCHAR(200),
+    `preferred_origin` JSON DEFAULT NULL,
+    `legal_representative` VARCHAR(100) DEFAULT NULL,
+    `apply_reason` TEXT,
+    `audit_status` VARCHAR(20) DEFAULT 'pending',
+    `audit_remark` VARCHAR(500) DEFAULT NULL,
+    `approved_time` DATETIME DEFAULT NULL,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `purchase_demand` (
+    `id` BIGINT NOT NULL,
+    `purchaser_id` BIGINT NOT NULL,
+    `category_id` BIGINT NOT NULL,
+    `product_name` VARCHAR(100) NOT NULL,
+    `spec_require` VARCHAR(200),
+    `quantity` INT NOT NULL,
+    `unit` VARCHAR(20) NOT NULL,
+    `price_range` VARCHAR(50),
+    `delivery_date` DATE DEFAULT NULL,
+    `delivery_address` VARCHAR(300) DEFAULT NULL,
+    `quality_require` TEXT,
+    `status` VARCHAR(20) DEFAULT 'pending',
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+CREATE INDEX IF NOT EXISTS `idx_demand_purchaser` ON `purchase_demand` (`purchaser_id`);
+
+CREATE TABLE IF NOT EXISTS `origin_area` (
+    `area_id` INT AUTO_INCREMENT PRIMARY KEY,
+    `area_code` VARCHAR(20) NOT NULL,
+    `area_name` VARCHAR(100) NOT NULL,
+    `province` VARCHAR(50) NOT NULL,
+    `city` VARCHAR(50) NOT NULL,
+    `feature` TEXT,
+    `is_poverty_area` BOOLEAN DEFAULT FALSE,
+    `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS `trade_stats_daily` (
+    `stat_date` DATE NOT NULL,
+    `week_start` DATE NOT NULL,
+    `month_start` DATE NOT NULL,
+    `category_id` BIGINT NOT NULL,
+    `province` VARCHAR(50) NOT NULL,
+    `status` VARCHAR(20) NOT NULL,
+    `source` VARCHAR(10) NOT NULL DEFAULT 'live',
+    `order_count` BIGINT NOT NULL DEFAULT 0,
+    `total_quantity` BIGINT NOT NULL DEFAULT 0,
+    `total_amount` DECIMAL(16,2) NOT NULL DEFAULT 0,
+    `update_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`stat_date`, `category_id`, `province`, `status`, `source`)
+);
+
+CREATE INDEX IF NOT EXISTS `idx_trade_status_date` ON `trade_stats_daily` (`status`, `stat_date`);
+